@@ -92,18 +92,22 @@ public class ImageLabelingActivity extends BaseCameraActivity implements ImageRe
             return;
         }
 
-        final FritzVisionImage fritzImage = FritzVisionImage.fromMediaImage(image, orientation);
-        image.close();
+        // The vision image closes the frame when it's released.
+        final FritzVisionImage fritzImage = FritzVisionImage.wrapMediaImage(image, orientation);
 
         runInBackground(
                 new Runnable() {
                     @Override
                     public void run() {
-                        FritzVisionLabelResult labels = predictor.predict(fritzImage);
-                        resultsView.setResult(labels.getVisionLabels());
-                        fritzImage.release();
-                        requestRender();
-                        computing.set(false);
+                        try {
+                            FritzVisionLabelResult labels = predictor.predict(fritzImage);
+                            resultsView.setResult(labels.getVisionLabels());
+                            requestRender();
+                        } finally {
+                            // Always hand the frame back and accept the next one, even if the prediction failed.
+                            fritzImage.release();
+                            computing.set(false);
+                        }
                     }
                 });
     }
@@ -74,7 +74,9 @@ object Fritz {
                 ?: intializeSession(context.applicationContext, appToken)
         appContext = context.applicationContext
         var apiClient = ApiClient(session, appContext.getString(R.string.api_base) + "/sdk/v1")
-        sessionManager = SessionManager(context.applicationContext, session, apiClient)
+        val newSessionManager = SessionManager(context.applicationContext, session, apiClient)
+        handOffPreviousSessionManager(newSessionManager)
+        sessionManager = newSessionManager
         sessionManager.registerLifecycleCallbacks()
         sessionManager.fetchSessionSettings()
     }
@@ -84,11 +86,23 @@ object Fritz {
     fun configure(sessionManager: SessionManager) {
         session = sessionManager.session
         appContext = sessionManager.appContext
+        if (!this::sessionManager.isInitialized || this.sessionManager !== sessionManager) {
+            handOffPreviousSessionManager(sessionManager)
+        }
         this.sessionManager = sessionManager
         sessionManager.registerLifecycleCallbacks()
         sessionManager.fetchSessionSettings()
     }
 
+    /**
+     * Write tracked events to disk until they're sent, so events pending when the app is killed
+     * are sent the next time it runs. Call after [configure].
+     */
+    @JvmStatic
+    fun enableEventSpool() {
+        sessionManager.enableEventSpool()
+    }
+
     @JvmStatic
     fun intializeSession(context: Context, appKeyFromArgs: String?): Session {
         // Generate and save the instance id if it hasn't already been set.
@@ -208,6 +222,15 @@ object Fritz {
         return metadata?.getString(API_KEY, null)
     }
 
+    /**
+     * Stop the current session manager's event queue and move its unsent events to the new one.
+     */
+    private fun handOffPreviousSessionManager(newSessionManager: SessionManager) {
+        if (this::sessionManager.isInitialized) {
+            sessionManager.eventQueue.handOffTo(newSessionManager.eventQueue)
+        }
+    }
+
     private fun generateInstanceId(): String {
         return UUID.randomUUID().toString()
     }
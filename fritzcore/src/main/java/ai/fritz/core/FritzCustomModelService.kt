@@ -56,11 +56,24 @@ class FritzCustomModelService : JobService() {
         return true
     }
 
+    /**
+     * Reuse one session manager across jobs so each job doesn't start another event queue.
+     */
     private fun getSessionManager(): SessionManager {
         val session = SessionPreferenceManager.getSession(applicationContext)
                 ?: throw RuntimeException("You must call Fritz.configure first.")
-        var apiClient = ApiClient(session, applicationContext.getString(R.string.api_base) + "/sdk/v1")
-        return SessionManager(applicationContext, session, apiClient)
+        synchronized(FritzCustomModelService::class.java) {
+            val existing = jobSessionManager
+            if (existing != null && existing.session == session) {
+                return existing
+            }
+            var apiClient = ApiClient(session, applicationContext.getString(R.string.api_base) + "/sdk/v1")
+            val sessionManager = SessionManager(applicationContext, session, apiClient)
+            // Events tracked by earlier jobs are sent by the new session manager.
+            existing?.eventQueue?.handOffTo(sessionManager.eventQueue)
+            jobSessionManager = sessionManager
+            return sessionManager
+        }
     }
 
     private fun checkModelUpdateJob(params: JobParameters, managedModel: FritzManagedModel) {
@@ -116,8 +129,8 @@ class FritzCustomModelService : JobService() {
                 onJobFinishedFailure(params)
             }
         }
-        val downloadTask = DownloadModelTask(fritzManagedModel.modelId, downloadConfigs.modelVersion, applicationContext.filesDir, listener)
-        downloadTask.execute(downloadConfigs.urlToDownload)
+        val downloadTask = DownloadModelTask(fritzManagedModel.modelId, downloadConfigs.modelVersion, applicationContext.filesDir, listener, downloadConfigs.sha256)
+        downloadTask.executeOnExecutor(FritzExecutors.io(), downloadConfigs.urlToDownload)
     }
 
     private fun onJobFinishedFailure(params: JobParameters) {
@@ -141,5 +154,7 @@ class FritzCustomModelService : JobService() {
 
     companion object {
         val TAG = FritzCustomModelService::class.java.simpleName
+
+        private var jobSessionManager: SessionManager? = null
     }
 }
\ No newline at end of file
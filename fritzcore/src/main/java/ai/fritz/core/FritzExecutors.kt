@@ -0,0 +1,297 @@
+package ai.fritz.core
+
+import ai.fritz.core.utils.LimitedExecutor
+import android.os.Handler
+import android.os.HandlerThread
+import android.os.Process
+import java.util.concurrent.Executor
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.ForkJoinPool
+import java.util.concurrent.ForkJoinWorkerThread
+import java.util.concurrent.LinkedBlockingQueue
+import java.util.concurrent.ScheduledExecutorService
+import java.util.concurrent.ScheduledThreadPoolExecutor
+import java.util.concurrent.ThreadFactory
+import java.util.concurrent.ThreadPoolExecutor
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * The threads shared by everything in the SDK.
+ *
+ * Components post their work here instead of starting their own threads, so the number of SDK
+ * threads stays the same however many sessions, predictors or videos there are:
+ *
+ * - [scheduler]: one thread for periodic and delayed work, like flushing events. Tasks should be short.
+ * - [io]: a bounded pool for API requests and disk.
+ * - [downloads]: a bounded pool for the ranges of model downloads. Kept apart from [io] since a
+ *   download running on [io] waits for its ranges.
+ * - [compute]: a bounded pool for async predictions and loading models.
+ * - [background]: a bounded pool at background priority for CPU bound work nobody is waiting on,
+ *   like encoding recordings, so it doesn't compete with predictions.
+ * - [forkJoin]: a pool the size of [compute] for splitting a single job (e.g processing an image)
+ *   across cores.
+ * - [callbackHandler]: one looper thread for short framework callbacks (e.g frame available signals).
+ * - [videoHandler]: one looper thread that drives video codecs.
+ *
+ * Pool threads are daemons and exit after being idle, so an app that isn't using the SDK has no
+ * SDK threads running. Each pool is created on first use. [shutdown] stops all of them; anything
+ * used afterwards is created again.
+ *
+ * Use [limitedCompute], [limitedBackground] or [limitedDownloads] to keep a component to a number of
+ * threads of a shared pool.
+ *
+ * @hide
+ */
+object FritzExecutors {
+    private const val THREAD_PREFIX = "Fritz"
+    private const val KEEP_ALIVE_SECONDS = 30L
+    const val IO_THREADS = 4
+    const val DOWNLOAD_THREADS = 4
+    @JvmField
+    val COMPUTE_THREADS = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()))
+
+    private var scheduler: ScheduledThreadPoolExecutor? = null
+    private var io: ThreadPoolExecutor? = null
+    private var downloads: ThreadPoolExecutor? = null
+    private var compute: ThreadPoolExecutor? = null
+    private var background: ThreadPoolExecutor? = null
+    private var forkJoin: ForkJoinPool? = null
+    private var callbackThread: HandlerThread? = null
+    private var callbackHandler: Handler? = null
+    private var videoThread: HandlerThread? = null
+    private var videoHandler: Handler? = null
+
+    /**
+     * The single thread for periodic and delayed tasks.
+     */
+    @JvmStatic
+    @Synchronized
+    fun scheduler(): ScheduledExecutorService {
+        var executor = scheduler
+        if (executor == null || executor.isShutdown) {
+            executor = ScheduledThreadPoolExecutor(1, createThreadFactory("Scheduler", Process.THREAD_PRIORITY_BACKGROUND))
+            // Cancelled tasks shouldn't wait for their delay to be released.
+            executor.removeOnCancelPolicy = true
+            executor.setKeepAliveTime(KEEP_ALIVE_SECONDS, TimeUnit.SECONDS)
+            executor.allowCoreThreadTimeOut(true)
+            scheduler = executor
+        }
+        return executor
+    }
+
+    /**
+     * The pool for network requests and disk access.
+     */
+    @JvmStatic
+    @Synchronized
+    fun io(): ExecutorService {
+        var executor = io
+        if (executor == null || executor.isShutdown) {
+            executor = createPool("IO", IO_THREADS, Process.THREAD_PRIORITY_BACKGROUND)
+            io = executor
+        }
+        return executor
+    }
+
+    /**
+     * The pool for downloading the ranges of model files.
+     */
+    @JvmStatic
+    @Synchronized
+    fun downloads(): ExecutorService {
+        var executor = downloads
+        if (executor == null || executor.isShutdown) {
+            executor = createPool("Download", DOWNLOAD_THREADS, Process.THREAD_PRIORITY_BACKGROUND)
+            downloads = executor
+        }
+        return executor
+    }
+
+    /**
+     * The pool for predictions and other CPU bound work.
+     */
+    @JvmStatic
+    @Synchronized
+    fun compute(): ExecutorService {
+        var executor = compute
+        if (executor == null || executor.isShutdown) {
+            executor = createPool("Compute", COMPUTE_THREADS, Process.THREAD_PRIORITY_DEFAULT)
+            compute = executor
+        }
+        return executor
+    }
+
+    /**
+     * The pool for CPU bound work that isn't urgent. Its threads run at background priority.
+     */
+    @JvmStatic
+    @Synchronized
+    fun background(): ExecutorService {
+        var executor = background
+        if (executor == null || executor.isShutdown) {
+            executor = createPool("Background", COMPUTE_THREADS, Process.THREAD_PRIORITY_BACKGROUND)
+            background = executor
+        }
+        return executor
+    }
+
+    /**
+     * The pool for splitting CPU bound work into tasks that run in parallel.
+     */
+    @JvmStatic
+    @Synchronized
+    fun forkJoin(): ForkJoinPool {
+        var pool = forkJoin
+        if (pool == null || pool.isShutdown) {
+            pool = ForkJoinPool(COMPUTE_THREADS, createForkJoinThreadFactory(), null, false)
+            forkJoin = pool
+        }
+        return pool
+    }
+
+    /**
+     * A handler on the looper thread for short callbacks. Never block on it.
+     */
+    @JvmStatic
+    @Synchronized
+    fun callbackHandler(): Handler {
+        var handler = callbackHandler
+        if (handler == null) {
+            val thread = HandlerThread(THREAD_PREFIX + "Callbacks")
+            thread.start()
+            handler = Handler(thread.looper)
+            callbackThread = thread
+            callbackHandler = handler
+        }
+        return handler
+    }
+
+    /**
+     * A handler on the looper thread that drives video decoding and encoding.
+     */
+    @JvmStatic
+    @Synchronized
+    fun videoHandler(): Handler {
+        var handler = videoHandler
+        if (handler == null) {
+            val thread = HandlerThread(THREAD_PREFIX + "Video")
+            thread.start()
+            handler = Handler(thread.looper)
+            videoThread = thread
+            videoHandler = handler
+        }
+        return handler
+    }
+
+    /**
+     * Run tasks on the compute pool with at most maxConcurrent of them running at once.
+     * With a maxConcurrent of 1, tasks run one at a time in order.
+     *
+     * The executor keeps working after [shutdown] since it looks up the pool for each task.
+     */
+    @JvmStatic
+    fun limitedCompute(maxConcurrent: Int): LimitedExecutor {
+        return LimitedExecutor(Executor { task -> compute().execute(task) }, maxConcurrent)
+    }
+
+    /**
+     * Run tasks on the background pool with at most maxConcurrent of them running at once.
+     */
+    @JvmStatic
+    fun limitedBackground(maxConcurrent: Int): LimitedExecutor {
+        return LimitedExecutor(Executor { task -> background().execute(task) }, maxConcurrent)
+    }
+
+    /**
+     * Run tasks on the download pool with at most maxConcurrent of them running at once.
+     */
+    @JvmStatic
+    fun limitedDownloads(maxConcurrent: Int): LimitedExecutor {
+        return LimitedExecutor(Executor { task -> downloads().execute(task) }, maxConcurrent)
+    }
+
+    /**
+     * The number of threads currently alive across all the SDK's pools and loopers.
+     */
+    @JvmStatic
+    @Synchronized
+    fun threadCount(): Int {
+        var count = 0
+        for (pool in arrayOf(scheduler, io, downloads, compute, background)) {
+            if (pool != null && !pool.isShutdown) {
+                count += pool.poolSize
+            }
+        }
+        forkJoin?.let {
+            if (!it.isShutdown) {
+                count += it.poolSize
+            }
+        }
+        for (thread in arrayOf(callbackThread, videoThread)) {
+            if (thread != null && thread.isAlive) {
+                count++
+            }
+        }
+        return count
+    }
+
+    /**
+     * Stop every SDK thread. Queued tasks that haven't started are dropped.
+     */
+    @JvmStatic
+    @Synchronized
+    fun shutdown() {
+        for (pool in arrayOf(scheduler, io, downloads, compute, background)) {
+            pool?.shutdown()
+        }
+        forkJoin?.shutdown()
+        callbackThread?.quitSafely()
+        videoThread?.quitSafely()
+        scheduler = null
+        io = null
+        downloads = null
+        compute = null
+        background = null
+        forkJoin = null
+        callbackThread = null
+        callbackHandler = null
+        videoThread = null
+        videoHandler = null
+    }
+
+    private fun createPool(name: String, numThreads: Int, priority: Int): ThreadPoolExecutor {
+        val executor = ThreadPoolExecutor(numThreads, numThreads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                LinkedBlockingQueue(), createThreadFactory(name, priority))
+        executor.allowCoreThreadTimeOut(true)
+        return executor
+    }
+
+    private fun createThreadFactory(name: String, priority: Int): ThreadFactory {
+        return object : ThreadFactory {
+            private val threadCount = AtomicInteger()
+
+            override fun newThread(runnable: Runnable): Thread {
+                val thread = Thread(Runnable {
+                    Process.setThreadPriority(priority)
+                    runnable.run()
+                }, THREAD_PREFIX + name + "-" + threadCount.incrementAndGet())
+                thread.isDaemon = true
+                return thread
+            }
+        }
+    }
+
+    private fun createForkJoinThreadFactory(): ForkJoinPool.ForkJoinWorkerThreadFactory {
+        return object : ForkJoinPool.ForkJoinWorkerThreadFactory {
+            private val threadCount = AtomicInteger()
+
+            override fun newThread(pool: ForkJoinPool): ForkJoinWorkerThread {
+                // Fork/join workers are daemons and exit when idle.
+                val thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool)
+                thread.name = THREAD_PREFIX + "ForkJoin-" + threadCount.incrementAndGet()
+                return thread
+            }
+        }
+    }
+}
@@ -1,10 +1,15 @@
 package ai.fritz.core
 
-import ai.fritz.core.factories.ModelEventFactory
+import ai.fritz.core.metrics.PredictionMetrics
+import ai.fritz.core.metrics.PredictionStage
 import android.util.Log
 import org.tensorflow.lite.Interpreter
 import org.tensorflow.lite.Tensor
 import java.io.IOException
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
+import java.util.concurrent.Executor
+import java.util.concurrent.atomic.AtomicBoolean
 import java.util.logging.Logger
 
 /**
@@ -14,14 +19,40 @@ import java.util.logging.Logger
  *
  * The FritzTFLite interpreter wraps around the TensorFlow Lite Interpreter class.
  * All methods should be modeled after those in TensorFlow Lite's Interpreter class.
+ *
+ * When a new model version becomes active, the replacement interpreter is built and warmed up on a
+ * background thread and then swapped in. Runs already in progress finish on the previous interpreter,
+ * which is closed once they're done.
  */
 class FritzTFLiteInterpreter @JvmOverloads constructor(currentOnDeviceModel: FritzOnDeviceModel?, interpreterOptions: Interpreter.Options? = Interpreter.Options()) : FritzInterpreter<Interpreter?>(currentOnDeviceModel!!) {
-    override var interpreter: Interpreter? = null
-        public get() {
-            return field
-        }
-        private set
+    override val interpreter: Interpreter?
+        get() = swapper.currentSlot.interpreter
+
+    private lateinit var swapper: InterpreterSwapper<Interpreter>
+    private val isSwapPending = AtomicBoolean(false)
+    @Volatile
+    private var failedModelVersion: Int? = null
+    @Volatile
     private var optionBuilder: TFLInterpreterOptionBuilder? = null
+    private var isClosed = false
+
+    /**
+     * Build new model versions on a background thread (default: true).
+     *
+     * Turn this off for interpreters that must be created on the thread that runs them (e.g GPU delegates).
+     */
+    @Volatile
+    var isSwapInBackground = true
+
+    /**
+     * Incremented each time a new model version is swapped in.
+     *
+     * Tensors and buffers taken from [getInputTensor] and [getOutputTensor] belong to the interpreter
+     * they came from, so set them up again when this changes.
+     */
+    @Volatile
+    var interpreterVersion = 0
+        private set
 
     constructor(currentOnDeviceModel: FritzOnDeviceModel?, optionBuilder: TFLInterpreterOptionBuilder) : this(currentOnDeviceModel, optionBuilder.buildInterpreterOptions()) {
         this.optionBuilder = optionBuilder
@@ -65,18 +96,134 @@ class FritzTFLiteInterpreter @JvmOverloads constructor(currentOnDeviceModel: Fri
         if (!shouldRefreshInterpreter(onDeviceModel, newOnDeviceModel!!)) {
             return
         }
+        if (newOnDeviceModel.modelVersion == failedModelVersion) {
+            return
+        }
+        // Only build one replacement at a time.
+        if (!isSwapPending.compareAndSet(false, true)) {
+            return
+        }
+        if (!isSwapInBackground) {
+            swapInterpreter(newOnDeviceModel, true)
+            return
+        }
+        swapExecutor.execute {
+            try {
+                swapInterpreter(newOnDeviceModel, true)
+            } catch (e: RuntimeException) {
+                Log.e(TAG, "Failed to load " + newOnDeviceModel, e)
+            }
+        }
+    }
+
+    /**
+     * Rebuild the interpreter for the current model with new options and swap it in.
+     *
+     * The new interpreter is built and warmed up on the calling thread. Like a new model version,
+     * runs in progress finish on the previous interpreter and [interpreterVersion] changes once the
+     * new one is in use. If a new model version is already being swapped in, the options are used
+     * from the next swap instead.
+     *
+     * @param optionBuilder: builds the options for this and later interpreters
+     */
+    fun reconfigure(optionBuilder: TFLInterpreterOptionBuilder) {
+        this.optionBuilder = optionBuilder
+        if (!isSwapPending.compareAndSet(false, true)) {
+            return
+        }
+        swapInterpreter(swapper.currentSlot.onDeviceModel, false)
+    }
+
+    private fun swapInterpreter(newOnDeviceModel: FritzOnDeviceModel, isNewVersion: Boolean) {
+        var isPublished = false
         try {
             val options = if (optionBuilder != null) optionBuilder!!.buildInterpreterOptions() else Interpreter.Options()
-            val newInterpreter = Interpreter(ModelReader(newOnDeviceModel).readModelFile(), options)
-            val previousOnDeviceModel = onDeviceModel
-            onDeviceModel = newOnDeviceModel
-            interpreter = newInterpreter
-            previousOnDeviceModel.deleteModelFile()
+            val newInterpreter = createInterpreter(newOnDeviceModel, options)
+            val newSlot = createSlot(newInterpreter, newOnDeviceModel)
+            synchronized(this) {
+                if (isClosed) {
+                    newSlot.release()
+                    return
+                }
+                matchInputShapes(newInterpreter)
+                // Refresh the output shapes so the warm up buffers match.
+                newInterpreter.allocateTensors()
+            }
+
+            try {
+                warmUp(newInterpreter)
+            } catch (e: RuntimeException) {
+                newSlot.release()
+                throw e
+            }
+
+            synchronized(this) {
+                if (isClosed) {
+                    newSlot.release()
+                    return
+                }
+                // Inputs may have been resized again while warming up.
+                if (matchInputShapes(newInterpreter)) {
+                    newInterpreter.allocateTensors()
+                }
+                val previousOnDeviceModel = swapper.currentSlot.onDeviceModel
+                onDeviceModel = newOnDeviceModel
+                if (isNewVersion) {
+                    swapper.publish(newSlot) { previousOnDeviceModel.deleteModelFile() }
+                } else {
+                    swapper.publish(newSlot)
+                }
+                interpreterVersion++
+                isPublished = true
+            }
         } catch (e: IOException) {
             throw RuntimeException(e)
+        } finally {
+            if (isNewVersion && !isPublished) {
+                // Don't retry a version that failed to load on every run. Newer versions are still tried.
+                failedModelVersion = newOnDeviceModel.modelVersion
+            }
+            isSwapPending.set(false)
         }
     }
 
+    /**
+     * Match any inputs that were resized on the current interpreter. Call while holding the lock.
+     *
+     * @return true if an input was resized.
+     */
+    private fun matchInputShapes(newInterpreter: Interpreter): Boolean {
+        val currentInterpreter = swapper.currentSlot.interpreter
+        var isResized = false
+        for (i in 0 until currentInterpreter.inputTensorCount) {
+            val shape = currentInterpreter.getInputTensor(i).shape()
+            if (!shape.contentEquals(newInterpreter.getInputTensor(i).shape())) {
+                newInterpreter.resizeInput(i, shape)
+                isResized = true
+            }
+        }
+        return isResized
+    }
+
+    /**
+     * Run once with zeroed buffers so tensors are allocated before the first real prediction.
+     */
+    private fun warmUp(newInterpreter: Interpreter) {
+        val inputs = arrayOfNulls<Any>(newInterpreter.inputTensorCount)
+        for (i in inputs.indices) {
+            inputs[i] = allocateZeroedBuffer(newInterpreter.getInputTensor(i))
+        }
+        val outputs = HashMap<Int, Any>()
+        for (i in 0 until newInterpreter.outputTensorCount) {
+            outputs[i] = allocateZeroedBuffer(newInterpreter.getOutputTensor(i))
+        }
+        newInterpreter.runForMultipleInputsOutputs(inputs, outputs)
+    }
+
+    private fun allocateZeroedBuffer(tensor: Tensor): ByteBuffer {
+        return ByteBuffer.allocateDirect(tensor.numBytes()).order(ByteOrder.nativeOrder())
+    }
+
     /**
      * Run model inference on the input and output methods.
      *
@@ -87,10 +234,15 @@ class FritzTFLiteInterpreter @JvmOverloads constructor(currentOnDeviceModel: Fri
         if (modelDownloadManager != null) {
             modelDownloadManager!!.checkForNewActiveVersion()
         }
-        val start = System.currentTimeMillis()
-        interpreter!!.run(input, output)
-        Log.d(TAG, "Inference Time: " + (System.currentTimeMillis() - start))
-        trackInferenceTime()
+        val slot = swapper.acquire()
+        try {
+            val start = System.nanoTime()
+            slot.interpreter.run(input, output)
+            PredictionMetrics.recordSince(slot.onDeviceModel.modelId, PredictionStage.INFERENCE, start)
+            trackInferenceTime(slot)
+        } finally {
+            slot.release()
+        }
     }
 
     /**
@@ -106,16 +258,20 @@ class FritzTFLiteInterpreter @JvmOverloads constructor(currentOnDeviceModel: Fri
         if (modelDownloadManager != null) {
             modelDownloadManager!!.checkForNewActiveVersion()
         }
-        val start = System.currentTimeMillis()
-        interpreter!!.runForMultipleInputsOutputs(inputs, outputs!!)
-        Log.d(TAG, "Inference Time: " + (System.currentTimeMillis() - start))
-        trackInferenceTime()
+        val slot = swapper.acquire()
+        try {
+            val start = System.nanoTime()
+            slot.interpreter.runForMultipleInputsOutputs(inputs, outputs!!)
+            PredictionMetrics.recordSince(slot.onDeviceModel.modelId, PredictionStage.INFERENCE, start)
+            trackInferenceTime(slot)
+        } finally {
+            slot.release()
+        }
     }
 
-    private fun trackInferenceTime() { // Only track the run methods
-        val elapsed = lastNativeInferenceDurationNanoseconds ?: return
-        val predictionTiming = ModelEventFactory.createPredictionTiming(onDeviceModel, elapsed)
-        Fritz.sessionManager.track(predictionTiming)
+    private fun trackInferenceTime(slot: InterpreterSwapper.Slot<Interpreter>) { // Only track the run methods
+        val elapsed = slot.interpreter.lastNativeInferenceDurationNanoseconds
+        Fritz.sessionManager.trackPredictionTiming(slot.onDeviceModel, elapsed)
     }
 
     /**
@@ -125,7 +281,18 @@ class FritzTFLiteInterpreter @JvmOverloads constructor(currentOnDeviceModel: Fri
      * @param dims dimensions
      */
     fun resizeInput(idx: Int, dims: IntArray?) {
-        interpreter!!.resizeInput(idx, dims)
+        synchronized(this) {
+            interpreter!!.resizeInput(idx, dims)
+        }
+    }
+
+    /**
+     * Allocate tensors after inputs were resized so the output tensor shapes are up to date.
+     */
+    fun allocateTensors() {
+        synchronized(this) {
+            interpreter!!.allocateTensors()
+        }
     }
 
     /**
@@ -150,7 +317,14 @@ class FritzTFLiteInterpreter @JvmOverloads constructor(currentOnDeviceModel: Fri
      * Release resources associated with the `Interpreter`.
      */
     fun close() {
-        interpreter!!.close()
+        synchronized(this) {
+            if (isClosed) {
+                return
+            }
+            isClosed = true
+        }
+        // Closes once in-flight runs finish.
+        swapper.close()
     }
 
     /**
@@ -159,15 +333,36 @@ class FritzTFLiteInterpreter @JvmOverloads constructor(currentOnDeviceModel: Fri
     val lastNativeInferenceDurationNanoseconds: Long
         get() = interpreter!!.lastNativeInferenceDurationNanoseconds
 
+    @Throws(IOException::class)
+    private fun createInterpreter(model: FritzOnDeviceModel, options: Interpreter.Options?): Interpreter {
+        val modelBuffer = ModelBufferCache.acquire(model)
+        try {
+            return Interpreter(modelBuffer, options)
+        } catch (e: RuntimeException) {
+            ModelBufferCache.release(model)
+            throw e
+        }
+    }
+
+    private fun createSlot(newInterpreter: Interpreter, model: FritzOnDeviceModel): InterpreterSwapper.Slot<Interpreter> {
+        return InterpreterSwapper.Slot(newInterpreter, model) {
+            it.close()
+            ModelBufferCache.release(model)
+        }
+    }
+
     companion object {
         private val TAG = FritzTFLiteInterpreter::class.java.simpleName
+
+        // Shared by all interpreters. Swaps are rare so they run one at a time on the compute pool.
+        private val swapExecutor: Executor = FritzExecutors.limitedCompute(1)
         private val logger = Logger.getLogger(
                 FritzTFLiteInterpreter::class.java.simpleName)
     }
 
     init {
         try {
-            interpreter = Interpreter(ModelReader(currentOnDeviceModel!!).readModelFile(), interpreterOptions)
+            swapper = InterpreterSwapper(createSlot(createInterpreter(currentOnDeviceModel!!, interpreterOptions), currentOnDeviceModel))
         } catch (e: IOException) {
             throw RuntimeException(e)
         }
@@ -0,0 +1,158 @@
+package ai.fritz.core
+
+import ai.fritz.core.constants.SPKeys
+import ai.fritz.core.utils.PreferenceManager
+import android.content.Context
+import android.os.Build
+import android.util.Log
+import org.tensorflow.lite.Interpreter
+import org.tensorflow.lite.Tensor
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
+
+/**
+ * Picks the fastest interpreter config for a model on the current device.
+ *
+ * The first time a model version is tuned, each candidate config is benchmarked with zeroed
+ * inputs and the fastest one is saved to shared preferences. The saved choice is keyed by model id,
+ * model version and device build fingerprint so an app or OS update with a new model or driver
+ * triggers a new benchmark. Later calls return the saved config without running the model.
+ *
+ * Candidates that fail to load (e.g unsupported GPU ops) are skipped. Tuning runs on the calling
+ * thread, which must be the thread that runs predictions when GPU candidates are included.
+ *
+ * @hide
+ */
+object InterpreterAutoTuner {
+    private val TAG = InterpreterAutoTuner::class.java.simpleName
+
+    private const val WARM_UP_RUNS = 2
+    private const val TIMED_RUNS = 5
+
+    // Tuning is rare and slow; don't benchmark the same model from two threads at once.
+    private val lock = Any()
+
+    /**
+     * An identifier for the device and OS build.
+     */
+    @JvmStatic
+    val deviceFingerprint: String = Integer.toHexString((Build.FINGERPRINT ?: Build.MODEL ?: "unknown").hashCode())
+
+    /**
+     * Get the saved config for the model, benchmarking the candidates if there isn't one.
+     *
+     * @param context: the app context
+     * @param onDeviceModel: the model to tune
+     * @param candidates: the configs to choose from, in order of preference for ties
+     * @return the fastest config
+     */
+    @JvmStatic
+    fun getTunedConfig(context: Context, onDeviceModel: FritzOnDeviceModel, candidates: List<InterpreterConfig>): InterpreterConfig {
+        if (candidates.isEmpty()) {
+            throw IllegalArgumentException("There must be at least one interpreter config to tune.")
+        }
+        synchronized(lock) {
+            val saved = getSavedConfig(context, onDeviceModel, candidates)
+            if (saved != null) {
+                return saved
+            }
+
+            var best: InterpreterConfig? = null
+            var bestNanos = Long.MAX_VALUE
+            for (candidate in candidates) {
+                val nanos = try {
+                    benchmark(onDeviceModel, candidate)
+                } catch (e: Exception) {
+                    Log.w(TAG, "Skipping $candidate for ${onDeviceModel.modelId}: ${e.message}")
+                    continue
+                }
+                Log.d(TAG, "${onDeviceModel.modelId} with $candidate: ${nanos / 1000} us")
+                if (nanos < bestNanos) {
+                    best = candidate
+                    bestNanos = nanos
+                }
+            }
+
+            if (best == null) {
+                // Nothing ran; use the first choice without saving it so the next launch tries again.
+                Log.w(TAG, "No interpreter config could run ${onDeviceModel.modelId}.")
+                return candidates[0]
+            }
+            PreferenceManager.saveInterpreterConfig(context, onDeviceModel, deviceFingerprint, best)
+            return best
+        }
+    }
+
+    /**
+     * Get the config saved for the model without benchmarking anything.
+     *
+     * @param context: the app context
+     * @param onDeviceModel: the model
+     * @param candidates: the configs the saved one must be one of
+     * @return the saved config or null if the model hasn't been tuned with these candidates
+     */
+    @JvmStatic
+    fun getSavedConfig(context: Context, onDeviceModel: FritzOnDeviceModel, candidates: List<InterpreterConfig>): InterpreterConfig? {
+        val saved = PreferenceManager.getInterpreterConfig(context, onDeviceModel, deviceFingerprint)
+        return if (saved != null && candidates.contains(saved)) saved else null
+    }
+
+    /**
+     * Clear the saved config so the next call to [getTunedConfig] benchmarks again.
+     */
+    @JvmStatic
+    fun clearTunedConfig(context: Context, onDeviceModel: FritzOnDeviceModel) {
+        val key = SPKeys.getInterpreterConfigKey(onDeviceModel.modelId, onDeviceModel.modelVersion, deviceFingerprint)
+        PreferenceManager.putString(context, key, null)
+    }
+
+    /**
+     * Get the median inference time for the config in nanoseconds.
+     */
+    private fun benchmark(onDeviceModel: FritzOnDeviceModel, config: InterpreterConfig): Long {
+        val modelBuffer = ModelBufferCache.acquire(onDeviceModel)
+        try {
+            val interpreter = Interpreter(modelBuffer, config.buildInterpreterOptions())
+            try {
+                val inputs = arrayOfNulls<Any>(interpreter.inputTensorCount)
+                for (i in inputs.indices) {
+                    inputs[i] = allocateZeroedBuffer(interpreter.getInputTensor(i))
+                }
+                val outputs = HashMap<Int, Any>()
+                for (i in 0 until interpreter.outputTensorCount) {
+                    outputs[i] = allocateZeroedBuffer(interpreter.getOutputTensor(i))
+                }
+
+                for (i in 0 until WARM_UP_RUNS) {
+                    run(interpreter, inputs, outputs)
+                }
+                val timings = LongArray(TIMED_RUNS)
+                for (i in 0 until TIMED_RUNS) {
+                    val start = System.nanoTime()
+                    run(interpreter, inputs, outputs)
+                    timings[i] = System.nanoTime() - start
+                }
+                timings.sort()
+                return timings[TIMED_RUNS / 2]
+            } finally {
+                interpreter.close()
+            }
+        } finally {
+            ModelBufferCache.release(onDeviceModel)
+        }
+    }
+
+    private fun run(interpreter: Interpreter, inputs: Array<Any?>, outputs: HashMap<Int, Any>) {
+        for (input in inputs) {
+            (input as ByteBuffer).rewind()
+        }
+        for (output in outputs.values) {
+            (output as ByteBuffer).rewind()
+        }
+        interpreter.runForMultipleInputsOutputs(inputs, outputs)
+    }
+
+    private fun allocateZeroedBuffer(tensor: Tensor): ByteBuffer {
+        return ByteBuffer.allocateDirect(tensor.numBytes()).order(ByteOrder.nativeOrder())
+    }
+}
@@ -0,0 +1,65 @@
+package ai.fritz.core
+
+import org.tensorflow.lite.Interpreter
+import org.tensorflow.lite.gpu.GpuDelegate
+
+/**
+ * The hardware settings used to create an interpreter.
+ *
+ * @param numThreads: the number of CPU threads
+ * @param useNNAPI: run on NNAPI (ignored with the GPU)
+ * @param useGPU: run on the GPU delegate
+ */
+data class InterpreterConfig(val numThreads: Int, val useNNAPI: Boolean, val useGPU: Boolean) : TFLInterpreterOptionBuilder {
+
+    override fun buildInterpreterOptions(): Interpreter.Options {
+        val interpreterOptions = Interpreter.Options()
+
+        if (useGPU) {
+            val delegateOptions = GpuDelegate.Options()
+            delegateOptions.setPrecisionLossAllowed(true)
+            interpreterOptions.addDelegate(GpuDelegate(delegateOptions))
+        } else {
+            // Never use this with the GPU option. GPU takes precedence.
+            interpreterOptions.setUseNNAPI(useNNAPI)
+        }
+
+        interpreterOptions.setNumThreads(numThreads)
+
+        return interpreterOptions
+    }
+
+    /**
+     * Serialize the config for shared preferences.
+     */
+    fun toPreferenceString(): String {
+        return "$numThreads$SEPARATOR$useNNAPI$SEPARATOR$useGPU"
+    }
+
+    override fun toString(): String {
+        return when {
+            useGPU -> "GPU"
+            useNNAPI -> "NNAPI ($numThreads threads)"
+            else -> "CPU ($numThreads threads)"
+        }
+    }
+
+    companion object {
+        private const val SEPARATOR = ","
+
+        /**
+         * Parse a config saved with [toPreferenceString].
+         *
+         * @return the config or null if the value is malformed.
+         */
+        @JvmStatic
+        fun fromPreferenceString(value: String?): InterpreterConfig? {
+            val parts = value?.split(SEPARATOR) ?: return null
+            if (parts.size != 3) {
+                return null
+            }
+            val numThreads = parts[0].toIntOrNull() ?: return null
+            return InterpreterConfig(numThreads, parts[1].toBoolean(), parts[2].toBoolean())
+        }
+    }
+}
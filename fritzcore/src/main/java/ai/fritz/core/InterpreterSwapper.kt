@@ -0,0 +1,119 @@
+package ai.fritz.core
+
+import java.util.concurrent.atomic.AtomicReference
+
+/**
+ * Holds the current interpreter and replaces it without blocking inference (read-copy-update).
+ *
+ * Callers [acquire] a [Slot] for each run and [Slot.release] it when the run finishes. [publish]
+ * makes a new interpreter current immediately. The previous interpreter is closed once the last
+ * run using it releases its slot.
+ *
+ * @param T the type of interpreter
+ * @hide
+ */
+class InterpreterSwapper<T>(initial: Slot<T>) {
+
+    /**
+     * An interpreter along with the model it was built from.
+     *
+     * @param onClose: called exactly once when the slot is retired and no runs are using it
+     */
+    class Slot<T>(val interpreter: T, val onDeviceModel: FritzOnDeviceModel, private val onClose: (T) -> Unit) {
+        // In-flight runs, plus one held by the swapper until the slot is retired.
+        private var refCount = 1
+        private var isRetired = false
+        private var afterClose: (() -> Unit)? = null
+
+        @Volatile
+        var isClosed = false
+            private set
+
+        /**
+         * Start using the interpreter.
+         *
+         * @return false if the slot has been retired and closed.
+         */
+        @Synchronized
+        fun tryAcquire(): Boolean {
+            if (refCount == 0) {
+                return false
+            }
+            refCount++
+            return true
+        }
+
+        /**
+         * Stop using the interpreter. The last release after the slot was retired closes it.
+         */
+        fun release() {
+            val shouldClose = synchronized(this) {
+                refCount--
+                refCount == 0
+            }
+            if (shouldClose) {
+                onClose(interpreter)
+                isClosed = true
+                afterClose?.invoke()
+            }
+        }
+
+        internal fun retire(afterClose: (() -> Unit)?) {
+            synchronized(this) {
+                if (isRetired) {
+                    return
+                }
+                isRetired = true
+                this.afterClose = afterClose
+            }
+            release()
+        }
+    }
+
+    private val current = AtomicReference(initial)
+
+    /**
+     * The current slot. Use [acquire] to run the interpreter.
+     */
+    val currentSlot: Slot<T>
+        get() = current.get()
+
+    /**
+     * Acquire the current slot for a run. Pair with [Slot.release].
+     *
+     * @throws IllegalStateException if the swapper has been closed.
+     */
+    fun acquire(): Slot<T> {
+        while (true) {
+            val slot = current.get()
+            if (slot.tryAcquire()) {
+                return slot
+            }
+            // A new slot is always published before the old one is retired, so a closed slot
+            // that's still current means the swapper itself was closed.
+            if (current.get() === slot) {
+                throw IllegalStateException("The interpreter has been closed.")
+            }
+        }
+    }
+
+    /**
+     * Make a new slot current and retire the previous one.
+     *
+     * @param slot: the new slot
+     * @param afterPreviousClosed: called after the previous interpreter is closed
+     * @return the previous slot
+     */
+    fun publish(slot: Slot<T>, afterPreviousClosed: (() -> Unit)? = null): Slot<T> {
+        val previous = current.getAndSet(slot)
+        previous.retire(afterPreviousClosed)
+        return previous
+    }
+
+    /**
+     * Retire the current slot. It closes once in-flight runs finish.
+     */
+    fun close() {
+        current.get().retire(null)
+    }
+}
@@ -0,0 +1,84 @@
+package ai.fritz.core
+
+import java.io.IOException
+import java.nio.MappedByteBuffer
+
+/**
+ * A process wide cache of memory mapped model files.
+ *
+ * Interpreters for the same model path and version share a single read-only mapping. Each call to
+ * [acquire] must be paired with a call to [release]. The mapping is dropped when the last user
+ * releases it.
+ *
+ * @hide
+ */
+object ModelBufferCache {
+
+    private class Entry(val buffer: MappedByteBuffer) {
+        var refCount = 0
+    }
+
+    private val entries = HashMap<String, Entry>()
+
+    /**
+     * Get the mapped model file, mapping it if no one else is using it.
+     *
+     * @param onDeviceModel: the model to read
+     * @return the shared mapped buffer
+     * @throws IOException if the file can't be loaded.
+     */
+    @JvmStatic
+    @Throws(IOException::class)
+    fun acquire(onDeviceModel: FritzOnDeviceModel): MappedByteBuffer {
+        val key = cacheKey(onDeviceModel)
+        synchronized(entries) {
+            val existing = entries[key]
+            if (existing != null) {
+                existing.refCount++
+                return existing.buffer
+            }
+        }
+
+        // Map outside of the lock so other models aren't blocked on the file system.
+        val mapped = ModelReader(onDeviceModel).readModelFile()
+        synchronized(entries) {
+            // Another thread may have mapped the same model in the meantime.
+            val entry = entries[key] ?: Entry(mapped).also { entries[key] = it }
+            entry.refCount++
+            return entry.buffer
+        }
+    }
+
+    /**
+     * Release a buffer returned by [acquire].
+     *
+     * @param onDeviceModel: the model passed to acquire
+     */
+    @JvmStatic
+    fun release(onDeviceModel: FritzOnDeviceModel) {
+        val key = cacheKey(onDeviceModel)
+        synchronized(entries) {
+            val entry = entries[key] ?: return
+            entry.refCount--
+            if (entry.refCount <= 0) {
+                entries.remove(key)
+            }
+        }
+    }
+
+    /**
+     * The number of interpreters using the mapping for a model (0 if it isn't mapped).
+     *
+     * @param onDeviceModel: the model
+     */
+    @JvmStatic
+    fun getRefCount(onDeviceModel: FritzOnDeviceModel): Int {
+        synchronized(entries) {
+            return entries[cacheKey(onDeviceModel)]?.refCount ?: 0
+        }
+    }
+
+    private fun cacheKey(onDeviceModel: FritzOnDeviceModel): String {
+        return onDeviceModel.modelPath + "@" + onDeviceModel.modelVersion
+    }
+}
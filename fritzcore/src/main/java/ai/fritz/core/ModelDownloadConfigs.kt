@@ -12,11 +12,18 @@ class ModelDownloadConfigs {
     var metadata: Map<String, String>
     var tags: List<String>
 
-    constructor(modelVersion: Int, urlToDownload: String, metadata: Map<String, String>, tags: List<String>) {
+    /**
+     * The hex encoded SHA-256 of the model file, if the server provided one.
+     */
+    var sha256: String? = null
+
+    @JvmOverloads
+    constructor(modelVersion: Int, urlToDownload: String, metadata: Map<String, String>, tags: List<String>, sha256: String? = null) {
         this.modelVersion = modelVersion
         this.urlToDownload = urlToDownload
         this.metadata = metadata
         this.tags = tags
+        this.sha256 = sha256
     }
 
     constructor(modelVersionObject: JSONObject?) {
@@ -26,6 +33,9 @@ class ModelDownloadConfigs {
         this.metadata = if (metadata != null) toMap(modelVersionObject.getJSONObject("metadata")) else HashMap<String, String>()
         val tagsJson = modelVersionObject.getJSONArray("tags")
         tags = tagsJson?.let { convertJsonArrayToList(it) } ?: ArrayList()
+        if (modelVersionObject.has(MODEL_SHA256)) {
+            sha256 = modelVersionObject.getString(MODEL_SHA256)
+        }
     }
 
     fun toJson(): JSONObject {
@@ -35,6 +45,9 @@ class ModelDownloadConfigs {
             `object`.put(MODEL_URL_TO_DOWNLOAD, urlToDownload)
             `object`.put(MODEL_METADATA, JSONObject(metadata).toString())
             `object`.put(MODEL_TAGS, tags.toTypedArray())
+            if (sha256 != null) {
+                `object`.put(MODEL_SHA256, sha256)
+            }
             `object`
         } catch (e: JSONException) {
             throw RuntimeException(e)
@@ -46,5 +59,6 @@ class ModelDownloadConfigs {
         const val MODEL_URL_TO_DOWNLOAD = "model_url_to_download"
         const val MODEL_METADATA = "model_metadata"
         const val MODEL_TAGS = "model_tags"
+        const val MODEL_SHA256 = "sha256"
     }
 }
\ No newline at end of file
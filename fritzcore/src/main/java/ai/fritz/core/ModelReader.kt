@@ -19,6 +19,8 @@ class ModelReader(private val onDeviceModel: FritzOnDeviceModel) {
     /**
      * Load the specified model file and return a MappedByteBuffer.
      *
+     * Interpreters should use [ModelBufferCache] so the mapping is shared between them.
+     *
      * @return a MappedByteBuffer of the loaded file
      * @throws IOException if the file can't be loaded.
      * @hide
@@ -32,20 +34,22 @@ class ModelReader(private val onDeviceModel: FritzOnDeviceModel) {
         val hasAssetPrefix = modelPath.startsWith(ANDROID_ASSET_ROOT)
         if (hasAssetPrefix) {
             val pathName = modelPath.split(ANDROID_ASSET_ROOT).toTypedArray()[1]
-            val fileDescriptor = context!!.assets.openFd(pathName)
-            val inputStream = FileInputStream(fileDescriptor.fileDescriptor)
-            val fileChannel = inputStream.channel
-            val startOffset = fileDescriptor.startOffset
-            val declaredLength = fileDescriptor.declaredLength
-            return fileChannel.map(FileChannel.MapMode.READ_ONLY, startOffset, declaredLength)
+            // The mapping stays valid after the descriptor and stream are closed.
+            context!!.assets.openFd(pathName).use { fileDescriptor ->
+                FileInputStream(fileDescriptor.fileDescriptor).use { inputStream ->
+                    val startOffset = fileDescriptor.startOffset
+                    val declaredLength = fileDescriptor.declaredLength
+                    return inputStream.channel.map(FileChannel.MapMode.READ_ONLY, startOffset, declaredLength)
+                }
+            }
         }
         // Use the regular model path.
         val modelFile = File(modelPath)
-        val inputStream = FileInputStream(modelFile)
-        val fileChannel = inputStream.channel
-        val startOffset: Long = 0
-        val declaredLength = modelFile.length()
-        return fileChannel.map(FileChannel.MapMode.READ_ONLY, startOffset, declaredLength)
+        FileInputStream(modelFile).use { inputStream ->
+            val startOffset: Long = 0
+            val declaredLength = modelFile.length()
+            return inputStream.channel.map(FileChannel.MapMode.READ_ONLY, startOffset, declaredLength)
+        }
     }
 
     fun fileToBytes(inputStream: InputStream): ByteArray {
@@ -1,17 +1,23 @@
 package ai.fritz.core
 
+import ai.fritz.core.annotations.AnnotationRecorder
 import ai.fritz.core.api.ApiClient
 import ai.fritz.core.api.RequestHandler
 import ai.fritz.core.api.Session
+import ai.fritz.core.events.EventSpool
 import ai.fritz.core.events.ModelEvent
 import ai.fritz.core.events.ModelEventQueue
 import android.app.Application
 import android.content.Context
 import android.util.Log
 import org.json.JSONObject
+import java.io.File
+import java.util.concurrent.atomic.AtomicBoolean
 
 class SessionManager(var appContext: Context, var session: Session, var apiClient: ApiClient) {
     var eventQueue: ModelEventQueue = ModelEventQueue(session)
+    val annotationRecorder = AnnotationRecorder()
+    private val isSpoolEnabled = AtomicBoolean(false)
 
     fun registerLifecycleCallbacks() {
         val app = appContext as Application
@@ -26,6 +32,34 @@ class SessionManager(var appContext: Context, var session: Session, var apiClien
         eventQueue.add(event)
     }
 
+    /**
+     * Keep queued events in a spool under the app's files directory so they survive the process being killed.
+     *
+     * Segments left by an earlier process are loaded on the io pool. Events stay queued in memory until then.
+     * Only the first call has an effect.
+     */
+    fun enableEventSpool() {
+        if (!isSpoolEnabled.compareAndSet(false, true)) {
+            return
+        }
+        val queue = eventQueue
+        val directory = File(appContext.filesDir, EventSpool.DIRECTORY_NAME)
+        FritzExecutors.io().execute {
+            try {
+                queue.enableSpool(EventSpool(directory))
+            } catch (e: RuntimeException) {
+                Log.e(TAG, "Unable to enable the event spool: " + e.message)
+            }
+        }
+    }
+
+    /**
+     * Add a prediction timing to the aggregated summary for the model.
+     */
+    fun trackPredictionTiming(onDeviceModel: FritzOnDeviceModel, elapsedNs: Long) {
+        eventQueue.recordPredictionTiming(onDeviceModel, elapsedNs)
+    }
+
     fun recordAnnotation(event: ModelEvent, onSuccess: () -> Unit, onError: () -> Unit) {
         val handler: RequestHandler = object : RequestHandler {
             override fun onSuccess(response: JSONObject?) {
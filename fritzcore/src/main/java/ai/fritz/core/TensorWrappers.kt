@@ -5,6 +5,7 @@ import org.tensorflow.lite.DataType
 import org.tensorflow.lite.Tensor
 import java.nio.ByteBuffer
 import java.nio.ByteOrder
+import java.nio.FloatBuffer
 
 const val DEFAULT_HEIGHT_IDX: Int = 1
 const val DEFAULT_WIDTH_IDX: Int = 2
@@ -16,10 +17,46 @@ open class BaseTensor(val name: String, val tensorIndex: Int) {
     lateinit var tensor: Tensor
     lateinit var buffer: ByteBuffer
 
+    /**
+     * The number of items in the batch dimension the buffer was allocated for.
+     */
+    var batchSize: Int = 1
+        protected set
+
+    /**
+     * The number of elements for a single item in the batch.
+     */
+    var numElementsPerItem: Int = 0
+        protected set
+
     fun rewind() {
         buffer.rewind()
     }
 
+    /**
+     * Get the element offset for an item in the batch.
+     *
+     * @param batchIndex: the index of the item in the batch
+     */
+    fun getItemOffset(batchIndex: Int): Int {
+        return batchIndex * numElementsPerItem
+    }
+
+    /**
+     * The batch dimension of the tensor as the interpreter currently sees it.
+     */
+    protected fun tensorBatchSize(): Int {
+        val shape = tensor.shape()
+        return if (shape.isEmpty() || shape[0] == 0) 1 else shape[0]
+    }
+
+    protected fun allocateBuffer(batchSize: Int) {
+        numElementsPerItem = tensor.numElements() / tensorBatchSize()
+        this.batchSize = batchSize
+        buffer = ByteBuffer.allocateDirect(tensor.dataType().byteSize() * numElementsPerItem * batchSize)
+        buffer.order(ByteOrder.nativeOrder())
+    }
+
     fun is8BitQuantized(): Boolean {
         return tensor.dataType() === DataType.UINT8;
     }
@@ -36,9 +73,22 @@ open class InputTensor(name: String, tensorIndex: Int) : BaseTensor(name, tensor
 
     fun setupInputBuffer(interpreter: FritzTFLiteInterpreter) {
         tensor = interpreter.getInputTensor(tensorIndex)
-        val dataType = tensor.dataType()
-        buffer = ByteBuffer.allocateDirect(dataType.byteSize() * tensor.numElements())
-        buffer.order(ByteOrder.nativeOrder())
+        allocateBuffer(tensorBatchSize())
+    }
+
+    /**
+     * Resize the batch dimension of the input and allocate a buffer for the whole batch.
+     *
+     * @param interpreter: the interpreter to resize
+     * @param batchSize: the number of items in the batch
+     */
+    fun setupBatchInputBuffer(interpreter: FritzTFLiteInterpreter, batchSize: Int) {
+        tensor = interpreter.getInputTensor(tensorIndex)
+        // Calculate the per item size before resizing in case the tensor shape is refreshed.
+        allocateBuffer(batchSize)
+        val batchShape = tensor.shape().copyOf()
+        batchShape[0] = batchSize
+        interpreter.resizeInput(tensorIndex, batchShape)
     }
 }
 
@@ -47,11 +97,35 @@ open class InputTensor(name: String, tensorIndex: Int) : BaseTensor(name, tensor
  */
 open class OutputTensor(name: String, tensorIndex: Int) : BaseTensor(name, tensorIndex) {
 
+    /**
+     * A view over the output buffer with the shape and strides computed up front.
+     * Recreated whenever the buffer is allocated.
+     */
+    lateinit var view: TensorView
+        private set
+
     fun setupOutputBuffer(interpreter: FritzTFLiteInterpreter) {
         tensor = interpreter.getOutputTensor(tensorIndex)
-        val dataType = tensor.dataType()
-        buffer = ByteBuffer.allocateDirect(dataType.byteSize() * tensor.numElements())
-        buffer.order(ByteOrder.nativeOrder())
+        allocateBuffer(tensorBatchSize())
+        view = createView()
+    }
+
+    /**
+     * Allocate a buffer for a batch of outputs. Call after resizing the inputs with
+     * [InputTensor.setupBatchInputBuffer].
+     *
+     * @param interpreter: the interpreter
+     * @param batchSize: the number of items in the batch
+     */
+    fun setupBatchOutputBuffer(interpreter: FritzTFLiteInterpreter, batchSize: Int) {
+        tensor = interpreter.getOutputTensor(tensorIndex)
+        allocateBuffer(batchSize)
+        view = createView()
+    }
+
+    private fun createView(): TensorView {
+        val quantizationParams = tensor.quantizationParams()
+        return TensorView(buffer, tensor.shape(), tensor.dataType(), quantizationParams.scale, quantizationParams.zeroPoint)
     }
 
     /**
@@ -59,52 +133,37 @@ open class OutputTensor(name: String, tensorIndex: Int) : BaseTensor(name, tenso
      * @param index: the index
      */
     fun getByte(index: Int): Byte {
-        val byteSize = tensor.dataType().byteSize()
-        return buffer.get(byteSize * index)
+        return view.getByte(index)
     }
 
     /**
-     * Get the float at the index.
-     *
-     * Note: The index is multiplied by the byte size of the float for buffer access
-     * buffer.getFloat(byteSize * index)
+     * Get the float at the index. Quantized outputs are dequantized.
      *
      * @param index: the index
      */
     fun getFloat(index: Int): Float {
-        val byteSize = tensor.dataType().byteSize()
-        return buffer.getFloat(byteSize * index)
+        return view.getFloat(index)
     }
 
     /**
      * Get float at buffer[row][col]
      *
-     * Note: buffer.getFloat(byteSize * (numColumns * row + column))
-     *
      * @param row: the row to access
      * @param col: the col to access
      */
     fun getFloat2D(row: Int, column: Int): Float {
-        val shape = tensor.shape()
-        val numColumns = shape[shape.size - 1]
-        val byteSize = tensor.dataType().byteSize()
-        return buffer.getFloat(byteSize * (numColumns * row + column))
+        return view.getFloat2D(row, column)
     }
 
     /**
      * Get the float at buffer[row][col][channel]
      *
-     * Note: buffer.getFloat(byteSize * (row * numChannels * numColumns + column * numChannels + channel))
      * @param row: the row to access
      * @param col: the col to access
      * @param channel: the channel to access
      */
     fun getFloat3D(row: Int, column: Int, channel: Int): Float {
-        val shape = tensor.shape()
-        val numChannels = shape[shape.size - 1]
-        val numColumns = shape[shape.size - 2]
-        val byteSize = tensor.dataType().byteSize()
-        return buffer.getFloat(byteSize * (row * numChannels * numColumns + column * numChannels + channel))
+        return view.getFloat3D(row, column, channel)
     }
 
     /**
@@ -118,4 +177,220 @@ open class OutputTensor(name: String, tensorIndex: Int) : BaseTensor(name, tenso
         val inputWidth = inputShape[DEFAULT_WIDTH_IDX]
         return Size(inputWidth, inputHeight)
     }
-}
\ No newline at end of file
+}
+
+/**
+ * A typed read view over a tensor buffer.
+ *
+ * The shape, element strides and typed buffer are computed once so element access is plain index
+ * math. Indices are in elements, not bytes. Reads are absolute and don't depend on the position
+ * of the underlying buffer.
+ *
+ * UINT8 and INT8 tensors are dequantized with the tensor's scale and zero point by the float
+ * accessors. Use the raw accessors together with [quantizeThreshold] to compare values without
+ * converting them.
+ *
+ * Bulk reads share a position on the view, so a view shouldn't be read from multiple threads at once.
+ */
+class TensorView @JvmOverloads constructor(buffer: ByteBuffer, shape: IntArray, val dataType: DataType, scale: Float = 0f, val zeroPoint: Int = 0) {
+    val shape: IntArray = shape.copyOf()
+
+    /**
+     * The number of elements between consecutive indices of each dimension.
+     */
+    val strides: IntArray = IntArray(shape.size)
+
+    /**
+     * True for UINT8 and INT8 tensors.
+     */
+    val isQuantized: Boolean = dataType === DataType.UINT8 || dataType === DataType.INT8
+
+    /**
+     * The quantization scale. Quantized tensors without quantization params use 1 / 255.
+     */
+    val scale: Float = if (isQuantized && scale <= 0f) DEFAULT_QUANTIZED_SCALE else scale
+
+    private val isUnsigned: Boolean = dataType === DataType.UINT8
+    private val bytes: ByteBuffer = buffer.duplicate().order(ByteOrder.nativeOrder())
+    private val floats: FloatBuffer? = if (dataType === DataType.FLOAT32) bytes.asFloatBuffer() else null
+
+    // Strides for the last three dimensions, used by the 2D and 3D accessors.
+    private val rowStride: Int
+    private val columnStride: Int
+
+    init {
+        var stride = 1
+        for (i in shape.indices.reversed()) {
+            strides[i] = stride
+            stride *= shape[i]
+        }
+        rowStride = if (shape.size >= 3) strides[shape.size - 3] else 0
+        columnStride = if (shape.size >= 2) strides[shape.size - 2] else 0
+    }
+
+    /**
+     * The number of elements the buffer holds.
+     */
+    val numElements: Int
+        get() = bytes.capacity() / dataType.byteSize()
+
+    /**
+     * The number of elements in the last dimension.
+     */
+    val lastDimension: Int
+        get() = if (shape.isEmpty()) 1 else shape[shape.size - 1]
+
+    /**
+     * Get the element at the index as a float, dequantizing if needed.
+     */
+    fun getFloat(index: Int): Float {
+        if (floats != null) {
+            return floats.get(index)
+        }
+        requireQuantized("FLOAT32, UINT8 or INT8")
+        return dequantize(getRaw(index))
+    }
+
+    /**
+     * Get the float at [row][column] of the last two dimensions.
+     */
+    fun getFloat2D(row: Int, column: Int): Float {
+        return getFloat(row * columnStride + column)
+    }
+
+    /**
+     * Get the float at [row][column][channel] of the last three dimensions.
+     */
+    fun getFloat3D(row: Int, column: Int, channel: Int): Float {
+        return getFloat(row * rowStride + column * columnStride + channel)
+    }
+
+    fun getByte(index: Int): Byte {
+        return bytes.get(index * dataType.byteSize())
+    }
+
+    /**
+     * Get an 8 bit element as an unsigned value (0-255).
+     */
+    fun getUnsignedByte(index: Int): Int {
+        return bytes.get(index).toInt() and 0xFF
+    }
+
+    /**
+     * Get the quantized value of an element (0-255 for UINT8, -128-127 for INT8).
+     */
+    fun getRaw(index: Int): Int {
+        requireQuantized("UINT8 or INT8")
+        val value = bytes.get(index).toInt()
+        return if (isUnsigned) value and 0xFF else value
+    }
+
+    /**
+     * Get the quantized value at [row][column][channel] of the last three dimensions.
+     */
+    fun getRaw3D(row: Int, column: Int, channel: Int): Int {
+        return getRaw(row * rowStride + column * columnStride + channel)
+    }
+
+    /**
+     * Convert a quantized value to a float.
+     */
+    fun dequantize(raw: Int): Float {
+        return scale * (raw - zeroPoint)
+    }
+
+    /**
+     * Convert a float threshold into the quantized domain.
+     *
+     * For any raw value: dequantize(raw) >= threshold exactly when raw >= quantizeThreshold(threshold).
+     */
+    fun quantizeThreshold(threshold: Float): Int {
+        return Math.ceil((threshold / scale + zeroPoint).toDouble()).toInt()
+    }
+
+    /**
+     * Copy floats into an array, dequantizing if needed.
+     *
+     * @param offset: the element to start from
+     * @param dst: the array to fill
+     * @param dstOffset: the first index to write in dst
+     * @param length: the number of floats to copy
+     */
+    @JvmOverloads
+    fun readFloats(offset: Int, dst: FloatArray, dstOffset: Int = 0, length: Int = dst.size - dstOffset) {
+        if (floats != null) {
+            floats.position(offset)
+            floats.get(dst, dstOffset, length)
+            return
+        }
+        requireQuantized("FLOAT32, UINT8 or INT8")
+        for (i in 0 until length) {
+            dst[dstOffset + i] = dequantize(getRaw(offset + i))
+        }
+    }
+
+    /**
+     * Copy raw 8 bit elements into an array.
+     *
+     * @param offset: the element to start from
+     * @param dst: the array to fill
+     * @param dstOffset: the first index to write in dst
+     * @param length: the number of bytes to copy
+     */
+    @JvmOverloads
+    fun readBytes(offset: Int, dst: ByteArray, dstOffset: Int = 0, length: Int = dst.size - dstOffset) {
+        bytes.position(offset * dataType.byteSize())
+        bytes.get(dst, dstOffset, length)
+    }
+
+    /**
+     * Iterate over rows of floats, reusing one array for every row.
+     *
+     * @param rowLength: the number of floats in each row (e.g width * channels)
+     * @param offset: the element the first row starts at
+     * @param numRows: the number of rows to read
+     */
+    @JvmOverloads
+    fun floatRows(rowLength: Int, offset: Int = 0, numRows: Int = (numElements - offset) / rowLength): FloatRowIterator {
+        return FloatRowIterator(this, rowLength, offset, numRows)
+    }
+
+    private fun requireQuantized(expectedTypes: String) {
+        if (!isQuantized) {
+            throw IllegalStateException("The tensor data type is $dataType, not $expectedTypes.")
+        }
+    }
+
+    companion object {
+        private const val DEFAULT_QUANTIZED_SCALE = 1 / 255f
+    }
+}
+
+/**
+ * Reads consecutive rows from a [TensorView] into a single reusable array.
+ */
+class FloatRowIterator internal constructor(private val view: TensorView, rowLength: Int, private val offset: Int, private val numRows: Int) {
+    private val row = FloatArray(rowLength)
+
+    /**
+     * The index of the row returned by the last call to [next].
+     */
+    var rowIndex = -1
+        private set
+
+    fun hasNext(): Boolean {
+        return rowIndex + 1 < numRows
+    }
+
+    /**
+     * Read the next row. The returned array is overwritten by the following call.
+     */
+    fun next(): FloatArray {
+        if (!hasNext()) {
+            throw NoSuchElementException()
+        }
+        rowIndex++
+        view.readFloats(offset + rowIndex * row.size, row)
+        return row
+    }
+}
@@ -0,0 +1,221 @@
+package ai.fritz.core.annotations
+
+import ai.fritz.core.Fritz
+import ai.fritz.core.FritzExecutors
+import ai.fritz.core.FritzOnDeviceModel
+import ai.fritz.core.factories.ModelEventFactory
+import ai.fritz.core.utils.SessionPreferenceManager
+import android.graphics.Bitmap
+import android.util.Base64
+import android.util.Log
+import android.util.Size
+import java.io.ByteArrayOutputStream
+import java.util.*
+import java.util.concurrent.RejectedExecutionException
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Records images and their annotations without encoding on the calling thread.
+ *
+ * Each call first decides whether to record at all using the session's
+ * `modelInputOutputSamplingRatio`. A sampled image is copied into a bitmap no larger than
+ * [maxDimension] (for [RecordableImage]s), and JPEG and Base64 encoding happens on the SDK's
+ * background pool, [numEncoderThreads] at a time, so it doesn't slow down predictions. The bitmaps waiting to be encoded are limited to
+ * [maxPendingBytes]; past that, new recordings are dropped and counted rather than queued.
+ *
+ * @param numEncoderThreads: the most images encoded at once
+ * @param maxPendingBytes: the most bitmap memory waiting to be encoded
+ * @param maxDimension: images are scaled down so neither side is larger than this
+ * @hide
+ */
+class AnnotationRecorder @JvmOverloads constructor(
+        numEncoderThreads: Int = DEFAULT_NUM_ENCODER_THREADS,
+        private val maxPendingBytes: Long = DEFAULT_MAX_PENDING_BYTES,
+        private val maxDimension: Int = DEFAULT_MAX_DIMENSION) {
+
+    private val random = Random()
+    private val pendingBytes = AtomicLong()
+    private val recordedCount = AtomicLong()
+    private val sampledOutCount = AtomicLong()
+    private val droppedCount = AtomicLong()
+    private val failedCount = AtomicLong()
+
+    private val encoder = FritzExecutors.limitedBackground(numEncoderThreads)
+
+    /**
+     * Record an image with its annotations.
+     *
+     * The callbacks run on a background pool thread. onError is also called when the image isn't recorded
+     * because of sampling or because too many images are waiting to be encoded.
+     *
+     * @return true if the image was queued to be encoded and sent.
+     */
+    fun record(onDeviceModel: FritzOnDeviceModel,
+               image: Base64EncodableImage,
+               predictedAnnotations: List<DataAnnotation>,
+               userModifiedAnnotations: List<DataAnnotation>?,
+               onSuccess: () -> Unit,
+               onError: () -> Unit): Boolean {
+        if (!isSampled()) {
+            sampledOutCount.incrementAndGet()
+            onError()
+            return false
+        }
+
+        // The size annotations are relative to, once the image has been oriented
+        val originalSize = image.encodedSize()
+        val recordingSize = if (image is RecordableImage) scaledSize(originalSize) else originalSize
+        val bytes = recordingSize.width * recordingSize.height * BYTES_PER_PIXEL
+
+        // Check the budget before building anything, so a dropped recording costs nothing.
+        if (!reserve(bytes)) {
+            droppedCount.incrementAndGet()
+            Log.w(TAG, "Too many images waiting to be encoded. Dropping the recording.")
+            onError()
+            return false
+        }
+
+        val job = if (image is RecordableImage) {
+            try {
+                createScaledJob(image, originalSize, recordingSize, bytes)
+            } catch (e: RuntimeException) {
+                release(bytes)
+                failedCount.incrementAndGet()
+                Log.e(TAG, "Unable to copy the recording: " + e.message)
+                onError()
+                return false
+            }
+        } else {
+            // No cheap copy to make, so encode the image as is.
+            EncodeJob(null, image, bytes, 1f, 1f)
+        }
+
+        try {
+            encoder.execute {
+                try {
+                    val encodedImage = job.encode()
+                    val predicted = scale(predictedAnnotations, job.scaleX, job.scaleY)
+                    val modified = userModifiedAnnotations?.let { scale(it, job.scaleX, job.scaleY) }
+                    val event = ModelEventFactory.createModelRecordEvent(onDeviceModel, encodedImage, predicted, modified)
+                    release(job.bytes)
+                    recordedCount.incrementAndGet()
+                    Fritz.sessionManager.recordAnnotation(event, onSuccess, onError)
+                } catch (e: RuntimeException) {
+                    release(job.bytes)
+                    failedCount.incrementAndGet()
+                    Log.e(TAG, "Unable to encode the recording: " + e.message)
+                    onError()
+                }
+            }
+        } catch (e: RejectedExecutionException) {
+            release(job.bytes)
+            droppedCount.incrementAndGet()
+            onError()
+            return false
+        }
+        return true
+    }
+
+    /**
+     * The number of images encoded and handed off to be sent.
+     */
+    val recorded: Long
+        get() = recordedCount.get()
+
+    /**
+     * The number of images skipped by the sampling ratio.
+     */
+    val sampledOut: Long
+        get() = sampledOutCount.get()
+
+    /**
+     * The number of sampled images dropped because too many were waiting to be encoded.
+     */
+    val dropped: Long
+        get() = droppedCount.get()
+
+    /**
+     * The number of images that failed to encode.
+     */
+    val failed: Long
+        get() = failedCount.get()
+
+    /**
+     * The bitmap memory currently waiting to be encoded.
+     */
+    val pendingBitmapBytes: Long
+        get() = pendingBytes.get()
+
+    private fun isSampled(): Boolean {
+        val ratio = SessionPreferenceManager.getSessionSnapshot()?.modelInputOutputSamplingRatio ?: return false
+        return random.nextDouble() < ratio
+    }
+
+    /**
+     * The size to record an image at, scaled down so neither side is larger than [maxDimension].
+     */
+    private fun scaledSize(size: Size): Size {
+        val largestSide = Math.max(size.width, size.height)
+        if (largestSide <= maxDimension) {
+            return size
+        }
+        val scale = maxDimension.toFloat() / largestSide
+        return Size(Math.max(1, Math.round(size.width * scale)), Math.max(1, Math.round(size.height * scale)))
+    }
+
+    private fun createScaledJob(image: RecordableImage, originalSize: Size, recordingSize: Size, bytes: Long): EncodeJob {
+        val bitmap = image.buildRecordingBitmap(recordingSize)
+        val scaleX = if (originalSize.width > 0) bitmap.width.toFloat() / originalSize.width else 1f
+        val scaleY = if (originalSize.height > 0) bitmap.height.toFloat() / originalSize.height else 1f
+        return EncodeJob(bitmap, null, bytes, scaleX, scaleY)
+    }
+
+    private fun reserve(bytes: Long): Boolean {
+        while (true) {
+            val current = pendingBytes.get()
+            // Always let one image through, however large.
+            if (current > 0 && current + bytes > maxPendingBytes) {
+                return false
+            }
+            if (pendingBytes.compareAndSet(current, current + bytes)) {
+                return true
+            }
+        }
+    }
+
+    private fun release(bytes: Long) {
+        pendingBytes.addAndGet(-bytes)
+    }
+
+    /**
+     * Either a bitmap copy to encode or an image to encode as is.
+     */
+    private class EncodeJob(val bitmap: Bitmap?, val image: Base64EncodableImage?, val bytes: Long, val scaleX: Float, val scaleY: Float) {
+        fun encode(): Base64EncodableImage {
+            if (bitmap == null) {
+                return EncodedImage(image!!.encodedInput(), image.encodedSize(), image.encodedImageFormat())
+            }
+            val stream = ByteArrayOutputStream()
+            bitmap.compress(Bitmap.CompressFormat.JPEG, JPEG_QUALITY, stream)
+            return EncodedImage(Base64.encodeToString(stream.toByteArray(), Base64.DEFAULT), Size(bitmap.width, bitmap.height), JPEG_FORMAT)
+        }
+    }
+
+    companion object {
+        private val TAG = AnnotationRecorder::class.java.simpleName
+
+        const val DEFAULT_NUM_ENCODER_THREADS = 1
+        const val DEFAULT_MAX_PENDING_BYTES = 16 * 1024 * 1024L
+        const val DEFAULT_MAX_DIMENSION = 640
+        private const val BYTES_PER_PIXEL = 4L
+        private const val JPEG_QUALITY = 70
+        private const val JPEG_FORMAT = "jpeg"
+
+        private fun scale(annotations: List<DataAnnotation>, scaleX: Float, scaleY: Float): List<DataAnnotation> {
+            if (scaleX == 1f && scaleY == 1f) {
+                return annotations
+            }
+            return annotations.map { it.scaled(scaleX, scaleY) }
+        }
+    }
+}
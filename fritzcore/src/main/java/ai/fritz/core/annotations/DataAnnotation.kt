@@ -14,6 +14,10 @@ class KeypointAnnotation(var id: Int, var label: String, var x: Float, var y: Fl
         jsonObject.put("visibility", visibility)
         return jsonObject;
     }
+
+    fun scaled(scaleX: Float, scaleY: Float): KeypointAnnotation {
+        return KeypointAnnotation(id, label, x * scaleX, y * scaleY, visibility)
+    }
 }
 
 class BoundingBoxAnnotation(var xmin: Float, var ymin: Float, var width: Float, var height: Float) {
@@ -25,12 +29,28 @@ class BoundingBoxAnnotation(var xmin: Float, var ymin: Float, var width: Float,
         jsonObject.put("height", height)
         return jsonObject;
     }
+
+    fun scaled(scaleX: Float, scaleY: Float): BoundingBoxAnnotation {
+        return BoundingBoxAnnotation(xmin * scaleX, ymin * scaleY, width * scaleX, height * scaleY)
+    }
 }
 
-class SegmentationAnnotation(var mask: Array<IntArray>) {
+/**
+ * A segmentation mask, kept run length encoded.
+ */
+class SegmentationAnnotation(var rle: RunLengthMask) {
+
+    constructor(mask: Array<IntArray>) : this(RunLengthMask.fromMask(mask))
+
+    /**
+     * The mask as a matrix[row][col] of 0s and 1s. This expands the runs each time it's called.
+     */
+    val mask: Array<IntArray>
+        get() = rle.toMask()
+
     fun toJson(): JSONObject {
         val jsonObject = JSONObject();
-        jsonObject.put("mask", JSONArray(mask))
+        jsonObject.put("rle", rle.toJson())
         return jsonObject;
     }
 }
@@ -52,4 +72,12 @@ class DataAnnotation(var label: String, var keypoints: List<KeypointAnnotation>
         jsonObject.put("is_image_label", isImageLabel)
         return jsonObject
     }
+
+    /**
+     * Copy the annotation with keypoints and boxes scaled to match a resized image.
+     * Segmentation masks are kept as is.
+     */
+    fun scaled(scaleX: Float, scaleY: Float): DataAnnotation {
+        return DataAnnotation(label, keypoints.map { it.scaled(scaleX, scaleY) }, bbox?.scaled(scaleX, scaleY), segmentation, isImageLabel)
+    }
 }
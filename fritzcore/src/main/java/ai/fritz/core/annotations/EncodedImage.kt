@@ -0,0 +1,20 @@
+package ai.fritz.core.annotations
+
+import android.util.Size
+
+/**
+ * An image that's already been encoded for recording.
+ */
+class EncodedImage(private val encoded: String, private val size: Size, private val format: String) : Base64EncodableImage {
+    override fun encodedInput(): String {
+        return encoded
+    }
+
+    override fun encodedSize(): Size {
+        return size
+    }
+
+    override fun encodedImageFormat(): String {
+        return format
+    }
+}
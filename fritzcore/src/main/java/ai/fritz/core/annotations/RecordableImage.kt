@@ -0,0 +1,21 @@
+package ai.fritz.core.annotations
+
+import android.graphics.Bitmap
+import android.util.Size
+
+/**
+ * An image that can hand the [AnnotationRecorder] a small copy of itself to encode in the background.
+ */
+interface RecordableImage {
+    /**
+     * Build the oriented image at the given size, in one pass over the source pixels.
+     *
+     * Called on the recording thread, after the recorder has checked it has room for a bitmap of
+     * this size. The bitmap is encoded later, so it must not depend on the image (or a camera frame
+     * behind it) staying valid.
+     *
+     * @param size the size of the bitmap, oriented the same way as [Base64EncodableImage.encodedSize].
+     * @return a bitmap the recorder can encode.
+     */
+    fun buildRecordingBitmap(size: Size): Bitmap
+}
@@ -0,0 +1,203 @@
+package ai.fritz.core.annotations
+
+import org.json.JSONArray
+import org.json.JSONObject
+
+/**
+ * A binary mask stored as run lengths, in the same layout as uncompressed COCO RLE.
+ *
+ * Pixels are read column by column (top to bottom, then left to right) and [counts] holds the
+ * lengths of alternating runs of 0s and 1s, starting with 0s. A mask that starts with a 1 has a
+ * leading count of 0.
+ *
+ * @param width: the mask width
+ * @param height: the mask height
+ * @param counts: the run lengths
+ * @param area: the number of pixels in the mask
+ * @param bbox: the box around the pixels in the mask, or null if it's empty
+ */
+class RunLengthMask(val width: Int, val height: Int, val counts: IntArray, val area: Int, val bbox: BoundingBoxAnnotation?) {
+
+    /**
+     * The fraction of the mask that's set.
+     */
+    val areaFraction: Float
+        get() = if (width == 0 || height == 0) 0f else area.toFloat() / (width.toFloat() * height.toFloat())
+
+    /**
+     * Expand the runs back into a mask[row][col] of 0s and 1s.
+     */
+    fun toMask(): Array<IntArray> {
+        val mask = Array(height) { IntArray(width) }
+        var position = 0
+        for (i in counts.indices) {
+            val end = position + counts[i]
+            if (i % 2 == 1) {
+                for (p in position until end) {
+                    mask[p % height][p / height] = 1
+                }
+            }
+            position = end
+        }
+        return mask
+    }
+
+    fun toJson(): JSONObject {
+        val size = JSONArray()
+        size.put(height)
+        size.put(width)
+        val countsJson = JSONArray()
+        for (count in counts) {
+            countsJson.put(count)
+        }
+        val jsonObject = JSONObject()
+        jsonObject.put("size", size)
+        jsonObject.put("counts", countsJson)
+        jsonObject.put("area", area)
+        jsonObject.put("bbox", bbox?.toJson())
+        return jsonObject
+    }
+
+    /**
+     * Collects the runs, area and bounds of one mask while the pixels are scanned.
+     */
+    private class Builder {
+        var counts = IntArray(INITIAL_COUNTS_SIZE)
+        var size = 0
+        // Where the current run started
+        var runStart = 0
+        var area = 0
+        var minRow = Int.MAX_VALUE
+        var maxRow = -1
+        var minCol = Int.MAX_VALUE
+        var maxCol = -1
+
+        fun endRun(position: Int) {
+            if (size == counts.size) {
+                counts = counts.copyOf(size * 2)
+            }
+            counts[size++] = position - runStart
+            runStart = position
+        }
+
+        fun add(row: Int, col: Int) {
+            area++
+            if (row < minRow) minRow = row
+            if (row > maxRow) maxRow = row
+            if (col < minCol) minCol = col
+            if (col > maxCol) maxCol = col
+        }
+
+        fun build(width: Int, height: Int): RunLengthMask {
+            endRun(width * height)
+            val bbox = if (area == 0) null else BoundingBoxAnnotation(minCol.toFloat(), minRow.toFloat(),
+                    (maxCol - minCol + 1).toFloat(), (maxRow - minRow + 1).toFloat())
+            return RunLengthMask(width, height, counts.copyOf(size), area, bbox)
+        }
+    }
+
+    companion object {
+        private const val INITIAL_COUNTS_SIZE = 64
+        private const val NO_CLASS = -1
+
+        /**
+         * Encode a mask of 0s and 1s.
+         *
+         * @param mask: a matrix[row][col] where non zero values are in the mask
+         */
+        @JvmStatic
+        fun fromMask(mask: Array<IntArray>): RunLengthMask {
+            val height = mask.size
+            val width = if (height == 0) 0 else mask[0].size
+            val classifications = Array(height) { row -> IntArray(width) { col -> if (mask[row][col] != 0) 0 else NO_CLASS } }
+            return fromClass(classifications, null, 0f, 0)
+        }
+
+        /**
+         * Encode the mask for one class.
+         *
+         * Use this rather than [fromClassifications] when only one class is needed, so masks for
+         * the other classes aren't built and thrown away.
+         *
+         * @param classifications: the class index for each pixel as a matrix[row][col]
+         * @param confidence: the confidence for each pixel, or null to include every pixel
+         * @param confidenceThreshold: pixels with a lower confidence are left out of the mask
+         * @param classIndex: the class to build the mask for
+         * @return the mask for the class.
+         */
+        @JvmStatic
+        fun fromClass(classifications: Array<IntArray>, confidence: Array<FloatArray>?,
+                      confidenceThreshold: Float, classIndex: Int): RunLengthMask {
+            val height = classifications.size
+            val width = if (height == 0) 0 else classifications[0].size
+            val builder = Builder()
+
+            var inMask = false
+            var position = 0
+            for (col in 0 until width) {
+                for (row in 0 until height) {
+                    val isSet = classifications[row][col] == classIndex
+                            && (confidence == null || confidence[row][col] >= confidenceThreshold)
+                    if (isSet != inMask) {
+                        builder.endRun(position)
+                        inMask = isSet
+                    }
+                    if (isSet) {
+                        builder.add(row, col)
+                    }
+                    position++
+                }
+            }
+            return builder.build(width, height)
+        }
+
+        /**
+         * Encode a mask for every class in a single pass over the classifications.
+         *
+         * Only the class whose run ends and the class whose run starts are touched at each change
+         * between neighboring pixels, so the cost doesn't grow with the number of classes.
+         *
+         * @param classifications: the class index for each pixel as a matrix[row][col]. Indices
+         *                         outside of 0 until numClasses are left out of every mask.
+         * @param confidence: the confidence for each pixel, or null to include every pixel
+         * @param confidenceThreshold: pixels with a lower confidence are left out of every mask
+         * @param numClasses: the number of masks to build
+         * @return a mask for each class index.
+         */
+        @JvmStatic
+        fun fromClassifications(classifications: Array<IntArray>, confidence: Array<FloatArray>?,
+                                confidenceThreshold: Float, numClasses: Int): Array<RunLengthMask> {
+            val height = classifications.size
+            val width = if (height == 0) 0 else classifications[0].size
+            val builders = Array(numClasses) { Builder() }
+
+            var previousClass = NO_CLASS
+            var position = 0
+            for (col in 0 until width) {
+                for (row in 0 until height) {
+                    var pixelClass = classifications[row][col]
+                    if (pixelClass < 0 || pixelClass >= numClasses
+                            || (confidence != null && confidence[row][col] < confidenceThreshold)) {
+                        pixelClass = NO_CLASS
+                    }
+                    if (pixelClass != previousClass) {
+                        // The run of 1s ends for the previous class and starts for the new one.
+                        if (previousClass != NO_CLASS) {
+                            builders[previousClass].endRun(position)
+                        }
+                        if (pixelClass != NO_CLASS) {
+                            builders[pixelClass].endRun(position)
+                        }
+                        previousClass = pixelClass
+                    }
+                    if (pixelClass != NO_CLASS) {
+                        builders[pixelClass].add(row, col)
+                    }
+                    position++
+                }
+            }
+
+            return Array(numClasses) { builders[it].build(width, height) }
+        }
+    }
+}
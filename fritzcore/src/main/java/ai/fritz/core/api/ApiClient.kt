@@ -3,6 +3,7 @@ package ai.fritz.core.api
 import ai.fritz.core.Fritz
 import ai.fritz.core.api.ErrorMessages.sessionSettingsFailureMessage
 import ai.fritz.core.api.SessionSettings.Companion.fromResponse
+import ai.fritz.core.events.EventBatchSerializer
 import ai.fritz.core.events.ModelEvent
 import ai.fritz.core.utils.SessionPreferenceManager.updateSessionSettings
 import android.text.TextUtils
@@ -20,12 +21,20 @@ import javax.net.ssl.HttpsURLConnection
 /**
  * Client for the Fritz service.
  *
+ * Requests go through an [ApiRequestEngine], which reuses connections and retries failures.
+ *
  * @hide
  */
-open class ApiClient(val session: Session, private val apiBase: String) {
+open class ApiClient @JvmOverloads constructor(val session: Session, private val apiBase: String, private val engine: ApiRequestEngine = ApiRequestEngine(session)) {
+    // The event queue only sends one batch at a time, so a single serializer is reused.
+    private val batchSerializer = EventBatchSerializer()
+
     /**
      * Track events
      *
+     * The events are streamed into the request body, gzipped if the session settings enable it.
+     * Network and server errors are retried before the handler is called.
+     *
      * @param events  - a list of model events
      * @param handler - handler for the request
      */
@@ -35,6 +44,13 @@ open class ApiClient(val session: Session, private val apiBase: String) {
             handler.onError(null)
             return
         }
+        try {
+            val url = URL("$apiBase/model/event/batch")
+            val body = ApiRequest.EventBatchBody(batchSerializer, events, session.settings.isGzipTrackEvents)
+            engine.execute(ApiRequest(url, body), handler)
+        } catch (e: MalformedURLException) {
+            throw RuntimeException(e)
+        }
     }
 
     fun recordAnnotationEvent(modelEvent: ModelEvent, handler: RequestHandler) {
@@ -45,7 +61,8 @@ open class ApiClient(val session: Session, private val apiBase: String) {
             val url = URL("$apiBase/model/annotation")
             val payload = JSONObject()
             payload.put("data", data)
-            PostRequestTask(session, handler).execute(Request(url, payload))
+            // Annotations are sent uncompressed. The gzip setting only covers track events.
+            engine.execute(ApiRequest(url, ApiRequest.JsonBody(payload, false)), handler)
         } catch (e: JSONException) {
             throw RuntimeException(e)
         } catch (e: MalformedURLException) {
@@ -78,15 +95,46 @@ open class ApiClient(val session: Session, private val apiBase: String) {
         }
     }
 
+    /**
+     * Fetch and save the latest session settings.
+     *
+     * Calls made while a fetch is already in flight share its response.
+     */
     open fun fetchSettings() {
         // Don't check settings if it isn't time yet.
         if (!session.settings.shouldCheckSettings()) {
             return
         }
-        Log.d(TAG, "Fritz AI backend disabled.")
+        if (!session.isApiEnabled) {
+            Log.d(TAG, "Fritz AI backend disabled.")
+            return
+        }
+        try {
+            val url = URL("$apiBase/session/settings")
+            engine.execute(ApiRequest(url), object : RequestHandler {
+                override fun onSuccess(response: JSONObject?) {
+                    response ?: return
+                    try {
+                        val settings = fromResponse(response)
+                        settings.settingsLastCheckedAt = System.currentTimeMillis()
+                        session.settings = settings
+                        updateSessionSettings(settings)
+                    } catch (e: JSONException) {
+                        Log.e(TAG, "Unable to parse the session settings: " + e.message)
+                    }
+                }
+
+                override fun onError(response: JSONObject?) {
+                    Log.e(TAG, sessionSettingsFailureMessage)
+                }
+            }, SETTINGS_COALESCE_KEY)
+        } catch (e: MalformedURLException) {
+            throw RuntimeException(e)
+        }
     }
 
     companion object {
         private val TAG = ApiClient::class.java.simpleName
+        private const val SETTINGS_COALESCE_KEY = "session_settings"
     }
 }
\ No newline at end of file
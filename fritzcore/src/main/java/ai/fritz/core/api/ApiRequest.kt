@@ -0,0 +1,67 @@
+package ai.fritz.core.api
+
+import ai.fritz.core.events.EventBatchSerializer
+import ai.fritz.core.events.ModelEvent
+import org.json.JSONException
+import org.json.JSONObject
+import java.io.IOException
+import java.io.OutputStream
+import java.net.URL
+import java.util.zip.GZIPOutputStream
+
+/**
+ * A request run by [ApiRequestEngine].
+ *
+ * Requests with a body are POSTs. The body can be written more than once, since a retried request
+ * writes it again.
+ *
+ * @hide
+ */
+class ApiRequest @JvmOverloads constructor(val url: URL, val body: Body? = null) {
+
+    val method: String
+        get() = if (body == null) "GET" else "POST"
+
+    /**
+     * Writes the request body.
+     */
+    interface Body {
+        /**
+         * Whether the body is written gzipped.
+         */
+        val isGzipped: Boolean
+
+        /**
+         * Write the body to the stream and close it.
+         */
+        @Throws(IOException::class)
+        fun writeTo(outputStream: OutputStream)
+    }
+
+    /**
+     * A JSON payload, encoded once and written as is on each attempt.
+     */
+    class JsonBody(payload: JSONObject, override val isGzipped: Boolean) : Body {
+        private val bytes = payload.toString().toByteArray(charset(BaseRequestTask.TEXT_ENCODING))
+
+        @Throws(IOException::class)
+        override fun writeTo(outputStream: OutputStream) {
+            val target = if (isGzipped) GZIPOutputStream(outputStream) else outputStream
+            target.use { it.write(bytes) }
+        }
+    }
+
+    /**
+     * A batch of events, streamed by the serializer on each attempt.
+     */
+    class EventBatchBody(private val serializer: EventBatchSerializer, private val events: List<ModelEvent>, override val isGzipped: Boolean) : Body {
+        @Throws(IOException::class)
+        override fun writeTo(outputStream: OutputStream) {
+            try {
+                serializer.write(events, outputStream, isGzipped)
+            } catch (e: JSONException) {
+                throw RuntimeException(e)
+            }
+        }
+    }
+}
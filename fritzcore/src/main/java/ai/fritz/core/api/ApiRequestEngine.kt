@@ -0,0 +1,283 @@
+package ai.fritz.core.api
+
+import ai.fritz.core.FritzExecutors
+import ai.fritz.core.constants.ApiHeaders
+import ai.fritz.core.utils.LimitedExecutor
+import android.os.Handler
+import android.os.Looper
+import android.util.Log
+import org.json.JSONException
+import org.json.JSONObject
+import java.io.ByteArrayOutputStream
+import java.io.IOException
+import java.io.InputStream
+import java.net.HttpURLConnection
+import java.util.*
+import java.util.concurrent.Executor
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Runs API requests for [ApiClient].
+ *
+ * - Connections are kept alive: response bodies are read to the end and the connection isn't
+ *   disconnected, so the next request to the same host reuses the socket.
+ * - At most [maxConcurrentRequests] run at once, on the SDK's shared io pool.
+ * - Network errors and 5xx responses are retried up to [maxAttempts] times, waiting a random time
+ *   up to an exponentially growing limit ("full jitter") between attempts. Retries are scheduled
+ *   rather than slept on, so a waiting request doesn't hold a thread.
+ * - Requests given the same coalesce key while one is in flight share its response instead of being
+ *   sent again.
+ *
+ * Handlers are called on the callback executor, the main thread by default.
+ *
+ * @param session: the session whose credentials are sent with each request
+ * @param maxConcurrentRequests: the most requests running at once
+ * @param maxAttempts: the most times a request is sent
+ * @param baseBackoffMs: the longest wait before the first retry. It doubles for each retry after that.
+ * @param maxBackoffMs: the longest wait before any retry
+ * @param callbackExecutor: where handlers are called
+ * @hide
+ */
+class ApiRequestEngine @JvmOverloads constructor(
+        private val session: Session,
+        private val maxConcurrentRequests: Int = DEFAULT_MAX_CONCURRENT_REQUESTS,
+        private val maxAttempts: Int = DEFAULT_MAX_ATTEMPTS,
+        private val baseBackoffMs: Long = DEFAULT_BASE_BACKOFF_MS,
+        private val maxBackoffMs: Long = DEFAULT_MAX_BACKOFF_MS,
+        private val callbackExecutor: Executor = MainThreadExecutor()) {
+
+    private class Call(val request: ApiRequest, val coalesceKey: String?, val handler: RequestHandler, val fatalErrorListener: FatalErrorListener) {
+        var attempt = 0
+    }
+
+    private val requestExecutor = LimitedExecutor(Executor { task -> FritzExecutors.io().execute(task) }, maxConcurrentRequests)
+    private val random = Random()
+    // Handlers waiting on an in-flight request, by coalesce key
+    private val inFlight = HashMap<String, MutableList<RequestHandler>>()
+
+    private val attemptCount = AtomicLong()
+    private val retryCount = AtomicLong()
+    private val coalescedCount = AtomicLong()
+
+    /**
+     * Run a request.
+     *
+     * @param request: the request to send
+     * @param handler: called once with the final response
+     * @param coalesceKey: requests with the same key share a request in flight, or null to always send
+     * @param fatalErrorListener: called when the server says the error can't be recovered from
+     */
+    @JvmOverloads
+    fun execute(request: ApiRequest, handler: RequestHandler, coalesceKey: String? = null,
+                fatalErrorListener: FatalErrorListener = BaseRequestTask.createFatalAuthErrorListener()) {
+        if (coalesceKey != null) {
+            synchronized(inFlight) {
+                val waiting = inFlight[coalesceKey]
+                if (waiting != null) {
+                    waiting.add(handler)
+                    coalescedCount.incrementAndGet()
+                    return
+                }
+                inFlight[coalesceKey] = ArrayList()
+            }
+        }
+        submit(Call(request, coalesceKey, handler, fatalErrorListener))
+    }
+
+    /**
+     * The number of times requests were sent, including retries.
+     */
+    val attempts: Long
+        get() = attemptCount.get()
+
+    /**
+     * The number of retries.
+     */
+    val retries: Long
+        get() = retryCount.get()
+
+    /**
+     * The number of requests that shared a request already in flight.
+     */
+    val coalesced: Long
+        get() = coalescedCount.get()
+
+    private fun submit(call: Call) {
+        requestExecutor.execute { run(call) }
+    }
+
+    private fun run(call: Call) {
+        attemptCount.incrementAndGet()
+        val response = try {
+            perform(call.request)
+        } catch (e: RuntimeException) {
+            // A bug rather than a network error, so it isn't retried. The handlers still hear back
+            // and the coalesce key is released.
+            Log.e(TAG, "Api Request failed: " + call.request.url, e)
+            Response(REQUEST_FAILED_STATUS, JSONObject())
+        }
+        call.attempt++
+        if (isRetryable(response) && call.attempt < maxAttempts) {
+            retryCount.incrementAndGet()
+            val delayMs = backoffMs(call.attempt)
+            Log.d(TAG, "Retrying " + call.request.url + " in " + delayMs + "ms (status " + response.statusCode + ")")
+            FritzExecutors.scheduler().schedule({ submit(call) }, delayMs, TimeUnit.MILLISECONDS)
+            return
+        }
+        deliver(call, response)
+    }
+
+    /**
+     * Send the request once.
+     *
+     * @return the response, or a status code of -1 if it couldn't be sent.
+     * @throws RuntimeException if building or reading the request fails for a reason other than I/O.
+     */
+    private fun perform(request: ApiRequest): Response {
+        var connection: HttpURLConnection? = null
+        try {
+            Log.d(TAG, "Api Request: " + request.url)
+            connection = request.url.openConnection() as HttpURLConnection
+            connection.connectTimeout = TIMEOUT_MS
+            connection.readTimeout = TIMEOUT_MS
+            connection.requestMethod = request.method
+            connection.setRequestProperty(ApiHeaders.USER_AGENT, session.userAgent)
+            connection.setRequestProperty(ApiHeaders.FRITZ_APP_TOKEN, session.appToken)
+            connection.setRequestProperty(ApiHeaders.FRITZ_INSTANCE_ID, session.instanceId)
+            val body = request.body
+            if (body != null) {
+                connection.setRequestProperty("Content-Type", CONTENT_TYPE)
+                if (body.isGzipped) {
+                    connection.setRequestProperty("Content-Encoding", "gzip")
+                }
+                connection.setChunkedStreamingMode(0)
+                connection.doOutput = true
+                body.writeTo(connection.outputStream)
+            }
+
+            val statusCode = connection.responseCode
+            val stream = if (statusCode >= HttpURLConnection.HTTP_BAD_REQUEST) connection.errorStream else connection.inputStream
+            // Reading to the end and closing hands the connection back to be reused.
+            return Response(statusCode, readBody(stream))
+        } catch (e: IOException) {
+            Log.w(TAG, "Api Request failed: " + e.message)
+            // Don't reuse a connection in an unknown state.
+            connection?.disconnect()
+            return Response(NO_INTERNET_RESPONSE_STATUS, JSONObject())
+        } catch (e: RuntimeException) {
+            connection?.disconnect()
+            throw e
+        }
+    }
+
+    private fun isRetryable(response: Response): Boolean {
+        return response.statusCode == NO_INTERNET_RESPONSE_STATUS || response.statusCode >= HttpURLConnection.HTTP_INTERNAL_ERROR
+    }
+
+    /**
+     * A random wait up to base * 2^(attempt - 1), capped at the max.
+     */
+    private fun backoffMs(attempt: Int): Long {
+        val shift = Math.min(attempt - 1, MAX_BACKOFF_SHIFT)
+        val limit = Math.min(maxBackoffMs, baseBackoffMs shl shift)
+        synchronized(random) {
+            return (random.nextDouble() * limit).toLong()
+        }
+    }
+
+    private fun deliver(call: Call, response: Response) {
+        val handlers = ArrayList<RequestHandler>()
+        handlers.add(call.handler)
+        if (call.coalesceKey != null) {
+            synchronized(inFlight) {
+                inFlight.remove(call.coalesceKey)?.let { handlers.addAll(it) }
+            }
+        }
+
+        val body = response.body
+        try {
+            body.put(BaseRequestTask.STATUS_CODE_KEY, response.statusCode)
+        } catch (e: JSONException) {
+            throw RuntimeException(e)
+        }
+        callbackExecutor.execute {
+            if (response.isSuccessful) {
+                for (handler in handlers) {
+                    handler.onSuccess(body)
+                }
+                return@execute
+            }
+            val fatalMessage = getFatalMessage(body)
+            if (fatalMessage != null) {
+                call.fatalErrorListener.onFatalError(fatalMessage)
+            }
+            for (handler in handlers) {
+                handler.onError(body)
+            }
+        }
+    }
+
+    /**
+     * Calls tasks on the main thread.
+     */
+    class MainThreadExecutor : Executor {
+        private val handler = Handler(Looper.getMainLooper())
+
+        override fun execute(command: Runnable) {
+            handler.post(command)
+        }
+    }
+
+    companion object {
+        private val TAG = ApiRequestEngine::class.java.simpleName
+
+        const val DEFAULT_MAX_CONCURRENT_REQUESTS = 2
+        const val DEFAULT_MAX_ATTEMPTS = 4
+        const val DEFAULT_BASE_BACKOFF_MS = 1000L
+        const val DEFAULT_MAX_BACKOFF_MS = 30000L
+        private const val NO_INTERNET_RESPONSE_STATUS = -1
+        private const val REQUEST_FAILED_STATUS = -2
+        private const val MAX_BACKOFF_SHIFT = 20
+        private const val TIMEOUT_MS = 15000
+        private const val CONTENT_TYPE = "application/json"
+        private const val READ_BUFFER_LENGTH = 4 * 1024
+        private const val IS_FATAL_KEY = "is_fatal"
+        private const val MESSAGE_KEY = "message"
+
+        @Throws(IOException::class)
+        private fun readBody(stream: InputStream?): JSONObject {
+            if (stream == null) {
+                return JSONObject()
+            }
+            val bytes = ByteArrayOutputStream()
+            stream.use {
+                val buffer = ByteArray(READ_BUFFER_LENGTH)
+                var dataSize: Int
+                while (it.read(buffer).also { size -> dataSize = size } != -1) {
+                    bytes.write(buffer, 0, dataSize)
+                }
+            }
+            val text = bytes.toString(BaseRequestTask.TEXT_ENCODING)
+            if (text.isEmpty()) {
+                return JSONObject()
+            }
+            return try {
+                JSONObject(text)
+            } catch (e: JSONException) {
+                Log.e(TAG, "Unable to parse the response: " + e.message)
+                JSONObject()
+            }
+        }
+
+        /**
+         * The message for an error the server says can't be recovered from, or null.
+         */
+        private fun getFatalMessage(body: JSONObject): String? {
+            if (!body.optBoolean(IS_FATAL_KEY, false)) {
+                return null
+            }
+            return body.optString(MESSAGE_KEY, "")
+        }
+    }
+}
@@ -25,15 +25,7 @@ abstract class BaseRequestTask : AsyncTask<Request?, Void?, Response?> {
     constructor(session: Session, handler: RequestHandler) {
         this.handler = handler
         this.session = session
-        fatalErrorListener = object : FatalErrorListener {
-            override fun onFatalError(message: String) {
-                throw FatalAuthException("\n\n" +
-                        message + "\n" +
-                        "Please check your applicationId and API Key are correctly registered in your Fritz account.\n" +
-                        "https://docs.fritz.ai/quickstart.html\n\n" +
-                        "To fix the issue, please visit our support forum https://support.fritz.ai/t/my-app-won-t-build-because-bundle-identifier-application-id-does-not-match-api-key/37 .\n\n")
-            }
-        }
+        fatalErrorListener = createFatalAuthErrorListener()
     }
 
     constructor(session: Session, handler: RequestHandler, fatalErrorListener: FatalErrorListener) {
@@ -140,5 +132,21 @@ abstract class BaseRequestTask : AsyncTask<Request?, Void?, Response?> {
         private const val IS_FATAL_KEY = "is_fatal"
         private const val MESSAGE_KEY = "message"
         private val TAG = BaseRequestTask::class.java.simpleName
+
+        /**
+         * A listener that throws a [FatalAuthException] explaining how to fix the app's credentials.
+         */
+        @JvmStatic
+        fun createFatalAuthErrorListener(): FatalErrorListener {
+            return object : FatalErrorListener {
+                override fun onFatalError(message: String) {
+                    throw FatalAuthException("\n\n" +
+                            message + "\n" +
+                            "Please check your applicationId and API Key are correctly registered in your Fritz account.\n" +
+                            "https://docs.fritz.ai/quickstart.html\n\n" +
+                            "To fix the issue, please visit our support forum https://support.fritz.ai/t/my-app-won-t-build-because-bundle-identifier-application-id-does-not-match-api-key/37 .\n\n")
+                }
+            }
+        }
     }
 }
\ No newline at end of file
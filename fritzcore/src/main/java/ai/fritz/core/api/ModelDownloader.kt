@@ -0,0 +1,254 @@
+package ai.fritz.core.api
+
+import ai.fritz.core.FritzExecutors
+import android.util.Log
+import java.io.File
+import java.io.FileInputStream
+import java.io.IOException
+import java.io.InputStream
+import java.io.RandomAccessFile
+import java.net.HttpURLConnection
+import java.net.URL
+import java.nio.ByteBuffer
+import java.nio.channels.FileChannel
+import java.security.MessageDigest
+import java.security.NoSuchAlgorithmException
+import java.util.Locale
+import java.util.concurrent.Callable
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.FutureTask
+
+/**
+ * Downloads a model file with several HTTP range requests at once.
+ *
+ * The file is preallocated next to the destination with a ".part" suffix and each range is written
+ * at its own position. Once every range has arrived the file is synced, checked against the expected
+ * SHA-256 (if there is one) and renamed over the destination, so a partial or corrupted download is
+ * never left at the destination path. A file already at the destination that matches the expected
+ * SHA-256 is kept without downloading it again.
+ *
+ * Servers that don't support ranges (or don't report the size) are downloaded with a single request.
+ *
+ * Ranges are downloaded on the SDK's shared download pool.
+ *
+ * @param numConnections: the maximum number of ranges downloaded at the same time
+ * @param minChunkBytes: ranges are never smaller than this
+ * @hide
+ */
+class ModelDownloader @JvmOverloads constructor(private val numConnections: Int = DEFAULT_NUM_CONNECTIONS, private val minChunkBytes: Long = DEFAULT_MIN_CHUNK_BYTES) {
+
+    /**
+     * Download the file at the url to the destination.
+     *
+     * @param url: the url of the model file
+     * @param destination: where the completed file is saved
+     * @param expectedSha256: the hex encoded SHA-256 of the file or null to skip the check. Without
+     * it, a file already at the destination can't be verified and is downloaded again.
+     * @return the destination file
+     * @throws IOException if the download fails or the checksum doesn't match
+     */
+    @Throws(IOException::class)
+    fun download(url: String, destination: File, expectedSha256: String?): File {
+        if (expectedSha256 != null && destination.isFile && sha256(destination).equals(expectedSha256, ignoreCase = true)) {
+            Log.d(TAG, "Already downloaded: " + destination.absolutePath)
+            return destination
+        }
+
+        val partFile = File(destination.parentFile, destination.name + PART_SUFFIX)
+        // Leftovers from an earlier attempt can't be trusted.
+        partFile.delete()
+
+        try {
+            val contentLength = probeRangeSupport(url)
+            if (contentLength > 0) {
+                downloadRanges(url, partFile, contentLength)
+            } else {
+                downloadSingle(url, partFile)
+            }
+
+            if (expectedSha256 != null) {
+                val actualSha256 = sha256(partFile)
+                if (!actualSha256.equals(expectedSha256, ignoreCase = true)) {
+                    throw IOException("Checksum mismatch for $url: expected $expectedSha256, got $actualSha256")
+                }
+            }
+
+            if (!partFile.renameTo(destination)) {
+                throw IOException("Unable to move the download to " + destination.absolutePath)
+            }
+            Log.d(TAG, "DOWNLOADED:" + destination.absolutePath + " SIZE OF: " + destination.length())
+            return destination
+        } catch (e: IOException) {
+            partFile.delete()
+            throw e
+        }
+    }
+
+    /**
+     * Request the first byte to find the file size.
+     *
+     * @return the size if the server supports range requests, otherwise -1.
+     */
+    private fun probeRangeSupport(url: String): Long {
+        val connection = openConnection(url)
+        try {
+            connection.setRequestProperty("Range", "bytes=0-0")
+            connection.connect()
+            if (connection.responseCode != HttpURLConnection.HTTP_PARTIAL) {
+                return -1
+            }
+            // Content-Range: bytes 0-0/12345
+            val contentRange = connection.getHeaderField("Content-Range") ?: return -1
+            val totalIndex = contentRange.lastIndexOf('/')
+            if (totalIndex < 0) {
+                return -1
+            }
+            return contentRange.substring(totalIndex + 1).trim().toLongOrNull() ?: -1
+        } finally {
+            connection.disconnect()
+        }
+    }
+
+    private fun downloadRanges(url: String, partFile: File, contentLength: Long) {
+        val numChunks = Math.max(1L, Math.min(numConnections.toLong(), contentLength / minChunkBytes)).toInt()
+        val chunkSize = (contentLength + numChunks - 1) / numChunks
+
+        RandomAccessFile(partFile, "rw").use { file ->
+            file.setLength(contentLength)
+            val channel = file.channel
+            val executor = FritzExecutors.limitedDownloads(numChunks)
+            val futures = ArrayList<FutureTask<Unit>>()
+            try {
+                var start = 0L
+                while (start < contentLength) {
+                    val end = Math.min(start + chunkSize, contentLength) - 1
+                    val chunkStart = start
+                    val future = FutureTask(Callable { downloadRange(url, channel, chunkStart, end) })
+                    futures.add(future)
+                    executor.execute(future)
+                    start += chunkSize
+                }
+                for (future in futures) {
+                    future.get()
+                }
+            } catch (e: ExecutionException) {
+                val cause = e.cause
+                throw cause as? IOException ?: IOException(cause)
+            } catch (e: InterruptedException) {
+                Thread.currentThread().interrupt()
+                throw IOException("Interrupted while downloading $url", e)
+            } finally {
+                // Stop the other ranges once one fails.
+                executor.clear()
+                for (future in futures) {
+                    future.cancel(true)
+                }
+            }
+            channel.force(true)
+        }
+    }
+
+    private fun downloadRange(url: String, channel: FileChannel, start: Long, end: Long) {
+        val connection = openConnection(url)
+        try {
+            connection.setRequestProperty("Range", "bytes=$start-$end")
+            connection.connect()
+            if (connection.responseCode != HttpURLConnection.HTTP_PARTIAL) {
+                throw IOException("Expected a partial response for bytes $start-$end, got " + connection.responseCode)
+            }
+            val written = copyToChannel(connection.inputStream, channel, start)
+            val expected = end - start + 1
+            if (written != expected) {
+                throw IOException("Received $written of $expected bytes for bytes $start-$end")
+            }
+        } finally {
+            connection.disconnect()
+        }
+    }
+
+    private fun downloadSingle(url: String, partFile: File) {
+        val connection = openConnection(url)
+        try {
+            connection.connect()
+            if (connection.responseCode != HttpURLConnection.HTTP_OK) {
+                throw IOException("Unexpected response " + connection.responseCode + " for " + url)
+            }
+            RandomAccessFile(partFile, "rw").use { file ->
+                val written = copyToChannel(connection.inputStream, file.channel, 0)
+                val expected = connection.contentLength.toLong()
+                if (expected >= 0 && written != expected) {
+                    throw IOException("Received $written of $expected bytes for $url")
+                }
+                file.channel.force(true)
+            }
+        } finally {
+            connection.disconnect()
+        }
+    }
+
+    /**
+     * Copy the stream into the channel starting at the position.
+     *
+     * @return the number of bytes copied.
+     */
+    private fun copyToChannel(inputStream: InputStream, channel: FileChannel, position: Long): Long {
+        val buffer = ByteArray(READ_BUFFER_LENGTH)
+        val byteBuffer = ByteBuffer.wrap(buffer)
+        var offset = position
+        inputStream.use { stream ->
+            var dataSize: Int
+            while (stream.read(buffer).also { dataSize = it } != -1) {
+                byteBuffer.clear()
+                byteBuffer.limit(dataSize)
+                while (byteBuffer.hasRemaining()) {
+                    offset += channel.write(byteBuffer, offset)
+                }
+            }
+        }
+        return offset - position
+    }
+
+    private fun openConnection(url: String): HttpURLConnection {
+        val connection = URL(url).openConnection() as HttpURLConnection
+        connection.connectTimeout = TIMEOUT_MS
+        connection.readTimeout = TIMEOUT_MS
+        // Ranges have to be byte exact.
+        connection.setRequestProperty("Accept-Encoding", "identity")
+        return connection
+    }
+
+    companion object {
+        private val TAG = ModelDownloader::class.java.simpleName
+
+        const val DEFAULT_NUM_CONNECTIONS = 4
+        const val DEFAULT_MIN_CHUNK_BYTES = 512 * 1024L
+        private const val PART_SUFFIX = ".part"
+        private const val READ_BUFFER_LENGTH = 64 * 1024
+        private const val TIMEOUT_MS = 30000
+
+        /**
+         * Get the hex encoded SHA-256 of a file.
+         */
+        @JvmStatic
+        @Throws(IOException::class)
+        fun sha256(file: File): String {
+            val digest = try {
+                MessageDigest.getInstance("SHA-256")
+            } catch (e: NoSuchAlgorithmException) {
+                throw RuntimeException(e)
+            }
+            FileInputStream(file).use { stream ->
+                val buffer = ByteArray(READ_BUFFER_LENGTH)
+                var dataSize: Int
+                while (stream.read(buffer).also { dataSize = it } != -1) {
+                    digest.update(buffer, 0, dataSize)
+                }
+            }
+            val hex = StringBuilder()
+            for (b in digest.digest()) {
+                hex.append(String.format(Locale.US, "%02x", b))
+            }
+            return hex.toString()
+        }
+    }
+}
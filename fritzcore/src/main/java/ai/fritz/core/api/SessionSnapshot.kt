@@ -0,0 +1,33 @@
+package ai.fritz.core.api
+
+import java.util.*
+
+/**
+ * A read-only copy of a [Session] and its [SessionSettings].
+ *
+ * Built once when the session is loaded so code that runs for every event can read the settings
+ * without touching shared preferences or parsing JSON.
+ *
+ * @hide
+ */
+class SessionSnapshot(session: Session) {
+    val instanceId: String = session.instanceId
+    val appToken: String = session.appToken
+    val userAgent: String = session.userAgent
+    val isApiEnabled: Boolean = session.settings.isEnabledApiRequests
+    val modelInputOutputSamplingRatio: Double = session.settings.modelInputOutputSamplingRatio
+    val trackRequestBatchSize: Int = session.settings.trackRequestBatchSize
+    val isGzipTrackEvents: Boolean = session.settings.isGzipTrackEvents
+    val batchFlushInterval: Long = session.settings.batchFlushInterval
+    val eventBlacklist: Set<String> = Collections.unmodifiableSet(HashSet(session.settings.eventBlacklist ?: emptyList()))
+
+    /**
+     * Check if events with the name should be skipped.
+     *
+     * @param eventName: the name of the event
+     * @return true if the event is in the blacklist
+     */
+    fun isBlacklisted(eventName: String): Boolean {
+        return eventBlacklist.contains(eventName)
+    }
+}
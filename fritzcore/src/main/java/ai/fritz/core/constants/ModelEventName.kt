@@ -2,6 +2,7 @@ package ai.fritz.core.constants
 
 enum class ModelEventName(val eventName: String) {
     PREDICTION_TIMING("prediction"),
+    PREDICTION_TIMING_SUMMARY("prediction_summary"),
     MODEL_INSTALL("model_installed"),
     MODEL_PREPROCESS("model_preprocess"),
     MODEL_POSTPROCESS("model_postprocess"),
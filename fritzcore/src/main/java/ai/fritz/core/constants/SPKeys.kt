@@ -35,4 +35,9 @@ object SPKeys {
     fun getHasTrackedModelVersionKey(modelId: String, modelVersion: Int): String {
         return "has_tracked_model_" + modelId + "_version_" + modelVersion
     }
-}
\ No newline at end of file
+
+    @JvmStatic
+    fun getInterpreterConfigKey(modelId: String, modelVersion: Int, deviceFingerprint: String): String {
+        return "interpreter_config_" + modelId + "_version_" + modelVersion + "_device_" + deviceFingerprint
+    }
+}
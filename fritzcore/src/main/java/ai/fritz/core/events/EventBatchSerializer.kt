@@ -0,0 +1,50 @@
+package ai.fritz.core.events
+
+import org.json.JSONException
+import java.io.IOException
+import java.io.OutputStream
+import java.util.zip.GZIPOutputStream
+
+/**
+ * Writes a batch of events as the `{"data": [...]}` payload for the tracking endpoint.
+ *
+ * Events are streamed one at a time through a reused [EventJsonWriter], optionally gzipped, so a
+ * full batch never exists as a JSON tree or a string in memory. The uncompressed bytes are the same
+ * as the payload's JSONObject.toString().
+ *
+ * Only one batch can be written at a time.
+ *
+ * @hide
+ */
+class EventBatchSerializer {
+
+    private val jsonWriter = EventJsonWriter()
+
+    /**
+     * Write the events to the stream and close it.
+     *
+     * @param events: the events to send
+     * @param outputStream: the request body
+     * @param gzip: compress the payload
+     */
+    @Throws(IOException::class, JSONException::class)
+    fun write(events: List<ModelEvent>, outputStream: OutputStream, gzip: Boolean) {
+        val target = if (gzip) GZIPOutputStream(outputStream, GZIP_BUFFER_SIZE) else outputStream
+        target.use {
+            jsonWriter.reset(it)
+            jsonWriter.beginObject()
+            jsonWriter.name(DATA_KEY).beginArray()
+            for (event in events) {
+                event.writeJson(jsonWriter)
+            }
+            jsonWriter.endArray()
+            jsonWriter.endObject()
+            jsonWriter.flush()
+        }
+    }
+
+    companion object {
+        const val DATA_KEY = "data"
+        private const val GZIP_BUFFER_SIZE = 8 * 1024
+    }
+}
@@ -2,6 +2,7 @@ package ai.fritz.core.events
 
 import org.json.JSONException
 import org.json.JSONObject
+import java.io.IOException
 
 /**
  * All events should implement this interface
@@ -10,4 +11,13 @@ import org.json.JSONObject
 interface EventData {
     @Throws(JSONException::class)
     fun toJson(): JSONObject
-}
\ No newline at end of file
+
+    /**
+     * Stream the same JSON as [toJson]. Events sent in large numbers should override this to skip
+     * building the JSONObject.
+     */
+    @Throws(IOException::class, JSONException::class)
+    fun writeJson(writer: EventJsonWriter) {
+        writer.rawValue(toJson().toString())
+    }
+}
@@ -0,0 +1,274 @@
+package ai.fritz.core.events
+
+import org.json.JSONException
+import org.json.JSONObject
+import java.io.IOException
+import java.io.OutputStream
+
+/**
+ * Writes JSON straight to a stream as UTF-8 without building [JSONObject] trees first.
+ *
+ * The output matches what [JSONObject.toString] produces for the same values in the same order
+ * (including escaping "/" and formatting whole doubles without a decimal point), so the server
+ * sees the same bytes either way.
+ *
+ * The writer keeps its byte buffer between uses. Call [reset] to point it at a new stream and
+ * [flush] once everything has been written. It isn't thread safe.
+ *
+ * @hide
+ */
+class EventJsonWriter {
+
+    private val buffer = ByteArray(BUFFER_SIZE)
+    private var position = 0
+    private var out: OutputStream? = null
+
+    // Whether the object or array at each depth already has an entry and needs a comma before the next.
+    private val hasEntries = BooleanArray(MAX_DEPTH)
+    private var depth = 0
+    private var afterName = false
+
+    /**
+     * Start writing a new document to the stream. Anything buffered for the previous stream is discarded.
+     */
+    fun reset(out: OutputStream) {
+        this.out = out
+        position = 0
+        depth = 0
+        afterName = false
+    }
+
+    @Throws(IOException::class)
+    fun beginObject(): EventJsonWriter {
+        beforeValue()
+        writeByte('{'.toInt())
+        push()
+        return this
+    }
+
+    @Throws(IOException::class)
+    fun endObject(): EventJsonWriter {
+        pop()
+        writeByte('}'.toInt())
+        return this
+    }
+
+    @Throws(IOException::class)
+    fun beginArray(): EventJsonWriter {
+        beforeValue()
+        writeByte('['.toInt())
+        push()
+        return this
+    }
+
+    @Throws(IOException::class)
+    fun endArray(): EventJsonWriter {
+        pop()
+        writeByte(']'.toInt())
+        return this
+    }
+
+    @Throws(IOException::class)
+    fun name(name: String): EventJsonWriter {
+        if (depth == 0 || afterName) {
+            throw IllegalStateException("A name must be inside an object and followed by a value.")
+        }
+        if (hasEntries[depth - 1]) {
+            writeByte(','.toInt())
+        }
+        hasEntries[depth - 1] = true
+        writeString(name)
+        writeByte(':'.toInt())
+        afterName = true
+        return this
+    }
+
+    @Throws(IOException::class)
+    fun value(value: String?): EventJsonWriter {
+        if (value == null) {
+            return nullValue()
+        }
+        beforeValue()
+        writeString(value)
+        return this
+    }
+
+    @Throws(IOException::class)
+    fun value(value: Long): EventJsonWriter {
+        beforeValue()
+        writeAscii(java.lang.Long.toString(value))
+        return this
+    }
+
+    @Throws(IOException::class)
+    fun value(value: Int): EventJsonWriter {
+        return value(value.toLong())
+    }
+
+    @Throws(IOException::class, JSONException::class)
+    fun value(value: Double): EventJsonWriter {
+        beforeValue()
+        writeAscii(JSONObject.numberToString(value))
+        return this
+    }
+
+    @Throws(IOException::class)
+    fun value(value: Boolean): EventJsonWriter {
+        beforeValue()
+        writeAscii(if (value) "true" else "false")
+        return this
+    }
+
+    @Throws(IOException::class)
+    fun nullValue(): EventJsonWriter {
+        beforeValue()
+        writeAscii("null")
+        return this
+    }
+
+    /**
+     * Write a value that's already encoded as JSON (e.g from [JSONObject.toString]).
+     */
+    @Throws(IOException::class)
+    fun rawValue(json: String): EventJsonWriter {
+        beforeValue()
+        writeChars(json, 0, json.length)
+        return this
+    }
+
+    /**
+     * End a top level value with a line break, for writing one document per line.
+     */
+    @Throws(IOException::class)
+    fun newLine(): EventJsonWriter {
+        if (depth != 0) {
+            throw IllegalStateException("Line breaks can only follow a complete value.")
+        }
+        writeByte('\n'.toInt())
+        return this
+    }
+
+    /**
+     * Write out the buffered bytes.
+     */
+    @Throws(IOException::class)
+    fun flush() {
+        drain()
+        out!!.flush()
+    }
+
+    private fun beforeValue() {
+        if (afterName) {
+            afterName = false
+            return
+        }
+        if (depth > 0) {
+            if (hasEntries[depth - 1]) {
+                writeByte(','.toInt())
+            }
+            hasEntries[depth - 1] = true
+        }
+    }
+
+    private fun push() {
+        if (depth == MAX_DEPTH) {
+            throw IllegalStateException("JSON nested deeper than $MAX_DEPTH levels.")
+        }
+        hasEntries[depth++] = false
+    }
+
+    private fun pop() {
+        if (depth == 0 || afterName) {
+            throw IllegalStateException("Nothing to close.")
+        }
+        depth--
+    }
+
+    /**
+     * Write a quoted string with the same escapes as org.json.
+     */
+    private fun writeString(value: String) {
+        writeByte('"'.toInt())
+        var runStart = 0
+        for (i in value.indices) {
+            val c = value[i]
+            val escape: String? = when {
+                c == '"' -> "\\\""
+                c == '\\' -> "\\\\"
+                c == '/' -> "\\/"
+                c == '\t' -> "\\t"
+                c == '\b' -> "\\b"
+                c == '\n' -> "\\n"
+                c == '\r' -> "\\r"
+                c == '\u000C' -> "\\f"
+                c.toInt() <= 0x1F -> String.format("\\u%04x", c.toInt())
+                else -> null
+            }
+            if (escape != null) {
+                writeChars(value, runStart, i)
+                writeAscii(escape)
+                runStart = i + 1
+            }
+        }
+        writeChars(value, runStart, value.length)
+        writeByte('"'.toInt())
+    }
+
+    private fun writeAscii(value: String) {
+        for (i in value.indices) {
+            writeByte(value[i].toInt())
+        }
+    }
+
+    /**
+     * Encode the chars as UTF-8 the same way [String.toByteArray] does, including replacing
+     * unpaired surrogates with '?'.
+     */
+    private fun writeChars(value: String, start: Int, end: Int) {
+        var i = start
+        while (i < end) {
+            val c = value[i].toInt()
+            when {
+                c < 0x80 -> writeByte(c)
+                c < 0x800 -> {
+                    writeByte(0xC0 or (c shr 6))
+                    writeByte(0x80 or (c and 0x3F))
+                }
+                Character.isHighSurrogate(value[i]) && i + 1 < end && Character.isLowSurrogate(value[i + 1]) -> {
+                    val codePoint = Character.toCodePoint(value[i], value[i + 1])
+                    writeByte(0xF0 or (codePoint shr 18))
+                    writeByte(0x80 or ((codePoint shr 12) and 0x3F))
+                    writeByte(0x80 or ((codePoint shr 6) and 0x3F))
+                    writeByte(0x80 or (codePoint and 0x3F))
+                    i++
+                }
+                Character.isSurrogate(value[i]) -> writeByte('?'.toInt())
+                else -> {
+                    writeByte(0xE0 or (c shr 12))
+                    writeByte(0x80 or ((c shr 6) and 0x3F))
+                    writeByte(0x80 or (c and 0x3F))
+                }
+            }
+            i++
+        }
+    }
+
+    private fun writeByte(b: Int) {
+        if (position == buffer.size) {
+            drain()
+        }
+        buffer[position++] = b.toByte()
+    }
+
+    private fun drain() {
+        if (position > 0) {
+            out!!.write(buffer, 0, position)
+            position = 0
+        }
+    }
+
+    companion object {
+        private const val BUFFER_SIZE = 8 * 1024
+        private const val MAX_DEPTH = 32
+    }
+}
@@ -0,0 +1,164 @@
+package ai.fritz.core.events
+
+import java.util.concurrent.atomic.AtomicLong
+import java.util.concurrent.atomic.AtomicLongArray
+
+/**
+ * A fixed-capacity ring buffer that many threads can add to without locking.
+ *
+ * Each slot carries a sequence number that says whether it's ready to be written or read, so
+ * producers only contend on claiming a position and never on the consumer. When the buffer is full
+ * [add] removes the oldest item to make room, so producers never block and the newest items are kept.
+ *
+ * Items are meant to be removed by a single consumer with [drainTo]. Producers also remove items
+ * when dropping the oldest, which is why removal claims positions the same way adding does.
+ *
+ * @param capacity: the maximum number of items held
+ * @hide
+ */
+class EventRingBuffer<T>(val capacity: Int) {
+
+    private val slots = arrayOfNulls<Any>(capacity)
+    private val sequences = AtomicLongArray(capacity)
+    private val head = AtomicLong(0)
+    private val tail = AtomicLong(0)
+    private val droppedCount = AtomicLong(0)
+
+    init {
+        if (capacity < 1) {
+            throw IllegalArgumentException("The capacity must be at least 1.")
+        }
+        for (i in 0 until capacity) {
+            sequences.set(i, i.toLong())
+        }
+    }
+
+    /**
+     * Add an item, dropping the oldest item if the buffer is full.
+     *
+     * @return true if an item was dropped to make room.
+     */
+    fun add(item: T): Boolean {
+        var dropped = false
+        while (!offer(item)) {
+            if (poll() != null) {
+                droppedCount.incrementAndGet()
+                dropped = true
+            }
+        }
+        return dropped
+    }
+
+    /**
+     * Add an item if there's room.
+     *
+     * @return false if the buffer is full.
+     */
+    fun offer(item: T): Boolean {
+        while (true) {
+            val position = tail.get()
+            val index = indexOf(position)
+            val difference = sequences.get(index) - position
+            if (difference == 0L) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    slots[index] = item
+                    // Publishing the sequence makes the item visible to the consumer.
+                    sequences.set(index, position + 1)
+                    return true
+                }
+            } else if (difference < 0L) {
+                return false
+            }
+            // Another producer claimed this position, try the next one.
+        }
+    }
+
+    /**
+     * Remove the oldest item.
+     *
+     * @return the item or null if the buffer is empty.
+     */
+    @Suppress("UNCHECKED_CAST")
+    fun poll(): T? {
+        while (true) {
+            val position = head.get()
+            val index = indexOf(position)
+            val difference = sequences.get(index) - (position + 1)
+            if (difference == 0L) {
+                if (head.compareAndSet(position, position + 1)) {
+                    val item = slots[index] as T
+                    slots[index] = null
+                    // Hand the slot back to producers for the next lap.
+                    sequences.set(index, position + capacity)
+                    return item
+                }
+            } else if (difference < 0L) {
+                return null
+            }
+        }
+    }
+
+    /**
+     * Move up to the destination's length of the oldest items into it, oldest first.
+     *
+     * The destination can be reused between drains; entries past the returned count are left as they were.
+     *
+     * @return the number of items moved.
+     */
+    fun drainTo(destination: Array<T?>): Int {
+        var count = 0
+        while (count < destination.size) {
+            val item = poll() ?: break
+            destination[count++] = item
+        }
+        return count
+    }
+
+    /**
+     * Check whether the item is in the buffer. The answer is only exact while no other thread is
+     * adding or removing items.
+     */
+    operator fun contains(item: T?): Boolean {
+        val end = tail.get()
+        var position = head.get()
+        while (position < end) {
+            val index = indexOf(position)
+            if (sequences.get(index) == position + 1 && slots[index] == item) {
+                return true
+            }
+            position++
+        }
+        return false
+    }
+
+    /**
+     * Remove every item.
+     */
+    fun clear() {
+        while (poll() != null) {
+            // Discard
+        }
+    }
+
+    /**
+     * The number of items in the buffer. Items being added or removed at the same time may or may not be counted.
+     */
+    val size: Int
+        get() {
+            val size = tail.get() - head.get()
+            return Math.max(0L, Math.min(size, capacity.toLong())).toInt()
+        }
+
+    val isEmpty: Boolean
+        get() = size == 0
+
+    /**
+     * The number of items dropped to make room since the buffer was created.
+     */
+    val dropped: Long
+        get() = droppedCount.get()
+
+    private fun indexOf(position: Long): Int {
+        return (position % capacity).toInt()
+    }
+}
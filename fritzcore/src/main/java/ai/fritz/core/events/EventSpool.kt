@@ -0,0 +1,296 @@
+package ai.fritz.core.events
+
+import android.util.Log
+import org.json.JSONException
+import org.json.JSONObject
+import java.io.BufferedReader
+import java.io.File
+import java.io.FileInputStream
+import java.io.FileOutputStream
+import java.io.IOException
+import java.io.InputStreamReader
+import java.util.*
+
+/**
+ * An append-only log of events on disk so events survive the process being killed before they're sent.
+ *
+ * Events are written one JSON object per line to the newest segment file. Each event reaches the
+ * file with a single write, so it survives the process dying; the segment is only synced to disk
+ * when it's rotated. A line cut short by a crash is skipped when the segment is read back.
+ *
+ * [nextBatch] reads the oldest full segments and [acknowledge] deletes them once they've been sent.
+ * Segments left from an earlier process are picked up the same way. When the spool goes over its disk
+ * budget the oldest segments are deleted.
+ *
+ * The constructor scans the directory and counts the events in each leftover segment, so create
+ * the spool off the main thread.
+ *
+ * @param directory: where the segment files are kept
+ * @param maxEventsPerSegment: segments are rotated after this many events, so one segment always fits in a batch
+ * @param maxSegmentBytes: segments are rotated once they reach this size
+ * @param maxDiskBytes: the most disk space all segments can use
+ * @hide
+ */
+class EventSpool @JvmOverloads constructor(
+        private val directory: File,
+        private val maxEventsPerSegment: Int = DEFAULT_MAX_EVENTS_PER_SEGMENT,
+        private val maxSegmentBytes: Long = DEFAULT_MAX_SEGMENT_BYTES,
+        private val maxDiskBytes: Long = DEFAULT_MAX_DISK_BYTES) {
+
+    /**
+     * The segments read by [nextBatch]. Pass it to [acknowledge] once the events are sent.
+     */
+    class Batch internal constructor(internal val segments: List<File>)
+
+    private class Segment(val file: File, var events: Int, var bytes: Long)
+
+    private val jsonWriter = EventJsonWriter()
+    // Rotated segments, oldest first
+    private val sealedSegments = ArrayDeque<Segment>()
+    private var activeSegment: Segment? = null
+    private var activeStream: FileOutputStream? = null
+    private var nextSequence = 0L
+    private var totalBytes = 0L
+    private var totalEvents = 0
+
+    init {
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw RuntimeException("Unable to create the event spool at " + directory.absolutePath)
+        }
+        // Everything left from an earlier process is treated as sealed.
+        val existing = directory.listFiles { _, name -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX) }
+                ?: emptyArray()
+        Arrays.sort(existing) { a, b -> a.name.compareTo(b.name) }
+        for (file in existing) {
+            val segment = Segment(file, countLines(file), file.length())
+            sealedSegments.add(segment)
+            totalBytes += segment.bytes
+            totalEvents += segment.events
+            nextSequence = Math.max(nextSequence, parseSequence(file) + 1)
+        }
+        enforceDiskBudget()
+    }
+
+    /**
+     * Append an event to the newest segment.
+     */
+    @Synchronized
+    fun append(event: ModelEvent) {
+        try {
+            val stream = activeStream ?: openSegment()
+            val segment = activeSegment!!
+            val channel = stream.channel
+            val start = channel.position()
+            jsonWriter.reset(stream)
+            event.writeJson(jsonWriter)
+            jsonWriter.newLine()
+            // One write per event, so the whole line reaches the file.
+            jsonWriter.flush()
+            val written = channel.position() - start
+            segment.events++
+            segment.bytes += written
+            totalEvents++
+            totalBytes += written
+            if (segment.events >= maxEventsPerSegment || segment.bytes >= maxSegmentBytes) {
+                sealActiveSegment()
+            }
+        } catch (e: IOException) {
+            Log.w(TAG, "Unable to spool " + event.name + ": " + e.message)
+        } catch (e: JSONException) {
+            throw RuntimeException(e)
+        }
+    }
+
+    /**
+     * Read the oldest segments, up to the number of events, into the list.
+     *
+     * The segment being written to is rotated first so a batch can include the newest events.
+     *
+     * @param events: the list the events are added to
+     * @param maxEvents: the most events to read. At least one segment is read.
+     * @return the segments read, or null if the spool is empty.
+     */
+    @Synchronized
+    fun nextBatch(events: MutableList<ModelEvent>, maxEvents: Int): Batch? {
+        if (sealedSegments.isEmpty()) {
+            sealActiveSegment()
+        }
+        val segments = ArrayList<File>()
+        var count = 0
+        for (segment in sealedSegments) {
+            if (segments.isNotEmpty() && count + segment.events > maxEvents) {
+                break
+            }
+            readSegment(segment.file, events)
+            segments.add(segment.file)
+            count += segment.events
+        }
+        return if (segments.isEmpty()) null else Batch(segments)
+    }
+
+    /**
+     * Delete the segments in a batch that was sent.
+     */
+    @Synchronized
+    fun acknowledge(batch: Batch) {
+        val iterator = sealedSegments.iterator()
+        while (iterator.hasNext()) {
+            val segment = iterator.next()
+            if (batch.segments.contains(segment.file)) {
+                deleteSegment(segment)
+                iterator.remove()
+            }
+        }
+    }
+
+    /**
+     * The number of events waiting to be sent.
+     */
+    val pendingEvents: Int
+        @Synchronized get() = totalEvents
+
+    /**
+     * The disk space used by all segments.
+     */
+    val diskBytes: Long
+        @Synchronized get() = totalBytes
+
+    /**
+     * Sync and close the segment being written to.
+     */
+    @Synchronized
+    fun close() {
+        sealActiveSegment()
+    }
+
+    /**
+     * Delete every segment.
+     */
+    @Synchronized
+    fun clear() {
+        sealActiveSegment()
+        for (segment in sealedSegments) {
+            deleteSegment(segment)
+        }
+        sealedSegments.clear()
+        totalBytes = 0
+        totalEvents = 0
+    }
+
+    private fun openSegment(): FileOutputStream {
+        val name = String.format(Locale.US, "%s%020d%s", SEGMENT_PREFIX, nextSequence++, SEGMENT_SUFFIX)
+        val segment = Segment(File(directory, name), 0, 0)
+        val stream = FileOutputStream(segment.file, true)
+        activeSegment = segment
+        activeStream = stream
+        return stream
+    }
+
+    private fun sealActiveSegment() {
+        val segment = activeSegment ?: return
+        val stream = activeStream!!
+        activeSegment = null
+        activeStream = null
+        try {
+            stream.fd.sync()
+        } catch (e: IOException) {
+            Log.w(TAG, "Unable to sync " + segment.file.name + ": " + e.message)
+        } finally {
+            try {
+                stream.close()
+            } catch (e: IOException) {
+                // Nothing else to do
+            }
+        }
+        if (segment.events == 0) {
+            segment.file.delete()
+            return
+        }
+        sealedSegments.add(segment)
+        enforceDiskBudget()
+    }
+
+    private fun enforceDiskBudget() {
+        var droppedEvents = 0
+        while (totalBytes > maxDiskBytes && !sealedSegments.isEmpty()) {
+            val oldest = sealedSegments.removeFirst()
+            droppedEvents += oldest.events
+            deleteSegment(oldest)
+        }
+        if (droppedEvents > 0) {
+            Log.w(TAG, "Event spool is over its disk budget. Dropped the oldest $droppedEvents events.")
+        }
+    }
+
+    private fun deleteSegment(segment: Segment) {
+        segment.file.delete()
+        totalBytes -= segment.bytes
+        totalEvents -= segment.events
+    }
+
+    private fun readSegment(file: File, events: MutableList<ModelEvent>) {
+        try {
+            BufferedReader(InputStreamReader(FileInputStream(file), CHARSET)).use { reader ->
+                var line: String?
+                while (reader.readLine().also { line = it } != null) {
+                    val event = parseEvent(line!!)
+                    if (event != null) {
+                        events.add(event)
+                    }
+                }
+            }
+        } catch (e: IOException) {
+            Log.w(TAG, "Unable to read " + file.name + ": " + e.message)
+        }
+    }
+
+    companion object {
+        private val TAG = EventSpool::class.java.simpleName
+
+        const val DIRECTORY_NAME = "fritz_event_spool"
+        const val DEFAULT_MAX_EVENTS_PER_SEGMENT = 250
+        const val DEFAULT_MAX_SEGMENT_BYTES = 256 * 1024L
+        const val DEFAULT_MAX_DISK_BYTES = 4 * 1024 * 1024L
+        private const val SEGMENT_PREFIX = "segment-"
+        private const val SEGMENT_SUFFIX = ".log"
+        private const val CHARSET = "UTF-8"
+
+        /**
+         * Rebuild an event from a spooled line, or null if the line was cut short.
+         */
+        private fun parseEvent(line: String): ModelEvent? {
+            return try {
+                val json = JSONObject(line)
+                ModelEvent(json.getString("type"), SpooledEventData(json.getJSONObject("data").toString()), json.getLong("timestamp"))
+            } catch (e: JSONException) {
+                Log.w(TAG, "Skipping an incomplete spooled event.")
+                null
+            }
+        }
+
+        private fun countLines(file: File): Int {
+            var count = 0
+            try {
+                FileInputStream(file).use { stream ->
+                    val buffer = ByteArray(8 * 1024)
+                    var dataSize: Int
+                    while (stream.read(buffer).also { dataSize = it } != -1) {
+                        for (i in 0 until dataSize) {
+                            if (buffer[i] == '\n'.toByte()) {
+                                count++
+                            }
+                        }
+                    }
+                }
+            } catch (e: IOException) {
+                Log.w(TAG, "Unable to read " + file.name + ": " + e.message)
+            }
+            return count
+        }
+
+        private fun parseSequence(file: File): Long {
+            val name = file.name
+            return name.substring(SEGMENT_PREFIX.length, name.length - SEGMENT_SUFFIX.length).toLongOrNull() ?: -1
+        }
+    }
+}
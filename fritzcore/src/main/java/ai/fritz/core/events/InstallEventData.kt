@@ -2,6 +2,7 @@ package ai.fritz.core.events
 
 import org.json.JSONException
 import org.json.JSONObject
+import java.io.IOException
 
 /**
  * Track model install events
@@ -17,4 +18,13 @@ class InstallEventData(private val modelUid: String, private val modelVersion: I
         return obj
     }
 
+    @Throws(IOException::class)
+    override fun writeJson(writer: EventJsonWriter) {
+        writer.beginObject()
+        writer.name("model_uid").value(modelUid)
+        writer.name("model_version").value(modelVersion)
+        writer.name("is_ota").value(isOta)
+        writer.endObject()
+    }
+
 }
\ No newline at end of file
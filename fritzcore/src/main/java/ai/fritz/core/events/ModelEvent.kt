@@ -4,6 +4,7 @@ import android.annotation.TargetApi
 import android.os.Build
 import org.json.JSONException
 import org.json.JSONObject
+import java.io.IOException
 import java.util.*
 
 /**
@@ -28,6 +29,19 @@ class ModelEvent(val name: String, private val eventData: EventData, private val
         return obj
     }
 
+    /**
+     * Stream the same JSON as [toJson].
+     */
+    @Throws(IOException::class, JSONException::class)
+    fun writeJson(writer: EventJsonWriter) {
+        writer.beginObject()
+        writer.name("type").value(name)
+        writer.name("timestamp").value(timestamp)
+        writer.name("data")
+        eventData.writeJson(writer)
+        writer.endObject()
+    }
+
     override fun toString(): String {
         return javaClass.simpleName + "(" + name + ")"
     }
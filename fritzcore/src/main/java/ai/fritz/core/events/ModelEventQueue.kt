@@ -1,120 +1,332 @@
 package ai.fritz.core.events
 
 import ai.fritz.core.Fritz
+import ai.fritz.core.FritzExecutors
+import ai.fritz.core.FritzOnDeviceModel
 import ai.fritz.core.api.RequestHandler
 import ai.fritz.core.api.Session
 import ai.fritz.core.utils.SessionPreferenceManager
 import android.util.Log
 import org.json.JSONObject
 import java.util.*
-import java.util.concurrent.LinkedBlockingQueue
+import java.util.concurrent.ScheduledFuture
+import java.util.concurrent.TimeUnit
 import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicInteger
 
 /**
  * The queue for model events.
  *
+ * Events are added to a fixed-size ring buffer that any thread can write to without locking. When
+ * the buffer is full the oldest events are dropped. Flushing drains the buffer into the batch being
+ * sent, and only the thread that wins [isPostingEvents] touches that batch until the request finishes.
+ *
+ * With an [EventSpool] events are appended to disk instead, so they aren't lost if the process dies
+ * before they're sent. Flushing then sends the oldest spooled segments and deletes them once the
+ * request succeeds.
+ *
+ * The queue flushes itself every batch flush interval on the SDK's shared scheduler until [stop] is called.
+ *
  * @hide
  */
 class ModelEventQueue(var session: Session) {
-    private val queue: Queue<ModelEvent>
-    private var eventsToSend: MutableList<ModelEvent>
+    private val queue: EventRingBuffer<ModelEvent>
+    private val drainBuffer: Array<ModelEvent?>
+    private val eventsToSend: ArrayList<ModelEvent>
     private val isPostingEvents: AtomicBoolean
-    private val timer: Timer
-    private val task: TimerTask
+    private val task: Runnable
+    private var scheduledFlush: ScheduledFuture<*>? = null
     private val handler: RequestHandler
+
+    @Volatile
+    private var spool: EventSpool? = null
+    // The spooled segments in the request in flight
+    private var spoolBatch: EventSpool.Batch? = null
+    // Adds that saw no spool and may still be writing to the buffer
+    private val addsInProgress = AtomicInteger()
+    // The queue that took over from this one
+    @Volatile
+    private var successor: ModelEventQueue? = null
+
+    /**
+     * Prediction timings, summarized once per flush interval.
+     */
+    val timingAggregator = PredictionTimingAggregator()
+
     fun add(modelEvent: ModelEvent) {
-        val session = SessionPreferenceManager.getSession()
-        val eventBlacklist = session!!.settings.eventBlacklist
+        val session = SessionPreferenceManager.getSessionSnapshot()
         // skip the events in the blacklist
-        if (eventBlacklist!!.contains(modelEvent.name)) {
+        if (session!!.isBlacklisted(modelEvent.name)) {
             Log.d(TAG, modelEvent.name + " is in the event blacklist. Skipping it.")
             return
         }
+        val successor = successor
+        if (successor != null) {
+            successor.add(modelEvent)
+            return
+        }
         // Add if not in the blacklist
-        queue.add(modelEvent)
-        // If we reached the threshold, flush the queue.
-        if (queue.size >= session.settings.trackRequestBatchSize) {
+        var spool = spool
+        if (spool == null) {
+            // Counted so enableSpool can wait for events on their way into the buffer.
+            addsInProgress.incrementAndGet()
+            try {
+                spool = this.spool
+                if (spool == null && queue.add(modelEvent)) {
+                    Log.w(TAG, "Max event size reached. Dropping the oldest events.")
+                }
+            } finally {
+                addsInProgress.decrementAndGet()
+            }
+        }
+        if (spool != null) {
+            spool.append(modelEvent)
+            if (spool.pendingEvents >= session.trackRequestBatchSize) {
+                flush()
+            }
+            return
+        }
+        // If we reached the threshold, flush the queue. An event that raced with a hand off is moved on.
+        if (queue.size >= session.trackRequestBatchSize || this.successor != null) {
             flush()
         }
     }
 
+    /**
+     * Write events to the spool from now on. Events already queued in memory are moved to it first,
+     * so they stay ahead of anything added afterwards.
+     *
+     * @throws IllegalStateException if a spool is already enabled.
+     */
+    @Synchronized
+    fun enableSpool(spool: EventSpool) {
+        if (this.spool != null) {
+            throw IllegalStateException("The event spool is already enabled.")
+        }
+        // Events added from now on go to the spool and wait on its lock until the buffer is moved over.
+        synchronized(spool) {
+            this.spool = spool
+            while (addsInProgress.get() != 0) {
+                Thread.yield()
+            }
+            var drained: Int
+            do {
+                drained = queue.drainTo(drainBuffer)
+                for (i in 0 until drained) {
+                    spool.append(drainBuffer[i]!!)
+                    drainBuffer[i] = null
+                }
+            } while (drained > 0)
+        }
+    }
+
     operator fun contains(modelEvent: ModelEvent?): Boolean {
         return queue.contains(modelEvent)
     }
 
-    private val isEmpty: Boolean
-        private get() = queue.size == 0 && eventsToSend.size == 0
-
     /**
      * Flush the items in a queue and move it over to an intermediate list that we send off.
      * If there's an error, items remain in that list until a successful send.
      */
     fun flush() {
-        if (isEmpty) {
+        // Ensure that only one request is sent at a time. If one is in progress, don't do anything.
+        if (!isPostingEvents.compareAndSet(false, true)) {
             return
         }
-        // Ensure that only one request is sent at a time. If one is in progress, don't do anything.
-        if (isPostingEvents.compareAndSet(false, true)) { // Pop events from the queue to send
-            for (i in queue.indices.reversed()) {
-                val modelEvent = queue.remove()
-                eventsToSend.add(modelEvent)
-            }
-            // Drop the oldest events (at the front of eventsToSend). The queue
-// always has newer events than eventsToSend.
-// (oldest events are at the front of eventsToSend)
-            if (eventsToSend.size > MAX_EVENTS_TO_SEND) {
-                eventsToSend = eventsToSend.subList(eventsToSend.size - MAX_EVENTS_TO_SEND, eventsToSend.size)
-                Log.w(TAG, "Max event size reached. Dropping the oldest events.")
+        val next = successor
+        if (next != null) {
+            moveUnsentTo(next)
+            return
+        }
+        val spool = spool
+        if (spool != null) {
+            flushSpool(spool)
+            return
+        }
+        // Pop events from the queue to send. Stop after one buffer's worth so producers
+        // that keep adding can't hold up the request.
+        var totalDrained = 0
+        var drained: Int
+        do {
+            drained = queue.drainTo(drainBuffer)
+            for (i in 0 until drained) {
+                eventsToSend.add(drainBuffer[i]!!)
+                drainBuffer[i] = null
             }
+            totalDrained += drained
+        } while (drained == drainBuffer.size && totalDrained < queue.capacity)
+
+        if (eventsToSend.isEmpty()) {
+            isPostingEvents.set(false)
+            return
+        }
 
-            Fritz.sessionManager.apiClient.batchTracking(eventsToSend, handler)
+        // Drop the oldest events (at the front of eventsToSend). The queue
+        // always has newer events than eventsToSend.
+        if (eventsToSend.size > MAX_EVENTS_TO_SEND) {
+            eventsToSend.subList(0, eventsToSend.size - MAX_EVENTS_TO_SEND).clear()
+            Log.w(TAG, "Max event size reached. Dropping the oldest events.")
+        }
+
+        Fritz.sessionManager.apiClient.batchTracking(eventsToSend, handler)
+    }
+
+    /**
+     * Send the oldest spooled events. They stay on disk until the request succeeds.
+     */
+    private fun flushSpool(spool: EventSpool) {
+        // A failed batch from before the spool was enabled is retried first.
+        if (eventsToSend.isEmpty()) {
+            spoolBatch = spool.nextBatch(eventsToSend, MAX_EVENTS_TO_SEND)
+        }
+        if (eventsToSend.isEmpty()) {
+            isPostingEvents.set(false)
+            return
+        }
+        Fritz.sessionManager.apiClient.batchTracking(eventsToSend, handler)
+    }
+
+    /**
+     * Record a prediction timing in the aggregated histograms instead of queuing an event.
+     */
+    fun recordPredictionTiming(onDeviceModel: FritzOnDeviceModel, elapsedNs: Long) {
+        timingAggregator.record(onDeviceModel, elapsedNs)
+    }
+
+    /**
+     * Queue one summary event per model version for the timings recorded since the last call.
+     */
+    fun addTimingSummaries() {
+        for (event in timingAggregator.drain()) {
+            add(event)
         }
     }
 
     fun clearAll() {
         queue.clear()
+        spool?.clear()
+        spoolBatch = null
         eventsToSend.clear()
         isPostingEvents.set(false)
     }
 
+    /**
+     * Stop this queue and move everything it hasn't sent to another queue, e.g when the session
+     * manager is replaced.
+     *
+     * Events added to this queue afterwards go to the next one. A request in flight finishes first;
+     * if it fails, its events are moved too. The spool, if any, moves to the next queue unless it
+     * already has one.
+     */
+    fun handOffTo(next: ModelEventQueue) {
+        stop()
+        successor = next
+        for (event in timingAggregator.drain()) {
+            next.add(event)
+        }
+        // If a request is in flight, it moves the events once it finishes.
+        flush()
+    }
+
+    /**
+     * Move unsent events to the successor. Only called by the thread holding [isPostingEvents],
+     * which is never released afterwards so this queue doesn't send anything else.
+     */
+    private fun moveUnsentTo(next: ModelEventQueue) {
+        val spool = spool
+        if (spool != null) {
+            try {
+                next.enableSpool(spool)
+            } catch (e: IllegalStateException) {
+                // The next queue has its own spool. It'll pick up these segments the next time it starts.
+                spool.close()
+            }
+        }
+        // Spooled events are still on disk, so only move a batch from memory.
+        if (spoolBatch == null) {
+            for (event in eventsToSend) {
+                next.add(event)
+            }
+        }
+        spoolBatch = null
+        eventsToSend.clear()
+        var drained: Int
+        do {
+            drained = queue.drainTo(drainBuffer)
+            for (i in 0 until drained) {
+                next.add(drainBuffer[i]!!)
+                drainBuffer[i] = null
+            }
+        } while (drained > 0)
+    }
+
     fun overrideIsPostingEvents(override: Boolean) {
         isPostingEvents.set(override)
     }
 
-    private fun schedulerStart() {
-        val queueFlushTime = session.settings.batchFlushInterval
-        timer.scheduleAtFixedRate(task, queueFlushTime, queueFlushTime)
+    /**
+     * Stop flushing on a schedule. Events already queued stay queued.
+     */
+    @Synchronized
+    fun stop() {
+        scheduledFlush?.cancel(false)
+        scheduledFlush = null
     }
 
-    private fun schedulerStop() {
-        timer.cancel()
+    @Synchronized
+    private fun schedulerStart() {
+        val queueFlushTime = session.settings.batchFlushInterval
+        scheduledFlush = FritzExecutors.scheduler().scheduleAtFixedRate(task, queueFlushTime, queueFlushTime, TimeUnit.MILLISECONDS)
     }
 
     companion object {
         private val TAG = ModelEventQueue::class.java.simpleName
         const val MAX_EVENTS_TO_SEND = 1000
+        private const val DRAIN_BATCH_SIZE = 128
     }
 
     init {
-        queue = LinkedBlockingQueue()
-        eventsToSend = ArrayList()
-        timer = Timer()
+        queue = EventRingBuffer(MAX_EVENTS_TO_SEND)
+        drainBuffer = arrayOfNulls(DRAIN_BATCH_SIZE)
+        eventsToSend = ArrayList(MAX_EVENTS_TO_SEND)
         isPostingEvents = AtomicBoolean(false)
         // Setup the request handler
         handler = object : RequestHandler {
             override fun onSuccess(response: JSONObject?) {
+                val batch = spoolBatch
+                if (batch != null) {
+                    spool?.acknowledge(batch)
+                    spoolBatch = null
+                }
                 eventsToSend.clear()
-                isPostingEvents.compareAndSet(true, false)
+                finishRequest()
             }
 
             override fun onError(response: JSONObject?) {
+                // Spooled events are read from disk again on the next flush.
+                if (spoolBatch != null) {
+                    spoolBatch = null
+                    eventsToSend.clear()
+                }
+                finishRequest()
+            }
+
+            private fun finishRequest() {
                 isPostingEvents.compareAndSet(true, false)
+                // A hand off during the request left the unsent events for us to move.
+                if (successor != null) {
+                    flush()
+                }
             }
         }
-        // Setup the timer task
-        task = object : TimerTask() {
-            override fun run() {
+        // Setup the flush task
+        task = Runnable {
+            try {
+                addTimingSummaries()
                 flush()
+            } catch (e: RuntimeException) {
+                // An exception would cancel every later flush.
+                Log.e(TAG, "Unable to flush events: " + e.message)
             }
         }
         // Only started once since
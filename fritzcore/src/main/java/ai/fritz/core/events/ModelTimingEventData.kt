@@ -2,6 +2,7 @@ package ai.fritz.core.events
 
 import org.json.JSONException
 import org.json.JSONObject
+import java.io.IOException
 
 /**
  * Tracks the timing event data
@@ -19,4 +20,13 @@ class ModelTimingEventData(var modelUid: String, var modelVersion: Int, var elap
         return obj
     }
 
+    @Throws(IOException::class)
+    override fun writeJson(writer: EventJsonWriter) {
+        writer.beginObject()
+        writer.name("model_uid").value(modelUid)
+        writer.name("model_version").value(modelVersion)
+        writer.name("elapsed_nano_seconds").value(elapsedNs)
+        writer.endObject()
+    }
+
 }
\ No newline at end of file
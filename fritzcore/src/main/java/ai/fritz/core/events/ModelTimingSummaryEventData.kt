@@ -0,0 +1,76 @@
+package ai.fritz.core.events
+
+import ai.fritz.core.metrics.HistogramSnapshot
+import ai.fritz.core.metrics.LatencyHistogram
+import org.json.JSONArray
+import org.json.JSONException
+import org.json.JSONObject
+import java.io.IOException
+
+/**
+ * Tracks a summary of the prediction timings for a model version over one flush interval.
+ *
+ * Only non-empty buckets are sent. Each is identified by its upper bound in nanoseconds
+ * (-1 for the overflow bucket).
+ *
+ * @hide
+ */
+class ModelTimingSummaryEventData(var modelUid: String, var modelVersion: Int, var snapshot: HistogramSnapshot) : EventData {
+
+    @Throws(JSONException::class)
+    override fun toJson(): JSONObject {
+        val obj = JSONObject()
+        obj.put("model_uid", modelUid)
+        obj.put("model_version", modelVersion)
+        obj.put("count", snapshot.count)
+        obj.put("sum_nano_seconds", snapshot.totalNanos)
+        obj.put("min_nano_seconds", snapshot.minNanos)
+        obj.put("max_nano_seconds", snapshot.maxNanos)
+
+        val upperBounds = JSONArray()
+        val counts = JSONArray()
+        for (i in 0 until snapshot.numBuckets) {
+            val bucketCount = snapshot.getBucketCount(i)
+            if (bucketCount == 0L) {
+                continue
+            }
+            val isOverflow = i >= LatencyHistogram.BUCKET_UPPER_BOUNDS_NANOS.size
+            upperBounds.put(if (isOverflow) -1 else LatencyHistogram.BUCKET_UPPER_BOUNDS_NANOS[i])
+            counts.put(bucketCount)
+        }
+        obj.put("bucket_upper_bounds_nano_seconds", upperBounds)
+        obj.put("bucket_counts", counts)
+        return obj
+    }
+
+    @Throws(IOException::class)
+    override fun writeJson(writer: EventJsonWriter) {
+        writer.beginObject()
+        writer.name("model_uid").value(modelUid)
+        writer.name("model_version").value(modelVersion)
+        writer.name("count").value(snapshot.count)
+        writer.name("sum_nano_seconds").value(snapshot.totalNanos)
+        writer.name("min_nano_seconds").value(snapshot.minNanos)
+        writer.name("max_nano_seconds").value(snapshot.maxNanos)
+
+        writer.name("bucket_upper_bounds_nano_seconds").beginArray()
+        for (i in 0 until snapshot.numBuckets) {
+            if (snapshot.getBucketCount(i) == 0L) {
+                continue
+            }
+            val isOverflow = i >= LatencyHistogram.BUCKET_UPPER_BOUNDS_NANOS.size
+            writer.value(if (isOverflow) -1L else LatencyHistogram.BUCKET_UPPER_BOUNDS_NANOS[i])
+        }
+        writer.endArray()
+
+        writer.name("bucket_counts").beginArray()
+        for (i in 0 until snapshot.numBuckets) {
+            val bucketCount = snapshot.getBucketCount(i)
+            if (bucketCount != 0L) {
+                writer.value(bucketCount)
+            }
+        }
+        writer.endArray()
+        writer.endObject()
+    }
+}
@@ -0,0 +1,101 @@
+package ai.fritz.core.events
+
+import ai.fritz.core.FritzOnDeviceModel
+import ai.fritz.core.factories.ModelEventFactory
+import ai.fritz.core.metrics.LatencyHistogram
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * Folds prediction timings into a histogram per model version.
+ *
+ * Recording is a couple of map lookups and atomic increments with no allocation, so it can run on
+ * every inference. [drain] turns each histogram with new timings into a single summary event, so the
+ * number of events sent depends on the flush interval rather than the frame rate.
+ *
+ * @hide
+ */
+class PredictionTimingAggregator {
+
+    /**
+     * A histogram along with the number of timings being recorded into it right now.
+     */
+    private class Window {
+        val histogram = LatencyHistogram()
+        val writers = AtomicInteger()
+    }
+
+    private class Entry(val modelUid: String, val modelVersion: Int) {
+        @Volatile
+        var window = Window()
+    }
+
+    private val entries = ConcurrentHashMap<String, ConcurrentHashMap<Int, Entry>>()
+
+    /**
+     * Record the inference time for a model.
+     *
+     * @param onDeviceModel: the model that ran
+     * @param elapsedNs: the inference time in nanoseconds
+     */
+    fun record(onDeviceModel: FritzOnDeviceModel, elapsedNs: Long) {
+        val entry = getEntry(onDeviceModel)
+        while (true) {
+            val window = entry.window
+            window.writers.incrementAndGet()
+            try {
+                // If drain swapped the window in the meantime, it may already have been read.
+                if (entry.window === window) {
+                    window.histogram.record(elapsedNs)
+                    return
+                }
+            } finally {
+                window.writers.decrementAndGet()
+            }
+        }
+    }
+
+    /**
+     * Create a summary event for each model version with timings since the last drain.
+     *
+     * Each timing is in exactly one summary. Timings recorded while draining land in either the
+     * drained or the next summary.
+     */
+    @Synchronized
+    fun drain(): List<ModelEvent> {
+        val events = ArrayList<ModelEvent>()
+        for (versions in entries.values) {
+            for (entry in versions.values) {
+                val window = entry.window
+                entry.window = Window()
+                // Wait for timings already being recorded into the old window. New ones go to the new window.
+                while (window.writers.get() != 0) {
+                    Thread.yield()
+                }
+                val snapshot = window.histogram.snapshot()
+                if (snapshot.count == 0L) {
+                    continue
+                }
+                events.add(ModelEventFactory.createPredictionTimingSummary(entry.modelUid, entry.modelVersion, snapshot))
+            }
+        }
+        return events
+    }
+
+    private fun getEntry(onDeviceModel: FritzOnDeviceModel): Entry {
+        val modelId = onDeviceModel.modelId
+        val modelVersion = onDeviceModel.modelVersion
+        var versions = entries[modelId]
+        if (versions == null) {
+            versions = ConcurrentHashMap()
+            entries.putIfAbsent(modelId, versions)
+            versions = entries[modelId]!!
+        }
+        var entry = versions[modelVersion]
+        if (entry == null) {
+            entry = Entry(modelId, modelVersion)
+            entry = versions.putIfAbsent(modelVersion, entry) ?: entry
+        }
+        return entry
+    }
+}
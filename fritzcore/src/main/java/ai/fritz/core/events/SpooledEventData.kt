@@ -0,0 +1,23 @@
+package ai.fritz.core.events
+
+import org.json.JSONException
+import org.json.JSONObject
+import java.io.IOException
+
+/**
+ * Event data read back from the [EventSpool], kept as the JSON it was written as.
+ *
+ * @hide
+ */
+class SpooledEventData(private val json: String) : EventData {
+
+    @Throws(JSONException::class)
+    override fun toJson(): JSONObject {
+        return JSONObject(json)
+    }
+
+    @Throws(IOException::class)
+    override fun writeJson(writer: EventJsonWriter) {
+        writer.rawValue(json)
+    }
+}
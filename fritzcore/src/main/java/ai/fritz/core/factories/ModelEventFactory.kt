@@ -8,6 +8,8 @@ import ai.fritz.core.events.InstallEventData
 import ai.fritz.core.events.ModelEvent
 import ai.fritz.core.events.ModelRecordingEventData
 import ai.fritz.core.events.ModelTimingEventData
+import ai.fritz.core.events.ModelTimingSummaryEventData
+import ai.fritz.core.metrics.HistogramSnapshot
 import java.util.concurrent.TimeUnit
 
 /**
@@ -29,6 +31,13 @@ object ModelEventFactory {
         return ModelEvent(ModelEventName.PREDICTION_TIMING.eventName, data, timestamp)
     }
 
+    @JvmStatic
+    fun createPredictionTimingSummary(modelUid: String, modelVersion: Int, snapshot: HistogramSnapshot): ModelEvent {
+        val timestamp = timestampSeconds
+        val data = ModelTimingSummaryEventData(modelUid, modelVersion, snapshot)
+        return ModelEvent(ModelEventName.PREDICTION_TIMING_SUMMARY.eventName, data, timestamp)
+    }
+
     @JvmStatic
     fun createCustomTimingEvent(name: ModelEventName, onDeviceModel: FritzOnDeviceModel, elapsedNs: Long): ModelEvent {
         val timestamp = timestampSeconds
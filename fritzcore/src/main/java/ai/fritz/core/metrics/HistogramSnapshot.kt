@@ -0,0 +1,73 @@
+package ai.fritz.core.metrics
+
+/**
+ * An immutable copy of a [LatencyHistogram].
+ *
+ * Percentiles are estimated from the bucket boundaries, so they are accurate to the bucket
+ * width (25%) and never larger than the max recorded value.
+ */
+class HistogramSnapshot(private val bucketCounts: LongArray, val count: Long, val totalNanos: Long, val minNanos: Long, val maxNanos: Long) {
+
+    /**
+     * The number of buckets, including the overflow bucket.
+     */
+    val numBuckets: Int
+        get() = bucketCounts.size
+
+    /**
+     * Get the number of values recorded in a bucket.
+     *
+     * @param index: the bucket index. Bucket i holds values up to [LatencyHistogram.BUCKET_UPPER_BOUNDS_NANOS] i.
+     */
+    fun getBucketCount(index: Int): Long {
+        return bucketCounts[index]
+    }
+
+    val meanNanos: Long
+        get() = if (count == 0L) 0 else totalNanos / count
+
+    val p50Nanos: Long
+        get() = percentileNanos(50.0)
+
+    val p95Nanos: Long
+        get() = percentileNanos(95.0)
+
+    val p99Nanos: Long
+        get() = percentileNanos(99.0)
+
+    /**
+     * Estimate the duration at the given percentile.
+     *
+     * @param percentile: a value between 0 and 100
+     * @return the duration in nanoseconds or 0 if nothing was recorded.
+     */
+    fun percentileNanos(percentile: Double): Long {
+        if (percentile < 0 || percentile > 100) {
+            throw IllegalArgumentException("The percentile must be between 0 and 100.")
+        }
+        if (count == 0L) {
+            return 0
+        }
+        val rank = Math.max(1L, Math.ceil(percentile / 100.0 * count).toLong())
+        var seen = 0L
+        for (i in bucketCounts.indices) {
+            seen += bucketCounts[i]
+            if (seen >= rank) {
+                if (i >= LatencyHistogram.BUCKET_UPPER_BOUNDS_NANOS.size) {
+                    return maxNanos
+                }
+                return Math.min(LatencyHistogram.BUCKET_UPPER_BOUNDS_NANOS[i], maxNanos)
+            }
+        }
+        return maxNanos
+    }
+
+    override fun toString(): String {
+        return "count=$count, min=${minNanos / NANOS_PER_MICRO}us, mean=${meanNanos / NANOS_PER_MICRO}us, p50=${p50Nanos / NANOS_PER_MICRO}us, " +
+                "p95=${p95Nanos / NANOS_PER_MICRO}us, p99=${p99Nanos / NANOS_PER_MICRO}us, max=${maxNanos / NANOS_PER_MICRO}us"
+    }
+
+    companion object {
+        private const val NANOS_PER_MICRO = 1000L
+    }
+}
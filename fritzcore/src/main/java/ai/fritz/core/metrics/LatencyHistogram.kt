@@ -0,0 +1,100 @@
+package ai.fritz.core.metrics
+
+import java.util.concurrent.atomic.AtomicLong
+import java.util.concurrent.atomic.AtomicLongArray
+
+/**
+ * A fixed bucket latency histogram.
+ *
+ * Bucket boundaries are set up front so recording a value is a binary search and a few atomic
+ * increments. Nothing is allocated after construction, which makes it safe to record from the
+ * prediction hot path and from multiple threads.
+ */
+class LatencyHistogram {
+    private val counts = AtomicLongArray(BUCKET_UPPER_BOUNDS_NANOS.size + 1)
+    private val count = AtomicLong()
+    private val totalNanos = AtomicLong()
+    private val minNanos = AtomicLong(Long.MAX_VALUE)
+    private val maxNanos = AtomicLong()
+
+    /**
+     * Record a single duration.
+     *
+     * @param durationNanos: the duration in nanoseconds
+     */
+    fun record(durationNanos: Long) {
+        val value = if (durationNanos < 0) 0 else durationNanos
+        counts.incrementAndGet(bucketIndex(value))
+        count.incrementAndGet()
+        totalNanos.addAndGet(value)
+
+        var currentMin = minNanos.get()
+        while (value < currentMin && !minNanos.compareAndSet(currentMin, value)) {
+            currentMin = minNanos.get()
+        }
+        var currentMax = maxNanos.get()
+        while (value > currentMax && !maxNanos.compareAndSet(currentMax, value)) {
+            currentMax = maxNanos.get()
+        }
+    }
+
+    /**
+     * Copy the current state of the histogram.
+     *
+     * Values recorded while the snapshot is taken may or may not be included.
+     */
+    fun snapshot(): HistogramSnapshot {
+        val bucketCounts = LongArray(counts.length())
+        for (i in bucketCounts.indices) {
+            bucketCounts[i] = counts.get(i)
+        }
+        val min = minNanos.get()
+        return HistogramSnapshot(bucketCounts, count.get(), totalNanos.get(), if (min == Long.MAX_VALUE) 0 else min, maxNanos.get())
+    }
+
+    /**
+     * Clear all recorded values.
+     */
+    fun reset() {
+        for (i in 0 until counts.length()) {
+            counts.set(i, 0)
+        }
+        count.set(0)
+        totalNanos.set(0)
+        minNanos.set(Long.MAX_VALUE)
+        maxNanos.set(0)
+    }
+
+    companion object {
+        private const val NUM_BUCKETS = 64
+        private const val MIN_BUCKET_NANOS = 10_000L
+        private const val BUCKET_GROWTH = 1.25
+
+        /**
+         * Upper bounds for each bucket in nanoseconds: 10us growing by 25% per bucket (up to ~14s).
+         * Values above the last bound go in an overflow bucket.
+         */
+        @JvmField
+        val BUCKET_UPPER_BOUNDS_NANOS: LongArray = LongArray(NUM_BUCKETS).also {
+            var bound = MIN_BUCKET_NANOS.toDouble()
+            for (i in it.indices) {
+                it[i] = bound.toLong()
+                bound *= BUCKET_GROWTH
+            }
+        }
+
+        private fun bucketIndex(durationNanos: Long): Int {
+            var low = 0
+            var high = BUCKET_UPPER_BOUNDS_NANOS.size
+            while (low < high) {
+                val mid = (low + high) ushr 1
+                if (BUCKET_UPPER_BOUNDS_NANOS[mid] < durationNanos) {
+                    low = mid + 1
+                } else {
+                    high = mid
+                }
+            }
+            return low
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package ai.fritz.core.metrics
+
+import android.util.Log
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * A registry of latency histograms for each model and prediction stage.
+ *
+ * Predictors record the time spent in each [PredictionStage]. Read the results with [snapshot]
+ * and clear them with [reset]. Recording doesn't allocate or log unless [isLoggingEnabled] is set.
+ */
+object PredictionMetrics {
+    private val TAG = PredictionMetrics::class.java.simpleName
+    private const val NANOS_PER_MILLI = 1_000_000.0
+
+    private val histograms = ConcurrentHashMap<String, Array<LatencyHistogram>>()
+
+    /**
+     * Turn recording on or off. (default: true)
+     */
+    @JvmStatic
+    @Volatile
+    var isEnabled = true
+
+    /**
+     * Log each recorded duration. Useful while debugging, off by default. (default: false)
+     */
+    @JvmStatic
+    @Volatile
+    var isLoggingEnabled = false
+
+    /**
+     * Record the time spent in a stage.
+     *
+     * @param modelId: the model id
+     * @param stage: the prediction stage
+     * @param durationNanos: the duration in nanoseconds
+     */
+    @JvmStatic
+    fun record(modelId: String, stage: PredictionStage, durationNanos: Long) {
+        if (!isEnabled) {
+            return
+        }
+        getHistograms(modelId)[stage.ordinal].record(durationNanos)
+        if (isLoggingEnabled) {
+            Log.d(TAG, modelId + " " + stage + " time(ms): " + durationNanos / NANOS_PER_MILLI)
+        }
+    }
+
+    /**
+     * Record the time spent in a stage that started at startNanos (from [System.nanoTime]).
+     *
+     * @param modelId: the model id
+     * @param stage: the prediction stage
+     * @param startNanos: the start time of the stage
+     */
+    @JvmStatic
+    fun recordSince(modelId: String, stage: PredictionStage, startNanos: Long) {
+        if (!isEnabled) {
+            return
+        }
+        record(modelId, stage, System.nanoTime() - startNanos)
+    }
+
+    /**
+     * Get a snapshot of a single stage for a model.
+     *
+     * @param modelId: the model id
+     * @param stage: the prediction stage
+     * @return the snapshot (empty if nothing was recorded)
+     */
+    @JvmStatic
+    fun snapshot(modelId: String, stage: PredictionStage): HistogramSnapshot {
+        val modelHistograms = histograms[modelId] ?: return LatencyHistogram().snapshot()
+        return modelHistograms[stage.ordinal].snapshot()
+    }
+
+    /**
+     * Get snapshots for every stage of a model.
+     *
+     * @param modelId: the model id
+     * @return a map of stage to snapshot
+     */
+    @JvmStatic
+    fun snapshot(modelId: String): Map<PredictionStage, HistogramSnapshot> {
+        val stages = HashMap<PredictionStage, HistogramSnapshot>()
+        for (stage in PredictionStage.values()) {
+            stages[stage] = snapshot(modelId, stage)
+        }
+        return stages
+    }
+
+    /**
+     * Get snapshots for every model that recorded timings.
+     *
+     * @return a map of model id to stage snapshots
+     */
+    @JvmStatic
+    fun snapshot(): Map<String, Map<PredictionStage, HistogramSnapshot>> {
+        val models = HashMap<String, Map<PredictionStage, HistogramSnapshot>>()
+        for (modelId in histograms.keys) {
+            models[modelId] = snapshot(modelId)
+        }
+        return models
+    }
+
+    /**
+     * Clear the recorded timings for a model.
+     *
+     * @param modelId: the model id
+     */
+    @JvmStatic
+    fun reset(modelId: String) {
+        val modelHistograms = histograms[modelId] ?: return
+        for (histogram in modelHistograms) {
+            histogram.reset()
+        }
+    }
+
+    /**
+     * Clear the recorded timings for all models.
+     */
+    @JvmStatic
+    fun reset() {
+        for (modelId in histograms.keys) {
+            reset(modelId)
+        }
+    }
+
+    private fun getHistograms(modelId: String): Array<LatencyHistogram> {
+        val existing = histograms[modelId]
+        if (existing != null) {
+            return existing
+        }
+        val created = Array(PredictionStage.values().size) { LatencyHistogram() }
+        return histograms.putIfAbsent(modelId, created) ?: created
+    }
+}
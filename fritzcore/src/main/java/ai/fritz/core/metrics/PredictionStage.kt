@@ -0,0 +1,21 @@
+package ai.fritz.core.metrics
+
+/**
+ * The stages of a prediction that are timed by [PredictionMetrics].
+ */
+enum class PredictionStage {
+    /**
+     * Preparing the image and filling the input buffer.
+     */
+    PREPROCESS,
+
+    /**
+     * Running the interpreter.
+     */
+    INFERENCE,
+
+    /**
+     * Converting the model output into a result.
+     */
+    POSTPROCESS
+}
@@ -0,0 +1,69 @@
+package ai.fritz.core.utils
+
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.Executor
+import java.util.concurrent.RejectedExecutionException
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * Runs tasks on a shared executor, with at most [maxConcurrent] of them running at the same time.
+ *
+ * Tasks start in the order they were added. Each task is handed to the shared executor on its own,
+ * so other users of the executor get a turn between them.
+ *
+ * @param delegate: the executor the tasks run on
+ * @param maxConcurrent: the most tasks running at once
+ * @hide
+ */
+class LimitedExecutor(private val delegate: Executor, maxConcurrent: Int) : Executor {
+    private val maxConcurrent = Math.max(1, maxConcurrent)
+    private val tasks = ConcurrentLinkedQueue<Runnable>()
+    private val active = AtomicInteger()
+
+    private val worker = Runnable {
+        try {
+            tasks.poll()?.run()
+        } finally {
+            active.decrementAndGet()
+            scheduleNext()
+        }
+    }
+
+    override fun execute(command: Runnable) {
+        tasks.add(command)
+        scheduleNext()
+    }
+
+    /**
+     * The number of tasks waiting to start.
+     */
+    val queuedCount: Int
+        get() = tasks.size
+
+    /**
+     * Drop the tasks that haven't started.
+     */
+    fun clear() {
+        tasks.clear()
+    }
+
+    private fun scheduleNext() {
+        while (!tasks.isEmpty()) {
+            val current = active.get()
+            if (current >= maxConcurrent) {
+                // A running task picks up the rest when it finishes.
+                return
+            }
+            if (active.compareAndSet(current, current + 1)) {
+                try {
+                    delegate.execute(worker)
+                } catch (e: RejectedExecutionException) {
+                    active.decrementAndGet()
+                    throw e
+                }
+                // One worker per task added or finished.
+                return
+            }
+        }
+    }
+}
@@ -3,28 +3,65 @@ package ai.fritz.core.utils
 import ai.fritz.core.Fritz
 import ai.fritz.core.FritzOnDeviceModel
 import ai.fritz.core.FritzOnDeviceModel.Companion.buildFromJson
+import ai.fritz.core.InterpreterConfig
 import ai.fritz.core.api.Session
+import ai.fritz.core.api.SessionSnapshot
 import ai.fritz.core.constants.SPKeys
 import android.content.Context
 import android.content.SharedPreferences
 import org.json.JSONException
 import org.json.JSONObject
+import java.util.*
+import java.util.concurrent.ConcurrentHashMap
 
 /**
  * Manages persisted data to shared preferences
  *
+ * The session and saved models are parsed once and kept in memory. The cached copies are dropped
+ * whenever they're written through this class or the preferences report a change to their key.
+ *
  * @hide
  */
 object PreferenceManager {
+    @Volatile
+    private var sessionSnapshot: SessionSnapshot? = null
+    // Keyed by the preference key of each model
+    private val savedModels = ConcurrentHashMap<String, FritzOnDeviceModel>()
+    @Volatile
+    private var listenedPreferences: SharedPreferences? = null
+    // Bumped by every invalidation. A value read from storage is only cached if no invalidation
+    // happened while it was being read, so a stale read can't overwrite a newer write.
+    @Volatile
+    private var cacheGeneration = 0
+
+    // Shared preferences only keep a weak reference to listeners, so hold on to it here.
+    private val changeListener = SharedPreferences.OnSharedPreferenceChangeListener { _, key ->
+        invalidate(key)
+    }
+
     @JvmStatic
     fun getSavedModel(context: Context, modelId: String): FritzOnDeviceModel? {
-        val modelSettingsStr = getString(context, SPKeys.getModelKeyById(modelId))
-                ?: return null
-        return try {
-            buildFromJson(JSONObject(modelSettingsStr))
-        } catch (e: JSONException) {
-            throw RuntimeException(e)
+        val key = SPKeys.getModelKeyById(modelId)
+        var model = savedModels[key]
+        if (model == null) {
+            val preferences = getSharedPreference(context)
+            listenForChanges(preferences)
+            val generation = cacheGeneration
+            val modelSettingsStr = preferences.getString(key, null) ?: return null
+            val parsed = try {
+                buildFromJson(JSONObject(modelSettingsStr))
+            } catch (e: JSONException) {
+                throw RuntimeException(e)
+            }
+            synchronized(this) {
+                if (generation == cacheGeneration) {
+                    savedModels[key] = parsed
+                }
+            }
+            model = parsed
         }
+        // Callers are free to modify the model they get back, so never hand out the cached one.
+        return copyOf(model)
     }
 
     @JvmStatic
@@ -48,6 +85,18 @@ object PreferenceManager {
         putBoolean(context, key, value)
     }
 
+    @JvmStatic
+    fun getInterpreterConfig(context: Context, onDeviceModel: FritzOnDeviceModel, deviceFingerprint: String): InterpreterConfig? {
+        val key = SPKeys.getInterpreterConfigKey(onDeviceModel.modelId, onDeviceModel.modelVersion, deviceFingerprint)
+        return InterpreterConfig.fromPreferenceString(getString(context, key))
+    }
+
+    @JvmStatic
+    fun saveInterpreterConfig(context: Context, onDeviceModel: FritzOnDeviceModel, deviceFingerprint: String, config: InterpreterConfig) {
+        val key = SPKeys.getInterpreterConfigKey(onDeviceModel.modelId, onDeviceModel.modelVersion, deviceFingerprint)
+        putString(context, key, config.toPreferenceString())
+    }
+
     @JvmStatic
     fun saveSession(context: Context, session: Session) {
         try {
@@ -77,9 +126,55 @@ object PreferenceManager {
         }
     }
 
+    /**
+     * Get a read-only copy of the saved session. Only the first call after the session changes reads
+     * and parses it from storage.
+     */
+    @JvmStatic
+    fun getSessionSnapshot(): SessionSnapshot? {
+        return sessionSnapshot ?: getSessionSnapshot(Fritz.appContext)
+    }
+
+    @JvmStatic
+    fun getSessionSnapshot(context: Context): SessionSnapshot? {
+        var snapshot = sessionSnapshot
+        if (snapshot == null) {
+            listenForChanges(getSharedPreference(context))
+            val generation = cacheGeneration
+            val session = getSession(context) ?: return null
+            snapshot = SessionSnapshot(session)
+            synchronized(this) {
+                if (generation == cacheGeneration) {
+                    sessionSnapshot = snapshot
+                }
+            }
+        }
+        return snapshot
+    }
+
+    /**
+     * Drop the cached copy of the value stored under the key. A null key drops everything.
+     */
+    @JvmStatic
+    @Synchronized
+    fun invalidate(key: String?) {
+        cacheGeneration++
+        if (key == null) {
+            sessionSnapshot = null
+            savedModels.clear()
+            return
+        }
+        if (key == SPKeys.FRITZ_SESSION) {
+            sessionSnapshot = null
+        } else {
+            savedModels.remove(key)
+        }
+    }
+
     @JvmStatic
     fun clearAll(context: Context) {
         getSharedPreference(context).edit().clear().apply()
+        invalidate(null)
     }
 
     @JvmStatic
@@ -91,6 +186,7 @@ object PreferenceManager {
     @JvmStatic
     fun putString(context: Context, key: String?, value: String?) {
         getSharedPreference(context).edit().putString(key, value).apply()
+        invalidate(key)
     }
 
     @JvmStatic
@@ -113,6 +209,32 @@ object PreferenceManager {
         return getSharedPreference(context).getBoolean(key, false)
     }
 
+    private fun listenForChanges(preferences: SharedPreferences) {
+        if (listenedPreferences === preferences) {
+            return
+        }
+        synchronized(this) {
+            if (listenedPreferences !== preferences) {
+                listenedPreferences?.unregisterOnSharedPreferenceChangeListener(changeListener)
+                preferences.registerOnSharedPreferenceChangeListener(changeListener)
+                listenedPreferences = preferences
+                // Anything cached came from different preferences.
+                invalidate(null)
+            }
+        }
+    }
+
+    private fun copyOf(model: FritzOnDeviceModel): FritzOnDeviceModel {
+        return FritzOnDeviceModel(
+                model.modelPath,
+                model.modelId,
+                model.modelVersion,
+                model.pinnedVersion,
+                model.metadata?.let { HashMap(it) },
+                model.tags?.let { ArrayList(it) },
+                model.isDownloadedOTA)
+    }
+
     @JvmStatic
     private fun getSharedPreference(context: Context): SharedPreferences {
         val packageName = context!!.packageName
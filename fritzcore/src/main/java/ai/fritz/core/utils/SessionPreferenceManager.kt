@@ -2,6 +2,7 @@ package ai.fritz.core.utils
 
 import ai.fritz.core.api.Session
 import ai.fritz.core.api.SessionSettings
+import ai.fritz.core.api.SessionSnapshot
 import android.content.Context
 
 /**
@@ -45,4 +46,17 @@ object SessionPreferenceManager {
     fun getSession(context: Context): Session? {
         return PreferenceManager.getSession(context)
     }
-}
\ No newline at end of file
+
+    /**
+     * Get a cached, read-only copy of the session for code that runs often.
+     */
+    @JvmStatic
+    fun getSessionSnapshot(): SessionSnapshot? {
+        return PreferenceManager.getSessionSnapshot()
+    }
+
+    @JvmStatic
+    fun getSessionSnapshot(context: Context): SessionSnapshot? {
+        return PreferenceManager.getSessionSnapshot(context)
+    }
+}
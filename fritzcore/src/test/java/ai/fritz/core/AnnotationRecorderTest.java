@@ -0,0 +1,238 @@
+package ai.fritz.core;
+
+import android.graphics.Bitmap;
+import android.util.Size;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import ai.fritz.core.annotations.AnnotationRecorder;
+import ai.fritz.core.annotations.Base64EncodableImage;
+import ai.fritz.core.annotations.BoundingBoxAnnotation;
+import ai.fritz.core.annotations.DataAnnotation;
+import ai.fritz.core.annotations.KeypointAnnotation;
+import ai.fritz.core.annotations.RecordableImage;
+import ai.fritz.core.api.Session;
+import ai.fritz.core.api.SessionSettings;
+import ai.fritz.core.testutils.TestConstants;
+import kotlin.Unit;
+import kotlin.jvm.functions.Function0;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 27, packageName = "ai.fritz.sdkapp")
+public class AnnotationRecorderTest extends BaseUnitTest {
+
+    private static final int TIMEOUT_SECONDS = 5;
+
+    private FritzOnDeviceModel onDeviceModel;
+
+    @Before
+    public void setup() {
+        super.setup();
+        configureFritz(TEST_API_KEY);
+        onDeviceModel = new FritzOnDeviceModel("file:///android_asset/mnist.pb", TestConstants.TEST_MODEL_ID, 1);
+    }
+
+    @Test
+    public void testSampledOut() throws JSONException {
+        setSamplingRatio(0);
+        AnnotationRecorder recorder = new AnnotationRecorder();
+        CountingCallback onError = new CountingCallback();
+
+        for (int i = 0; i < 10; i++) {
+            assertFalse(recorder.record(onDeviceModel, new FakeImage(null), emptyAnnotations(), null, new CountingCallback(), onError));
+        }
+        assertEquals(10, recorder.getSampledOut());
+        assertEquals(10, onError.count);
+        assertEquals(0, recorder.getRecorded());
+    }
+
+    @Test
+    public void testEncodesInBackground() throws Exception {
+        setSamplingRatio(1);
+        AnnotationRecorder recorder = new AnnotationRecorder();
+        final CountDownLatch encoded = new CountDownLatch(1);
+        FakeImage image = new FakeImage(null) {
+            @Override
+            public String encodedInput() {
+                assertFalse(Thread.currentThread().getName().equals(callerThread));
+                encoded.countDown();
+                return super.encodedInput();
+            }
+        };
+
+        assertTrue(recorder.record(onDeviceModel, image, emptyAnnotations(), null, new CountingCallback(), new CountingCallback()));
+        assertTrue(encoded.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        waitForRecorded(recorder, 1);
+        assertEquals(0, recorder.getPendingBitmapBytes());
+    }
+
+    /**
+     * Once an image is waiting to be encoded and the memory budget is used up, new recordings are dropped.
+     */
+    @Test
+    public void testDropsWhenBacklogged() throws Exception {
+        setSamplingRatio(1);
+        // Room for a single 10x10 image
+        AnnotationRecorder recorder = new AnnotationRecorder(1, 400, AnnotationRecorder.DEFAULT_MAX_DIMENSION);
+        CountDownLatch release = new CountDownLatch(1);
+
+        assertTrue(recorder.record(onDeviceModel, new FakeImage(release), emptyAnnotations(), null, new CountingCallback(), new CountingCallback()));
+        CountingCallback onError = new CountingCallback();
+        assertFalse(recorder.record(onDeviceModel, new FakeImage(null), emptyAnnotations(), null, new CountingCallback(), onError));
+        assertEquals(1, recorder.getDropped());
+        assertEquals(1, onError.count);
+
+        release.countDown();
+        waitForRecorded(recorder, 1);
+        assertEquals(0, recorder.getPendingBitmapBytes());
+
+        // There's room again
+        assertTrue(recorder.record(onDeviceModel, new FakeImage(null), emptyAnnotations(), null, new CountingCallback(), new CountingCallback()));
+        waitForRecorded(recorder, 2);
+    }
+
+    /**
+     * Large images are copied at the scaled size, and only once the budget has room for them.
+     */
+    @Test
+    public void testScaledCopyIsBuiltWithinBudget() throws Exception {
+        setSamplingRatio(1);
+        // Room for a 10x10 image holding up the encoder and a single 64x32 copy
+        AnnotationRecorder recorder = new AnnotationRecorder(1, 400 + 64 * 32 * 4, 64);
+        CountDownLatch release = new CountDownLatch(1);
+        assertTrue(recorder.record(onDeviceModel, new FakeImage(release), emptyAnnotations(), null, new CountingCallback(), new CountingCallback()));
+
+        FakeRecordableImage scaled = new FakeRecordableImage();
+        assertTrue(recorder.record(onDeviceModel, scaled, emptyAnnotations(), null, new CountingCallback(), new CountingCallback()));
+        assertEquals(new Size(64, 32), scaled.builtSize);
+        assertEquals(400 + 64 * 32 * 4, recorder.getPendingBitmapBytes());
+
+        // A dropped recording isn't copied at all.
+        FakeRecordableImage dropped = new FakeRecordableImage();
+        assertFalse(recorder.record(onDeviceModel, dropped, emptyAnnotations(), null, new CountingCallback(), new CountingCallback()));
+        assertEquals(null, dropped.builtSize);
+
+        release.countDown();
+        waitForRecorded(recorder, 2);
+        assertEquals(0, recorder.getPendingBitmapBytes());
+    }
+
+    @Test
+    public void testScaledAnnotations() {
+        List<KeypointAnnotation> keypoints = new ArrayList<>();
+        keypoints.add(new KeypointAnnotation(0, "nose", 100f, 50f, true));
+        DataAnnotation annotation = new DataAnnotation("person", keypoints, new BoundingBoxAnnotation(10f, 20f, 30f, 40f), null, false);
+
+        DataAnnotation scaled = annotation.scaled(0.5f, 0.25f);
+        assertEquals(50f, scaled.getKeypoints().get(0).getX(), 1e-5f);
+        assertEquals(12.5f, scaled.getKeypoints().get(0).getY(), 1e-5f);
+        assertEquals(5f, scaled.getBbox().getXmin(), 1e-5f);
+        assertEquals(5f, scaled.getBbox().getYmin(), 1e-5f);
+        assertEquals(15f, scaled.getBbox().getWidth(), 1e-5f);
+        assertEquals(10f, scaled.getBbox().getHeight(), 1e-5f);
+        // The original is untouched
+        assertEquals(100f, annotation.getKeypoints().get(0).getX(), 1e-5f);
+    }
+
+    private void setSamplingRatio(double ratio) throws JSONException {
+        JSONObject settingsJson = new JSONObject();
+        settingsJson.put("model_input_output_sampling_ratio", ratio);
+        Session session = new Session("testInstanceId", "testAppToken", "testUserAgent");
+        session.setSettings(SessionSettings.fromResponse(settingsJson));
+        setupSession(session);
+    }
+
+    private static List<DataAnnotation> emptyAnnotations() {
+        return Collections.emptyList();
+    }
+
+    private static void waitForRecorded(AnnotationRecorder recorder, long expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS);
+        while (recorder.getRecorded() < expected) {
+            assertTrue(System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    private static class CountingCallback implements Function0<Unit> {
+        volatile int count = 0;
+
+        @Override
+        public Unit invoke() {
+            count++;
+            return Unit.INSTANCE;
+        }
+    }
+
+    /**
+     * A 10x10 image that can hold up encoding until released.
+     */
+    private static class FakeImage implements Base64EncodableImage {
+        final String callerThread = Thread.currentThread().getName();
+        private final CountDownLatch release;
+
+        FakeImage(CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        public String encodedInput() {
+            if (release != null) {
+                try {
+                    release.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return "aW1hZ2U=";
+        }
+
+        @Override
+        public Size encodedSize() {
+            return new Size(10, 10);
+        }
+
+        @Override
+        public String encodedImageFormat() {
+            return "jpeg";
+        }
+    }
+
+    /**
+     * A 640x320 image that records the size it was copied at.
+     */
+    private static class FakeRecordableImage extends FakeImage implements RecordableImage {
+        volatile Size builtSize;
+
+        FakeRecordableImage() {
+            super(null);
+        }
+
+        @Override
+        public Bitmap buildRecordingBitmap(Size size) {
+            builtSize = size;
+            return Bitmap.createBitmap(size.getWidth(), size.getHeight(), Bitmap.Config.ARGB_8888);
+        }
+
+        @Override
+        public Size encodedSize() {
+            return new Size(640, 320);
+        }
+    }
+}
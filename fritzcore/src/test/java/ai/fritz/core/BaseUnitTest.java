@@ -19,6 +19,7 @@ import ai.fritz.core.api.ApiClient;
 import ai.fritz.core.api.Session;
 import ai.fritz.core.api.SessionSettings;
 import ai.fritz.core.constants.SPKeys;
+import ai.fritz.core.utils.PreferenceManager;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyBoolean;
@@ -100,6 +101,8 @@ public class BaseUnitTest {
     protected void setupSession(Session session) {
         try {
             doReturn(session.toJson().toString()).when(sharedPrefs).getString(SPKeys.FRITZ_SESSION, null);
+            // Mocked preferences don't notify listeners, so drop the cached values ourselves.
+            PreferenceManager.invalidate(null);
         } catch (JSONException e) {
             throw new RuntimeException(e);
         }
@@ -0,0 +1,125 @@
+package ai.fritz.core;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import ai.fritz.core.constants.ModelEventName;
+import ai.fritz.core.events.EventBatchSerializer;
+import ai.fritz.core.events.InstallEventData;
+import ai.fritz.core.events.ModelEvent;
+import ai.fritz.core.events.ModelTimingEventData;
+import ai.fritz.core.factories.ModelEventFactory;
+import ai.fritz.core.metrics.LatencyHistogram;
+import ai.fritz.core.testutils.TestConstants;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 27, packageName = "ai.fritz.sdkapp")
+public class EventBatchSerializerTest {
+
+    private FritzOnDeviceModel onDeviceModel;
+    private EventBatchSerializer serializer;
+
+    @Before
+    public void setup() {
+        onDeviceModel = new FritzOnDeviceModel("file:///android_asset/mnist.pb", TestConstants.TEST_MODEL_ID, 1);
+        serializer = new EventBatchSerializer();
+    }
+
+    @Test
+    public void testMatchesJsonObject() throws Exception {
+        List<ModelEvent> events = createEvents();
+        assertArrayEquals(toJsonBytes(events), serialize(events, false));
+    }
+
+    @Test
+    public void testEscapesStrings() throws Exception {
+        String modelUid = "a/b \"quoted\" \\ tab\t newline\n \u0001 café 漢 😀";
+        List<ModelEvent> events = new ArrayList<>();
+        events.add(new ModelEvent("prediction", new ModelTimingEventData(modelUid, 3, 42L), 1000L));
+        events.add(new ModelEvent("model_installed", new InstallEventData(modelUid, 3, true), 1001L));
+        assertArrayEquals(toJsonBytes(events), serialize(events, false));
+    }
+
+    @Test
+    public void testEmptyBatch() throws Exception {
+        List<ModelEvent> events = new ArrayList<>();
+        assertEquals("{\"data\":[]}", new String(serialize(events, false), "UTF-8"));
+    }
+
+    @Test
+    public void testGzip() throws Exception {
+        List<ModelEvent> events = createEvents();
+        byte[] compressed = serialize(events, true);
+        assertArrayEquals(toJsonBytes(events), gunzip(compressed));
+    }
+
+    @Test
+    public void testReusedBetweenBatches() throws Exception {
+        List<ModelEvent> first = createEvents();
+        List<ModelEvent> second = Arrays.asList(ModelEventFactory.createPredictionTiming(onDeviceModel, 7L));
+
+        serialize(first, true);
+        assertArrayEquals(toJsonBytes(second), serialize(second, false));
+        assertArrayEquals(toJsonBytes(first), serialize(first, false));
+    }
+
+    private List<ModelEvent> createEvents() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(1000000L);
+        histogram.record(5000000L);
+        histogram.record(Long.MAX_VALUE / 2);
+
+        List<ModelEvent> events = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            events.add(ModelEventFactory.createPredictionTiming(onDeviceModel, 1000L + i));
+        }
+        events.add(ModelEventFactory.createInstallEvent(onDeviceModel));
+        events.add(ModelEventFactory.createPredictionTimingSummary(onDeviceModel.getModelId(), onDeviceModel.getModelVersion(), histogram.snapshot()));
+        events.add(ModelEventFactory.createCustomTimingEvent(ModelEventName.MODEL_PREPROCESS, onDeviceModel, 10L));
+        return events;
+    }
+
+    private byte[] serialize(List<ModelEvent> events, boolean gzip) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        serializer.write(events, out, gzip);
+        return out.toByteArray();
+    }
+
+    private static byte[] toJsonBytes(List<ModelEvent> events) throws Exception {
+        JSONArray data = new JSONArray();
+        for (ModelEvent event : events) {
+            data.put(event.toJson());
+        }
+        JSONObject payload = new JSONObject();
+        payload.put("data", data);
+        return payload.toString().getBytes("UTF-8");
+    }
+
+    private static byte[] gunzip(byte[] compressed) throws Exception {
+        InputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        in.close();
+        return out.toByteArray();
+    }
+}
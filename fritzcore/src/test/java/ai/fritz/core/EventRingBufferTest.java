@@ -0,0 +1,201 @@
+package ai.fritz.core;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import ai.fritz.core.events.EventRingBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 27, packageName = "ai.fritz.sdkapp")
+public class EventRingBufferTest {
+
+    private static final int NUM_PRODUCERS = 8;
+    private static final int ITEMS_PER_PRODUCER = 5000;
+    private static final int TIMEOUT_SECONDS = 30;
+
+    @Test
+    public void testDrainInOrder() {
+        EventRingBuffer<Integer> buffer = new EventRingBuffer<>(4);
+        buffer.add(1);
+        buffer.add(2);
+        buffer.add(3);
+
+        Integer[] drained = new Integer[2];
+        assertEquals(2, buffer.drainTo(drained));
+        assertEquals(1, (int) drained[0]);
+        assertEquals(2, (int) drained[1]);
+
+        assertEquals(1, buffer.drainTo(drained));
+        assertEquals(3, (int) drained[0]);
+        assertEquals(0, buffer.drainTo(drained));
+        assertTrue(buffer.isEmpty());
+    }
+
+    @Test
+    public void testDropsOldestWhenFull() {
+        EventRingBuffer<Integer> buffer = new EventRingBuffer<>(3);
+        assertFalse(buffer.add(1));
+        assertFalse(buffer.add(2));
+        assertFalse(buffer.add(3));
+        assertTrue(buffer.add(4));
+        assertTrue(buffer.add(5));
+
+        assertEquals(3, buffer.getSize());
+        assertEquals(2, buffer.getDropped());
+        assertFalse(buffer.contains(1));
+        assertFalse(buffer.contains(2));
+
+        assertEquals(3, (int) buffer.poll());
+        assertEquals(4, (int) buffer.poll());
+        assertEquals(5, (int) buffer.poll());
+        assertNull(buffer.poll());
+    }
+
+    @Test
+    public void testWrapsAround() {
+        EventRingBuffer<Integer> buffer = new EventRingBuffer<>(3);
+        for (int i = 0; i < 10; i++) {
+            assertTrue(buffer.offer(i));
+            assertTrue(buffer.contains(i));
+            assertEquals(i, (int) buffer.poll());
+        }
+        assertEquals(0, buffer.getDropped());
+    }
+
+    @Test
+    public void testOfferFailsWhenFull() {
+        EventRingBuffer<Integer> buffer = new EventRingBuffer<>(2);
+        assertTrue(buffer.offer(1));
+        assertTrue(buffer.offer(2));
+        assertFalse(buffer.offer(3));
+        assertEquals(1, (int) buffer.poll());
+    }
+
+    /**
+     * Several producers add while one consumer drains. Below capacity nothing is dropped, so every
+     * item must come out exactly once and each producer's items must stay in order.
+     */
+    @Test
+    public void testConcurrentProducersBelowCapacity() throws Exception {
+        final EventRingBuffer<Long> buffer = new EventRingBuffer<>(NUM_PRODUCERS * ITEMS_PER_PRODUCER);
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch producersDone = new CountDownLatch(NUM_PRODUCERS);
+        final AtomicBoolean failed = new AtomicBoolean(false);
+
+        for (int p = 0; p < NUM_PRODUCERS; p++) {
+            final long producer = p;
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        for (long i = 0; i < ITEMS_PER_PRODUCER; i++) {
+                            if (buffer.add(producer * ITEMS_PER_PRODUCER + i)) {
+                                failed.set(true);
+                            }
+                        }
+                    } catch (InterruptedException e) {
+                        failed.set(true);
+                    } finally {
+                        producersDone.countDown();
+                    }
+                }
+            }).start();
+        }
+
+        int[] seen = new int[NUM_PRODUCERS * ITEMS_PER_PRODUCER];
+        long[] lastPerProducer = new long[NUM_PRODUCERS];
+        for (int p = 0; p < NUM_PRODUCERS; p++) {
+            lastPerProducer[p] = -1;
+        }
+        List<Long> outOfOrder = new ArrayList<>();
+        Long[] drainBuffer = new Long[64];
+
+        start.countDown();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        while (true) {
+            boolean finished = producersDone.getCount() == 0;
+            int drained = buffer.drainTo(drainBuffer);
+            for (int i = 0; i < drained; i++) {
+                long value = drainBuffer[i];
+                seen[(int) value]++;
+                int producer = (int) (value / ITEMS_PER_PRODUCER);
+                if (value <= lastPerProducer[producer]) {
+                    outOfOrder.add(value);
+                }
+                lastPerProducer[producer] = value;
+            }
+            // Once the producers are done, one more empty drain means everything was read.
+            if (finished && drained == 0) {
+                break;
+            }
+            assertTrue("Timed out draining the buffer", System.nanoTime() < deadline);
+        }
+
+        assertFalse(failed.get());
+        assertEquals(0, buffer.getDropped());
+        assertTrue(outOfOrder.isEmpty());
+        for (int i = 0; i < seen.length; i++) {
+            assertEquals("Item " + i, 1, seen[i]);
+        }
+    }
+
+    /**
+     * Past capacity the oldest items are dropped, but nothing is duplicated and the count adds up.
+     */
+    @Test
+    public void testConcurrentProducersOverCapacity() throws Exception {
+        final int capacity = 256;
+        final EventRingBuffer<Long> buffer = new EventRingBuffer<>(capacity);
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch producersDone = new CountDownLatch(NUM_PRODUCERS);
+
+        for (int p = 0; p < NUM_PRODUCERS; p++) {
+            final long producer = p;
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        for (long i = 0; i < ITEMS_PER_PRODUCER; i++) {
+                            buffer.add(producer * ITEMS_PER_PRODUCER + i);
+                        }
+                    } catch (InterruptedException e) {
+                        // Counted as missing below
+                    } finally {
+                        producersDone.countDown();
+                    }
+                }
+            }).start();
+        }
+        start.countDown();
+        assertTrue(producersDone.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+        int[] seen = new int[NUM_PRODUCERS * ITEMS_PER_PRODUCER];
+        Long[] drainBuffer = new Long[capacity];
+        int drained = buffer.drainTo(drainBuffer);
+        for (int i = 0; i < drained; i++) {
+            seen[drainBuffer[i].intValue()]++;
+        }
+
+        // Every item was either dropped or drained.
+        assertTrue(drained <= capacity);
+        assertEquals(NUM_PRODUCERS * ITEMS_PER_PRODUCER - drained, buffer.getDropped());
+        for (int count : seen) {
+            assertTrue(count <= 1);
+        }
+    }
+}
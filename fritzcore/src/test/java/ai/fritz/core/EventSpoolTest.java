@@ -0,0 +1,235 @@
+package ai.fritz.core;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import ai.fritz.core.api.ApiClient;
+import ai.fritz.core.api.RequestHandler;
+import ai.fritz.core.api.Session;
+import ai.fritz.core.constants.ModelEventName;
+import ai.fritz.core.events.EventSpool;
+import ai.fritz.core.events.ModelEvent;
+import ai.fritz.core.events.ModelEventQueue;
+import ai.fritz.core.events.ModelTimingEventData;
+import ai.fritz.core.testutils.TestConstants;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 27, packageName = "ai.fritz.sdkapp")
+public class EventSpoolTest extends BaseUnitTest {
+
+    private FritzOnDeviceModel onDeviceModel;
+    private File directory;
+
+    @Before
+    public void setup() {
+        super.setup();
+        onDeviceModel = new FritzOnDeviceModel("file:///android_asset/mnist.pb", TestConstants.TEST_MODEL_ID, 1);
+        try {
+            directory = File.createTempFile("spool", "");
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        directory.delete();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    /**
+     * Events appended by a process that's killed before flushing are read back by the next one.
+     */
+    @Test
+    public void testEventsSurviveKillBeforeFlush() {
+        List<ModelEvent> appended = createEvents(10);
+        EventSpool spool = new EventSpool(directory);
+        for (ModelEvent event : appended) {
+            spool.append(event);
+        }
+        // No close() or flush(), the process just goes away.
+
+        EventSpool restarted = new EventSpool(directory);
+        assertEquals(10, restarted.getPendingEvents());
+
+        List<ModelEvent> replayed = new ArrayList<>();
+        EventSpool.Batch batch = restarted.nextBatch(replayed, 100);
+        assertNotNull(batch);
+        assertEquals(appended, replayed);
+        for (int i = 0; i < appended.size(); i++) {
+            assertEquals(appended.get(i).toJson().toString(), replayed.get(i).toJson().toString());
+        }
+    }
+
+    /**
+     * A record cut short by the kill is skipped without losing the complete ones before it.
+     */
+    @Test
+    public void testTruncatedRecordIsSkipped() throws IOException {
+        List<ModelEvent> appended = createEvents(3);
+        EventSpool spool = new EventSpool(directory);
+        for (ModelEvent event : appended) {
+            spool.append(event);
+        }
+
+        File[] segments = directory.listFiles();
+        assertEquals(1, segments.length);
+        FileOutputStream stream = new FileOutputStream(segments[0], true);
+        stream.write("{\"type\":\"prediction\",\"timest".getBytes("UTF-8"));
+        stream.close();
+
+        EventSpool restarted = new EventSpool(directory);
+        List<ModelEvent> replayed = new ArrayList<>();
+        restarted.nextBatch(replayed, 100);
+        assertEquals(appended, replayed);
+    }
+
+    @Test
+    public void testBatchesAreBoundedAndDeletedOnAcknowledge() {
+        EventSpool spool = new EventSpool(directory, 10);
+        for (ModelEvent event : createEvents(25)) {
+            spool.append(event);
+        }
+
+        List<ModelEvent> firstBatch = new ArrayList<>();
+        EventSpool.Batch batch = spool.nextBatch(firstBatch, 20);
+        assertEquals(20, firstBatch.size());
+
+        // Nothing is deleted until the batch is acknowledged
+        assertEquals(25, spool.getPendingEvents());
+        spool.acknowledge(batch);
+        assertEquals(5, spool.getPendingEvents());
+
+        List<ModelEvent> secondBatch = new ArrayList<>();
+        spool.acknowledge(spool.nextBatch(secondBatch, 20));
+        assertEquals(5, secondBatch.size());
+        assertEquals(0, spool.getPendingEvents());
+        assertEquals(0, directory.listFiles().length);
+        assertNull(spool.nextBatch(new ArrayList<ModelEvent>(), 20));
+    }
+
+    @Test
+    public void testDiskBudgetDropsOldestSegments() {
+        EventSpool spool = new EventSpool(directory, 10, EventSpool.DEFAULT_MAX_SEGMENT_BYTES, 2048);
+        List<ModelEvent> appended = createEvents(100);
+        for (ModelEvent event : appended) {
+            spool.append(event);
+        }
+        spool.close();
+
+        assertTrue(spool.getDiskBytes() <= 2048);
+        List<ModelEvent> replayed = new ArrayList<>();
+        spool.nextBatch(replayed, 1000);
+        assertTrue(replayed.size() < appended.size());
+        // The newest events are the ones kept
+        assertEquals(appended.get(appended.size() - 1), replayed.get(replayed.size() - 1));
+    }
+
+    /**
+     * Events queued before a kill are sent by the next process's queue and deleted once the request succeeds.
+     */
+    @Test
+    public void testQueueReplaysSpoolAfterKill() {
+        Session session = Fritz.intializeSession(context, TEST_API_KEY);
+        ApiClient firstClient = mock(ApiClient.class);
+        SessionManager firstManager = new SessionManager(context, session, firstClient);
+        Fritz.configure(firstManager);
+        ModelEventQueue firstQueue = firstManager.getEventQueue();
+        firstQueue.enableSpool(new EventSpool(directory));
+
+        List<ModelEvent> appended = createEvents(5);
+        for (ModelEvent event : appended) {
+            firstQueue.add(event);
+        }
+        // Below the batch size, so nothing was sent before the kill
+        verify(firstClient, never()).batchTracking(anyList(), any(RequestHandler.class));
+
+        ApiClient secondClient = mock(ApiClient.class);
+        SessionManager secondManager = new SessionManager(context, session, secondClient);
+        Fritz.configure(secondManager);
+        ModelEventQueue secondQueue = secondManager.getEventQueue();
+        secondQueue.enableSpool(new EventSpool(directory));
+        secondQueue.flush();
+
+        ArgumentCaptor<List> eventsCaptor = ArgumentCaptor.forClass(List.class);
+        ArgumentCaptor<RequestHandler> handlerCaptor = ArgumentCaptor.forClass(RequestHandler.class);
+        verify(secondClient, times(1)).batchTracking(eventsCaptor.capture(), handlerCaptor.capture());
+        assertEquals(appended, new ArrayList<>(eventsCaptor.getValue()));
+
+        handlerCaptor.getValue().onSuccess(null);
+        assertEquals(0, directory.listFiles().length);
+    }
+
+    /**
+     * Events queued in memory before the spool is enabled are sent ahead of events added afterwards.
+     */
+    @Test
+    public void testQueuedEventsStayAheadWhenEnabling() {
+        Session session = Fritz.intializeSession(context, TEST_API_KEY);
+        ApiClient client = mock(ApiClient.class);
+        SessionManager manager = new SessionManager(context, session, client);
+        Fritz.configure(manager);
+        ModelEventQueue queue = manager.getEventQueue();
+
+        List<ModelEvent> appended = createEvents(6);
+        for (ModelEvent event : appended.subList(0, 3)) {
+            queue.add(event);
+        }
+        queue.enableSpool(new EventSpool(directory));
+        for (ModelEvent event : appended.subList(3, 6)) {
+            queue.add(event);
+        }
+        queue.flush();
+
+        ArgumentCaptor<List> eventsCaptor = ArgumentCaptor.forClass(List.class);
+        verify(client, times(1)).batchTracking(eventsCaptor.capture(), any(RequestHandler.class));
+        assertEquals(appended, new ArrayList<>(eventsCaptor.getValue()));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testSecondSpoolIsRejected() {
+        Session session = Fritz.intializeSession(context, TEST_API_KEY);
+        SessionManager manager = new SessionManager(context, session, mock(ApiClient.class));
+        ModelEventQueue queue = manager.getEventQueue();
+        queue.enableSpool(new EventSpool(directory));
+        queue.enableSpool(new EventSpool(directory));
+    }
+
+    private List<ModelEvent> createEvents(int count) {
+        List<ModelEvent> events = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            // Distinct timestamps so events can be told apart
+            ModelTimingEventData data = new ModelTimingEventData(onDeviceModel.getModelId(), onDeviceModel.getModelVersion(), 1000L + i);
+            events.add(new ModelEvent(ModelEventName.PREDICTION_TIMING.getEventName(), data, i));
+        }
+        return events;
+    }
+}
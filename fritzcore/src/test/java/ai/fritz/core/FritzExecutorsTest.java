@@ -0,0 +1,126 @@
+package ai.fritz.core;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import ai.fritz.core.api.ApiClient;
+import ai.fritz.core.api.Session;
+import ai.fritz.core.utils.LimitedExecutor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 27, packageName = "ai.fritz.sdkapp")
+public class FritzExecutorsTest extends BaseUnitTest {
+
+    private static final int TIMEOUT_SECONDS = 5;
+
+    private final List<SessionManager> sessionManagers = new ArrayList<>();
+
+    @After
+    public void tearDown() {
+        for (SessionManager sessionManager : sessionManagers) {
+            sessionManager.getEventQueue().stop();
+        }
+        FritzExecutors.shutdown();
+    }
+
+    @Test
+    public void testLimitedExecutorBoundsConcurrency() throws InterruptedException {
+        LimitedExecutor executor = FritzExecutors.limitedCompute(2);
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch(20);
+
+        for (int i = 0; i < 20; i++) {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    int current = running.incrementAndGet();
+                    maxRunning.set(Math.max(maxRunning.get(), current));
+                    try {
+                        Thread.sleep(5);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    running.decrementAndGet();
+                    done.countDown();
+                }
+            });
+        }
+
+        assertTrue(done.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertTrue(maxRunning.get() <= 2);
+    }
+
+    @Test
+    public void testSerialExecutorKeepsOrder() throws InterruptedException {
+        LimitedExecutor executor = FritzExecutors.limitedCompute(1);
+        final List<Integer> order = Collections.synchronizedList(new ArrayList<Integer>());
+        final CountDownLatch done = new CountDownLatch(100);
+
+        for (int i = 0; i < 100; i++) {
+            final int index = i;
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    order.add(index);
+                    done.countDown();
+                }
+            });
+        }
+
+        assertTrue(done.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, (int) order.get(i));
+        }
+    }
+
+    /**
+     * Every session's event queue flushes on the same scheduler thread.
+     */
+    @Test
+    public void testThreadCountIndependentOfSessions() {
+        createSessionManager();
+        int threadsWithOneSession = FritzExecutors.threadCount();
+
+        for (int i = 0; i < 20; i++) {
+            createSessionManager();
+        }
+        assertEquals(threadsWithOneSession, FritzExecutors.threadCount());
+    }
+
+    @Test
+    public void testUsableAfterShutdown() throws InterruptedException {
+        LimitedExecutor executor = FritzExecutors.limitedCompute(1);
+        FritzExecutors.shutdown();
+        assertEquals(0, FritzExecutors.threadCount());
+
+        final CountDownLatch done = new CountDownLatch(1);
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                done.countDown();
+            }
+        });
+        assertTrue(done.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    }
+
+    private void createSessionManager() {
+        Session session = Fritz.intializeSession(context, TEST_API_KEY);
+        SessionManager sessionManager = new SessionManager(context, session, mock(ApiClient.class));
+        sessionManagers.add(sessionManager);
+    }
+}
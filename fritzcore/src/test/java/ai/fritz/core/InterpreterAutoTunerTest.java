@@ -0,0 +1,81 @@
+package ai.fritz.core;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.Arrays;
+import java.util.List;
+
+import ai.fritz.core.constants.SPKeys;
+import ai.fritz.core.testutils.TestDataFactory;
+import ai.fritz.core.utils.PreferenceManager;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.verify;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 27, packageName = "ai.fritz.sdkapp")
+public class InterpreterAutoTunerTest extends BaseUnitTest {
+
+    @Test
+    public void testPreferenceStringRoundTrip() {
+        InterpreterConfig config = new InterpreterConfig(2, true, false);
+        assertEquals(config, InterpreterConfig.fromPreferenceString(config.toPreferenceString()));
+    }
+
+    @Test
+    public void testMalformedPreferenceString() {
+        assertNull(InterpreterConfig.fromPreferenceString(null));
+        assertNull(InterpreterConfig.fromPreferenceString("two,false,false"));
+        assertNull(InterpreterConfig.fromPreferenceString("2,false"));
+    }
+
+    @Test
+    public void testSavedConfigIsReused() {
+        FritzOnDeviceModel model = TestDataFactory.createCustomModel("missing.tflite", "model-id", 3);
+        InterpreterConfig saved = new InterpreterConfig(2, false, false);
+        String key = SPKeys.getInterpreterConfigKey("model-id", 3, InterpreterAutoTuner.getDeviceFingerprint());
+        doReturn(saved.toPreferenceString()).when(sharedPrefs).getString(key, null);
+
+        // The model file doesn't exist, so this only passes if nothing is benchmarked.
+        List<InterpreterConfig> candidates = Arrays.asList(new InterpreterConfig(8, false, false), saved);
+        assertEquals(saved, InterpreterAutoTuner.getTunedConfig(context, model, candidates));
+    }
+
+    @Test
+    public void testSavedConfigMustBeACandidate() {
+        FritzOnDeviceModel model = TestDataFactory.createCustomModel("missing.tflite", "model-id", 5);
+        InterpreterConfig saved = new InterpreterConfig(2, false, true);
+        String key = SPKeys.getInterpreterConfigKey("model-id", 5, InterpreterAutoTuner.getDeviceFingerprint());
+        doReturn(saved.toPreferenceString()).when(sharedPrefs).getString(key, null);
+
+        // A GPU choice saved by another predictor isn't used where the GPU isn't allowed.
+        List<InterpreterConfig> candidates = Arrays.asList(new InterpreterConfig(2, false, false), new InterpreterConfig(2, true, false));
+        assertNull(InterpreterAutoTuner.getSavedConfig(context, model, candidates));
+        assertEquals(saved, InterpreterAutoTuner.getSavedConfig(context, model, Arrays.asList(saved)));
+    }
+
+    @Test
+    public void testUnsavedModelFallsBackWhenNothingRuns() {
+        FritzOnDeviceModel model = TestDataFactory.createCustomModel("missing.tflite", "model-id", 4);
+        List<InterpreterConfig> candidates = Arrays.asList(new InterpreterConfig(4, false, false), new InterpreterConfig(1, false, false));
+
+        assertEquals(candidates.get(0), InterpreterAutoTuner.getTunedConfig(context, model, candidates));
+    }
+
+    @Test
+    public void testKeyPerModelVersion() {
+        String fingerprint = InterpreterAutoTuner.getDeviceFingerprint();
+        assertNotEquals(SPKeys.getInterpreterConfigKey("model-id", 1, fingerprint), SPKeys.getInterpreterConfigKey("model-id", 2, fingerprint));
+
+        FritzOnDeviceModel model = TestDataFactory.createCustomModel("missing.tflite", "model-id", 1);
+        InterpreterConfig config = new InterpreterConfig(1, true, false);
+        PreferenceManager.saveInterpreterConfig(context, model, fingerprint, config);
+        verify(editor).putString(SPKeys.getInterpreterConfigKey("model-id", 1, fingerprint), "1,true,false");
+    }
+}
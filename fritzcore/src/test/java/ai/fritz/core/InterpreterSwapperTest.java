@@ -0,0 +1,150 @@
+package ai.fritz.core;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import ai.fritz.core.testutils.TestConstants;
+import kotlin.Unit;
+import kotlin.jvm.functions.Function0;
+import kotlin.jvm.functions.Function1;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 27, packageName = "ai.fritz.sdkapp")
+public class InterpreterSwapperTest {
+
+    private static final int TIMEOUT_SECONDS = 5;
+
+    /**
+     * Stands in for a TFL interpreter. A run can be made to block until the test releases it.
+     */
+    private static class FakeInterpreter {
+        final String name;
+        final CountDownLatch runStarted = new CountDownLatch(1);
+        final CountDownLatch finishRun = new CountDownLatch(1);
+        volatile boolean isClosed = false;
+
+        FakeInterpreter(String name) {
+            this.name = name;
+        }
+
+        void run(boolean block) throws InterruptedException {
+            if (isClosed) {
+                throw new IllegalStateException(name + " ran after it was closed.");
+            }
+            runStarted.countDown();
+            if (block) {
+                finishRun.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            }
+            if (isClosed) {
+                throw new IllegalStateException(name + " was closed mid run.");
+            }
+        }
+    }
+
+    private static final Function1<FakeInterpreter, Unit> CLOSE_INTERPRETER = new Function1<FakeInterpreter, Unit>() {
+        @Override
+        public Unit invoke(FakeInterpreter interpreter) {
+            interpreter.isClosed = true;
+            return Unit.INSTANCE;
+        }
+    };
+
+    @Test
+    public void testSwapWaitsForInFlightRun() throws Exception {
+        final FakeInterpreter oldInterpreter = new FakeInterpreter("v1");
+        FakeInterpreter newInterpreter = new FakeInterpreter("v2");
+        final InterpreterSwapper<FakeInterpreter> swapper = new InterpreterSwapper<>(createSlot(oldInterpreter, 1));
+
+        // Start a run on the old interpreter that blocks mid-run.
+        final AtomicInteger failures = new AtomicInteger();
+        Thread runThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                InterpreterSwapper.Slot<FakeInterpreter> slot = swapper.acquire();
+                try {
+                    slot.getInterpreter().run(true);
+                } catch (Exception e) {
+                    failures.incrementAndGet();
+                } finally {
+                    slot.release();
+                }
+            }
+        });
+        runThread.start();
+        assertTrue(oldInterpreter.runStarted.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+        final CountDownLatch previousClosed = new CountDownLatch(1);
+        InterpreterSwapper.Slot<FakeInterpreter> previous = swapper.publish(createSlot(newInterpreter, 2), new Function0<Unit>() {
+            @Override
+            public Unit invoke() {
+                previousClosed.countDown();
+                return Unit.INSTANCE;
+            }
+        });
+        assertSame(oldInterpreter, previous.getInterpreter());
+
+        // New runs go to the new interpreter without waiting for the blocked run.
+        InterpreterSwapper.Slot<FakeInterpreter> slot = swapper.acquire();
+        assertSame(newInterpreter, slot.getInterpreter());
+        slot.getInterpreter().run(false);
+        slot.release();
+
+        // The old interpreter stays open until the in-flight run drains.
+        assertFalse(oldInterpreter.isClosed);
+        assertEquals(1, previousClosed.getCount());
+
+        oldInterpreter.finishRun.countDown();
+        runThread.join(TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS));
+
+        assertEquals(0, failures.get());
+        assertTrue(previousClosed.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertTrue(oldInterpreter.isClosed);
+        assertTrue(previous.isClosed());
+        assertFalse(newInterpreter.isClosed);
+    }
+
+    @Test
+    public void testSwapWithNoRunsClosesImmediately() {
+        FakeInterpreter oldInterpreter = new FakeInterpreter("v1");
+        InterpreterSwapper<FakeInterpreter> swapper = new InterpreterSwapper<>(createSlot(oldInterpreter, 1));
+
+        swapper.publish(createSlot(new FakeInterpreter("v2"), 2), null);
+        assertTrue(oldInterpreter.isClosed);
+    }
+
+    @Test
+    public void testClose() {
+        FakeInterpreter interpreter = new FakeInterpreter("v1");
+        InterpreterSwapper<FakeInterpreter> swapper = new InterpreterSwapper<>(createSlot(interpreter, 1));
+
+        InterpreterSwapper.Slot<FakeInterpreter> slot = swapper.acquire();
+        swapper.close();
+        assertFalse(interpreter.isClosed);
+        slot.release();
+        assertTrue(interpreter.isClosed);
+
+        try {
+            swapper.acquire();
+            fail();
+        } catch (IllegalStateException e) {
+            // Expected
+        }
+    }
+
+    private static InterpreterSwapper.Slot<FakeInterpreter> createSlot(FakeInterpreter interpreter, int version) {
+        FritzOnDeviceModel onDeviceModel = new FritzOnDeviceModel("file:///android_asset/model.tflite", TestConstants.TEST_MODEL_ID, version);
+        return new InterpreterSwapper.Slot<>(interpreter, onDeviceModel, CLOSE_INTERPRETER);
+    }
+}
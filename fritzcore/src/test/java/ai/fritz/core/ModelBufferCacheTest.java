@@ -0,0 +1,78 @@
+package ai.fritz.core;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+
+import ai.fritz.core.testutils.TestConstants;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 27, packageName = "ai.fritz.sdkapp")
+public class ModelBufferCacheTest extends BaseUnitTest {
+
+    private static final byte[] MODEL_BYTES = {1, 2, 3, 4, 5, 6, 7, 8};
+
+    private File modelFile;
+
+    @Before
+    public void setup() {
+        super.setup();
+        configureFritz(TEST_API_KEY);
+        try {
+            modelFile = File.createTempFile("model", ".tflite");
+            modelFile.deleteOnExit();
+            try (FileOutputStream outputStream = new FileOutputStream(modelFile)) {
+                outputStream.write(MODEL_BYTES);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Test
+    public void testSharedMapping() throws IOException {
+        FritzOnDeviceModel onDeviceModel = new FritzOnDeviceModel(modelFile.getAbsolutePath(), TestConstants.TEST_MODEL_ID, 1);
+
+        MappedByteBuffer first = ModelBufferCache.acquire(onDeviceModel);
+        MappedByteBuffer second = ModelBufferCache.acquire(onDeviceModel);
+        assertSame(first, second);
+        assertEquals(MODEL_BYTES.length, first.capacity());
+        assertEquals(2, ModelBufferCache.getRefCount(onDeviceModel));
+
+        ModelBufferCache.release(onDeviceModel);
+        assertEquals(1, ModelBufferCache.getRefCount(onDeviceModel));
+        ModelBufferCache.release(onDeviceModel);
+        assertEquals(0, ModelBufferCache.getRefCount(onDeviceModel));
+
+        // Once released by everyone, the file is mapped again.
+        MappedByteBuffer third = ModelBufferCache.acquire(onDeviceModel);
+        assertNotSame(first, third);
+        ModelBufferCache.release(onDeviceModel);
+    }
+
+    @Test
+    public void testVersionsAreSeparate() throws IOException {
+        FritzOnDeviceModel version1 = new FritzOnDeviceModel(modelFile.getAbsolutePath(), TestConstants.TEST_MODEL_ID, 1);
+        FritzOnDeviceModel version2 = new FritzOnDeviceModel(modelFile.getAbsolutePath(), TestConstants.TEST_MODEL_ID, 2);
+
+        MappedByteBuffer buffer1 = ModelBufferCache.acquire(version1);
+        MappedByteBuffer buffer2 = ModelBufferCache.acquire(version2);
+        assertNotSame(buffer1, buffer2);
+
+        ModelBufferCache.release(version1);
+        assertEquals(0, ModelBufferCache.getRefCount(version1));
+        assertEquals(1, ModelBufferCache.getRefCount(version2));
+        ModelBufferCache.release(version2);
+    }
+}
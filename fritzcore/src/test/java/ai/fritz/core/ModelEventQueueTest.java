@@ -151,6 +151,31 @@ public class ModelEventQueueTest extends BaseUnitTest {
         }
     }
 
+    /**
+     * Events still waiting in a replaced queue are sent by the queue that replaces it.
+     */
+    @Test
+    public void testHandOffSendsUnsentEvents() {
+        ApiClient nextClient = mock(ApiClient.class);
+        SessionManager nextSessionContext = new SessionManager(context.getApplicationContext(), session, nextClient);
+        ModelEventQueue nextQueue = nextSessionContext.getEventQueue();
+
+        List<ModelEvent> unsentEvents = new ArrayList<>();
+        ModelEvent event = ModelEventFactory.createPredictionTiming(onDeviceModel, 1000L);
+        unsentEvents.add(event);
+        modelEventQueue.add(event);
+
+        modelEventQueue.handOffTo(nextQueue);
+        assertFalse(modelEventQueue.contains(event));
+        assertTrue(nextQueue.contains(event));
+
+        // Events added to the replaced queue afterwards go to the new one.
+        ModelEvent lateEvent = ModelEventFactory.createPredictionTiming(onDeviceModel, 1000L);
+        modelEventQueue.add(lateEvent);
+        assertTrue(nextQueue.contains(lateEvent));
+        nextQueue.stop();
+    }
+
     /**
      * Util method to add events to the queue up until the threshold.
      *
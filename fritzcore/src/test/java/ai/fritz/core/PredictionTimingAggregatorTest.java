@@ -0,0 +1,131 @@
+package ai.fritz.core;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import ai.fritz.core.api.ApiClient;
+import ai.fritz.core.api.Session;
+import ai.fritz.core.constants.ModelEventName;
+import ai.fritz.core.events.ModelEvent;
+import ai.fritz.core.events.ModelEventQueue;
+import ai.fritz.core.events.PredictionTimingAggregator;
+import ai.fritz.core.testutils.TestConstants;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 27, packageName = "ai.fritz.sdkapp")
+public class PredictionTimingAggregatorTest extends BaseUnitTest {
+
+    private FritzOnDeviceModel modelV1;
+    private FritzOnDeviceModel modelV2;
+
+    @Before
+    public void setup() {
+        super.setup();
+        modelV1 = new FritzOnDeviceModel("file:///android_asset/mnist.pb", TestConstants.TEST_MODEL_ID, 1);
+        modelV2 = new FritzOnDeviceModel("file:///android_asset/mnist.pb", TestConstants.TEST_MODEL_ID, 2);
+    }
+
+    @Test
+    public void testOneSummaryPerModelVersion() throws JSONException {
+        PredictionTimingAggregator aggregator = new PredictionTimingAggregator();
+        for (int i = 1; i <= 1000; i++) {
+            aggregator.record(modelV1, i * 1000L);
+        }
+        aggregator.record(modelV2, 5000000L);
+
+        List<ModelEvent> events = aggregator.drain();
+        assertEquals(2, events.size());
+
+        for (ModelEvent event : events) {
+            assertEquals(ModelEventName.PREDICTION_TIMING_SUMMARY.getEventName(), event.getName());
+            JSONObject data = event.toJson().getJSONObject("data");
+            if (data.getInt("model_version") != 1) {
+                assertEquals(1, data.getLong("count"));
+                continue;
+            }
+            assertEquals(1000, data.getLong("count"));
+            assertEquals(1000L, data.getLong("min_nano_seconds"));
+            assertEquals(1000000L, data.getLong("max_nano_seconds"));
+            assertEquals(1000L * 1000 * 1001 / 2, data.getLong("sum_nano_seconds"));
+
+            // Only non-empty buckets are sent and they add up to the count
+            JSONArray counts = data.getJSONArray("bucket_counts");
+            assertEquals(data.getJSONArray("bucket_upper_bounds_nano_seconds").length(), counts.length());
+            long total = 0;
+            for (int i = 0; i < counts.length(); i++) {
+                assertTrue(counts.getLong(i) > 0);
+                total += counts.getLong(i);
+            }
+            assertEquals(1000, total);
+        }
+
+        // Nothing new since the last drain
+        assertTrue(aggregator.drain().isEmpty());
+    }
+
+    @Test
+    public void testNoTimingsLostWhileDraining() throws InterruptedException, JSONException {
+        final PredictionTimingAggregator aggregator = new PredictionTimingAggregator();
+        int threadCount = 4;
+        final int recordsPerThread = 20000;
+        final CountDownLatch done = new CountDownLatch(threadCount);
+        for (int i = 0; i < threadCount; i++) {
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < recordsPerThread; j++) {
+                        aggregator.record(modelV1, 1000000L);
+                    }
+                    done.countDown();
+                }
+            }).start();
+        }
+
+        long total = 0;
+        while (done.getCount() > 0) {
+            total += countTimings(aggregator.drain());
+        }
+        total += countTimings(aggregator.drain());
+        assertEquals(threadCount * recordsPerThread, total);
+    }
+
+    private static long countTimings(List<ModelEvent> events) throws JSONException {
+        long count = 0;
+        for (ModelEvent event : events) {
+            count += event.toJson().getJSONObject("data").getLong("count");
+        }
+        return count;
+    }
+
+    @Test
+    public void testQueueOnlyAddsSummaries() {
+        Session session = Fritz.intializeSession(context, "app-token-123456");
+        SessionManager sessionManager = new SessionManager(context.getApplicationContext(), session, mock(ApiClient.class));
+        Fritz.configure(sessionManager);
+        ModelEventQueue queue = sessionManager.getEventQueue();
+        queue.overrideIsPostingEvents(true);
+
+        for (int i = 0; i < 500; i++) {
+            sessionManager.trackPredictionTiming(modelV1, 1000000L);
+        }
+        List<ModelEvent> summaries = queue.getTimingAggregator().drain();
+        assertEquals(1, summaries.size());
+
+        sessionManager.trackPredictionTiming(modelV1, 1000000L);
+        queue.addTimingSummaries();
+        assertTrue(queue.getTimingAggregator().drain().isEmpty());
+    }
+}
@@ -0,0 +1,130 @@
+package ai.fritz.core;
+
+import org.json.JSONArray;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import ai.fritz.core.annotations.BoundingBoxAnnotation;
+import ai.fritz.core.annotations.RunLengthMask;
+import ai.fritz.core.annotations.SegmentationAnnotation;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 27, packageName = "ai.fritz.sdkapp")
+public class RunLengthMaskTest {
+
+    @Test
+    public void testColumnMajorCounts() {
+        int[][] mask = {
+                {0, 1, 1},
+                {0, 1, 0}
+        };
+        RunLengthMask rle = RunLengthMask.fromMask(mask);
+
+        // Columns read top to bottom: 0 0 | 1 1 | 1 0
+        assertArrayEquals(new int[]{2, 3, 1}, rle.getCounts());
+        assertEquals(3, rle.getArea());
+        assertEquals(0.5f, rle.getAreaFraction(), 1e-5f);
+        BoundingBoxAnnotation bbox = rle.getBbox();
+        assertEquals(1f, bbox.getXmin(), 1e-5f);
+        assertEquals(0f, bbox.getYmin(), 1e-5f);
+        assertEquals(2f, bbox.getWidth(), 1e-5f);
+        assertEquals(2f, bbox.getHeight(), 1e-5f);
+    }
+
+    @Test
+    public void testMaskStartingWithOne() {
+        int[][] mask = {
+                {1, 0},
+                {1, 1}
+        };
+        RunLengthMask rle = RunLengthMask.fromMask(mask);
+        assertArrayEquals(new int[]{0, 2, 1, 1}, rle.getCounts());
+        assertTrue(Arrays.deepEquals(mask, rle.toMask()));
+    }
+
+    @Test
+    public void testEmptyMask() {
+        RunLengthMask rle = RunLengthMask.fromMask(new int[4][5]);
+        assertArrayEquals(new int[]{20}, rle.getCounts());
+        assertEquals(0, rle.getArea());
+        assertNull(rle.getBbox());
+    }
+
+    /**
+     * Encoding every class at once matches encoding each class's mask on its own.
+     */
+    @Test
+    public void testMultiClassMatchesSingleMasks() {
+        int height = 37;
+        int width = 53;
+        int numClasses = 4;
+        float threshold = 0.5f;
+        Random random = new Random(7);
+        int[][] classifications = new int[height][width];
+        float[][] confidence = new float[height][width];
+        for (int row = 0; row < height; row++) {
+            for (int col = 0; col < width; col++) {
+                // Mostly contiguous regions with some noise
+                classifications[row][col] = random.nextInt(10) == 0 ? random.nextInt(numClasses) : (col * numClasses) / width;
+                confidence[row][col] = random.nextFloat();
+            }
+        }
+
+        RunLengthMask[] masks = RunLengthMask.fromClassifications(classifications, confidence, threshold, numClasses);
+        assertEquals(numClasses, masks.length);
+        for (int i = 0; i < numClasses; i++) {
+            int[][] expected = new int[height][width];
+            for (int row = 0; row < height; row++) {
+                for (int col = 0; col < width; col++) {
+                    if (classifications[row][col] == i && confidence[row][col] >= threshold) {
+                        expected[row][col] = 1;
+                    }
+                }
+            }
+            RunLengthMask single = RunLengthMask.fromMask(expected);
+            assertArrayEquals(single.getCounts(), masks[i].getCounts());
+            assertEquals(single.getArea(), masks[i].getArea());
+
+            // Encoding just this class gives the same mask.
+            RunLengthMask oneClass = RunLengthMask.fromClass(classifications, confidence, threshold, i);
+            assertArrayEquals(masks[i].getCounts(), oneClass.getCounts());
+            assertEquals(masks[i].getArea(), oneClass.getArea());
+            assertEquals(masks[i].getBbox().getXmin(), oneClass.getBbox().getXmin(), 1e-5f);
+            assertEquals(masks[i].getBbox().getHeight(), oneClass.getBbox().getHeight(), 1e-5f);
+            assertTrue(Arrays.deepEquals(expected, masks[i].toMask()));
+
+            int sum = 0;
+            for (int count : masks[i].getCounts()) {
+                sum += count;
+            }
+            assertEquals(height * width, sum);
+        }
+    }
+
+    @Test
+    public void testJsonIsSmallerThanMask() {
+        int size = 384;
+        int[][] mask = new int[size][size];
+        for (int row = 100; row < 300; row++) {
+            for (int col = 120; col < 260; col++) {
+                mask[row][col] = 1;
+            }
+        }
+        SegmentationAnnotation annotation = new SegmentationAnnotation(mask);
+
+        String rleJson = annotation.toJson().toString();
+        String maskJson = new JSONArray(mask).toString();
+        assertTrue(rleJson.length() * 10 < maskJson.length());
+        assertTrue(Arrays.deepEquals(mask, annotation.getMask()));
+    }
+}
@@ -4,15 +4,29 @@ package ai.fritz.core;
 import org.json.JSONException;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.robolectric.RobolectricTestRunner;
 import org.robolectric.annotation.Config;
 
+import java.util.Arrays;
+
 import ai.fritz.core.api.Session;
 import ai.fritz.core.api.SessionSettings;
+import ai.fritz.core.api.SessionSnapshot;
+import ai.fritz.core.constants.ModelEventName;
 import ai.fritz.core.constants.SPKeys;
+import ai.fritz.core.utils.PreferenceManager;
 import ai.fritz.core.utils.SessionPreferenceManager;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @RunWith(RobolectricTestRunner.class)
@@ -56,4 +70,64 @@ public class SessionPreferenceManagerTest extends BaseUnitTest {
         Session actualSession = SessionPreferenceManager.getSession(context);
         assertEquals(actualSession, expectedSession);
     }
+
+    @Test
+    public void testSessionSnapshotIsCached() throws JSONException {
+        Session session = new Session(TEST_INSTANCE_ID, TEST_APP_TOKEN, TEST_USER_AGENT);
+        SessionSettings settings = SessionSettings.createDefault();
+        settings.setEventBlacklist(Arrays.asList(ModelEventName.MODEL_PREPROCESS.getEventName()));
+        session.setSettings(settings);
+        setupSession(session);
+
+        SessionSnapshot snapshot = SessionPreferenceManager.getSessionSnapshot(context);
+        assertSame(snapshot, SessionPreferenceManager.getSessionSnapshot(context));
+        assertEquals(TEST_INSTANCE_ID, snapshot.getInstanceId());
+        assertTrue(snapshot.isBlacklisted(ModelEventName.MODEL_PREPROCESS.getEventName()));
+        assertFalse(snapshot.isBlacklisted(ModelEventName.PREDICTION_TIMING.getEventName()));
+
+        // Only the first call reads from storage
+        verify(sharedPrefs, times(1)).getString(SPKeys.FRITZ_SESSION, null);
+    }
+
+    @Test
+    public void testSessionSnapshotInvalidatedOnSave() throws JSONException {
+        Session session = new Session(TEST_INSTANCE_ID, TEST_APP_TOKEN, TEST_USER_AGENT);
+        setupSession(session);
+        SessionSnapshot snapshot = SessionPreferenceManager.getSessionSnapshot(context);
+
+        SessionSettings updatedSettings = SessionSettings.createDefault();
+        updatedSettings.setEventBlacklist(Arrays.asList(ModelEventName.MODEL_PREPROCESS.getEventName()));
+        session.setSettings(updatedSettings);
+        when(sharedPrefs.getString(SPKeys.FRITZ_SESSION, null)).thenReturn(session.toJson().toString());
+        PreferenceManager.saveSession(context, session);
+
+        SessionSnapshot updatedSnapshot = SessionPreferenceManager.getSessionSnapshot(context);
+        assertNotSame(snapshot, updatedSnapshot);
+        assertTrue(updatedSnapshot.isBlacklisted(ModelEventName.MODEL_PREPROCESS.getEventName()));
+    }
+
+    @Test
+    public void testStaleReadIsNotCached() throws JSONException {
+        Session session = new Session(TEST_INSTANCE_ID, TEST_APP_TOKEN, TEST_USER_AGENT);
+        final String staleJson = session.toJson().toString();
+        doAnswer(new Answer<String>() {
+            private boolean isFirstRead = true;
+
+            @Override
+            public String answer(InvocationOnMock invocation) {
+                if (isFirstRead) {
+                    // Another thread saves a new session while this one is reading the old one.
+                    isFirstRead = false;
+                    PreferenceManager.invalidate(SPKeys.FRITZ_SESSION);
+                }
+                return staleJson;
+            }
+        }).when(sharedPrefs).getString(SPKeys.FRITZ_SESSION, null);
+
+        SessionPreferenceManager.getSessionSnapshot(context);
+        SessionPreferenceManager.getSessionSnapshot(context);
+
+        // The first read raced with the save, so it wasn't cached and the second call reads again.
+        verify(sharedPrefs, times(2)).getString(SPKeys.FRITZ_SESSION, null);
+    }
 }
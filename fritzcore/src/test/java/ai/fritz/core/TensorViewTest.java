@@ -0,0 +1,144 @@
+package ai.fritz.core;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.tensorflow.lite.DataType;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 27, packageName = "ai.fritz.sdkapp")
+public class TensorViewTest {
+
+    private static final int HEIGHT = 3;
+    private static final int WIDTH = 4;
+    private static final int CHANNELS = 2;
+
+    private ByteBuffer buffer;
+    private TensorView view;
+
+    @Before
+    public void setup() {
+        buffer = ByteBuffer.allocateDirect(4 * HEIGHT * WIDTH * CHANNELS).order(ByteOrder.nativeOrder());
+        for (int i = 0; i < HEIGHT * WIDTH * CHANNELS; i++) {
+            buffer.putFloat(i);
+        }
+        view = new TensorView(buffer, new int[]{1, HEIGHT, WIDTH, CHANNELS}, DataType.FLOAT32);
+    }
+
+    @Test
+    public void testStrides() {
+        assertArrayEquals(new int[]{HEIGHT * WIDTH * CHANNELS, WIDTH * CHANNELS, CHANNELS, 1}, view.getStrides());
+        assertEquals(HEIGHT * WIDTH * CHANNELS, view.getNumElements());
+    }
+
+    @Test
+    public void testElementAccess() {
+        // The view ignores the position of the underlying buffer.
+        assertEquals(buffer.capacity(), buffer.position());
+
+        assertEquals(5f, view.getFloat(5), 0f);
+        assertEquals(2 * WIDTH * CHANNELS + 3 * CHANNELS + 1, view.getFloat3D(2, 3, 1), 0f);
+        assertEquals(1 * CHANNELS + 1, view.getFloat2D(1, 1), 0f);
+    }
+
+    @Test
+    public void testBulkRead() {
+        float[] values = new float[WIDTH * CHANNELS];
+        view.readFloats(WIDTH * CHANNELS, values);
+        for (int i = 0; i < values.length; i++) {
+            assertEquals(WIDTH * CHANNELS + i, values[i], 0f);
+        }
+    }
+
+    @Test
+    public void testRowIterator() {
+        FloatRowIterator rows = view.floatRows(WIDTH * CHANNELS);
+        int count = 0;
+        while (rows.hasNext()) {
+            float[] row = rows.next();
+            assertEquals(count, rows.getRowIndex());
+            assertEquals(count * WIDTH * CHANNELS, row[0], 0f);
+            count++;
+        }
+        assertEquals(HEIGHT, count);
+        assertFalse(rows.hasNext());
+    }
+
+    @Test
+    public void testQuantizedView() {
+        ByteBuffer bytes = ByteBuffer.allocateDirect(4);
+        bytes.put(new byte[]{0, 1, (byte) 200, (byte) 255});
+        TensorView byteView = new TensorView(bytes, new int[]{1, 4}, DataType.UINT8);
+
+        assertEquals(200, byteView.getUnsignedByte(2));
+        byte[] dst = new byte[2];
+        byteView.readBytes(2, dst);
+        assertEquals((byte) 255, dst[1]);
+
+        // Without quantization params the scale falls back to 1 / 255
+        assertTrue(byteView.isQuantized());
+        assertEquals(200 / 255f, byteView.getFloat(2), 1e-6f);
+        assertEquals(1f, byteView.getFloat(3), 1e-6f);
+    }
+
+    @Test
+    public void testDequantize() {
+        ByteBuffer bytes = ByteBuffer.allocateDirect(4);
+        bytes.put(new byte[]{0, 10, (byte) 128, (byte) 255});
+        TensorView byteView = new TensorView(bytes, new int[]{1, 4}, DataType.UINT8, 0.5f, 10);
+
+        assertEquals(-5f, byteView.getFloat(0), 0f);
+        assertEquals(0f, byteView.getFloat(1), 0f);
+        assertEquals(59f, byteView.getFloat(2), 0f);
+
+        float[] values = new float[4];
+        byteView.readFloats(0, values);
+        assertEquals(122.5f, values[3], 0f);
+    }
+
+    @Test
+    public void testSignedQuantized() {
+        ByteBuffer bytes = ByteBuffer.allocateDirect(2);
+        bytes.put(new byte[]{(byte) -128, 127});
+        TensorView byteView = new TensorView(bytes, new int[]{1, 2}, DataType.INT8, 1 / 256f, -128);
+
+        assertEquals(-128, byteView.getRaw(0));
+        assertEquals(127, byteView.getRaw(1));
+        assertEquals(0f, byteView.getFloat(0), 0f);
+        assertEquals(255 / 256f, byteView.getFloat(1), 1e-6f);
+    }
+
+    @Test
+    public void testQuantizeThreshold() {
+        ByteBuffer bytes = ByteBuffer.allocateDirect(1);
+        TensorView byteView = new TensorView(bytes, new int[]{1, 1}, DataType.UINT8, 0.1f, 5);
+
+        // Every raw value compares to the threshold the same way its dequantized value does
+        float threshold = 0.55f;
+        int minRaw = byteView.quantizeThreshold(threshold);
+        for (int raw = 0; raw <= 255; raw++) {
+            assertEquals(byteView.dequantize(raw) >= threshold, raw >= minRaw);
+        }
+    }
+
+    @Test
+    public void testRawOnFloatView() {
+        try {
+            view.getRaw(0);
+            fail();
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage().contains("not UINT8 or INT8"));
+        }
+    }
+}
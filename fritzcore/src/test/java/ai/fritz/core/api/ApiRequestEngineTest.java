@@ -0,0 +1,412 @@
+package ai.fritz.core.api;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link ApiRequestEngine} against a local keep-alive HTTP server.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 27, packageName = "ai.fritz.sdkapp")
+public class ApiRequestEngineTest {
+
+    private static final int TIMEOUT_SECONDS = 5;
+    private static final long BACKOFF_MS = 10;
+
+    private static final Executor DIRECT_EXECUTOR = new Executor() {
+        @Override
+        public void execute(Runnable runnable) {
+            runnable.run();
+        }
+    };
+
+    private ServerSocket serverSocket;
+    private Session session;
+    // Status codes to respond with, in order. 200 once it's empty.
+    private final ConcurrentLinkedQueue<Integer> statusCodes = new ConcurrentLinkedQueue<>();
+    private final List<String> requestBodies = new ArrayList<>();
+    private final AtomicInteger connections = new AtomicInteger();
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger activeRequests = new AtomicInteger();
+    private final AtomicInteger maxActiveRequests = new AtomicInteger();
+    private volatile CountDownLatch holdResponses;
+
+    @Before
+    public void setup() throws IOException {
+        session = new Session("testInstanceId", "testAppToken", "testUserAgent");
+        serverSocket = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"));
+        Thread acceptThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                acceptConnections();
+            }
+        });
+        acceptThread.setDaemon(true);
+        acceptThread.start();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        serverSocket.close();
+    }
+
+    @Test
+    public void testReusesConnection() throws Exception {
+        ApiRequestEngine engine = createEngine(2, 4);
+        for (int i = 0; i < 5; i++) {
+            ResultHandler handler = new ResultHandler();
+            engine.execute(new ApiRequest(getUrl()), handler);
+            handler.await();
+            assertEquals(1, handler.successes.get());
+        }
+
+        assertEquals(5, requests.get());
+        assertEquals(1, connections.get());
+    }
+
+    @Test
+    public void testPostsJsonBody() throws Exception {
+        ApiRequestEngine engine = createEngine(2, 4);
+        JSONObject payload = new JSONObject();
+        payload.put("data", "value");
+
+        ResultHandler handler = new ResultHandler();
+        engine.execute(new ApiRequest(getUrl(), new ApiRequest.JsonBody(payload, false)), handler);
+        handler.await();
+
+        assertEquals(1, handler.successes.get());
+        synchronized (requestBodies) {
+            assertEquals(payload.toString(), requestBodies.get(0));
+        }
+    }
+
+    @Test
+    public void testRetriesServerErrors() throws Exception {
+        statusCodes.add(503);
+        statusCodes.add(500);
+        ApiRequestEngine engine = createEngine(2, 4);
+
+        ResultHandler handler = new ResultHandler();
+        engine.execute(new ApiRequest(getUrl()), handler);
+        handler.await();
+
+        assertEquals(1, handler.successes.get());
+        assertEquals(0, handler.errors.get());
+        assertEquals(3, requests.get());
+        assertEquals(2, engine.getRetries());
+    }
+
+    @Test
+    public void testGivesUpAfterMaxAttempts() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            statusCodes.add(502);
+        }
+        ApiRequestEngine engine = createEngine(2, 3);
+
+        ResultHandler handler = new ResultHandler();
+        engine.execute(new ApiRequest(getUrl()), handler);
+        handler.await();
+
+        assertEquals(1, handler.errors.get());
+        assertEquals(502, handler.response.getInt(BaseRequestTask.STATUS_CODE_KEY));
+        assertEquals(3, requests.get());
+    }
+
+    @Test
+    public void testClientErrorsAreNotRetried() throws Exception {
+        statusCodes.add(400);
+        ApiRequestEngine engine = createEngine(2, 4);
+
+        ResultHandler handler = new ResultHandler();
+        engine.execute(new ApiRequest(getUrl()), handler);
+        handler.await();
+
+        assertEquals(1, handler.errors.get());
+        assertEquals(1, requests.get());
+        assertEquals(0, engine.getRetries());
+    }
+
+    @Test
+    public void testRetriesNetworkErrors() throws Exception {
+        ServerSocket closedSocket = new ServerSocket(0, 1, InetAddress.getByName("127.0.0.1"));
+        URL url = new URL("http://127.0.0.1:" + closedSocket.getLocalPort() + "/session/settings");
+        closedSocket.close();
+        ApiRequestEngine engine = createEngine(2, 3);
+
+        ResultHandler handler = new ResultHandler();
+        engine.execute(new ApiRequest(url), handler);
+        handler.await();
+
+        assertEquals(1, handler.errors.get());
+        assertEquals(-1, handler.response.getInt(BaseRequestTask.STATUS_CODE_KEY));
+        assertEquals(3, engine.getAttempts());
+    }
+
+    @Test
+    public void testUnexpectedErrorsAreDelivered() throws Exception {
+        ApiRequest.Body failingBody = new ApiRequest.Body() {
+            @Override
+            public boolean isGzipped() {
+                return false;
+            }
+
+            @Override
+            public void writeTo(OutputStream outputStream) {
+                throw new IllegalStateException("Couldn't write the body");
+            }
+        };
+        ApiRequestEngine engine = createEngine(1, 4);
+
+        ResultHandler handler = new ResultHandler();
+        engine.execute(new ApiRequest(getUrl(), failingBody), handler, "batch");
+        handler.await();
+
+        assertEquals(1, handler.errors.get());
+        assertEquals(-2, handler.response.getInt(BaseRequestTask.STATUS_CODE_KEY));
+        assertEquals(0, engine.getRetries());
+
+        // The coalesce key and the request slot are free again.
+        ResultHandler nextHandler = new ResultHandler();
+        engine.execute(new ApiRequest(getUrl()), nextHandler, "batch");
+        nextHandler.await();
+        assertEquals(1, nextHandler.successes.get());
+    }
+
+    @Test
+    public void testCoalescesRequestsInFlight() throws Exception {
+        holdResponses = new CountDownLatch(1);
+        ApiRequestEngine engine = createEngine(2, 4);
+
+        List<ResultHandler> handlers = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            ResultHandler handler = new ResultHandler();
+            handlers.add(handler);
+            engine.execute(new ApiRequest(getUrl()), handler, "settings");
+        }
+        holdResponses.countDown();
+
+        for (ResultHandler handler : handlers) {
+            handler.await();
+            assertEquals(1, handler.successes.get());
+        }
+        assertEquals(1, requests.get());
+        assertEquals(4, engine.getCoalesced());
+
+        // Once the response is in, the next call sends a new request.
+        ResultHandler handler = new ResultHandler();
+        engine.execute(new ApiRequest(getUrl()), handler, "settings");
+        handler.await();
+        assertEquals(2, requests.get());
+    }
+
+    @Test
+    public void testConcurrencyLimit() throws Exception {
+        holdResponses = new CountDownLatch(1);
+        ApiRequestEngine engine = createEngine(2, 4);
+
+        List<ResultHandler> handlers = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            ResultHandler handler = new ResultHandler();
+            handlers.add(handler);
+            engine.execute(new ApiRequest(getUrl()), handler);
+        }
+        // Give requests over the limit a chance to (wrongly) start
+        Thread.sleep(200);
+        assertEquals(2, activeRequests.get());
+        holdResponses.countDown();
+
+        for (ResultHandler handler : handlers) {
+            handler.await();
+        }
+        assertEquals(6, requests.get());
+        assertTrue(maxActiveRequests.get() <= 2);
+    }
+
+    private ApiRequestEngine createEngine(int maxConcurrentRequests, int maxAttempts) {
+        return new ApiRequestEngine(session, maxConcurrentRequests, maxAttempts, BACKOFF_MS, BACKOFF_MS * 4, DIRECT_EXECUTOR);
+    }
+
+    private URL getUrl() throws IOException {
+        return new URL("http://127.0.0.1:" + serverSocket.getLocalPort() + "/session/settings");
+    }
+
+    private static class ResultHandler implements RequestHandler {
+        final AtomicInteger successes = new AtomicInteger();
+        final AtomicInteger errors = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch(1);
+        volatile JSONObject response;
+
+        @Override
+        public void onSuccess(JSONObject response) {
+            this.response = response;
+            successes.incrementAndGet();
+            done.countDown();
+        }
+
+        @Override
+        public void onError(JSONObject response) {
+            this.response = response;
+            errors.incrementAndGet();
+            done.countDown();
+        }
+
+        void await() throws InterruptedException {
+            assertTrue(done.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        }
+    }
+
+    private void acceptConnections() {
+        while (!serverSocket.isClosed()) {
+            try {
+                final Socket socket = serverSocket.accept();
+                connections.incrementAndGet();
+                Thread connectionThread = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        serve(socket);
+                    }
+                });
+                connectionThread.setDaemon(true);
+                connectionThread.start();
+            } catch (IOException e) {
+                // Closed in tearDown
+            }
+        }
+    }
+
+    /**
+     * A minimal HTTP/1.1 handler that keeps the connection open between requests.
+     */
+    private void serve(Socket socket) {
+        try {
+            InputStream inputStream = socket.getInputStream();
+            OutputStream outputStream = socket.getOutputStream();
+            while (true) {
+                String requestLine = readLine(inputStream);
+                if (requestLine == null || requestLine.isEmpty()) {
+                    return;
+                }
+                int contentLength = 0;
+                boolean chunked = false;
+                String line = readLine(inputStream);
+                while (line != null && !line.isEmpty()) {
+                    String lower = line.toLowerCase();
+                    if (lower.startsWith("content-length:")) {
+                        contentLength = Integer.parseInt(line.substring("content-length:".length()).trim());
+                    } else if (lower.startsWith("transfer-encoding:") && lower.contains("chunked")) {
+                        chunked = true;
+                    }
+                    line = readLine(inputStream);
+                }
+                byte[] body = chunked ? readChunked(inputStream) : readBytes(inputStream, contentLength);
+                if (body.length > 0) {
+                    synchronized (requestBodies) {
+                        requestBodies.add(new String(body, "UTF-8"));
+                    }
+                }
+
+                requests.incrementAndGet();
+                int active = activeRequests.incrementAndGet();
+                synchronized (maxActiveRequests) {
+                    maxActiveRequests.set(Math.max(maxActiveRequests.get(), active));
+                }
+                CountDownLatch hold = holdResponses;
+                if (hold != null) {
+                    hold.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                }
+                activeRequests.decrementAndGet();
+
+                Integer statusCode = statusCodes.poll();
+                int status = statusCode == null ? 200 : statusCode;
+                byte[] responseBody = "{\"ok\":true}".getBytes("UTF-8");
+                String headers = "HTTP/1.1 " + status + " Status\r\n"
+                        + "Content-Type: application/json\r\n"
+                        + "Content-Length: " + responseBody.length + "\r\n"
+                        + "Connection: keep-alive\r\n\r\n";
+                outputStream.write(headers.getBytes("US-ASCII"));
+                outputStream.write(responseBody);
+                outputStream.flush();
+            }
+        } catch (IOException | InterruptedException e) {
+            // The client hung up
+        } finally {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // Ignore
+            }
+        }
+    }
+
+    private static String readLine(InputStream inputStream) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int b;
+        while ((b = inputStream.read()) != -1) {
+            if (b == '\n') {
+                break;
+            }
+            if (b != '\r') {
+                line.append((char) b);
+            }
+        }
+        if (b == -1 && line.length() == 0) {
+            return null;
+        }
+        return line.toString();
+    }
+
+    private static byte[] readBytes(InputStream inputStream, int length) throws IOException {
+        byte[] bytes = new byte[length];
+        int offset = 0;
+        while (offset < length) {
+            int read = inputStream.read(bytes, offset, length - offset);
+            if (read == -1) {
+                throw new IOException("Body cut short");
+            }
+            offset += read;
+        }
+        return bytes;
+    }
+
+    private static byte[] readChunked(InputStream inputStream) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        while (true) {
+            String sizeLine = readLine(inputStream);
+            if (sizeLine == null) {
+                throw new IOException("Body cut short");
+            }
+            int size = Integer.parseInt(sizeLine.split(";")[0].trim(), 16);
+            if (size == 0) {
+                // Trailing empty line
+                readLine(inputStream);
+                return body.toByteArray();
+            }
+            body.write(readBytes(inputStream, size));
+            readLine(inputStream);
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package ai.fritz.core.api;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link ModelDownloader} against a local HTTP server.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 27, packageName = "ai.fritz.sdkapp")
+public class ModelDownloaderTest {
+
+    private static final int MODEL_SIZE = 1024 * 1024 + 123;
+    private static final long CHUNK_SIZE = 128 * 1024;
+
+    private ServerSocket serverSocket;
+    private byte[] modelBytes;
+    private File directory;
+    private File destination;
+    private final AtomicInteger rangeRequests = new AtomicInteger();
+    private volatile boolean supportsRanges = true;
+
+    @Before
+    public void setup() throws IOException {
+        modelBytes = new byte[MODEL_SIZE];
+        new Random(42).nextBytes(modelBytes);
+
+        serverSocket = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"));
+        Thread acceptThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                acceptConnections();
+            }
+        });
+        acceptThread.setDaemon(true);
+        acceptThread.start();
+
+        directory = File.createTempFile("downloads", "");
+        directory.delete();
+        directory.mkdirs();
+        destination = new File(directory, "model_v1.tflite");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        serverSocket.close();
+        for (File file : directory.listFiles()) {
+            file.delete();
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void testParallelRangedDownload() throws IOException {
+        ModelDownloader downloader = new ModelDownloader(4, CHUNK_SIZE);
+        File result = downloader.download(getUrl(), destination, sha256(modelBytes));
+
+        assertEquals(destination, result);
+        assertArrayEquals(modelBytes, readFile(destination));
+        // The probe plus one request per range
+        assertEquals(5, rangeRequests.get());
+        assertFalse(new File(directory, destination.getName() + ".part").exists());
+    }
+
+    @Test
+    public void testChecksumMismatchKeepsExistingFile() throws IOException {
+        byte[] previousModel = {1, 2, 3};
+        try (FileOutputStream outputStream = new FileOutputStream(destination)) {
+            outputStream.write(previousModel);
+        }
+
+        ModelDownloader downloader = new ModelDownloader(4, CHUNK_SIZE);
+        try {
+            downloader.download(getUrl(), destination, "00" + sha256(modelBytes).substring(2));
+            fail();
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("Checksum mismatch"));
+        }
+
+        assertArrayEquals(previousModel, readFile(destination));
+        assertFalse(new File(directory, destination.getName() + ".part").exists());
+    }
+
+    @Test
+    public void testVerifiedFileIsNotDownloadedAgain() throws IOException {
+        try (FileOutputStream outputStream = new FileOutputStream(destination)) {
+            outputStream.write(modelBytes);
+        }
+        // Nothing listens here, so any request would fail.
+        ServerSocket closedSocket = new ServerSocket(0, 1, InetAddress.getByName("127.0.0.1"));
+        String unreachableUrl = "http://127.0.0.1:" + closedSocket.getLocalPort() + "/model.tflite";
+        closedSocket.close();
+
+        File result = new ModelDownloader(4, CHUNK_SIZE).download(unreachableUrl, destination, sha256(modelBytes));
+
+        assertEquals(destination, result);
+        assertArrayEquals(modelBytes, readFile(destination));
+    }
+
+    @Test
+    public void testUnverifiedFileIsReplaced() throws IOException {
+        try (FileOutputStream outputStream = new FileOutputStream(destination)) {
+            outputStream.write(new byte[]{1, 2, 3});
+        }
+
+        new ModelDownloader(4, CHUNK_SIZE).download(getUrl(), destination, sha256(modelBytes));
+        assertArrayEquals(modelBytes, readFile(destination));
+    }
+
+    @Test
+    public void testReplacesStalePartialFile() throws IOException {
+        File partFile = new File(directory, destination.getName() + ".part");
+        try (FileOutputStream outputStream = new FileOutputStream(partFile)) {
+            outputStream.write(new byte[]{9, 9, 9, 9});
+        }
+
+        new ModelDownloader(2, CHUNK_SIZE).download(getUrl(), destination, sha256(modelBytes));
+        assertArrayEquals(modelBytes, readFile(destination));
+    }
+
+    @Test
+    public void testServerWithoutRanges() throws IOException {
+        supportsRanges = false;
+        new ModelDownloader(4, CHUNK_SIZE).download(getUrl(), destination, null);
+
+        assertArrayEquals(modelBytes, readFile(destination));
+        assertEquals(0, rangeRequests.get());
+    }
+
+    @Test
+    public void testSha256() throws IOException {
+        File file = new File(directory, "abc.txt");
+        try (FileOutputStream outputStream = new FileOutputStream(file)) {
+            outputStream.write("abc".getBytes("UTF-8"));
+        }
+        assertEquals("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad", ModelDownloader.sha256(file));
+    }
+
+    private String getUrl() {
+        return "http://127.0.0.1:" + serverSocket.getLocalPort() + "/model.tflite";
+    }
+
+    private void acceptConnections() {
+        while (!serverSocket.isClosed()) {
+            try {
+                final Socket socket = serverSocket.accept();
+                Thread connectionThread = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        serve(socket);
+                    }
+                });
+                connectionThread.setDaemon(true);
+                connectionThread.start();
+            } catch (IOException e) {
+                // Closed in tearDown
+            }
+        }
+    }
+
+    /**
+     * A minimal HTTP/1.1 handler that serves the model bytes with optional range support.
+     */
+    private void serve(Socket socket) {
+        try {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), "US-ASCII"));
+            String range = null;
+            String line = reader.readLine();
+            while (line != null && !line.isEmpty()) {
+                if (line.toLowerCase().startsWith("range:")) {
+                    range = line.substring("range:".length()).trim();
+                }
+                line = reader.readLine();
+            }
+
+            int start = 0;
+            int end = modelBytes.length - 1;
+            String status = "200 OK";
+            StringBuilder headers = new StringBuilder();
+            if (supportsRanges && range != null && range.startsWith("bytes=")) {
+                String[] bounds = range.substring("bytes=".length()).split("-");
+                start = Integer.parseInt(bounds[0]);
+                if (bounds.length > 1 && !bounds[1].isEmpty()) {
+                    end = Math.min(end, Integer.parseInt(bounds[1]));
+                }
+                status = "206 Partial Content";
+                rangeRequests.incrementAndGet();
+                headers.append("Content-Range: bytes ").append(start).append("-").append(end).append("/").append(modelBytes.length).append("\r\n");
+            }
+            int length = end - start + 1;
+            headers.append("Content-Length: ").append(length).append("\r\n");
+            headers.append("Connection: close\r\n");
+
+            OutputStream outputStream = socket.getOutputStream();
+            outputStream.write(("HTTP/1.1 " + status + "\r\n" + headers + "\r\n").getBytes("US-ASCII"));
+            outputStream.write(modelBytes, start, length);
+            outputStream.flush();
+        } catch (IOException e) {
+            // The client may hang up early (e.g the size probe)
+        } finally {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // Ignore
+            }
+        }
+    }
+
+    private static byte[] readFile(File file) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (FileInputStream inputStream = new FileInputStream(file)) {
+            byte[] buffer = new byte[8192];
+            int dataSize;
+            while ((dataSize = inputStream.read(buffer)) != -1) {
+                bytes.write(buffer, 0, dataSize);
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static String sha256(byte[] bytes) throws IOException {
+        File file = File.createTempFile("expected", ".bin");
+        try {
+            try (FileOutputStream outputStream = new FileOutputStream(file)) {
+                outputStream.write(bytes);
+            }
+            return ModelDownloader.sha256(file);
+        } finally {
+            file.delete();
+        }
+    }
+}
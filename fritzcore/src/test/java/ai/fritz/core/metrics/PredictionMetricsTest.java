@@ -0,0 +1,98 @@
+package ai.fritz.core.metrics;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.Map;
+
+import ai.fritz.core.BaseUnitTest;
+import ai.fritz.core.testutils.TestConstants;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 27, packageName = "ai.fritz.sdkapp")
+public class PredictionMetricsTest extends BaseUnitTest {
+
+    private static final long NANOS_PER_MILLI = 1_000_000L;
+
+    @Before
+    public void setup() {
+        super.setup();
+        PredictionMetrics.reset();
+    }
+
+    @After
+    public void tearDown() {
+        PredictionMetrics.reset();
+    }
+
+    @Test
+    public void testPercentiles() {
+        // 1ms to 100ms
+        for (int i = 1; i <= 100; i++) {
+            PredictionMetrics.record(TestConstants.TEST_MODEL_ID, PredictionStage.INFERENCE, i * NANOS_PER_MILLI);
+        }
+
+        HistogramSnapshot snapshot = PredictionMetrics.snapshot(TestConstants.TEST_MODEL_ID, PredictionStage.INFERENCE);
+        assertEquals(100, snapshot.getCount());
+        assertEquals(100 * NANOS_PER_MILLI, snapshot.getMaxNanos());
+
+        // Buckets are 25% wide so the estimates are within that range.
+        assertWithinBucket(50 * NANOS_PER_MILLI, snapshot.getP50Nanos());
+        assertWithinBucket(95 * NANOS_PER_MILLI, snapshot.getP95Nanos());
+        assertWithinBucket(99 * NANOS_PER_MILLI, snapshot.getP99Nanos());
+        assertTrue(snapshot.getP99Nanos() <= snapshot.getMaxNanos());
+    }
+
+    @Test
+    public void testStagesAreSeparate() {
+        PredictionMetrics.record(TestConstants.TEST_MODEL_ID, PredictionStage.PREPROCESS, NANOS_PER_MILLI);
+        PredictionMetrics.record(TestConstants.TEST_MODEL_ID, PredictionStage.PREPROCESS, NANOS_PER_MILLI);
+        PredictionMetrics.record(TestConstants.TEST_MODEL_ID, PredictionStage.POSTPROCESS, NANOS_PER_MILLI);
+
+        Map<PredictionStage, HistogramSnapshot> stages = PredictionMetrics.snapshot(TestConstants.TEST_MODEL_ID);
+        assertEquals(2, stages.get(PredictionStage.PREPROCESS).getCount());
+        assertEquals(0, stages.get(PredictionStage.INFERENCE).getCount());
+        assertEquals(1, stages.get(PredictionStage.POSTPROCESS).getCount());
+        assertTrue(PredictionMetrics.snapshot().containsKey(TestConstants.TEST_MODEL_ID));
+    }
+
+    @Test
+    public void testReset() {
+        PredictionMetrics.record(TestConstants.TEST_MODEL_ID, PredictionStage.INFERENCE, NANOS_PER_MILLI);
+        PredictionMetrics.reset();
+
+        HistogramSnapshot snapshot = PredictionMetrics.snapshot(TestConstants.TEST_MODEL_ID, PredictionStage.INFERENCE);
+        assertEquals(0, snapshot.getCount());
+        assertEquals(0, snapshot.getP50Nanos());
+    }
+
+    @Test
+    public void testDisabled() {
+        PredictionMetrics.setEnabled(false);
+        PredictionMetrics.record(TestConstants.TEST_MODEL_ID, PredictionStage.INFERENCE, NANOS_PER_MILLI);
+        PredictionMetrics.setEnabled(true);
+
+        assertEquals(0, PredictionMetrics.snapshot(TestConstants.TEST_MODEL_ID, PredictionStage.INFERENCE).getCount());
+    }
+
+    @Test
+    public void testOverflowBucket() {
+        long[] bounds = LatencyHistogram.BUCKET_UPPER_BOUNDS_NANOS;
+        long overflow = bounds[bounds.length - 1] * 2;
+        PredictionMetrics.record(TestConstants.TEST_MODEL_ID, PredictionStage.INFERENCE, overflow);
+
+        HistogramSnapshot snapshot = PredictionMetrics.snapshot(TestConstants.TEST_MODEL_ID, PredictionStage.INFERENCE);
+        assertEquals(overflow, snapshot.getP99Nanos());
+    }
+
+    private static void assertWithinBucket(long expected, long actual) {
+        assertTrue("Expected ~" + expected + " but was " + actual, actual >= expected && actual <= expected * 1.25);
+    }
+}
@@ -0,0 +1,106 @@
+package ai.fritz.sdktests;
+
+import androidx.test.runner.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import ai.fritz.vision.FritzVision;
+import ai.fritz.vision.FritzVisionImage;
+import ai.fritz.vision.base.AsyncPredictionStats;
+import ai.fritz.vision.base.OverflowPolicy;
+import ai.fritz.vision.base.PredictionCallback;
+import ai.fritz.vision.imagelabeling.FritzVisionLabelPredictor;
+import ai.fritz.vision.imagelabeling.FritzVisionLabelPredictorOptions;
+import ai.fritz.vision.imagelabeling.FritzVisionLabelResult;
+import ai.fritz.vision.imagelabeling.LabelingOnDeviceModel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for predictAsync and its overflow policies.
+ */
+@RunWith(AndroidJUnit4.class)
+public class AsyncPredictionTests extends BaseFritzTest {
+
+    private static final int NUM_FRAMES = 20;
+
+    private final AtomicInteger callbackCount = new AtomicInteger();
+
+    @Test
+    public void testKeepLatest() throws InterruptedException {
+        AsyncPredictionStats stats = submitFrames(OverflowPolicy.KEEP_LATEST, 1);
+
+        assertEquals(NUM_FRAMES, stats.getSubmittedCount());
+        assertEquals(NUM_FRAMES, stats.getDroppedCount() + stats.getCompletedCount());
+        assertEquals(0, stats.getFailedCount());
+        // Every accepted frame hears back, including the ones replaced before they ran.
+        assertEquals(NUM_FRAMES, callbackCount.get());
+    }
+
+    @Test
+    public void testDropNewest() throws InterruptedException {
+        AsyncPredictionStats stats = submitFrames(OverflowPolicy.DROP_NEWEST, 1);
+
+        assertEquals(NUM_FRAMES, stats.getDroppedCount() + stats.getCompletedCount());
+        assertTrue(stats.getDroppedCount() > 0);
+    }
+
+    @Test
+    public void testBoundedQueue() throws InterruptedException {
+        AsyncPredictionStats stats = submitFrames(OverflowPolicy.BOUNDED_QUEUE, NUM_FRAMES);
+
+        // The queue is large enough for every frame.
+        assertEquals(0, stats.getDroppedCount());
+        assertEquals(NUM_FRAMES, stats.getCompletedCount());
+    }
+
+    private AsyncPredictionStats submitFrames(OverflowPolicy overflowPolicy, int maxQueued) throws InterruptedException {
+        FritzVisionImage testImage = TestingAssetHelper.getVisionImageForAsset(appContext, TestingAsset.TIGER);
+        LabelingOnDeviceModel onDeviceModel = LabelingOnDeviceModel.buildFromModelConfigFile("labeling_animals.json");
+
+        FritzVisionLabelPredictorOptions options = new FritzVisionLabelPredictorOptions();
+        options.overflowPolicy = overflowPolicy;
+        options.maxQueuedPredictions = maxQueued;
+        FritzVisionLabelPredictor predictor = FritzVision.ImageLabeling.getPredictor(onDeviceModel, options);
+
+        int accepted = 0;
+        PredictionCallback<FritzVisionLabelResult> callback = new PredictionCallback<FritzVisionLabelResult>() {
+            @Override
+            public void onPredictionComplete(FritzVisionImage visionImage, FritzVisionLabelResult result) {
+                callbackCount.incrementAndGet();
+            }
+
+            @Override
+            public void onPredictionFailed(FritzVisionImage visionImage, RuntimeException exception) {
+                callbackCount.incrementAndGet();
+                if (!(exception instanceof CancellationException)) {
+                    fail(exception.getMessage());
+                }
+            }
+        };
+        for (int i = 0; i < NUM_FRAMES; i++) {
+            if (predictor.predictAsync(testImage, callback)) {
+                accepted++;
+            }
+        }
+
+        // Wait until every frame has either completed or been dropped, and every accepted frame got its callback.
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS);
+        AsyncPredictionStats stats = predictor.getAsyncStats();
+        while ((stats.getCompletedCount() + stats.getDroppedCount() < NUM_FRAMES || callbackCount.get() < accepted)
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            stats = predictor.getAsyncStats();
+        }
+        assertTrue(accepted >= stats.getCompletedCount());
+        predictor.close();
+        return stats;
+    }
+}
@@ -0,0 +1,82 @@
+package ai.fritz.sdktests;
+
+import androidx.test.runner.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.List;
+
+import ai.fritz.core.InterpreterAutoTuner;
+import ai.fritz.core.InterpreterConfig;
+import ai.fritz.vision.FritzVision;
+import ai.fritz.vision.FritzVisionImage;
+import ai.fritz.vision.imagelabeling.FritzVisionLabelPredictor;
+import ai.fritz.vision.imagelabeling.FritzVisionLabelPredictorOptions;
+import ai.fritz.vision.imagelabeling.FritzVisionLabelResult;
+import ai.fritz.vision.imagelabeling.LabelingOnDeviceModel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for picking interpreter options with the auto tuner.
+ */
+@RunWith(AndroidJUnit4.class)
+public class AutoTuneTests extends BaseFritzTest {
+
+    private static final long TUNE_TIMEOUT_MS = 30000;
+
+    @Test
+    public void testAutoTunePersistsChoice() throws InterruptedException {
+        FritzVisionImage testImage = TestingAssetHelper.getVisionImageForAsset(appContext, TestingAsset.TIGER);
+        LabelingOnDeviceModel onDeviceModel = LabelingOnDeviceModel.buildFromModelConfigFile("labeling_animals.json");
+        InterpreterAutoTuner.clearTunedConfig(appContext, onDeviceModel);
+
+        FritzVisionLabelPredictorOptions options = new FritzVisionLabelPredictorOptions();
+        options.autoTune = true;
+        int numThreads = options.numThreads;
+        List<InterpreterConfig> candidates = options.getAutoTuneCandidates();
+        FritzVisionLabelPredictor predictor = FritzVision.ImageLabeling.getPredictor(onDeviceModel, options);
+
+        // Tuning runs in the background and predictions work in the meantime.
+        FritzVisionLabelResult result = predictor.predict(testImage);
+        assertTrue(result.getVisionLabels().size() > 0);
+
+        InterpreterConfig tuned = waitForTunedConfig(onDeviceModel, candidates);
+        assertNotNull(tuned);
+        assertFalse(tuned.getUseGPU());
+        // The caller's options are left alone.
+        assertEquals(numThreads, options.numThreads);
+        assertFalse(options.useNNAPI);
+
+        // The predictor switches to the tuned settings once they're known.
+        long deadline = System.currentTimeMillis() + TUNE_TIMEOUT_MS;
+        while (!tuned.equals(predictor.getInterpreterConfig()) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        assertEquals(tuned, predictor.getInterpreterConfig());
+        result = predictor.predict(testImage);
+        assertTrue(result.getVisionLabels().size() > 0);
+        predictor.close();
+
+        // A new predictor picks up the saved choice without tuning again.
+        FritzVisionLabelPredictorOptions nextOptions = new FritzVisionLabelPredictorOptions();
+        nextOptions.autoTune = true;
+        FritzVisionLabelPredictor nextPredictor = FritzVision.ImageLabeling.getPredictor(onDeviceModel, nextOptions);
+        assertEquals(tuned, nextPredictor.getInterpreterConfig());
+        nextPredictor.close();
+    }
+
+    private InterpreterConfig waitForTunedConfig(LabelingOnDeviceModel onDeviceModel, List<InterpreterConfig> candidates) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TUNE_TIMEOUT_MS;
+        InterpreterConfig saved = InterpreterAutoTuner.getSavedConfig(appContext, onDeviceModel, candidates);
+        while (saved == null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+            saved = InterpreterAutoTuner.getSavedConfig(appContext, onDeviceModel, candidates);
+        }
+        return saved;
+    }
+}
@@ -13,17 +13,22 @@ import java.net.HttpURLConnection;
 import java.net.URL;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import ai.fritz.core.Fritz;
 import ai.fritz.core.api.DownloadModelTask;
+import ai.fritz.core.api.ModelDownloader;
 import ai.fritz.core.utils.PreferenceManager;
 import ai.fritz.sdktests.BaseFritzTest;
 
 import static junit.framework.TestCase.assertTrue;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.fail;
 
 public class DownloadModelTests extends BaseFritzTest {
     private static final String DUMMY_URL = "https://www.w3.org/WAI/ER/tests/xhtml/testfiles/resources/pdf/dummy.pdf";
+    private static final String UNREACHABLE_URL = "http://127.0.0.1:1/dummy.pdf";
     private static final String DUMMY_NAME = "dumdum";
     private static final int READ_BYTE_BUFFER_LENGTH = 8192;
     private static final int TIMEOUT_SECONDS = 10;
@@ -41,41 +46,48 @@ public class DownloadModelTests extends BaseFritzTest {
     }
 
     @Test
-    public void testDownloadExists() {
+    public void testDownloadExists() throws IOException {
         // Download the whole file
         downloadFile(2);
+        final long existingLength = file.length();
+        String checksum = ModelDownloader.sha256(file);
 
         final CountDownLatch latch = new CountDownLatch(1);
+        final AtomicBoolean succeeded = new AtomicBoolean(false);
         DownloadModelTask.PostExecuteListener listener = new DownloadModelTask.PostExecuteListener() {
             @Override
             public void onSuccess(String absolutePath) {
-                fail("Download should not resume.");
+                succeeded.set(true);
+                latch.countDown();
             }
 
             @Override
             public void onFailure() {
-                // File already completely written and should not be downloaded again
                 latch.countDown();
             }
         };
 
-        DownloadModelTask task = new DownloadModelTask(DUMMY_NAME, MODEL_VERSION, appContext.getFilesDir(), listener);
-        task.execute(DUMMY_URL);
+        // File already completely written and should not be downloaded again, so the url is never requested.
+        DownloadModelTask task = new DownloadModelTask(DUMMY_NAME, MODEL_VERSION, appContext.getFilesDir(), listener, checksum);
+        task.execute(UNREACHABLE_URL);
 
         try {
             latch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
         } catch (InterruptedException e) {
             fail("Interrupted.");
         }
+
+        assertTrue(succeeded.get());
+        assertEquals(existingLength, file.length());
     }
 
     @Ignore("Skipping test that involve the Fritz AI backend.")
     @Test
-    public void testResumeDownload() {
+    public void testPartialFileIsReplaced() {
         // Download half the file
         downloadFile(1);
         final long startingLength = file.length();
-        
+
         // The file already has contents
         assertTrue(startingLength > 0);
 
@@ -88,7 +100,7 @@ public class DownloadModelTests extends BaseFritzTest {
 
             @Override
             public void onFailure() {
-                fail("Download not resumed.");
+                fail("Download failed.");
             }
         };
 
@@ -102,11 +114,44 @@ public class DownloadModelTests extends BaseFritzTest {
         }
 
         final long endingLength = file.length();
-        
-        // The file has more written to it
+
+        // The complete file replaced the partial one
         assertTrue(endingLength > startingLength);
     }
 
+    @Test
+    public void testChecksumMismatchFails() {
+        file.delete();
+
+        final CountDownLatch latch = new CountDownLatch(1);
+        final AtomicBoolean failed = new AtomicBoolean(false);
+        DownloadModelTask.PostExecuteListener listener = new DownloadModelTask.PostExecuteListener() {
+            @Override
+            public void onSuccess(String absolutePath) {
+                latch.countDown();
+            }
+
+            @Override
+            public void onFailure() {
+                failed.set(true);
+                latch.countDown();
+            }
+        };
+
+        String wrongChecksum = "0000000000000000000000000000000000000000000000000000000000000000";
+        DownloadModelTask task = new DownloadModelTask(DUMMY_NAME, MODEL_VERSION, appContext.getFilesDir(), listener, wrongChecksum);
+        task.execute(DUMMY_URL);
+
+        try {
+            latch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            fail("Interrupted.");
+        }
+
+        assertTrue(failed.get());
+        assertFalse(file.exists());
+    }
+
     /**
      * Downloads a specified amount of the target file.
      * Test file has a total size of ~13kB and finishes being read in 2 segments.
@@ -5,6 +5,8 @@ import androidx.test.runner.AndroidJUnit4;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
@@ -20,6 +22,7 @@ import ai.fritz.vision.imagelabeling.FritzVisionLabelResult;
 import ai.fritz.vision.imagelabeling.LabelingManagedModel;
 import ai.fritz.vision.imagelabeling.LabelingOnDeviceModel;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -95,4 +98,30 @@ public class ImageLabelingModelTests extends BaseFritzTest {
         // Assert that the confidence level is greater than the threshold.
         assertTrue(visionLabel.getConfidence() >= .3f);
     }
+
+    @Test
+    public void testPredictBatch() {
+        FritzVisionImage tigerImage = TestingAssetHelper.getVisionImageForAsset(appContext, TestingAsset.TIGER);
+        FritzVisionImage catImage = TestingAssetHelper.getVisionImageForAsset(appContext, TestingAsset.CAT);
+
+        FritzVisionLabelPredictorOptions options = new FritzVisionLabelPredictorOptions();
+        options.maxBatchSize = 2;
+        LabelingOnDeviceModel onDeviceModel = FritzVisionModels.getImageLabelingOnDeviceModel();
+        FritzVisionLabelPredictor predictor = FritzVision.ImageLabeling.getPredictor(onDeviceModel, options);
+
+        // 3 images with a max batch size of 2 runs a full and a partial batch.
+        List<FritzVisionImage> images = new ArrayList<>();
+        images.add(catImage);
+        images.add(tigerImage);
+        images.add(catImage);
+        List<FritzVisionLabelResult> results = predictor.predictBatch(images);
+        assertEquals(3, results.size());
+        new LabelResultValidator(results.get(0)).assertLabelExists("cat");
+        new LabelResultValidator(results.get(2)).assertLabelExists("cat");
+
+        // Single predictions still work after running a batch.
+        FritzVisionLabelResult labelResult = predictor.predict(catImage);
+        new LabelResultValidator(labelResult).assertLabelExists("cat");
+        predictor.close();
+    }
 }
@@ -0,0 +1,160 @@
+package ai.fritz.sdktests;
+
+import android.graphics.Bitmap;
+import android.graphics.Rect;
+import android.util.Log;
+import android.util.Size;
+
+import androidx.test.runner.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import ai.fritz.vision.ByteImage;
+import ai.fritz.vision.FritzVision;
+import ai.fritz.vision.FritzVisionImage;
+import ai.fritz.vision.ImageOrientation;
+import ai.fritz.vision.ImageProcessingBackend;
+import ai.fritz.vision.ImageProcessingPipeline;
+import ai.fritz.vision.JavaProcessingBackend;
+import ai.fritz.vision.ProcessingContext;
+import ai.fritz.vision.ProcessingContextStats;
+import ai.fritz.vision.RenderScriptBackend;
+import ai.fritz.vision.ResizeMethod;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compare the Java image processing backend against RenderScript.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ImageProcessingBackendTest extends BaseFritzTest {
+
+    private static final String TAG = ImageProcessingBackendTest.class.getSimpleName();
+    private static final int MAX_CHANNEL_DIFFERENCE = 2;
+
+    private final ImageProcessingBackend renderScript = new RenderScriptBackend();
+    private final ImageProcessingBackend java = new JavaProcessingBackend();
+
+    @Test
+    public void testOrientationsMatch() {
+        Bitmap bitmap = TestingAssetHelper.getBitmapForAsset(appContext, TestingAsset.FAMILY);
+        for (ImageOrientation orientation : ImageOrientation.values()) {
+            ByteImage expected = orient(bitmap, orientation, renderScript);
+            ByteImage actual = orient(bitmap, orientation, java);
+
+            assertEquals(expected.getWidth(), actual.getWidth());
+            assertEquals(expected.getHeight(), actual.getHeight());
+            assertArrayEquals(orientation.name(), expected.getCopyOfImageData(), actual.getCopyOfImageData());
+        }
+    }
+
+    @Test
+    public void testResizesMatch() {
+        Bitmap bitmap = TestingAssetHelper.getBitmapForAsset(appContext, TestingAsset.FAMILY);
+        Size[] sizes = new Size[]{new Size(224, 224), new Size(bitmap.getWidth() * 2, bitmap.getHeight() / 3)};
+        for (ResizeMethod method : ResizeMethod.values()) {
+            for (Size size : sizes) {
+                byte[] expected = resize(bitmap, size, method, renderScript);
+                byte[] actual = resize(bitmap, size, method, java);
+                assertClose(method.name() + " " + size, expected, actual);
+            }
+        }
+    }
+
+    @Test
+    public void testFusedTransformsMatch() {
+        Bitmap bitmap = TestingAssetHelper.getBitmapForAsset(appContext, TestingAsset.FAMILY);
+        for (ResizeMethod method : ResizeMethod.values()) {
+            for (ImageOrientation orientation : ImageOrientation.values()) {
+                byte[] expected = orientAndResize(bitmap, orientation, method, renderScript);
+                byte[] actual = orientAndResize(bitmap, orientation, method, java);
+                assertClose(method.name() + " " + orientation.name(), expected, actual);
+            }
+        }
+    }
+
+    @Test
+    public void testPreparedInputsMatch() {
+        Bitmap bitmap = TestingAssetHelper.getBitmapForAsset(appContext, TestingAsset.FAMILY);
+        Size inputSize = new Size(257, 257);
+
+        FritzVisionImage renderScriptImage = FritzVisionImage.fromBitmap(bitmap, ImageOrientation.RIGHT);
+        renderScriptImage.setProcessingBackend(renderScript);
+        FritzVisionImage javaImage = FritzVisionImage.fromBitmap(bitmap, ImageOrientation.RIGHT);
+        javaImage.setProcessingBackend(java);
+
+        assertClose("prepareBytes",
+                renderScriptImage.prepareBytes(inputSize).getCopyOfImageData(),
+                javaImage.prepareBytes(inputSize).getCopyOfImageData());
+    }
+
+    @Test
+    public void testConcurrentRenderScriptPipelines() throws InterruptedException {
+        final Bitmap bitmap = TestingAssetHelper.getBitmapForAsset(appContext, TestingAsset.FAMILY);
+        final byte[] expected = orientAndResize(bitmap, ImageOrientation.RIGHT_MIRRORED, ResizeMethod.BILINEAR, renderScript);
+        int threadCount = 4;
+        final int iterations = 10;
+        final CountDownLatch done = new CountDownLatch(threadCount);
+        final AtomicInteger mismatches = new AtomicInteger();
+        ProcessingContext.resetStats();
+
+        for (int i = 0; i < threadCount; i++) {
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < iterations; j++) {
+                        byte[] actual = orientAndResize(bitmap, ImageOrientation.RIGHT_MIRRORED, ResizeMethod.BILINEAR, renderScript);
+                        if (!Arrays.equals(expected, actual)) {
+                            mismatches.incrementAndGet();
+                        }
+                    }
+                    done.countDown();
+                }
+            }).start();
+        }
+
+        assertTrue(done.await(60, TimeUnit.SECONDS));
+        assertEquals(0, mismatches.get());
+        ProcessingContextStats stats = FritzVision.getImageProcessingStats();
+        Log.d(TAG, "Processing contexts: " + stats);
+        assertEquals(threadCount * iterations, stats.getLeaseCount());
+        assertTrue(stats.getContextCount() >= 1);
+    }
+
+    private static ByteImage orient(Bitmap bitmap, ImageOrientation orientation, ImageProcessingBackend backend) {
+        ImageProcessingPipeline pipeline = new ImageProcessingPipeline(bitmap, backend);
+        pipeline.orient(orientation);
+        return pipeline.buildByteImage();
+    }
+
+    private static byte[] resize(Bitmap bitmap, Size size, ResizeMethod method, ImageProcessingBackend backend) {
+        ImageProcessingPipeline pipeline = new ImageProcessingPipeline(bitmap, backend);
+        pipeline.resize(size, method);
+        return pipeline.buildByteImage().getCopyOfImageData();
+    }
+
+    private static byte[] orientAndResize(Bitmap bitmap, ImageOrientation orientation, ResizeMethod method,
+                                          ImageProcessingBackend backend) {
+        ImageProcessingPipeline pipeline = new ImageProcessingPipeline(bitmap, backend);
+        pipeline.orient(orientation);
+        pipeline.crop(new Rect(0, 0, pipeline.getWidth() / 2, pipeline.getHeight()));
+        pipeline.resize(new Size(227, 227), method);
+        return pipeline.buildByteImage().getCopyOfImageData();
+    }
+
+    private static void assertClose(String message, byte[] expected, byte[] actual) {
+        assertEquals(message, expected.length, actual.length);
+        for (int i = 0; i < expected.length; i++) {
+            int difference = Math.abs((expected[i] & 0xff) - (actual[i] & 0xff));
+            assertTrue(message + " at " + i + ": " + difference, difference <= MAX_CHANNEL_DIFFERENCE);
+        }
+    }
+}
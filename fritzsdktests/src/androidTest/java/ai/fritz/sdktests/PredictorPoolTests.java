@@ -0,0 +1,114 @@
+package ai.fritz.sdktests;
+
+import androidx.test.runner.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import ai.fritz.vision.FritzVision;
+import ai.fritz.vision.FritzVisionImage;
+import ai.fritz.vision.FritzVisionLabel;
+import ai.fritz.vision.base.FritzVisionPredictorPool;
+import ai.fritz.vision.base.FritzVisionPredictorPoolOptions;
+import ai.fritz.vision.base.LeasePolicy;
+import ai.fritz.vision.base.PredictorPoolExhaustedException;
+import ai.fritz.vision.imagelabeling.FritzVisionLabelPredictor;
+import ai.fritz.vision.imagelabeling.FritzVisionLabelResult;
+import ai.fritz.vision.imagelabeling.LabelingOnDeviceModel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for running predictions concurrently with a predictor pool.
+ */
+@RunWith(AndroidJUnit4.class)
+public class PredictorPoolTests extends BaseFritzTest {
+
+    private static final int POOL_SIZE = 3;
+    private static final int NUM_THREADS = 8;
+    private static final int PREDICTIONS_PER_THREAD = 10;
+
+    @Test
+    public void testConcurrentPredictions() throws Exception {
+        final FritzVisionImage testImage = TestingAssetHelper.getVisionImageForAsset(appContext, TestingAsset.TIGER);
+        LabelingOnDeviceModel onDeviceModel = LabelingOnDeviceModel.buildFromModelConfigFile("labeling_animals.json");
+
+        // Single threaded result to compare against
+        FritzVisionLabelPredictor predictor = FritzVision.ImageLabeling.getPredictor(onDeviceModel);
+        final FritzVisionLabelResult expected = predictor.predict(testImage);
+        predictor.close();
+
+        FritzVisionPredictorPoolOptions poolOptions = new FritzVisionPredictorPoolOptions();
+        poolOptions.poolSize = POOL_SIZE;
+        final FritzVisionPredictorPool<FritzVisionLabelPredictor> pool = FritzVision.ImageLabeling.getPredictorPool(onDeviceModel, poolOptions);
+
+        ExecutorService executor = Executors.newFixedThreadPool(NUM_THREADS);
+        List<Future<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < NUM_THREADS; i++) {
+            futures.add(executor.submit(new Callable<Integer>() {
+                @Override
+                public Integer call() {
+                    int completed = 0;
+                    for (int j = 0; j < PREDICTIONS_PER_THREAD; j++) {
+                        FritzVisionLabelResult result = pool.predict(testImage);
+                        assertSameLabels(expected, result);
+                        completed++;
+                    }
+                    return completed;
+                }
+            }));
+        }
+
+        int totalCompleted = 0;
+        for (Future<Integer> future : futures) {
+            totalCompleted += future.get(TIMEOUT_SECONDS * 6, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertEquals(NUM_THREADS * PREDICTIONS_PER_THREAD, totalCompleted);
+        assertTrue(pool.getCreatedCount() <= POOL_SIZE);
+        assertEquals(pool.getCreatedCount(), pool.getIdleCount());
+        pool.close();
+    }
+
+    @Test
+    public void testFailFastWhenExhausted() {
+        LabelingOnDeviceModel onDeviceModel = LabelingOnDeviceModel.buildFromModelConfigFile("labeling_animals.json");
+
+        FritzVisionPredictorPoolOptions poolOptions = new FritzVisionPredictorPoolOptions();
+        poolOptions.poolSize = 1;
+        poolOptions.leasePolicy = LeasePolicy.FAIL_FAST;
+        FritzVisionPredictorPool<FritzVisionLabelPredictor> pool = FritzVision.ImageLabeling.getPredictorPool(onDeviceModel, poolOptions);
+
+        FritzVisionLabelPredictor leased = pool.acquire();
+        try {
+            pool.acquire();
+            fail();
+        } catch (PredictorPoolExhaustedException e) {
+            // Expected
+        }
+        pool.release(leased);
+        pool.release(pool.acquire());
+        pool.close();
+    }
+
+    private static void assertSameLabels(FritzVisionLabelResult expected, FritzVisionLabelResult actual) {
+        List<FritzVisionLabel> expectedLabels = expected.getVisionLabels();
+        List<FritzVisionLabel> actualLabels = actual.getVisionLabels();
+        assertEquals(expectedLabels.size(), actualLabels.size());
+        for (int i = 0; i < expectedLabels.size(); i++) {
+            assertEquals(expectedLabels.get(i).getText(), actualLabels.get(i).getText());
+            assertEquals(expectedLabels.get(i).getConfidence(), actualLabels.get(i).getConfidence(), 1e-5f);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package ai.fritz.sdktests;
+
+import android.util.Log;
+
+import androidx.test.runner.AndroidJUnit4;
+
+import org.junit.Ignore;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.tensorflow.lite.Tensor;
+
+import java.nio.ByteBuffer;
+
+import ai.fritz.core.FritzTFLiteInterpreter;
+import ai.fritz.core.OutputTensor;
+import ai.fritz.core.TensorView;
+import ai.fritz.vision.FritzVisionModels;
+import ai.fritz.vision.ModelVariant;
+import ai.fritz.vision.imagesegmentation.SegmentationOnDeviceModel;
+
+/**
+ * Compares reading a segmentation output element by element through the tensor (looking up the
+ * shape and data type for every element) with the precomputed {@link TensorView}.
+ */
+@RunWith(AndroidJUnit4.class)
+public class TensorViewBenchmarkTests extends BaseFritzTest {
+    private static final String TAG = TensorViewBenchmarkTests.class.getSimpleName();
+    private static final int NUM_ITERATIONS = 20;
+    private static final int WARM_UP_ITERATIONS = 3;
+
+    @Test
+    @Ignore
+    public void testOutputReadBenchmark() {
+        SegmentationOnDeviceModel onDeviceModel = FritzVisionModels.getPeopleSegmentationOnDeviceModel(ModelVariant.FAST);
+        FritzTFLiteInterpreter interpreter = new FritzTFLiteInterpreter(onDeviceModel);
+        OutputTensor outputTensor = new OutputTensor("Segmentation Output", 0);
+        outputTensor.setupOutputBuffer(interpreter);
+
+        int[] shape = outputTensor.getTensor().shape();
+        int height = shape[1];
+        int width = shape[2];
+        int numClasses = shape[3];
+
+        float legacySum = 0, viewSum = 0, bulkSum = 0;
+        for (int i = 0; i < WARM_UP_ITERATIONS; i++) {
+            legacySum += readLegacy(outputTensor.getTensor(), outputTensor.buffer, height, width, numClasses);
+            viewSum += readWithView(outputTensor.getView(), height, width, numClasses);
+            bulkSum += readBulk(outputTensor.getView(), height, width, numClasses, new float[width * numClasses]);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < NUM_ITERATIONS; i++) {
+            legacySum += readLegacy(outputTensor.getTensor(), outputTensor.buffer, height, width, numClasses);
+        }
+        long legacyNanos = (System.nanoTime() - start) / NUM_ITERATIONS;
+
+        start = System.nanoTime();
+        for (int i = 0; i < NUM_ITERATIONS; i++) {
+            viewSum += readWithView(outputTensor.getView(), height, width, numClasses);
+        }
+        long viewNanos = (System.nanoTime() - start) / NUM_ITERATIONS;
+
+        float[] row = new float[width * numClasses];
+        start = System.nanoTime();
+        for (int i = 0; i < NUM_ITERATIONS; i++) {
+            bulkSum += readBulk(outputTensor.getView(), height, width, numClasses, row);
+        }
+        long bulkNanos = (System.nanoTime() - start) / NUM_ITERATIONS;
+
+        interpreter.close();
+
+        Log.d(TAG, "Output " + height + "x" + width + "x" + numClasses + " (checksums " + legacySum + ", " + viewSum + ", " + bulkSum + ")");
+        Log.d(TAG, "Per element shape / data type lookups: " + legacyNanos / 1000 + "us");
+        Log.d(TAG, "TensorView.getFloat3D: " + viewNanos / 1000 + "us");
+        Log.d(TAG, "TensorView.readFloats rows: " + bulkNanos / 1000 + "us");
+    }
+
+    /**
+     * How OutputTensor.getFloat3D read elements before the view was added.
+     */
+    private static float readLegacy(Tensor tensor, ByteBuffer buffer, int height, int width, int numClasses) {
+        float sum = 0;
+        for (int row = 0; row < height; row++) {
+            for (int col = 0; col < width; col++) {
+                for (int c = 0; c < numClasses; c++) {
+                    int[] shape = tensor.shape();
+                    int numChannels = shape[shape.length - 1];
+                    int numColumns = shape[shape.length - 2];
+                    int byteSize = tensor.dataType().byteSize();
+                    sum += buffer.getFloat(byteSize * (row * numChannels * numColumns + col * numChannels + c));
+                }
+            }
+        }
+        return sum;
+    }
+
+    private static float readWithView(TensorView view, int height, int width, int numClasses) {
+        float sum = 0;
+        for (int row = 0; row < height; row++) {
+            for (int col = 0; col < width; col++) {
+                for (int c = 0; c < numClasses; c++) {
+                    sum += view.getFloat3D(row, col, c);
+                }
+            }
+        }
+        return sum;
+    }
+
+    private static float readBulk(TensorView view, int height, int width, int numClasses, float[] rowValues) {
+        float sum = 0;
+        int rowLength = width * numClasses;
+        for (int row = 0; row < height; row++) {
+            view.readFloats(row * rowLength, rowValues);
+            for (int i = 0; i < rowLength; i++) {
+                sum += rowValues[i];
+            }
+        }
+        return sum;
+    }
+}
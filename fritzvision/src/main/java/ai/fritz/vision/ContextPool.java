@@ -0,0 +1,104 @@
+package ai.fritz.vision;
+
+import java.util.ArrayDeque;
+
+/**
+ * A bounded pool of objects leased out to one thread at a time.
+ * <p>
+ * Objects are created on demand up to the maximum. After that, callers wait for one to be released,
+ * which is counted as contention.
+ *
+ * @param <T> The pooled type.
+ */
+abstract class ContextPool<T> {
+
+    private final int maxSize;
+    private final ArrayDeque<T> idle = new ArrayDeque<>();
+    private int createdCount;
+    private long leaseCount;
+    private long contendedLeaseCount;
+    private long leaseWaitNanos;
+
+    ContextPool(int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("A pool needs room for at least one object");
+        }
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Create a new object for the pool. Called without holding the pool's lock.
+     */
+    protected abstract T create();
+
+    /**
+     * Lease an object, waiting for one to be released if they're all in use.
+     * <p>
+     * Hand it back with {@link #release(Object)} when done.
+     */
+    T acquire() {
+        synchronized (this) {
+            leaseCount++;
+            // The most recently released object is the most likely to still be warm.
+            T object = idle.pollLast();
+            if (object != null) {
+                return object;
+            }
+            if (createdCount >= maxSize) {
+                object = waitForRelease();
+                if (object != null) {
+                    return object;
+                }
+            }
+            createdCount++;
+        }
+
+        try {
+            return create();
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                createdCount--;
+                notifyAll();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Wait until an object is released.
+     *
+     * @return the released object, or null if one failed to be created and there's room for another.
+     */
+    private T waitForRelease() {
+        contendedLeaseCount++;
+        long start = System.nanoTime();
+        boolean interrupted = false;
+        while (idle.isEmpty() && createdCount >= maxSize) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        leaseWaitNanos += System.nanoTime() - start;
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        return idle.pollLast();
+    }
+
+    synchronized void release(T object) {
+        idle.addLast(object);
+        notify();
+    }
+
+    synchronized ProcessingContextStats getStats() {
+        return new ProcessingContextStats(createdCount, idle.size(), leaseCount, contendedLeaseCount, leaseWaitNanos);
+    }
+
+    synchronized void resetStats() {
+        leaseCount = 0;
+        contendedLeaseCount = 0;
+        leaseWaitNanos = 0;
+    }
+}
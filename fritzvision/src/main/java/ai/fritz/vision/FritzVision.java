@@ -38,7 +38,31 @@ public class FritzVision {
      */
     public static void preload() {
         // Creates the processing
-        ProcessingContext.getInstance();
+        if (ImageProcessingPipeline.getDefaultBackend() instanceof RenderScriptBackend) {
+            ProcessingContext.acquire().release();
+        }
+    }
+
+    /**
+     * Set the backend that orients and resizes images, for every image without its own backend.
+     * <p>
+     * Defaults to {@link RenderScriptBackend}. Use {@link JavaProcessingBackend} to avoid RenderScript.
+     *
+     * @param backend The backend, or null for the default.
+     */
+    public static void setImageProcessingBackend(ImageProcessingBackend backend) {
+        ImageProcessingPipeline.setDefaultBackend(backend);
+    }
+
+    public static ImageProcessingBackend getImageProcessingBackend() {
+        return ImageProcessingPipeline.getDefaultBackend();
+    }
+
+    /**
+     * Get how often image operations waited for a RenderScript context to be free.
+     */
+    public static ProcessingContextStats getImageProcessingStats() {
+        return ProcessingContext.getStats();
     }
 
 
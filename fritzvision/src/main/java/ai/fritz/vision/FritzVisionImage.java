@@ -10,7 +10,6 @@ import android.graphics.PorterDuff;
 import android.graphics.PorterDuffXfermode;
 import android.graphics.RectF;
 import android.media.Image;
-import android.renderscript.Allocation;
 import android.util.Base64;
 import android.util.Log;
 import android.util.Size;
@@ -23,6 +22,8 @@ import java.util.List;
 
 import ai.fritz.core.Fritz;
 import ai.fritz.core.annotations.Base64EncodableImage;
+import ai.fritz.core.annotations.RecordableImage;
+import ai.fritz.vision.base.PreprocessParams;
 import ai.fritz.vision.imagesegmentation.BlendMode;
 import ai.fritz.vision.poseestimation.Pose;
 import ai.fritz.vision.video.FritzVisionImageFilter;
@@ -35,7 +36,7 @@ import jp.co.cyberagent.android.gpuimage.filter.GPUImageTwoInputFilter;
 /**
  * FritzVisionImage is a standard input class for FritzVisionPredictors.
  */
-public class FritzVisionImage implements Base64EncodableImage {
+public class FritzVisionImage implements Base64EncodableImage, RecordableImage {
 
     private static final int COMPRESSION_QUALITY = 70;
     private static final String TAG = FritzVisionImage.class.getSimpleName();
@@ -65,6 +66,8 @@ public class FritzVisionImage implements Base64EncodableImage {
 
     /**
      * Convert a YUVImage in its raw form to a FritzVisionImage.
+     * <p>
+     * The YUVImage is closed by {@link #release()}.
      *
      * @param yuvImage The image to convert.
      * @return A FritzVisionImage object.
@@ -80,6 +83,8 @@ public class FritzVisionImage implements Base64EncodableImage {
     /**
      * Convert from a media image to a bitmap.
      * <p>
+     * YUV_420_888 images are copied, so the media image can be closed as soon as this returns.
+     * <p>
      * TODO: Need to test this out with other formats other than YUV_420.
      * https://developer.android.com/reference/android/media/Image
      *
@@ -99,6 +104,29 @@ public class FritzVisionImage implements Base64EncodableImage {
         return new FritzVisionImage(bitmapImage, orientation);
     }
 
+    /**
+     * Create a FritzVisionImage that reads a YUV_420_888 media image in place instead of copying it.
+     * <p>
+     * The FritzVisionImage takes ownership of the media image: don't close it yourself. It's closed
+     * by {@link #release()}, which must be called once you're done with the FritzVisionImage (e.g
+     * after running a prediction on it). Use {@link #fromMediaImage(Image, ImageOrientation)} if
+     * you need to close the media image straight away.
+     *
+     * @param image       The image to wrap.
+     * @param orientation the image orientation.
+     * @return A FritzVisionImage object.
+     */
+    public static FritzVisionImage wrapMediaImage(Image image, ImageOrientation orientation) {
+        if (image.getFormat() == ImageFormat.YUV_420_888) {
+            return new FritzVisionImage(YUVImage.wrap(image), orientation);
+        }
+
+        // Other formats are decoded, so there's nothing to keep open.
+        FritzVisionImage visionImage = fromMediaImage(image, orientation);
+        image.close();
+        return visionImage;
+    }
+
     /**
      * Convert a byte representation of an image to a FritzVisionImage.
      *
@@ -151,7 +179,8 @@ public class FritzVisionImage implements Base64EncodableImage {
     private ByteImage byteImage;
     private Type type;
 
-    private Allocation rotatedAllocation;
+    private ImageProcessingBackend processingBackend;
+    private ProcessingImage orientedImage;
     private int rotatedWidth;
     private int rotatedHeight;
     private ImageOrientation orientation;
@@ -187,6 +216,7 @@ public class FritzVisionImage implements Base64EncodableImage {
         }
 
         if (yuvImage != null) {
+            yuvImage.close();
             yuvImage = null;
         }
 
@@ -207,18 +237,49 @@ public class FritzVisionImage implements Base64EncodableImage {
      * @return The prepared image as a byte representation.
      */
     public synchronized ByteImage prepareBytes(Size modelInputSize) {
-        long start = System.currentTimeMillis();
+        if (modelInputSize == null || hasOrientedImage()) {
+            ImageProcessingPipeline pipeline = getOrientedImagePipeline();
 
-        ImageProcessingPipeline pipeline = getOrientedImagePipeline();
+            // Resize to model output
+            if (modelInputSize != null) {
+                pipeline.resize(modelInputSize);
+            }
 
-        // Resize to model output
-        if (modelInputSize != null) {
-            pipeline.resize(modelInputSize);
+            return pipeline.buildByteImage();
         }
 
-        ByteImage preparedImage = pipeline.buildByteImage();
-        Log.d(TAG, "Image Processing Time(ms): " + (System.currentTimeMillis() - start));
-        return preparedImage;
+        // Orient and resize in one pass, without keeping a full size oriented copy around.
+        ImageProcessingPipeline pipeline = buildPipelineFromSource();
+        pipeline.orient(orientation);
+        rotatedWidth = pipeline.getWidth();
+        rotatedHeight = pipeline.getHeight();
+        pipeline.resize(modelInputSize);
+
+        return pipeline.buildByteImage();
+    }
+
+    /**
+     * Write the image straight into a model input when it can skip the image processing pipeline.
+     * <p>
+     * A YUV image that hasn't been oriented yet is converted, oriented, resized and normalized in
+     * one pass over the input's pixels, without building a full size RGBA copy of the frame.
+     *
+     * @param buffer         The input buffer to write RGB values to, at its position.
+     * @param modelInputSize The dimensions of the input.
+     * @param quantized      Write UINT8 values instead of floats.
+     * @param params         How to normalize float values, or null to write them as 0-255.
+     * @return true if the input was written, false if it should be written from {@link #prepareBytes(Size)}.
+     */
+    synchronized boolean writeInput(ByteBuffer buffer, Size modelInputSize, boolean quantized, PreprocessParams params) {
+        if (type != Type.MEDIA_IMAGE || hasOrientedImage()) {
+            return false;
+        }
+        YUVConverter.convertToTensor(yuvImage, orientation, modelInputSize.getWidth(), modelInputSize.getHeight(),
+                buffer, quantized, params);
+        Size orientedSize = getOrientedSourceSize();
+        rotatedWidth = orientedSize.getWidth();
+        rotatedHeight = orientedSize.getHeight();
+        return true;
     }
 
     /**
@@ -237,18 +298,34 @@ public class FritzVisionImage implements Base64EncodableImage {
      *
      * @return true/false
      */
-    private boolean hasRotatedAllocation() {
-        return rotatedAllocation != null;
+    private boolean hasOrientedImage() {
+        return orientedImage != null;
+    }
+
+    /**
+     * Set the backend that orients and resizes this image.
+     *
+     * @param backend The backend, or null to use the one set with {@link FritzVision#setImageProcessingBackend(ImageProcessingBackend)}.
+     */
+    public synchronized void setProcessingBackend(ImageProcessingBackend backend) {
+        processingBackend = backend;
+        // The oriented image belongs to the previous backend.
+        orientedImage = null;
+    }
+
+    public synchronized ImageProcessingBackend getProcessingBackend() {
+        return processingBackend != null ? processingBackend : ImageProcessingPipeline.getDefaultBackend();
     }
 
     private ImageProcessingPipeline buildPipelineFromSource() {
+        ImageProcessingBackend backend = getProcessingBackend();
         switch (type) {
             case BITMAP:
-                return new ImageProcessingPipeline(bitmap);
+                return new ImageProcessingPipeline(bitmap, backend);
             case MEDIA_IMAGE:
-                return new ImageProcessingPipeline(yuvImage);
+                return new ImageProcessingPipeline(yuvImage, backend);
             default:
-                return new ImageProcessingPipeline(byteImage);
+                return new ImageProcessingPipeline(byteImage, backend);
         }
     }
 
@@ -286,8 +363,8 @@ public class FritzVisionImage implements Base64EncodableImage {
 
     private ImageProcessingPipeline getOrientedImagePipeline() {
         // Prevent orienting the image twice.
-        if (hasRotatedAllocation()) {
-            return new ImageProcessingPipeline(rotatedAllocation, rotatedWidth, rotatedHeight);
+        if (hasOrientedImage()) {
+            return new ImageProcessingPipeline(orientedImage, getProcessingBackend());
         }
 
         // Orient the image and save the state after.
@@ -295,7 +372,7 @@ public class FritzVisionImage implements Base64EncodableImage {
 
         // Apply orientation
         pipeline.orient(orientation);
-        rotatedAllocation = pipeline.getAllocation();
+        orientedImage = pipeline.getImage();
         rotatedWidth = pipeline.getWidth();
         rotatedHeight = pipeline.getHeight();
 
@@ -575,13 +652,42 @@ public class FritzVisionImage implements Base64EncodableImage {
         return Base64.encodeToString(stream.toByteArray(), Base64.DEFAULT);
     }
 
+    @NotNull
+    @Override
+    public synchronized Bitmap buildRecordingBitmap(Size size) {
+        // Orient and scale in one pass. The copy is small, so it isn't kept as the oriented image.
+        ImageProcessingPipeline pipeline;
+        if (hasOrientedImage()) {
+            pipeline = new ImageProcessingPipeline(orientedImage, getProcessingBackend());
+        } else {
+            pipeline = buildPipelineFromSource();
+            pipeline.orient(orientation);
+        }
+        if (pipeline.getWidth() != size.getWidth() || pipeline.getHeight() != size.getHeight()) {
+            pipeline.resize(size);
+        }
+        return pipeline.buildBitmap();
+    }
+
     @NotNull
     @Override
     public Size encodedSize() {
-        if (rotatedAllocation != null) {
+        if (orientedImage != null) {
             return new Size(rotatedWidth, rotatedHeight);
         }
 
+        // The image may have gone straight into a model without being oriented.
+        return getOrientedSourceSize();
+    }
+
+    /**
+     * The size of the source image once the orientation is applied, without orienting it.
+     */
+    private Size getOrientedSourceSize() {
+        int rotation = orientation.getRotation();
+        if (rotation == 90 || rotation == 270) {
+            return new Size(getHeight(), getWidth());
+        }
         return getSize();
     }
 
@@ -28,12 +28,42 @@ class ImageInputTensor(name: String, tensorIndex: Int) : InputTensor(name, tenso
     }
 
     fun preprocess(visionImage: FritzVisionImage, preprocessParams: PreprocessParams? = null) {
-        val preparedImage = visionImage.prepareBytes(getImageDimensions())
+        buffer.rewind()
+        putImage(visionImage, preprocessParams)
+    }
+
+    /**
+     * Preprocess several images into a batched input buffer.
+     *
+     * The buffer must be allocated for the batch with [setupBatchInputBuffer].
+     *
+     * @param visionImages the images in the batch
+     * @param preprocessParams
+     */
+    fun preprocessBatch(visionImages: List<FritzVisionImage>, preprocessParams: PreprocessParams? = null) {
+        buffer.rewind()
+        for (visionImage in visionImages) {
+            putImage(visionImage, preprocessParams)
+        }
+    }
 
+    /**
+     * Write an image at the current buffer position.
+     *
+     * Camera frames are written in a single fused pass. Other images go through the image
+     * processing pipeline first.
+     */
+    private fun putImage(visionImage: FritzVisionImage, preprocessParams: PreprocessParams?) {
+        val inputSize = getImageDimensions()
+        if (visionImage.writeInput(buffer, inputSize, is8BitQuantized(), preprocessParams)) {
+            return
+        }
+
+        val preparedImage = visionImage.prepareBytes(inputSize)
         if (is8BitQuantized()) {
-            loadBufferForQuantizedInput(preparedImage)
+            putQuantizedPixels(preparedImage)
         } else {
-            loadBufferForFloatInput(preparedImage, preprocessParams)
+            putFloatPixels(preparedImage, preprocessParams)
         }
     }
 
@@ -45,6 +75,24 @@ class ImageInputTensor(name: String, tensorIndex: Int) : InputTensor(name, tenso
      */
     protected fun loadBufferForQuantizedInput(preparedImage: ByteImage) {
         buffer.rewind()
+        putQuantizedPixels(preparedImage)
+    }
+
+    /**
+     * Input buffer will contain the the processed pixel values.
+     *
+     * @param preparedImage
+     * @param preprocessParams
+     */
+    protected fun loadBufferForFloatInput(preparedImage: ByteImage, preprocessParams: PreprocessParams? = null) {
+        buffer.rewind()
+        putFloatPixels(preparedImage, preprocessParams)
+    }
+
+    /**
+     * Write the RGB values of the image at the current buffer position.
+     */
+    private fun putQuantizedPixels(preparedImage: ByteImage) {
         val copyImageBuffer = preparedImage.copyOfImageData
         var step = 0
         for (color in copyImageBuffer) {
@@ -57,13 +105,9 @@ class ImageInputTensor(name: String, tensorIndex: Int) : InputTensor(name, tenso
     }
 
     /**
-     * Input buffer will contain the the processed pixel values.
-     *
-     * @param preparedImage
-     * @param preprocessParams
+     * Write the normalized RGB values of the image at the current buffer position.
      */
-    protected fun loadBufferForFloatInput(preparedImage: ByteImage, preprocessParams: PreprocessParams? = null) {
-        buffer.rewind()
+    private fun putFloatPixels(preparedImage: ByteImage, preprocessParams: PreprocessParams?) {
         val copyBuffer = preparedImage.copyOfImageData
         var step = 0
         for (color in copyBuffer) {
@@ -0,0 +1,54 @@
+package ai.fritz.vision;
+
+import android.graphics.Bitmap;
+import android.util.Size;
+
+/**
+ * Runs the image operations behind {@link ImageProcessingPipeline}.
+ * <p>
+ * {@link RenderScriptBackend} runs them with RenderScript. {@link JavaProcessingBackend} runs them
+ * in plain Java across a fork/join pool, and doesn't need a RenderScript context, so it also runs
+ * in JVM tests.
+ * <p>
+ * Set the backend for every image with {@link FritzVision#setImageProcessingBackend(ImageProcessingBackend)}
+ * or for a single one with {@link FritzVisionImage#setProcessingBackend(ImageProcessingBackend)}.
+ * Implementations must be safe to use from several threads.
+ */
+public interface ImageProcessingBackend {
+
+    ProcessingImage fromBitmap(Bitmap bitmap);
+
+    /**
+     * @param rgba   width * height pixels, 4 bytes each in RGBA order.
+     * @param width  The width of the image.
+     * @param height The height of the image.
+     */
+    ProcessingImage fromRGBA(byte[] rgba, int width, int height);
+
+    /**
+     * Convert a YUV_420_888 image to RGBA.
+     */
+    ProcessingImage fromYUV(YUVImage yuvImage);
+
+    /**
+     * Rotate the image clockwise.
+     *
+     * @param rotation 90, 180 or 270 degrees.
+     */
+    ProcessingImage rotate(ProcessingImage image, int rotation);
+
+    ProcessingImage flipHorizontal(ProcessingImage image);
+
+    ProcessingImage flipVertical(ProcessingImage image);
+
+    ProcessingImage resize(ProcessingImage image, Size targetSize, ResizeMethod method);
+
+    /**
+     * Sample the output of a chain of operations straight from the image, in one pass.
+     *
+     * @param image     The source image, the same size as the transform's source.
+     * @param transform Where each output pixel comes from.
+     * @param method    How to sample between source pixels.
+     */
+    ProcessingImage transform(ProcessingImage image, ImageTransform transform, ResizeMethod method);
+}
@@ -1,90 +1,144 @@
 package ai.fritz.vision;
 
 import android.graphics.Bitmap;
+import android.graphics.Rect;
 import android.renderscript.Allocation;
-import android.renderscript.Element;
-import android.renderscript.RenderScript;
-import android.renderscript.Type;
 import android.util.Size;
 
-import java.nio.ByteBuffer;
-import java.nio.IntBuffer;
-
 /**
- * The image processing pipeline uses a renderscript context in order to manipulate images
- * (resize, convert, rotate). This allows for faster image processing by multithreading work in
- * on threads or on the GPU.
+ * The image processing pipeline manipulates images (resize, convert, rotate) with an
+ * {@link ImageProcessingBackend}. By default that's RenderScript, which allows for faster image
+ * processing by multithreading work in on threads or on the GPU.
+ * <p>
+ * Rotating, flipping, resizing and cropping are lazy: each one is added to an {@link ImageTransform},
+ * and the image is only sampled once, into one output, when it's built.
  */
 public class ImageProcessingPipeline {
 
     private static final String TAG = ImageProcessingPipeline.class.getSimpleName();
-    private static final int kMaxChannelValue = 262143;
 
-    private Allocation allocation;
-    private int width;
-    private int height;
-    private Element element;
+    private static volatile ImageProcessingBackend defaultBackend;
+
+    /**
+     * Set the backend used by pipelines that aren't given one.
+     *
+     * @param backend The backend, or null for RenderScript.
+     */
+    public static void setDefaultBackend(ImageProcessingBackend backend) {
+        defaultBackend = backend;
+    }
+
+    public static ImageProcessingBackend getDefaultBackend() {
+        ImageProcessingBackend backend = defaultBackend;
+        if (backend == null) {
+            synchronized (ImageProcessingPipeline.class) {
+                if (defaultBackend == null) {
+                    defaultBackend = new RenderScriptBackend();
+                }
+                backend = defaultBackend;
+            }
+        }
+        return backend;
+    }
+
+    private final ImageProcessingBackend backend;
+    private ProcessingImage image;
+    private ImageTransform transform;
+    private ResizeMethod resizeMethod = ResizeMethod.BICUBIC;
 
     public ImageProcessingPipeline(Bitmap bitmap) {
-        this.allocation = Allocation.createFromBitmap(
-                ProcessingContext.getInstance().getRS(),
-                bitmap,
-                Allocation.MipmapControl.MIPMAP_NONE,
-                Allocation.USAGE_SCRIPT);
-        this.width = bitmap.getWidth();
-        this.height = bitmap.getHeight();
-        this.element = allocation.getElement();
+        this(bitmap, null);
+    }
+
+    public ImageProcessingPipeline(Bitmap bitmap, ImageProcessingBackend backend) {
+        this.backend = backend != null ? backend : getDefaultBackend();
+        setImage(this.backend.fromBitmap(bitmap));
     }
 
     public ImageProcessingPipeline(YUVImage yuvImage) {
-        this.allocation = convertYUVToRGB(yuvImage);
-        this.width = yuvImage.getWidth();
-        this.height = yuvImage.getHeight();
-        this.element = allocation.getElement();
+        this(yuvImage, null);
+    }
+
+    public ImageProcessingPipeline(YUVImage yuvImage, ImageProcessingBackend backend) {
+        this.backend = backend != null ? backend : getDefaultBackend();
+        setImage(this.backend.fromYUV(yuvImage));
     }
 
     public ImageProcessingPipeline(ByteImage byteImage) {
-        this.allocation = convertFromBytes(byteImage);
-        this.width = byteImage.getWidth();
-        this.height = byteImage.getHeight();
-        this.element = allocation.getElement();
+        this(byteImage, null);
+    }
+
+    public ImageProcessingPipeline(ByteImage byteImage, ImageProcessingBackend backend) {
+        this.backend = backend != null ? backend : getDefaultBackend();
+        setImage(this.backend.fromRGBA(byteImage.getCopyOfImageData(), byteImage.getWidth(), byteImage.getHeight()));
     }
 
     public ImageProcessingPipeline(Allocation allocation, int width, int height) {
-        this.allocation = allocation;
-        this.width = width;
-        this.height = height;
-        this.element = allocation.getElement();
+        this(new RenderScriptBackend.AllocationImage(allocation, width, height), new RenderScriptBackend());
+    }
+
+    /**
+     * Continue processing an image from a backend.
+     *
+     * @param image   The image to start from. It isn't changed.
+     * @param backend The backend that created the image.
+     */
+    public ImageProcessingPipeline(ProcessingImage image, ImageProcessingBackend backend) {
+        this.backend = backend;
+        setImage(image);
+    }
+
+    private void setImage(ProcessingImage image) {
+        this.image = image;
+        this.transform = ImageTransform.identity(image.getWidth(), image.getHeight());
     }
 
+    /**
+     * Get the image as a RenderScript allocation, copying it into one if another backend holds it.
+     */
     public Allocation getAllocation() {
-        return allocation;
+        return RenderScriptBackend.getAllocation(getImage());
+    }
+
+    /**
+     * Get the image with every operation so far applied.
+     */
+    public ProcessingImage getImage() {
+        if (!transform.isIdentity()) {
+            setImage(backend.transform(image, transform, resizeMethod));
+        }
+        return image;
+    }
+
+    public ImageProcessingBackend getBackend() {
+        return backend;
+    }
+
+    /**
+     * Get the operations not yet applied to the image.
+     */
+    public ImageTransform getTransform() {
+        return transform;
     }
 
     public int getWidth() {
-        return width;
+        return transform.getWidth();
     }
 
     public int getHeight() {
-        return height;
+        return transform.getHeight();
     }
 
     public Bitmap buildBitmap() {
-        Bitmap outputBitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
-        allocation.copyTo(outputBitmap);
-        return outputBitmap;
+        return getImage().toBitmap();
     }
 
     public ByteImage buildByteImage() {
-        byte[] destination = new byte[width * height * ByteImage.RGB_CHANNELS];
-        allocation.copyTo(destination);
-        return new ByteImage(destination, width, height);
+        return new ByteImage(getImage().toRGBA(), getWidth(), getHeight());
     }
 
     public ByteImage buildYuvByteImage() {
-        byte[] destination = new byte[width * height * ByteImage.RGB_CHANNELS];
-        allocation.copyTo(destination);
-        return new ByteImage(convertRGBAToYUV420(destination), width, height);
+        return new ByteImage(convertRGBAToYUV420(getImage().toRGBA()), getWidth(), getHeight());
     }
 
     /**
@@ -113,16 +167,7 @@ public class ImageProcessingPipeline {
      * @param rotation The degree to rotate.
      */
     public void rotate(int rotation) {
-        allocation = ProcessingContext.getInstance().rotate(allocation, element, width, height, rotation);
-        switch (rotation) {
-            case 90:
-            case 270: {
-                int tmpWidth = width;
-                width = height;
-                height = tmpWidth;
-                break;
-            }
-        }
+        transform = transform.rotate(rotation);
     }
 
     /**
@@ -131,75 +176,49 @@ public class ImageProcessingPipeline {
      * @param targetSize The dimensions to resize to.
      */
     public void resize(Size targetSize) {
-        allocation = ProcessingContext.getInstance().resize(allocation, element, targetSize);
-        width = targetSize.getWidth();
-        height = targetSize.getHeight();
-    }
-
-    /**
-     * Flip image horizontally the image.
-     */
-    public void flipHorizontal() {
-        allocation = ProcessingContext.getInstance().flipHorizontal(allocation, element, width, height);
+        resize(targetSize, ResizeMethod.BICUBIC);
     }
 
     /**
-     * Flip image vertically the image.
+     * Resizes the image.
+     * <p>
+     * The image is only sampled once, so resizing again replaces the method and resamples from
+     * the original pixels rather than the resized ones.
+     *
+     * @param targetSize The dimensions to resize to.
+     * @param method     How to sample the pixels.
      */
-    public void flipVertical() {
-        allocation = ProcessingContext.getInstance().flipVertical(allocation, element, width, height);
+    public void resize(Size targetSize, ResizeMethod method) {
+        transform = transform.resize(targetSize);
+        resizeMethod = method;
     }
 
     /**
-     * Convert a byte array into an allocation.
+     * Crops the image.
      *
-     * @param byteImage The byte image data.
-     * @return An allocation from the array.
+     * @param region The region to keep, in the image's current dimensions.
      */
-    private Allocation convertFromBytes(ByteImage byteImage) {
-        return createAllocation(byteImage.getCopyOfImageData(), byteImage.getWidth(), byteImage.getHeight());
+    public void crop(Rect region) {
+        transform = transform.crop(region);
     }
 
     /**
-     * Convert YUV4208888 to RGB
-     * <p>
-     * Couldn't quite get the ScriptIntrinsicYuvToRGB to work with this format.
-     * It was mainly converting NV21 to RGB.
-     *
-     * @param yuvImage The source YUV image.
-     * @return An allocation from the converted image.
+     * Flip image horizontally the image.
      */
-    private Allocation convertYUVToRGB(YUVImage yuvImage) {
-        byte[] argb = convertYUV420ToARGB8888(
-                yuvImage.getY(),
-                yuvImage.getU(),
-                yuvImage.getV(),
-                yuvImage.getWidth(),
-                yuvImage.getHeight(),
-                yuvImage.getYRowStride(),
-                yuvImage.getUVRowStride(),
-                yuvImage.getUVPixelStride());
-        return createAllocation(argb, yuvImage.getWidth(), yuvImage.getHeight());
+    public void flipHorizontal() {
+        transform = transform.flipHorizontal();
     }
 
     /**
-     * Configure and create an allocation from a byte array.
-     *
-     * @param source The source byte array.
-     * @param width The width of the image in the byte array.
-     * @param height The height of the image in the byte array.
-     * @return A configured allocation.
+     * Flip image vertically the image.
      */
-    private Allocation createAllocation(byte[] source, int width, int height) {
-        RenderScript rs = ProcessingContext.getInstance().getRS();
-        Type outType = Type.createXY(rs, Element.RGBA_8888(rs), width, height);
-        Allocation allocation = Allocation.createTyped(rs, outType, Allocation.MipmapControl.MIPMAP_NONE, Allocation.USAGE_SCRIPT);
-        allocation.copyFrom(source);
-
-        return allocation;
+    public void flipVertical() {
+        transform = transform.flipVertical();
     }
 
     private byte[] convertRGBAToYUV420(byte[] rgba) {
+        int width = getWidth();
+        int height = getHeight();
         byte[] yuv = new byte[width * height * 3 / 2];
         final int frameSize = width * height;
 
@@ -234,66 +253,4 @@ public class ImageProcessingPipeline {
 
         return yuv;
     }
-
-    // Conversion modified from:
-    // https://github.com/tensorflow/examples/blob/master/lite/examples/image_classification/android/app/src/main/java/org/tensorflow/lite/examples/classification/env/ImageUtils.java
-    private byte[] convertYUV420ToARGB8888(
-            byte[] yData,
-            byte[] uData,
-            byte[] vData,
-            int width,
-            int height,
-            int yRowStride,
-            int uvRowStride,
-            int uvPixelStride) {
-        byte[] argb = new byte[4 * width * height];
-
-        int yp = 0;
-        for (int j = 0; j < height; j++) {
-            int pY = yRowStride * j;
-            int pUV = uvRowStride * (j >> 1);
-
-            for (int i = 0; i < width; i++) {
-                int uv_offset = pUV + (i >> 1) * uvPixelStride;
-
-                int y = 0xff & yData[pY + i];
-                int u = 0xff & uData[uv_offset];
-                int v = 0xff & vData[uv_offset];
-
-                // Adjust and check YUV values
-                y = (y - 16) < 0 ? 0 : (y - 16);
-                u -= 128;
-                v -= 128;
-
-                // This is the floating point equivalent. We do the conversion in integer
-                // because some Android devices do not have floating point in hardware.
-                // nR = (int)(1.164 * nY + 2.018 * nU);
-                // nG = (int)(1.164 * nY - 0.813 * nV - 0.391 * nU);
-                // nB = (int)(1.164 * nY + 1.596 * nV);
-                int y1192 = 1192 * y;
-                int r = (y1192 + 1634 * v);
-                int g = (y1192 - 833 * v - 400 * u);
-                int b = (y1192 + 2066 * u);
-
-                // Clipping RGB values to be inside boundaries [ 0 , kMaxChannelValue ]
-                r = r > kMaxChannelValue ? kMaxChannelValue : (r < 0 ? 0 : r);
-                g = g > kMaxChannelValue ? kMaxChannelValue : (g < 0 ? 0 : g);
-                b = b > kMaxChannelValue ? kMaxChannelValue : (b < 0 ? 0 : b);
-
-                int pixel = 0xff000000 | ((r << 6) & 0xff0000) | ((g >> 2) & 0xff00) | ((b >> 10) & 0xff);
-
-                int alpha = (pixel >> 24) & 0xff;
-                int red   = (pixel >> 16) & 0xff;
-                int green = (pixel >>  8) & 0xff;
-                int blue  = (pixel      ) & 0xff;
-
-                argb[yp++] = (byte) red;
-                argb[yp++] = (byte) green;
-                argb[yp++] = (byte) blue;
-                argb[yp++] = (byte) alpha;
-            }
-        }
-
-        return argb;
-    }
 }
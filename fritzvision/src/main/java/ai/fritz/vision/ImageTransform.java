@@ -0,0 +1,290 @@
+package ai.fritz.vision;
+
+import android.graphics.Rect;
+import android.util.Size;
+
+/**
+ * Maps the pixels of an output image back to points in a source image.
+ * <p>
+ * Rotating, flipping, resizing and cropping are all affine, so any chain of them is one transform:
+ * a source point is the origin plus a step for each output column and row. Each operation returns
+ * a new transform with the operation applied after the ones before it, so the output can be
+ * sampled from the source in one pass.
+ * <p>
+ * Source points are in pixels, with pixel centers at whole numbers. Sampling is clamped to the
+ * bounds, the part of the source left after any crops.
+ */
+public class ImageTransform {
+
+    private final int sourceWidth;
+    private final int sourceHeight;
+    private final int width;
+    private final int height;
+    private final float originX;
+    private final float originY;
+    private final float columnStepX;
+    private final float columnStepY;
+    private final float rowStepX;
+    private final float rowStepY;
+    private final float boundsLeft;
+    private final float boundsTop;
+    private final float boundsRight;
+    private final float boundsBottom;
+
+    private ImageTransform(int sourceWidth, int sourceHeight, int width, int height,
+                           float originX, float originY,
+                           float columnStepX, float columnStepY,
+                           float rowStepX, float rowStepY,
+                           float boundsLeft, float boundsTop, float boundsRight, float boundsBottom) {
+        this.sourceWidth = sourceWidth;
+        this.sourceHeight = sourceHeight;
+        this.width = width;
+        this.height = height;
+        this.originX = originX;
+        this.originY = originY;
+        this.columnStepX = columnStepX;
+        this.columnStepY = columnStepY;
+        this.rowStepX = rowStepX;
+        this.rowStepY = rowStepY;
+        this.boundsLeft = boundsLeft;
+        this.boundsTop = boundsTop;
+        this.boundsRight = boundsRight;
+        this.boundsBottom = boundsBottom;
+    }
+
+    /**
+     * A transform that leaves an image as it is.
+     *
+     * @param width  The width of the source image.
+     * @param height The height of the source image.
+     */
+    public static ImageTransform identity(int width, int height) {
+        return new ImageTransform(width, height, width, height, 0, 0, 1, 0, 0, 1,
+                0, 0, width - 1, height - 1);
+    }
+
+    /**
+     * Rotate the output clockwise.
+     *
+     * @param rotation 90, 180 or 270 degrees.
+     */
+    public ImageTransform rotate(int rotation) {
+        switch (rotation) {
+            case 90:
+                // Output (x, y) comes from (y, height - 1 - x).
+                return withSteps(height, width,
+                        originX + (height - 1) * rowStepX, originY + (height - 1) * rowStepY,
+                        -rowStepX, -rowStepY, columnStepX, columnStepY);
+            case 180:
+                return withSteps(width, height,
+                        originX + (width - 1) * columnStepX + (height - 1) * rowStepX,
+                        originY + (width - 1) * columnStepY + (height - 1) * rowStepY,
+                        -columnStepX, -columnStepY, -rowStepX, -rowStepY);
+            case 270:
+                // Output (x, y) comes from (width - 1 - y, x).
+                return withSteps(height, width,
+                        originX + (width - 1) * columnStepX, originY + (width - 1) * columnStepY,
+                        rowStepX, rowStepY, -columnStepX, -columnStepY);
+            default:
+                throw new IllegalArgumentException("rotateClockwise() only supports 90 degree increments");
+        }
+    }
+
+    public ImageTransform flipHorizontal() {
+        return withSteps(width, height,
+                originX + (width - 1) * columnStepX, originY + (width - 1) * columnStepY,
+                -columnStepX, -columnStepY, rowStepX, rowStepY);
+    }
+
+    public ImageTransform flipVertical() {
+        return withSteps(width, height,
+                originX + (height - 1) * rowStepX, originY + (height - 1) * rowStepY,
+                columnStepX, columnStepY, -rowStepX, -rowStepY);
+    }
+
+    /**
+     * Apply an {@link ImageOrientation} the same way as {@link ImageProcessingPipeline#orient(ImageOrientation)}.
+     */
+    public ImageTransform orient(ImageOrientation orientation) {
+        ImageTransform transform = this;
+        if (orientation.rotation > 0) {
+            transform = transform.rotate(orientation.rotation);
+        }
+        if (orientation.flipVertical) {
+            transform = transform.flipVertical();
+        }
+        if (orientation.flipHorizontal) {
+            transform = transform.flipHorizontal();
+        }
+        return transform;
+    }
+
+    /**
+     * Scale the output to a new size. Pixel centers line up between the old and new output.
+     */
+    public ImageTransform resize(Size targetSize) {
+        int targetWidth = targetSize.getWidth();
+        int targetHeight = targetSize.getHeight();
+        float scaleX = (float) width / targetWidth;
+        float scaleY = (float) height / targetHeight;
+        float offsetX = 0.5f * scaleX - 0.5f;
+        float offsetY = 0.5f * scaleY - 0.5f;
+        return withSteps(targetWidth, targetHeight,
+                originX + offsetX * columnStepX + offsetY * rowStepX,
+                originY + offsetX * columnStepY + offsetY * rowStepY,
+                columnStepX * scaleX, columnStepY * scaleX,
+                rowStepX * scaleY, rowStepY * scaleY);
+    }
+
+    /**
+     * Keep only a region of the output.
+     *
+     * @param region The region to keep, in output pixels.
+     */
+    public ImageTransform crop(Rect region) {
+        if (region.left < 0 || region.top < 0 || region.right > width || region.bottom > height || region.isEmpty()) {
+            throw new IllegalArgumentException("Crop region " + region + " is outside of the " + width + "x" + height + " image");
+        }
+        float left = originX + region.left * columnStepX + region.top * rowStepX;
+        float top = originY + region.left * columnStepY + region.top * rowStepY;
+        float right = originX + (region.right - 1) * columnStepX + (region.bottom - 1) * rowStepX;
+        float bottom = originY + (region.right - 1) * columnStepY + (region.bottom - 1) * rowStepY;
+        return new ImageTransform(sourceWidth, sourceHeight, region.width(), region.height(),
+                left, top, columnStepX, columnStepY, rowStepX, rowStepY,
+                Math.max(boundsLeft, Math.min(left, right)),
+                Math.max(boundsTop, Math.min(top, bottom)),
+                Math.min(boundsRight, Math.max(left, right)),
+                Math.min(boundsBottom, Math.max(top, bottom)));
+    }
+
+    private ImageTransform withSteps(int width, int height, float originX, float originY,
+                                     float columnStepX, float columnStepY, float rowStepX, float rowStepY) {
+        return new ImageTransform(sourceWidth, sourceHeight, width, height, originX, originY,
+                columnStepX, columnStepY, rowStepX, rowStepY,
+                boundsLeft, boundsTop, boundsRight, boundsBottom);
+    }
+
+    /**
+     * Map an output pixel to its point in the source.
+     *
+     * @return the source x and y.
+     */
+    public float[] map(int x, int y) {
+        return new float[]{
+                originX + columnStepX * x + rowStepX * y,
+                originY + columnStepY * x + rowStepY * y
+        };
+    }
+
+    /**
+     * Check if the transform leaves the source as it is.
+     */
+    public boolean isIdentity() {
+        return width == sourceWidth && height == sourceHeight
+                && originX == 0 && originY == 0
+                && columnStepX == 1 && columnStepY == 0
+                && rowStepX == 0 && rowStepY == 1;
+    }
+
+    /**
+     * Check if the transform only resizes the whole source.
+     */
+    public boolean isResize() {
+        ImageTransform resize = identity(sourceWidth, sourceHeight).resize(getSize());
+        return originX == resize.originX && originY == resize.originY
+                && columnStepX == resize.columnStepX && columnStepY == resize.columnStepY
+                && rowStepX == resize.rowStepX && rowStepY == resize.rowStepY
+                && boundsLeft == resize.boundsLeft && boundsTop == resize.boundsTop
+                && boundsRight == resize.boundsRight && boundsBottom == resize.boundsBottom;
+    }
+
+    /**
+     * Check if every output pixel lands on a source pixel, in which case every {@link ResizeMethod}
+     * copies the same pixels.
+     */
+    public boolean isPixelAligned() {
+        return isWhole(originX) && isWhole(originY)
+                && isWhole(columnStepX) && isWhole(columnStepY)
+                && isWhole(rowStepX) && isWhole(rowStepY);
+    }
+
+    /**
+     * Check if output columns run along source rows, after a 90 or 270 degree rotation.
+     */
+    public boolean swapsAxes() {
+        return columnStepX == 0;
+    }
+
+    private static boolean isWhole(float value) {
+        return value == (float) Math.rint(value);
+    }
+
+    public int getSourceWidth() {
+        return sourceWidth;
+    }
+
+    public int getSourceHeight() {
+        return sourceHeight;
+    }
+
+    /**
+     * @return the width of the output.
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * @return the height of the output.
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    public Size getSize() {
+        return new Size(width, height);
+    }
+
+    public float getOriginX() {
+        return originX;
+    }
+
+    public float getOriginY() {
+        return originY;
+    }
+
+    public float getColumnStepX() {
+        return columnStepX;
+    }
+
+    public float getColumnStepY() {
+        return columnStepY;
+    }
+
+    public float getRowStepX() {
+        return rowStepX;
+    }
+
+    public float getRowStepY() {
+        return rowStepY;
+    }
+
+    /**
+     * @return the left-most source x to sample from.
+     */
+    public float getBoundsLeft() {
+        return boundsLeft;
+    }
+
+    public float getBoundsTop() {
+        return boundsTop;
+    }
+
+    public float getBoundsRight() {
+        return boundsRight;
+    }
+
+    public float getBoundsBottom() {
+        return boundsBottom;
+    }
+}
@@ -0,0 +1,374 @@
+package ai.fritz.vision;
+
+import android.graphics.Bitmap;
+import android.util.Size;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import ai.fritz.core.FritzExecutors;
+
+/**
+ * Runs image operations in plain Java.
+ * <p>
+ * Images are ARGB pixel arrays, the same layout as {@link Bitmap#getPixels}. Every operation is
+ * a {@link #transform(ProcessingImage, ImageTransform, ResizeMethod)}, which splits the output rows
+ * into bands that run in parallel on a fork/join pool, by default the SDK's shared one. Results
+ * match {@link RenderScriptBackend}: rotations and flips exactly, resizes to within rounding.
+ */
+public class JavaProcessingBackend implements ImageProcessingBackend {
+
+    // Bands smaller than this aren't worth handing to another thread.
+    private static final int MIN_PIXELS_PER_TASK = 16 * 1024;
+    private static final int MAX_CHANNEL_VALUE = 255;
+
+    /**
+     * An image held in an ARGB pixel array.
+     */
+    public static class PixelImage implements ProcessingImage {
+        private final int[] pixels;
+        private final int width;
+        private final int height;
+
+        public PixelImage(int[] pixels, int width, int height) {
+            this.pixels = pixels;
+            this.width = width;
+            this.height = height;
+        }
+
+        /**
+         * The pixels, row by row. Don't modify them.
+         */
+        public int[] getPixels() {
+            return pixels;
+        }
+
+        @Override
+        public int getWidth() {
+            return width;
+        }
+
+        @Override
+        public int getHeight() {
+            return height;
+        }
+
+        @Override
+        public Bitmap toBitmap() {
+            Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            bitmap.setPixels(pixels, 0, width, 0, 0, width, height);
+            return bitmap;
+        }
+
+        @Override
+        public byte[] toRGBA() {
+            byte[] rgba = new byte[pixels.length * ByteImage.RGB_CHANNELS];
+            int index = 0;
+            for (int pixel : pixels) {
+                rgba[index++] = (byte) (pixel >> 16);
+                rgba[index++] = (byte) (pixel >> 8);
+                rgba[index++] = (byte) pixel;
+                rgba[index++] = (byte) (pixel >>> 24);
+            }
+            return rgba;
+        }
+    }
+
+    /**
+     * Writes a band of output rows.
+     */
+    private interface RowOperation {
+        void run(int startRow, int endRow);
+    }
+
+    private static class RowTask extends RecursiveAction {
+        private final RowOperation operation;
+        private final int startRow;
+        private final int endRow;
+        private final int rowsPerTask;
+
+        RowTask(RowOperation operation, int startRow, int endRow, int rowsPerTask) {
+            this.operation = operation;
+            this.startRow = startRow;
+            this.endRow = endRow;
+            this.rowsPerTask = rowsPerTask;
+        }
+
+        @Override
+        protected void compute() {
+            if (endRow - startRow <= rowsPerTask) {
+                operation.run(startRow, endRow);
+                return;
+            }
+            int middle = (startRow + endRow) >>> 1;
+            invokeAll(new RowTask(operation, startRow, middle, rowsPerTask),
+                    new RowTask(operation, middle, endRow, rowsPerTask));
+        }
+    }
+
+    private final ForkJoinPool pool;
+
+    /**
+     * Create a backend that runs on the SDK's shared fork/join pool.
+     */
+    public JavaProcessingBackend() {
+        this(null);
+    }
+
+    /**
+     * Create a backend that runs on the given pool.
+     *
+     * @param pool The pool to split operations across, or null for the SDK's shared pool.
+     */
+    public JavaProcessingBackend(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    @Override
+    public ProcessingImage fromBitmap(Bitmap bitmap) {
+        int width = bitmap.getWidth();
+        int height = bitmap.getHeight();
+        int[] pixels = new int[width * height];
+        bitmap.getPixels(pixels, 0, width, 0, 0, width, height);
+        return new PixelImage(pixels, width, height);
+    }
+
+    @Override
+    public ProcessingImage fromRGBA(final byte[] rgba, final int width, int height) {
+        final int[] pixels = new int[width * height];
+        forEachBand(width, height, new RowOperation() {
+            @Override
+            public void run(int startRow, int endRow) {
+                for (int i = startRow * width; i < endRow * width; i++) {
+                    int offset = i * ByteImage.RGB_CHANNELS;
+                    pixels[i] = ((rgba[offset + 3] & 0xff) << 24)
+                            | ((rgba[offset] & 0xff) << 16)
+                            | ((rgba[offset + 1] & 0xff) << 8)
+                            | (rgba[offset + 2] & 0xff);
+                }
+            }
+        });
+        return new PixelImage(pixels, width, height);
+    }
+
+    @Override
+    public ProcessingImage fromYUV(final YUVImage yuvImage) {
+        int width = yuvImage.getWidth();
+        int height = yuvImage.getHeight();
+        final int[] pixels = new int[width * height];
+        forEachBand(width, height, new RowOperation() {
+            @Override
+            public void run(int startRow, int endRow) {
+                // U and V rows are shared by pairs of Y rows, so each band reads its own.
+                YUVConverter.convertToARGB(yuvImage, pixels, startRow, endRow);
+            }
+        });
+        return new PixelImage(pixels, width, height);
+    }
+
+    @Override
+    public ProcessingImage rotate(ProcessingImage image, int rotation) {
+        return transform(image, identity(image).rotate(rotation), ResizeMethod.NEAREST);
+    }
+
+    @Override
+    public ProcessingImage flipHorizontal(ProcessingImage image) {
+        return transform(image, identity(image).flipHorizontal(), ResizeMethod.NEAREST);
+    }
+
+    @Override
+    public ProcessingImage flipVertical(ProcessingImage image) {
+        return transform(image, identity(image).flipVertical(), ResizeMethod.NEAREST);
+    }
+
+    @Override
+    public ProcessingImage resize(ProcessingImage image, Size targetSize, ResizeMethod method) {
+        return transform(image, identity(image).resize(targetSize), method);
+    }
+
+    /**
+     * Rotations and flips only ever move along the source's axes, so each output column samples
+     * the same source columns (or rows, once rotated on its side) and each output row the same
+     * source rows. The taps and weights for both are worked out once up front.
+     */
+    @Override
+    public ProcessingImage transform(ProcessingImage image, ImageTransform transform, ResizeMethod method) {
+        final int[] source = getPixels(image);
+        int width = image.getWidth();
+        int height = image.getHeight();
+        final int outWidth = transform.getWidth();
+        int outHeight = transform.getHeight();
+        if (transform.isPixelAligned()) {
+            method = ResizeMethod.NEAREST;
+        }
+
+        final int taps = getTapCount(method);
+        final int[] columns = new int[outWidth * taps];
+        final float[] columnWeights = new float[outWidth * taps];
+        final int[] rows = new int[outHeight * taps];
+        final float[] rowWeights = new float[outHeight * taps];
+        if (transform.swapsAxes()) {
+            computeTaps(method, transform.getOriginY(), transform.getColumnStepY(), outWidth,
+                    transform.getBoundsTop(), transform.getBoundsBottom(), height, width, columns, columnWeights);
+            computeTaps(method, transform.getOriginX(), transform.getRowStepX(), outHeight,
+                    transform.getBoundsLeft(), transform.getBoundsRight(), width, 1, rows, rowWeights);
+        } else {
+            computeTaps(method, transform.getOriginX(), transform.getColumnStepX(), outWidth,
+                    transform.getBoundsLeft(), transform.getBoundsRight(), width, 1, columns, columnWeights);
+            computeTaps(method, transform.getOriginY(), transform.getRowStepY(), outHeight,
+                    transform.getBoundsTop(), transform.getBoundsBottom(), height, width, rows, rowWeights);
+        }
+
+        final int[] pixels = new int[outWidth * outHeight];
+        if (taps == 1) {
+            forEachBand(outWidth, outHeight, new RowOperation() {
+                @Override
+                public void run(int startRow, int endRow) {
+                    for (int y = startRow; y < endRow; y++) {
+                        int rowOffset = rows[y];
+                        int offset = y * outWidth;
+                        for (int x = 0; x < outWidth; x++) {
+                            pixels[offset + x] = source[rowOffset + columns[x]];
+                        }
+                    }
+                }
+            });
+        } else {
+            forEachBand(outWidth, outHeight, new RowOperation() {
+                @Override
+                public void run(int startRow, int endRow) {
+                    float[] sums = new float[4];
+                    for (int y = startRow; y < endRow; y++) {
+                        int offset = y * outWidth;
+                        for (int x = 0; x < outWidth; x++) {
+                            sums[0] = 0;
+                            sums[1] = 0;
+                            sums[2] = 0;
+                            sums[3] = 0;
+                            for (int i = 0; i < taps; i++) {
+                                int rowOffset = rows[y * taps + i];
+                                float rowWeight = rowWeights[y * taps + i];
+                                for (int j = 0; j < taps; j++) {
+                                    int pixel = source[rowOffset + columns[x * taps + j]];
+                                    float weight = rowWeight * columnWeights[x * taps + j];
+                                    sums[0] += (pixel & 0xff) * weight;
+                                    sums[1] += ((pixel >>> 8) & 0xff) * weight;
+                                    sums[2] += ((pixel >>> 16) & 0xff) * weight;
+                                    sums[3] += (pixel >>> 24) * weight;
+                                }
+                            }
+                            pixels[offset + x] = toChannel(sums[0])
+                                    | (toChannel(sums[1]) << 8)
+                                    | (toChannel(sums[2]) << 16)
+                                    | (toChannel(sums[3]) << 24);
+                        }
+                    }
+                }
+            });
+        }
+        return new PixelImage(pixels, outWidth, outHeight);
+    }
+
+    private static ImageTransform identity(ProcessingImage image) {
+        return ImageTransform.identity(image.getWidth(), image.getHeight());
+    }
+
+    private static int getTapCount(ResizeMethod method) {
+        switch (method) {
+            case NEAREST:
+                return 1;
+            case BILINEAR:
+                return 2;
+            default:
+                return 4;
+        }
+    }
+
+    /**
+     * Work out the source offsets and weights for each output index along one side.
+     * <p>
+     * Bicubic sampling is Catmull-Rom, the same as RenderScript's resize intrinsic.
+     *
+     * @param start      The source position of the first output index.
+     * @param step       How far the source position moves for each output index.
+     * @param lowerBound The lowest source position to sample.
+     * @param upperBound The highest source position to sample.
+     * @param size       The number of source pixels along this side.
+     * @param stride     The distance in the pixel array between neighbours along this side.
+     */
+    private static void computeTaps(ResizeMethod method, float start, float step, int count,
+                                    float lowerBound, float upperBound, int size, int stride,
+                                    int[] offsets, float[] weights) {
+        int taps = getTapCount(method);
+        int minIndex = Math.max(0, (int) Math.floor(lowerBound));
+        int maxIndex = Math.min(size - 1, (int) Math.ceil(upperBound));
+        for (int i = 0; i < count; i++) {
+            float position = start + step * i;
+            int first;
+            switch (method) {
+                case NEAREST:
+                    first = (int) Math.floor(clamp(position, lowerBound, upperBound) + 0.5f);
+                    weights[i] = 1;
+                    break;
+                case BILINEAR: {
+                    position = clamp(position, lowerBound, upperBound);
+                    first = (int) Math.floor(position);
+                    float t = position - first;
+                    weights[i * 2] = 1 - t;
+                    weights[i * 2 + 1] = t;
+                    break;
+                }
+                default: {
+                    int floor = (int) Math.floor(position);
+                    float t = position - floor;
+                    float t2 = t * t;
+                    float t3 = t2 * t;
+                    first = floor - 1;
+                    weights[i * 4] = 0.5f * (-t3 + 2 * t2 - t);
+                    weights[i * 4 + 1] = 0.5f * (3 * t3 - 5 * t2 + 2);
+                    weights[i * 4 + 2] = 0.5f * (-3 * t3 + 4 * t2 + t);
+                    weights[i * 4 + 3] = 0.5f * (t3 - t2);
+                    break;
+                }
+            }
+            for (int j = 0; j < taps; j++) {
+                int index = first + j;
+                index = index < minIndex ? minIndex : (index > maxIndex ? maxIndex : index);
+                offsets[i * taps + j] = index * stride;
+            }
+        }
+    }
+
+    private static float clamp(float value, float min, float max) {
+        return value < min ? min : (value > max ? max : value);
+    }
+
+    private static int toChannel(float value) {
+        int channel = (int) (value + 0.5f);
+        return channel < 0 ? 0 : (channel > MAX_CHANNEL_VALUE ? MAX_CHANNEL_VALUE : channel);
+    }
+
+    /**
+     * Get the pixels of an image, copying images from other backends.
+     */
+    private int[] getPixels(ProcessingImage image) {
+        if (image instanceof PixelImage) {
+            return ((PixelImage) image).getPixels();
+        }
+        PixelImage pixelImage = (PixelImage) fromRGBA(image.toRGBA(), image.getWidth(), image.getHeight());
+        return pixelImage.getPixels();
+    }
+
+    /**
+     * Run an operation over all output rows, split into bands across the pool.
+     */
+    private void forEachBand(int width, int height, RowOperation operation) {
+        int rowsPerTask = Math.max(1, MIN_PIXELS_PER_TASK / Math.max(1, width));
+        if (height <= rowsPerTask) {
+            operation.run(0, height);
+            return;
+        }
+        ForkJoinPool forkJoinPool = pool != null ? pool : FritzExecutors.forkJoin();
+        forkJoinPool.invoke(new RowTask(operation, 0, height, rowsPerTask));
+    }
+}
@@ -2,6 +2,8 @@ package ai.fritz.vision;
 
 import android.renderscript.Allocation;
 import android.renderscript.Element;
+import android.renderscript.Float2;
+import android.renderscript.Int2;
 import android.renderscript.RenderScript;
 import android.renderscript.ScriptIntrinsicResize;
 import android.renderscript.Type;
@@ -9,14 +11,36 @@ import android.util.Size;
 
 import ai.fritz.core.Fritz;
 import ai.fritz.vision.rs.ScriptC_rotator;
+import ai.fritz.vision.rs.ScriptC_transformer;
 
 /**
+ * A set of RenderScript kernels for processing images.
+ * <p>
+ * Scripts hold their inputs in globals, so each context's operations are synchronized. Rather
+ * than having every thread share one context, operations {@link #acquire()} a context from a pool
+ * so several can run at once. All contexts share one {@link RenderScript}, so allocations can be
+ * passed between them.
+ *
  * @hide
  */
 public class ProcessingContext {
 
+    // Enough for each core to run an operation; any more just wait.
+    private static final int MAX_POOLED_CONTEXTS = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+    private static volatile RenderScript sharedRS;
     private static volatile ProcessingContext instance;
 
+    private static final ContextPool<ProcessingContext> pool = new ContextPool<ProcessingContext>(MAX_POOLED_CONTEXTS) {
+        @Override
+        protected ProcessingContext create() {
+            return new ProcessingContext();
+        }
+    };
+
+    /**
+     * Get the context shared by callers that don't lease one.
+     */
     public static ProcessingContext getInstance() {
         // Use double locking
         if (instance == null) {
@@ -30,14 +54,57 @@ public class ProcessingContext {
         return instance;
     }
 
+    /**
+     * Lease a context for the calling thread, waiting if they're all in use.
+     * <p>
+     * Hand it back with {@link #release()} when done.
+     */
+    public static ProcessingContext acquire() {
+        return pool.acquire();
+    }
+
+    /**
+     * Get how often operations waited for a context.
+     */
+    public static ProcessingContextStats getStats() {
+        return pool.getStats();
+    }
+
+    public static void resetStats() {
+        pool.resetStats();
+    }
+
+    /**
+     * Get the RenderScript used by every context.
+     */
+    static RenderScript getSharedRS() {
+        if (sharedRS == null) {
+            synchronized (ProcessingContext.class) {
+                if (sharedRS == null) {
+                    sharedRS = RenderScript.create(Fritz.getAppContext());
+                }
+            }
+        }
+        return sharedRS;
+    }
+
     private RenderScript rs;
     private ScriptC_rotator rotatorScript;
     private ScriptIntrinsicResize resizeScript;
+    private ScriptC_transformer transformerScript;
 
     private ProcessingContext() {
-        rs = RenderScript.create(Fritz.getAppContext());
+        rs = getSharedRS();
         rotatorScript = new ScriptC_rotator(rs);
         resizeScript = ScriptIntrinsicResize.create(rs);
+        transformerScript = new ScriptC_transformer(rs);
+    }
+
+    /**
+     * Return a context from {@link #acquire()} to the pool.
+     */
+    public void release() {
+        pool.release(this);
     }
 
     public RenderScript getRS() {
@@ -55,6 +122,49 @@ public class ProcessingContext {
         return allocationOut;
     }
 
+    public synchronized Allocation resize(Allocation allocation, Element element, int width, int height, Size targetSize, ResizeMethod method) {
+        if (method == ResizeMethod.BICUBIC) {
+            return resize(allocation, element, targetSize);
+        }
+
+        return transform(allocation, element, ImageTransform.identity(width, height).resize(targetSize), method);
+    }
+
+    /**
+     * Sample a chain of operations from the allocation in one pass.
+     */
+    public synchronized Allocation transform(Allocation allocation, Element element, ImageTransform transform, ResizeMethod method) {
+        Type outType = Type.createXY(rs, element, transform.getWidth(), transform.getHeight());
+        Allocation allocationOut = Allocation.createTyped(rs, outType);
+
+        transformerScript.set_inImage(allocation);
+        transformerScript.set_origin(new Float2(transform.getOriginX(), transform.getOriginY()));
+        transformerScript.set_columnStep(new Float2(transform.getColumnStepX(), transform.getColumnStepY()));
+        transformerScript.set_rowStep(new Float2(transform.getRowStepX(), transform.getRowStepY()));
+        transformerScript.set_boundsMin(new Float2(transform.getBoundsLeft(), transform.getBoundsTop()));
+        transformerScript.set_boundsMax(new Float2(transform.getBoundsRight(), transform.getBoundsBottom()));
+        transformerScript.set_minIndex(new Int2(
+                Math.max(0, (int) Math.floor(transform.getBoundsLeft())),
+                Math.max(0, (int) Math.floor(transform.getBoundsTop()))));
+        transformerScript.set_maxIndex(new Int2(
+                Math.min(transform.getSourceWidth() - 1, (int) Math.ceil(transform.getBoundsRight())),
+                Math.min(transform.getSourceHeight() - 1, (int) Math.ceil(transform.getBoundsBottom()))));
+
+        switch (method) {
+            case NEAREST:
+                transformerScript.forEach_transform_nearest(allocationOut, allocationOut);
+                break;
+            case BILINEAR:
+                transformerScript.forEach_transform_bilinear(allocationOut, allocationOut);
+                break;
+            default:
+                transformerScript.forEach_transform_bicubic(allocationOut, allocationOut);
+                break;
+        }
+
+        return allocationOut;
+    }
+
     public synchronized Allocation rotate(Allocation allocation, Element element, int width, int height, int rotation) {
         rotatorScript.set_inWidth(width);
         rotatorScript.set_inHeight(height);
@@ -0,0 +1,62 @@
+package ai.fritz.vision;
+
+/**
+ * Counters for the RenderScript contexts that process images, to show how often threads wait for one.
+ */
+public class ProcessingContextStats {
+
+    private final int contextCount;
+    private final int idleCount;
+    private final long leaseCount;
+    private final long contendedLeaseCount;
+    private final long leaseWaitNanos;
+
+    public ProcessingContextStats(int contextCount, int idleCount, long leaseCount, long contendedLeaseCount, long leaseWaitNanos) {
+        this.contextCount = contextCount;
+        this.idleCount = idleCount;
+        this.leaseCount = leaseCount;
+        this.contendedLeaseCount = contendedLeaseCount;
+        this.leaseWaitNanos = leaseWaitNanos;
+    }
+
+    /**
+     * @return the number of contexts created.
+     */
+    public int getContextCount() {
+        return contextCount;
+    }
+
+    /**
+     * @return the number of contexts not currently in use.
+     */
+    public int getIdleCount() {
+        return idleCount;
+    }
+
+    /**
+     * @return the number of times a context was taken for an operation.
+     */
+    public long getLeaseCount() {
+        return leaseCount;
+    }
+
+    /**
+     * @return the number of times every context was in use and the operation had to wait.
+     */
+    public long getContendedLeaseCount() {
+        return contendedLeaseCount;
+    }
+
+    /**
+     * @return the total time spent waiting for a context, in nanoseconds.
+     */
+    public long getLeaseWaitNanos() {
+        return leaseWaitNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "contexts=" + contextCount + ", idle=" + idleCount + ", leases=" + leaseCount
+                + ", contended=" + contendedLeaseCount + ", waitMs=" + leaseWaitNanos / 1000000;
+    }
+}
@@ -0,0 +1,30 @@
+package ai.fritz.vision;
+
+import android.graphics.Bitmap;
+
+/**
+ * An RGBA image held by an {@link ImageProcessingBackend}.
+ * <p>
+ * Images are only passed to the backend that created them. Operations return new images and don't
+ * change their input.
+ */
+public interface ProcessingImage {
+
+    int getWidth();
+
+    int getHeight();
+
+    /**
+     * Copy the pixels into a new bitmap.
+     *
+     * @return an ARGB_8888 bitmap.
+     */
+    Bitmap toBitmap();
+
+    /**
+     * Copy the pixels into a new array.
+     *
+     * @return width * height pixels, 4 bytes each in RGBA order.
+     */
+    byte[] toRGBA();
+}
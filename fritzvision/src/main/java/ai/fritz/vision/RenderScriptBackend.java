@@ -0,0 +1,190 @@
+package ai.fritz.vision;
+
+import android.graphics.Bitmap;
+import android.renderscript.Allocation;
+import android.renderscript.Element;
+import android.renderscript.RenderScript;
+import android.renderscript.Type;
+import android.util.Size;
+
+/**
+ * Runs image operations with RenderScript, each on a {@link ProcessingContext} leased for it.
+ * <p>
+ * Images are allocations, so a chain of operations stays in RenderScript memory until the result is
+ * copied out. Operations from different threads run on different contexts, so they don't wait on
+ * each other.
+ */
+public class RenderScriptBackend implements ImageProcessingBackend {
+
+    /**
+     * An image held in a RenderScript allocation.
+     */
+    public static class AllocationImage implements ProcessingImage {
+        private final Allocation allocation;
+        private final int width;
+        private final int height;
+
+        public AllocationImage(Allocation allocation, int width, int height) {
+            this.allocation = allocation;
+            this.width = width;
+            this.height = height;
+        }
+
+        public Allocation getAllocation() {
+            return allocation;
+        }
+
+        @Override
+        public int getWidth() {
+            return width;
+        }
+
+        @Override
+        public int getHeight() {
+            return height;
+        }
+
+        @Override
+        public Bitmap toBitmap() {
+            Bitmap outputBitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            allocation.copyTo(outputBitmap);
+            return outputBitmap;
+        }
+
+        @Override
+        public byte[] toRGBA() {
+            byte[] destination = new byte[width * height * ByteImage.RGB_CHANNELS];
+            allocation.copyTo(destination);
+            return destination;
+        }
+    }
+
+    @Override
+    public ProcessingImage fromBitmap(Bitmap bitmap) {
+        Allocation allocation = Allocation.createFromBitmap(
+                ProcessingContext.getSharedRS(),
+                bitmap,
+                Allocation.MipmapControl.MIPMAP_NONE,
+                Allocation.USAGE_SCRIPT);
+        return new AllocationImage(allocation, bitmap.getWidth(), bitmap.getHeight());
+    }
+
+    @Override
+    public ProcessingImage fromRGBA(byte[] rgba, int width, int height) {
+        return new AllocationImage(createAllocation(rgba, width, height), width, height);
+    }
+
+    /**
+     * Convert YUV4208888 to RGB
+     * <p>
+     * Couldn't quite get the ScriptIntrinsicYuvToRGB to work with this format.
+     * It was mainly converting NV21 to RGB.
+     */
+    @Override
+    public ProcessingImage fromYUV(YUVImage yuvImage) {
+        byte[] rgba = YUVConverter.convertToRGBA(yuvImage);
+        return fromRGBA(rgba, yuvImage.getWidth(), yuvImage.getHeight());
+    }
+
+    @Override
+    public ProcessingImage rotate(ProcessingImage image, int rotation) {
+        Allocation allocation = getAllocation(image);
+        ProcessingContext context = ProcessingContext.acquire();
+        Allocation rotated;
+        try {
+            rotated = context.rotate(allocation, allocation.getElement(), image.getWidth(), image.getHeight(), rotation);
+        } finally {
+            context.release();
+        }
+        if (rotation == 180) {
+            return new AllocationImage(rotated, image.getWidth(), image.getHeight());
+        }
+        return new AllocationImage(rotated, image.getHeight(), image.getWidth());
+    }
+
+    @Override
+    public ProcessingImage flipHorizontal(ProcessingImage image) {
+        Allocation allocation = getAllocation(image);
+        ProcessingContext context = ProcessingContext.acquire();
+        Allocation flipped;
+        try {
+            flipped = context.flipHorizontal(allocation, allocation.getElement(), image.getWidth(), image.getHeight());
+        } finally {
+            context.release();
+        }
+        return new AllocationImage(flipped, image.getWidth(), image.getHeight());
+    }
+
+    @Override
+    public ProcessingImage flipVertical(ProcessingImage image) {
+        Allocation allocation = getAllocation(image);
+        ProcessingContext context = ProcessingContext.acquire();
+        Allocation flipped;
+        try {
+            flipped = context.flipVertical(allocation, allocation.getElement(), image.getWidth(), image.getHeight());
+        } finally {
+            context.release();
+        }
+        return new AllocationImage(flipped, image.getWidth(), image.getHeight());
+    }
+
+    @Override
+    public ProcessingImage resize(ProcessingImage image, Size targetSize, ResizeMethod method) {
+        Allocation allocation = getAllocation(image);
+        ProcessingContext context = ProcessingContext.acquire();
+        Allocation resized;
+        try {
+            resized = context.resize(allocation, allocation.getElement(), image.getWidth(), image.getHeight(),
+                    targetSize, method);
+        } finally {
+            context.release();
+        }
+        return new AllocationImage(resized, targetSize.getWidth(), targetSize.getHeight());
+    }
+
+    @Override
+    public ProcessingImage transform(ProcessingImage image, ImageTransform transform, ResizeMethod method) {
+        if (transform.isPixelAligned()) {
+            method = ResizeMethod.NEAREST;
+        } else if (method == ResizeMethod.BICUBIC && transform.isResize()) {
+            // The resize intrinsic is faster than the general kernel.
+            return resize(image, transform.getSize(), method);
+        }
+        Allocation allocation = getAllocation(image);
+        ProcessingContext context = ProcessingContext.acquire();
+        Allocation transformed;
+        try {
+            transformed = context.transform(allocation, allocation.getElement(), transform, method);
+        } finally {
+            context.release();
+        }
+        return new AllocationImage(transformed, transform.getWidth(), transform.getHeight());
+    }
+
+    /**
+     * Get the allocation behind an image, copying images from other backends into one.
+     */
+    static Allocation getAllocation(ProcessingImage image) {
+        if (image instanceof AllocationImage) {
+            return ((AllocationImage) image).getAllocation();
+        }
+        return createAllocation(image.toRGBA(), image.getWidth(), image.getHeight());
+    }
+
+    /**
+     * Configure and create an allocation from a byte array.
+     *
+     * @param source The source byte array.
+     * @param width The width of the image in the byte array.
+     * @param height The height of the image in the byte array.
+     * @return A configured allocation.
+     */
+    private static Allocation createAllocation(byte[] source, int width, int height) {
+        RenderScript rs = ProcessingContext.getSharedRS();
+        Type outType = Type.createXY(rs, Element.RGBA_8888(rs), width, height);
+        Allocation allocation = Allocation.createTyped(rs, outType, Allocation.MipmapControl.MIPMAP_NONE, Allocation.USAGE_SCRIPT);
+        allocation.copyFrom(source);
+
+        return allocation;
+    }
+}
@@ -0,0 +1,24 @@
+package ai.fritz.vision;
+
+/**
+ * How pixels are sampled when an image is resized.
+ * <p>
+ * All methods line up pixel centers between the source and the resized image.
+ */
+public enum ResizeMethod {
+
+    /**
+     * Take the closest source pixel. Fastest, but aliases when shrinking.
+     */
+    NEAREST,
+
+    /**
+     * Blend the 4 closest source pixels.
+     */
+    BILINEAR,
+
+    /**
+     * Blend the 16 closest source pixels with a Catmull-Rom cubic. Sharpest, and the default.
+     */
+    BICUBIC
+}
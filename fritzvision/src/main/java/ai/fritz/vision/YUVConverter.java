@@ -0,0 +1,260 @@
+package ai.fritz.vision;
+
+import android.util.Size;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+
+import ai.fritz.vision.base.PreprocessParams;
+
+/**
+ * Converts {@link YUVImage}s to RGBA or straight into model inputs.
+ * <p>
+ * The planes are read straight from the image's buffers (direct buffers for camera frames), so a
+ * frame is never copied whole before conversion.
+ */
+class YUVConverter {
+
+    private static final int kMaxChannelValue = 262143;
+    private static final int FLOAT_BYTES = 4;
+
+    private YUVConverter() {
+    }
+
+    /**
+     * Convert YUV420888 to RGBA8888.
+     *
+     * @param yuvImage The source YUV image.
+     * @return width * height RGBA pixels.
+     */
+    static byte[] convertToRGBA(YUVImage yuvImage) {
+        int width = yuvImage.getWidth();
+        int height = yuvImage.getHeight();
+        byte[] rgba = new byte[ByteImage.RGB_CHANNELS * width * height];
+        convertToRGBA(
+                yuvImage.getYBuffer(),
+                yuvImage.getUBuffer(),
+                yuvImage.getVBuffer(),
+                width,
+                height,
+                yuvImage.getYRowStride(),
+                yuvImage.getUVRowStride(),
+                yuvImage.getUVPixelStride(),
+                rgba);
+        return rgba;
+    }
+
+    /**
+     * Convert rows of a YUV420888 image to ARGB8888 pixels, as used by {@link android.graphics.Bitmap}.
+     * <p>
+     * Only the given rows are written, so bands of rows can be converted in parallel.
+     *
+     * @param yuvImage The source YUV image.
+     * @param argb     width * height pixels to write to.
+     * @param startRow The first row to convert.
+     * @param endRow   The row after the last one to convert.
+     */
+    static void convertToARGB(YUVImage yuvImage, int[] argb, int startRow, int endRow) {
+        int width = yuvImage.getWidth();
+        ByteBuffer yData = yuvImage.getYBuffer();
+        ByteBuffer uData = yuvImage.getUBuffer();
+        ByteBuffer vData = yuvImage.getVBuffer();
+        int yRowStride = yuvImage.getYRowStride();
+        int uvRowStride = yuvImage.getUVRowStride();
+        int uvPixelStride = yuvImage.getUVPixelStride();
+
+        int uvRowLength = ((width - 1) >> 1) * uvPixelStride + 1;
+        byte[] yRow = new byte[width];
+        byte[] uRow = new byte[uvRowLength];
+        byte[] vRow = new byte[uvRowLength];
+
+        for (int j = startRow; j < endRow; j++) {
+            yData.position(yRowStride * j);
+            yData.get(yRow, 0, width);
+            int pUV = uvRowStride * (j >> 1);
+            uData.position(pUV);
+            uData.get(uRow, 0, uvRowLength);
+            vData.position(pUV);
+            vData.get(vRow, 0, uvRowLength);
+
+            int offset = j * width;
+            for (int i = 0; i < width; i++) {
+                int uv_offset = (i >> 1) * uvPixelStride;
+                argb[offset + i] = 0xff000000 | toRGB(0xff & yRow[i], 0xff & uRow[uv_offset], 0xff & vRow[uv_offset]);
+            }
+        }
+    }
+
+    // Conversion modified from:
+    // https://github.com/tensorflow/examples/blob/master/lite/examples/image_classification/android/app/src/main/java/org/tensorflow/lite/examples/classification/env/ImageUtils.java
+    private static void convertToRGBA(
+            ByteBuffer yData,
+            ByteBuffer uData,
+            ByteBuffer vData,
+            int width,
+            int height,
+            int yRowStride,
+            int uvRowStride,
+            int uvPixelStride,
+            byte[] rgba) {
+        // Only the bytes a row uses are read: the last row of a plane can be shorter than the stride.
+        int uvRowLength = ((width - 1) >> 1) * uvPixelStride + 1;
+        byte[] yRow = new byte[width];
+        byte[] uRow = new byte[uvRowLength];
+        byte[] vRow = new byte[uvRowLength];
+
+        int yp = 0;
+        for (int j = 0; j < height; j++) {
+            yData.position(yRowStride * j);
+            yData.get(yRow, 0, width);
+            // U and V rows are shared by each pair of Y rows.
+            if ((j & 1) == 0) {
+                int pUV = uvRowStride * (j >> 1);
+                uData.position(pUV);
+                uData.get(uRow, 0, uvRowLength);
+                vData.position(pUV);
+                vData.get(vRow, 0, uvRowLength);
+            }
+
+            for (int i = 0; i < width; i++) {
+                int uv_offset = (i >> 1) * uvPixelStride;
+
+                int rgb = toRGB(0xff & yRow[i], 0xff & uRow[uv_offset], 0xff & vRow[uv_offset]);
+                rgba[yp++] = (byte) (rgb >> 16);
+                rgba[yp++] = (byte) (rgb >> 8);
+                rgba[yp++] = (byte) rgb;
+                rgba[yp++] = (byte) 0xff;
+            }
+        }
+    }
+
+    /**
+     * Write the image into a model input in one pass: oriented, resized and normalized.
+     * <p>
+     * Only the pixels of the output are computed. Each one is mapped back through the resize and
+     * orientation to a point in the source planes, where Y is sampled bilinearly and U and V from
+     * the chroma sample covering the point. RGB values are written at the buffer's position, which
+     * is moved past them.
+     *
+     * @param yuvImage     The source YUV image.
+     * @param orientation  The orientation to apply, as in {@link ImageProcessingPipeline#orient(ImageOrientation)}.
+     * @param targetWidth  The input width.
+     * @param targetHeight The input height.
+     * @param output       The input buffer, in native order.
+     * @param quantized    Write UINT8 values instead of floats.
+     * @param params       How to normalize float values, or null to write them as 0-255.
+     */
+    static void convertToTensor(YUVImage yuvImage, ImageOrientation orientation, int targetWidth, int targetHeight,
+                                ByteBuffer output, boolean quantized, PreprocessParams params) {
+        int width = yuvImage.getWidth();
+        int height = yuvImage.getHeight();
+        ByteBuffer yData = yuvImage.getYBuffer();
+        ByteBuffer uData = yuvImage.getUBuffer();
+        ByteBuffer vData = yuvImage.getVBuffer();
+        int yRowStride = yuvImage.getYRowStride();
+        int uvRowStride = yuvImage.getUVRowStride();
+        int uvPixelStride = yuvImage.getUVPixelStride();
+
+        ImageTransform transform = ImageTransform.identity(width, height)
+                .orient(orientation)
+                .resize(new Size(targetWidth, targetHeight));
+        float originX = transform.getOriginX();
+        float originY = transform.getOriginY();
+        float columnStepX = transform.getColumnStepX();
+        float columnStepY = transform.getColumnStepY();
+        float rowStepX = transform.getRowStepX();
+        float rowStepY = transform.getRowStepY();
+        float[] values = quantized ? null : createNormalizationTable(params);
+        byte[] byteRow = quantized ? new byte[targetWidth * 3] : null;
+        float[] floatRow = quantized ? null : new float[targetWidth * 3];
+        FloatBuffer floatOutput = quantized ? null : output.asFloatBuffer();
+        int maxX = width - 1;
+        int maxY = height - 1;
+
+        for (int ty = 0; ty < targetHeight; ty++) {
+            float rowX = originX + rowStepX * ty;
+            float rowY = originY + rowStepY * ty;
+            int index = 0;
+            for (int tx = 0; tx < targetWidth; tx++) {
+                float sx = rowX + columnStepX * tx;
+                float sy = rowY + columnStepY * tx;
+                float x = sx < 0 ? 0 : (sx > maxX ? maxX : sx);
+                float y = sy < 0 ? 0 : (sy > maxY ? maxY : sy);
+                int x0 = (int) x;
+                int y0 = (int) y;
+                int x1 = x0 < maxX ? x0 + 1 : x0;
+                int y1 = y0 < maxY ? y0 + 1 : y0;
+                float fx = x - x0;
+                float fy = y - y0;
+
+                int row0 = y0 * yRowStride;
+                int row1 = y1 * yRowStride;
+                float top = (0xff & yData.get(row0 + x0)) * (1 - fx) + (0xff & yData.get(row0 + x1)) * fx;
+                float bottom = (0xff & yData.get(row1 + x0)) * (1 - fx) + (0xff & yData.get(row1 + x1)) * fx;
+                int luma = (int) (top * (1 - fy) + bottom * fy + 0.5f);
+
+                int uvOffset = uvRowStride * (Math.round(y) >> 1) + uvPixelStride * (Math.round(x) >> 1);
+                int rgb = toRGB(luma, 0xff & uData.get(uvOffset), 0xff & vData.get(uvOffset));
+
+                if (quantized) {
+                    byteRow[index++] = (byte) (rgb >> 16);
+                    byteRow[index++] = (byte) (rgb >> 8);
+                    byteRow[index++] = (byte) rgb;
+                } else {
+                    floatRow[index++] = values[(rgb >> 16) & 0xff];
+                    floatRow[index++] = values[(rgb >> 8) & 0xff];
+                    floatRow[index++] = values[rgb & 0xff];
+                }
+            }
+            if (quantized) {
+                output.put(byteRow);
+            } else {
+                floatOutput.put(floatRow);
+            }
+        }
+
+        if (!quantized) {
+            output.position(output.position() + floatOutput.position() * FLOAT_BYTES);
+        }
+    }
+
+    /**
+     * The float written for each 0-255 channel value.
+     */
+    private static float[] createNormalizationTable(PreprocessParams params) {
+        float[] values = new float[256];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = params == null ? i : params.normalize(i);
+        }
+        return values;
+    }
+
+    /**
+     * Convert a pixel to RGB using integer math.
+     *
+     * @return the pixel packed as 0xRRGGBB.
+     */
+    private static int toRGB(int y, int u, int v) {
+        // Adjust and check YUV values
+        y = (y - 16) < 0 ? 0 : (y - 16);
+        u -= 128;
+        v -= 128;
+
+        // This is the floating point equivalent. We do the conversion in integer
+        // because some Android devices do not have floating point in hardware.
+        // nR = (int)(1.164 * nY + 2.018 * nU);
+        // nG = (int)(1.164 * nY - 0.813 * nV - 0.391 * nU);
+        // nB = (int)(1.164 * nY + 1.596 * nV);
+        int y1192 = 1192 * y;
+        int r = (y1192 + 1634 * v);
+        int g = (y1192 - 833 * v - 400 * u);
+        int b = (y1192 + 2066 * u);
+
+        // Clipping RGB values to be inside boundaries [ 0 , kMaxChannelValue ]
+        r = r > kMaxChannelValue ? kMaxChannelValue : (r < 0 ? 0 : r);
+        g = g > kMaxChannelValue ? kMaxChannelValue : (g < 0 ? 0 : g);
+        b = b > kMaxChannelValue ? kMaxChannelValue : (b < 0 ? 0 : b);
+
+        return ((r >> 10) << 16) | ((g >> 10) << 8) | (b >> 10);
+    }
+}
@@ -2,20 +2,46 @@ package ai.fritz.vision;
 
 import android.media.Image;
 
+import java.io.Closeable;
 import java.nio.ByteBuffer;
 
-public class YUVImage {
+/**
+ * A YUV_420_888 image: a full resolution Y plane and half resolution U and V planes.
+ * <p>
+ * An image made with {@link #wrap(Image)} reads the camera frame's planes in place instead of
+ * copying them. It takes ownership of the frame: keep it open until the image has been converted
+ * (e.g passed to a predictor), then call {@link #close()}, which closes the frame. Use
+ * {@link #copy()} to keep the pixels around after the frame is closed.
+ * <p>
+ * Images made from arrays or with {@link #YUVImage(Image)} own their pixels and closing them only
+ * drops the references.
+ */
+public class YUVImage implements Closeable {
+
+    private static final String CLOSED_MESSAGE = "The YUVImage has been closed.";
 
     private int width;
     private int height;
-    private byte[] y;
-    private byte[] u;
-    private byte[] v;
+    private ByteBuffer y;
+    private ByteBuffer u;
+    private ByteBuffer v;
     private int yRowStride;
     private int uvRowStride;
     private int uvPixelStride;
+    // The frame the planes belong to, if this image owns one.
+    private Image source;
+    private boolean closed;
 
     public YUVImage(byte[] y, byte[] u, byte[] v, int yRowStride, int uvRowStride, int uvPixelStride, int width, int height) {
+        this(ByteBuffer.wrap(y), ByteBuffer.wrap(u), ByteBuffer.wrap(v), yRowStride, uvRowStride, uvPixelStride, width, height);
+    }
+
+    /**
+     * Create an image that reads the given plane buffers in place.
+     * <p>
+     * The buffers are read from position 0 and must stay valid until the image is closed.
+     */
+    public YUVImage(ByteBuffer y, ByteBuffer u, ByteBuffer v, int yRowStride, int uvRowStride, int uvPixelStride, int width, int height) {
         this.width = width;
         this.height = height;
         this.y = y;
@@ -26,33 +52,83 @@ public class YUVImage {
         this.uvPixelStride = uvPixelStride;
     }
 
+    /**
+     * Create an image from a copy of the frame's planes. The frame can be closed right after.
+     *
+     * @param image The YUV_420_888 frame to copy.
+     */
     public YUVImage(Image image) {
-        width = image.getWidth();
-        height = image.getHeight();
+        this(copyPlane(image.getPlanes()[0]), copyPlane(image.getPlanes()[1]), copyPlane(image.getPlanes()[2]),
+                image.getPlanes()[0].getRowStride(),
+                // We know from documentation that RowStride and PixelStride are the same for U and V.
+                image.getPlanes()[1].getRowStride(),
+                image.getPlanes()[1].getPixelStride(),
+                image.getWidth(),
+                image.getHeight());
+    }
 
-        // Get the three image planes
+    /**
+     * Create an image that reads the frame's planes without copying them.
+     * <p>
+     * The image owns the frame from here on: the frame must not be closed by the caller, and is
+     * closed when the image is.
+     *
+     * @param image The YUV_420_888 frame to wrap.
+     * @return An image backed by read only views of the frame's planes.
+     */
+    public static YUVImage wrap(Image image) {
         Image.Plane[] planes = image.getPlanes();
+        YUVImage yuvImage = new YUVImage(
+                planes[0].getBuffer().asReadOnlyBuffer(),
+                planes[1].getBuffer().asReadOnlyBuffer(),
+                planes[2].getBuffer().asReadOnlyBuffer(),
+                planes[0].getRowStride(),
+                planes[1].getRowStride(),
+                planes[1].getPixelStride(),
+                image.getWidth(),
+                image.getHeight());
+        yuvImage.source = image;
+        return yuvImage;
+    }
 
-        // Get strides
-        yRowStride = planes[0].getRowStride();
-        uvRowStride = planes[1].getRowStride();  // We know from documentation that RowStride is the same for U and V.
-        uvPixelStride = planes[1].getPixelStride();  // We know from documentation that PixelStride is the same for U and V.
+    /**
+     * Copy the pixels into a new image that doesn't depend on the frame this one wraps.
+     *
+     * @return An image backed by arrays.
+     */
+    public YUVImage copy() {
+        return new YUVImage(copyBytes(getYBuffer()), copyBytes(getUBuffer()), copyBytes(getVBuffer()),
+                yRowStride, uvRowStride, uvPixelStride, width, height);
+    }
 
-        ByteBuffer buffer = planes[0].getBuffer();
-        y = new byte[buffer.remaining()];
-        buffer.get(y);
-        // Must rewind otherwise this will mutate the Image state.
-        buffer.rewind();
+    /**
+     * Release the planes, closing the frame if this image owns one. Reading the planes afterwards
+     * throws an {@link IllegalStateException}.
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        y = null;
+        u = null;
+        v = null;
+        if (source != null) {
+            source.close();
+            source = null;
+        }
+    }
 
-        buffer = planes[1].getBuffer();
-        u = new byte[buffer.remaining()];
-        buffer.get(u);
-        buffer.rewind();
+    public synchronized boolean isClosed() {
+        return closed;
+    }
 
-        buffer = planes[2].getBuffer();
-        v = new byte[buffer.remaining()];
-        buffer.get(v);
-        buffer.rewind();
+    /**
+     * Whether the planes are views of a frame rather than copies.
+     */
+    public synchronized boolean isWrapped() {
+        return source != null;
     }
 
     public int getWidth() {
@@ -63,16 +139,38 @@ public class YUVImage {
         return height;
     }
 
+    /**
+     * A view of the Y plane starting at position 0. The view has its own position, so readers
+     * don't affect each other.
+     */
+    public synchronized ByteBuffer getYBuffer() {
+        checkOpen();
+        return view(y);
+    }
+
+    public synchronized ByteBuffer getUBuffer() {
+        checkOpen();
+        return view(u);
+    }
+
+    public synchronized ByteBuffer getVBuffer() {
+        checkOpen();
+        return view(v);
+    }
+
+    /**
+     * The Y plane as an array. Copies the plane if it wraps a frame.
+     */
     public byte[] getY() {
-        return y;
+        return toArray(getYBuffer());
     }
 
     public byte[] getU() {
-        return u;
+        return toArray(getUBuffer());
     }
 
     public byte[] getV() {
-        return v;
+        return toArray(getVBuffer());
     }
 
     public int getYRowStride() {
@@ -86,4 +184,33 @@ public class YUVImage {
     public int getUVPixelStride() {
         return uvPixelStride;
     }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException(CLOSED_MESSAGE);
+        }
+    }
+
+    private static ByteBuffer view(ByteBuffer buffer) {
+        ByteBuffer view = buffer.duplicate();
+        view.rewind();
+        return view;
+    }
+
+    private static ByteBuffer copyPlane(Image.Plane plane) {
+        return ByteBuffer.wrap(copyBytes(view(plane.getBuffer())));
+    }
+
+    private static byte[] copyBytes(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    private static byte[] toArray(ByteBuffer buffer) {
+        if (buffer.hasArray() && buffer.arrayOffset() == 0 && buffer.array().length == buffer.remaining()) {
+            return buffer.array();
+        }
+        return copyBytes(buffer);
+    }
 }
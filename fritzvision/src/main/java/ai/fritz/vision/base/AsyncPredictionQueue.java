@@ -0,0 +1,220 @@
+package ai.fritz.vision.base;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+import ai.fritz.core.FritzExecutors;
+import ai.fritz.vision.FritzVisionImage;
+
+/**
+ * Runs predictions for a single predictor on the SDK's shared compute pool.
+ * <p>
+ * Only one prediction for the predictor runs at a time. Images that arrive while one is running are
+ * queued or dropped depending on the {@link OverflowPolicy}. An image that was accepted but is
+ * dropped before it runs gets {@link PredictionCallback#onPredictionFailed} with a
+ * {@link CancellationException}, so every accepted image gets exactly one callback.
+ *
+ * @param <T> the type of result from the predictor.
+ */
+class AsyncPredictionQueue<T> {
+
+    private static class PendingPrediction<T> {
+        final FritzVisionImage visionImage;
+        final PredictionCallback<T> callback;
+
+        PendingPrediction(FritzVisionImage visionImage, PredictionCallback<T> callback) {
+            this.visionImage = visionImage;
+            this.callback = callback;
+        }
+    }
+
+    private final FritzVisionPredictor<T> predictor;
+    private final OverflowPolicy overflowPolicy;
+    private final int maxQueued;
+    private final ArrayDeque<PendingPrediction<T>> pending = new ArrayDeque<>();
+
+    private boolean isRunning = false;
+    private boolean isClosed = false;
+
+    private long submittedCount = 0;
+    private long droppedCount = 0;
+    private long completedCount = 0;
+    private long failedCount = 0;
+
+    // The thread running a prediction for this queue, if any
+    private volatile Thread inferenceThread;
+
+    private final Runnable runNextTask = new Runnable() {
+        @Override
+        public void run() {
+            runNext();
+        }
+    };
+
+    AsyncPredictionQueue(FritzVisionPredictor<T> predictor, OverflowPolicy overflowPolicy, int maxQueued) {
+        this.predictor = predictor;
+        this.overflowPolicy = overflowPolicy;
+        this.maxQueued = Math.max(1, maxQueued);
+    }
+
+    /**
+     * Submit an image for prediction.
+     *
+     * @return true if the image will run or get a callback, false if it was dropped right away.
+     */
+    boolean submit(FritzVisionImage visionImage, PredictionCallback<T> callback) {
+        List<PendingPrediction<T>> evicted = null;
+        boolean accepted;
+        synchronized (this) {
+            if (isClosed) {
+                throw new IllegalStateException("The predictor has been closed.");
+            }
+            submittedCount++;
+
+            if (!isRunning) {
+                isRunning = true;
+                pending.add(new PendingPrediction<>(visionImage, callback));
+                FritzExecutors.compute().execute(runNextTask);
+                return true;
+            }
+
+            switch (overflowPolicy) {
+                case DROP_NEWEST:
+                    droppedCount++;
+                    accepted = false;
+                    break;
+                case KEEP_LATEST:
+                    evicted = takePending();
+                    pending.add(new PendingPrediction<>(visionImage, callback));
+                    accepted = true;
+                    break;
+                case BOUNDED_QUEUE:
+                default:
+                    if (pending.size() >= maxQueued) {
+                        droppedCount++;
+                        accepted = false;
+                    } else {
+                        pending.add(new PendingPrediction<>(visionImage, callback));
+                        accepted = true;
+                    }
+                    break;
+            }
+        }
+        notifyDropped(evicted);
+        return accepted;
+    }
+
+    synchronized AsyncPredictionStats getStats() {
+        return new AsyncPredictionStats(submittedCount, droppedCount, completedCount, failedCount, pending.size());
+    }
+
+    /**
+     * Stop accepting images and drop any that haven't started. Waits for a running prediction to
+     * finish unless called from a callback.
+     */
+    void close() {
+        List<PendingPrediction<T>> drained;
+        synchronized (this) {
+            if (isClosed) {
+                return;
+            }
+            isClosed = true;
+            drained = takePending();
+        }
+        notifyDropped(drained);
+
+        synchronized (this) {
+            if (Thread.currentThread() == inferenceThread) {
+                return;
+            }
+            boolean interrupted = false;
+            while (isRunning) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Remove the images waiting to run and count them as dropped. Called while holding the lock.
+     */
+    private List<PendingPrediction<T>> takePending() {
+        if (pending.isEmpty()) {
+            return null;
+        }
+        List<PendingPrediction<T>> taken = new ArrayList<>(pending);
+        pending.clear();
+        droppedCount += taken.size();
+        return taken;
+    }
+
+    /**
+     * Tell the callbacks for accepted images that they won't run, so they can release them.
+     * Called without holding the lock.
+     */
+    private void notifyDropped(List<PendingPrediction<T>> dropped) {
+        if (dropped == null) {
+            return;
+        }
+        for (PendingPrediction<T> prediction : dropped) {
+            prediction.callback.onPredictionFailed(prediction.visionImage,
+                    new CancellationException("The image was dropped before it ran."));
+        }
+    }
+
+    private void runNext() {
+        PendingPrediction<T> next;
+        synchronized (this) {
+            next = pending.poll();
+            if (next == null) {
+                // Closed before the task started
+                isRunning = false;
+                notifyAll();
+                return;
+            }
+        }
+
+        inferenceThread = Thread.currentThread();
+        try {
+            runPrediction(next);
+        } finally {
+            inferenceThread = null;
+            // Schedule the next image as a new task so an exception thrown by a callback
+            // doesn't leave the queue stuck, and other predictors sharing the pool get a turn.
+            synchronized (this) {
+                if (pending.isEmpty() || isClosed) {
+                    isRunning = false;
+                    notifyAll();
+                } else {
+                    FritzExecutors.compute().execute(runNextTask);
+                }
+            }
+        }
+    }
+
+    private void runPrediction(PendingPrediction<T> prediction) {
+        T result;
+        try {
+            result = predictor.predict(prediction.visionImage);
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                failedCount++;
+            }
+            prediction.callback.onPredictionFailed(prediction.visionImage, e);
+            return;
+        }
+
+        synchronized (this) {
+            completedCount++;
+        }
+        prediction.callback.onPredictionComplete(prediction.visionImage, result);
+    }
+}
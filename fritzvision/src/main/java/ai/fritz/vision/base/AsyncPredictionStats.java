@@ -0,0 +1,62 @@
+package ai.fritz.vision.base;
+
+/**
+ * Counters for images passed to {@link FritzVisionPredictor#predictAsync}.
+ */
+public class AsyncPredictionStats {
+
+    private final long submittedCount;
+    private final long droppedCount;
+    private final long completedCount;
+    private final long failedCount;
+    private final int queuedCount;
+
+    public AsyncPredictionStats(long submittedCount, long droppedCount, long completedCount, long failedCount, int queuedCount) {
+        this.submittedCount = submittedCount;
+        this.droppedCount = droppedCount;
+        this.completedCount = completedCount;
+        this.failedCount = failedCount;
+        this.queuedCount = queuedCount;
+    }
+
+    /**
+     * @return the number of images passed to predictAsync.
+     */
+    public long getSubmittedCount() {
+        return submittedCount;
+    }
+
+    /**
+     * @return the number of images dropped by the overflow policy.
+     */
+    public long getDroppedCount() {
+        return droppedCount;
+    }
+
+    /**
+     * @return the number of predictions that finished successfully.
+     */
+    public long getCompletedCount() {
+        return completedCount;
+    }
+
+    /**
+     * @return the number of predictions that threw an exception.
+     */
+    public long getFailedCount() {
+        return failedCount;
+    }
+
+    /**
+     * @return the number of images currently waiting to run.
+     */
+    public int getQueuedCount() {
+        return queuedCount;
+    }
+
+    @Override
+    public String toString() {
+        return "submitted=" + submittedCount + ", dropped=" + droppedCount + ", completed=" + completedCount
+                + ", failed=" + failedCount + ", queued=" + queuedCount;
+    }
+}
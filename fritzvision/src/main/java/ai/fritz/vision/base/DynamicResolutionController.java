@@ -0,0 +1,126 @@
+package ai.fritz.vision.base;
+
+import android.util.Size;
+
+/**
+ * Picks the model input size from recent inference times.
+ * <p>
+ * When the average inference time over the sample window is above the target (plus the hysteresis
+ * margin), the input shrinks in proportion to the overrun. When it's below the target (minus the margin)
+ * and the next larger size is estimated to still fit, the input grows by one step. Inference time is
+ * assumed to grow with the number of pixels. The window is cleared whenever the size changes so
+ * each size is measured on its own.
+ */
+public class DynamicResolutionController {
+
+    private final Size nativeSize;
+    private final DynamicResolutionOptions options;
+    private final long targetNanos;
+    private final long[] samples;
+
+    private int numSamples = 0;
+    private int nextSample = 0;
+    private float scale;
+    private Size inputSize;
+
+    /**
+     * @param nativeSize the input size the model was built with.
+     * @param options    the latency target and bounds.
+     */
+    public DynamicResolutionController(Size nativeSize, DynamicResolutionOptions options) {
+        if (options.targetLatencyMs <= 0) {
+            throw new IllegalArgumentException("The target latency must be positive.");
+        }
+        if (options.minScale <= 0 || options.minScale > options.maxScale) {
+            throw new IllegalArgumentException("The scale bounds must satisfy 0 < minScale <= maxScale.");
+        }
+        if (options.sizeAlignment < 1 || options.sampleWindow < 1 || options.scaleStep <= 0) {
+            throw new IllegalArgumentException("The size alignment, sample window and scale step must be positive.");
+        }
+        this.nativeSize = nativeSize;
+        this.options = options;
+        this.targetNanos = options.targetLatencyMs * 1000000L;
+        this.samples = new long[options.sampleWindow];
+        this.scale = Math.max(options.minScale, Math.min(1f, options.maxScale));
+        this.inputSize = sizeForScale(scale);
+    }
+
+    /**
+     * Get the input size to use for the next prediction.
+     *
+     * @return the input size.
+     */
+    public synchronized Size getInputSize() {
+        return inputSize;
+    }
+
+    /**
+     * Get the current input size as a fraction of the model's input size.
+     *
+     * @return the scale.
+     */
+    public synchronized float getScale() {
+        return scale;
+    }
+
+    /**
+     * Record how long an inference took at the current input size.
+     *
+     * @param inferenceNanos the inference time.
+     * @return true if the input size changed.
+     */
+    public synchronized boolean recordInference(long inferenceNanos) {
+        samples[nextSample] = inferenceNanos;
+        nextSample = (nextSample + 1) % samples.length;
+        if (numSamples < samples.length) {
+            numSamples++;
+        }
+        if (numSamples < samples.length) {
+            return false;
+        }
+
+        long total = 0;
+        for (long sample : samples) {
+            total += sample;
+        }
+        float average = (float) total / samples.length;
+
+        float newScale = scale;
+        if (average > targetNanos * (1 + options.hysteresis)) {
+            // Shrink at least one step, more if we're far over the target.
+            float fittedScale = scale * (float) Math.sqrt(targetNanos / average);
+            newScale = Math.max(options.minScale, Math.min(scale - options.scaleStep, fittedScale));
+        } else if (average < targetNanos * (1 - options.hysteresis) && scale < options.maxScale) {
+            float grownScale = Math.min(options.maxScale, scale + options.scaleStep);
+            float estimate = average * (grownScale / scale) * (grownScale / scale);
+            if (estimate < targetNanos) {
+                newScale = grownScale;
+            }
+        }
+
+        if (newScale == scale) {
+            return false;
+        }
+        scale = newScale;
+        Size newSize = sizeForScale(newScale);
+        if (newSize.equals(inputSize)) {
+            return false;
+        }
+        inputSize = newSize;
+        numSamples = 0;
+        nextSample = 0;
+        return true;
+    }
+
+    private Size sizeForScale(float scale) {
+        return new Size(alignDimension(nativeSize.getWidth(), scale), alignDimension(nativeSize.getHeight(), scale));
+    }
+
+    private int alignDimension(int nativeDimension, float scale) {
+        // Keep the remainder so models sized as a multiple of the stride plus one (e.g 257) stay that way.
+        int alignment = options.sizeAlignment;
+        int remainder = nativeDimension % alignment;
+        int steps = Math.round((nativeDimension - remainder) * scale / alignment);
+        return Math.max(1, steps) * alignment + remainder;
+    }
+}
@@ -0,0 +1,59 @@
+package ai.fritz.vision.base;
+
+/**
+ * Options for {@link DynamicResolutionController}, which shrinks or grows the model input to stay
+ * within a latency budget.
+ * <p>
+ * Only use this with fully convolutional models (e.g segmentation, style transfer and pose estimation)
+ * that accept any input size.
+ */
+public class DynamicResolutionOptions {
+
+    public static final long DEFAULT_TARGET_LATENCY_MS = 33;
+
+    /**
+     * The inference time to aim for.
+     */
+    public long targetLatencyMs;
+
+    /**
+     * The smallest input as a fraction of the model's input size.
+     */
+    public float minScale;
+
+    /**
+     * The largest input as a fraction of the model's input size.
+     */
+    public float maxScale;
+
+    /**
+     * How much the scale grows in one step.
+     */
+    public float scaleStep;
+
+    /**
+     * Input dimensions are rounded to a multiple of this (plus the remainder of the model's input size),
+     * usually the model's output stride.
+     */
+    public int sizeAlignment;
+
+    /**
+     * The number of inference times averaged before the size can change.
+     */
+    public int sampleWindow;
+
+    /**
+     * How far (as a fraction of the target) the average has to be from the target before the size changes.
+     */
+    public float hysteresis;
+
+    public DynamicResolutionOptions() {
+        targetLatencyMs = DEFAULT_TARGET_LATENCY_MS;
+        minScale = .5f;
+        maxScale = 1f;
+        scaleStep = .125f;
+        sizeAlignment = 16;
+        sampleWindow = 8;
+        hysteresis = .15f;
+    }
+}
@@ -27,6 +27,40 @@ public abstract class FeatureBase<Predictor extends FritzVisionPredictor, Option
         loadPredictor(managedModel, options, statusListener, false);
     }
 
+    /**
+     * Create a pool of predictors for the model to run predictions from multiple threads.
+     *
+     * @param onDeviceModel the model to run.
+     * @param poolOptions   the pool size and lease policy.
+     * @return the predictor pool.
+     */
+    public FritzVisionPredictorPool<Predictor> getPredictorPool(OnDeviceModel onDeviceModel, FritzVisionPredictorPoolOptions poolOptions) {
+        return getPredictorPool(onDeviceModel, getDefaultOptions(), poolOptions);
+    }
+
+    /**
+     * Create a pool of predictors for the model to run predictions from multiple threads.
+     * <p>
+     * Every predictor in the pool has its own interpreter and buffers. GPU predictors are bound to the
+     * thread they were created on so they cannot be pooled.
+     *
+     * @param onDeviceModel the model to run.
+     * @param options       the options used for every predictor in the pool.
+     * @param poolOptions   the pool size and lease policy.
+     * @return the predictor pool.
+     */
+    public FritzVisionPredictorPool<Predictor> getPredictorPool(final OnDeviceModel onDeviceModel, final Options options, FritzVisionPredictorPoolOptions poolOptions) {
+        if (options.useGPU || options.autoTuneGPU) {
+            throw new IllegalArgumentException("GPU predictors are tied to the thread that created them and cannot be pooled.");
+        }
+        return new FritzVisionPredictorPool<>(new FritzVisionPredictorPool.PredictorFactory<Predictor>() {
+            @Override
+            public Predictor create() {
+                return getPredictor(onDeviceModel, options);
+            }
+        }, poolOptions);
+    }
+
     public abstract Predictor getPredictor(OnDeviceModel onDeviceModel, Options options);
 
     public abstract void loadPredictor(final ManagedModel managedModel, final Options options, final PredictorStatusListener statusListener, boolean useWifi);
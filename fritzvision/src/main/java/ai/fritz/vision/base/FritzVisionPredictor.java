@@ -1,17 +1,28 @@
 package ai.fritz.vision.base;
 
+import android.util.Log;
 import android.util.Size;
 
 import org.tensorflow.lite.Interpreter;
 import org.tensorflow.lite.Tensor;
 
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
 
+import ai.fritz.core.Fritz;
+import ai.fritz.core.FritzExecutors;
 import ai.fritz.core.FritzOnDeviceModel;
 import ai.fritz.core.FritzTFLiteInterpreter;
+import ai.fritz.core.InterpreterAutoTuner;
+import ai.fritz.core.InterpreterConfig;
 import ai.fritz.core.TFLInterpreterOptionBuilder;
+import ai.fritz.core.metrics.PredictionMetrics;
+import ai.fritz.core.metrics.PredictionStage;
 import ai.fritz.vision.ByteImage;
 import ai.fritz.vision.FritzVisionImage;
+import ai.fritz.vision.ImageInputTensor;
 
 /**
  * TFL Predictor
@@ -22,10 +33,23 @@ public abstract class FritzVisionPredictor<T> {
 
     private static final int DEFAULT_HEIGHT_IDX = 1;
     private static final int DEFAULT_WIDTH_IDX = 2;
+    private static final String TAG = FritzVisionPredictor.class.getSimpleName();
+
+    // Tuning is slow and rare, so it runs one model at a time.
+    private static final Executor tuneExecutor = FritzExecutors.limitedCompute(1);
 
     protected FritzOnDeviceModel onDeviceModel;
     protected FritzTFLiteInterpreter interpreter;
     protected Size inputSize;
+    protected int maxBatchSize = FritzVisionPredictorOptions.DEFAULT_MAX_BATCH_SIZE;
+
+    private OverflowPolicy overflowPolicy = OverflowPolicy.KEEP_LATEST;
+    private int maxQueuedPredictions = FritzVisionPredictorOptions.DEFAULT_MAX_QUEUED_PREDICTIONS;
+    private boolean usesGPU = false;
+    private AsyncPredictionQueue<T> asyncQueue;
+    private DynamicResolutionController resolutionController;
+    private int interpreterVersion;
+    private volatile InterpreterConfig interpreterConfig;
 
     public FritzVisionPredictor(FritzOnDeviceModel onDeviceModel) {
         this(onDeviceModel, new TFLInterpreterOptionBuilder() {
@@ -38,7 +62,74 @@ public abstract class FritzVisionPredictor<T> {
 
     public FritzVisionPredictor(FritzOnDeviceModel onDeviceModel, TFLInterpreterOptionBuilder optionBuilder) {
         this.onDeviceModel = onDeviceModel;
-        this.interpreter = new FritzTFLiteInterpreter(onDeviceModel, optionBuilder);
+        List<InterpreterConfig> backgroundTuneCandidates = null;
+        if (optionBuilder instanceof FritzVisionPredictorOptions) {
+            FritzVisionPredictorOptions options = (FritzVisionPredictorOptions) optionBuilder;
+            this.maxBatchSize = Math.max(1, options.maxBatchSize);
+            this.overflowPolicy = options.overflowPolicy;
+            this.maxQueuedPredictions = options.maxQueuedPredictions;
+            // Tuned settings are kept here rather than written back to the options, which may be
+            // shared with other predictors.
+            this.interpreterConfig = new InterpreterConfig(options.numThreads, options.useNNAPI, options.useGPU);
+            if (options.autoTune) {
+                List<InterpreterConfig> candidates = options.getAutoTuneCandidates();
+                if (options.useGPU || options.autoTuneGPU) {
+                    // GPU candidates have to be benchmarked on the thread that runs predictions.
+                    this.interpreterConfig = InterpreterAutoTuner.getTunedConfig(Fritz.getAppContext(), onDeviceModel, candidates);
+                } else {
+                    InterpreterConfig saved = InterpreterAutoTuner.getSavedConfig(Fritz.getAppContext(), onDeviceModel, candidates);
+                    if (saved != null) {
+                        this.interpreterConfig = saved;
+                    } else {
+                        backgroundTuneCandidates = candidates;
+                    }
+                }
+            }
+            this.usesGPU = interpreterConfig.getUseGPU();
+            this.interpreter = new FritzTFLiteInterpreter(onDeviceModel, interpreterConfig);
+        } else {
+            this.interpreter = new FritzTFLiteInterpreter(onDeviceModel, optionBuilder);
+        }
+        this.interpreterVersion = interpreter.getInterpreterVersion();
+        // GPU interpreters are tied to the thread that created them.
+        this.interpreter.setSwapInBackground(!usesGPU);
+        if (backgroundTuneCandidates != null) {
+            autoTuneInBackground(backgroundTuneCandidates);
+        }
+    }
+
+    /**
+     * Benchmark the candidates off the calling thread and switch to the fastest once it's known.
+     * Predictions run with the configured settings until then.
+     */
+    private void autoTuneInBackground(final List<InterpreterConfig> candidates) {
+        final FritzOnDeviceModel model = onDeviceModel;
+        tuneExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    InterpreterConfig config = InterpreterAutoTuner.getTunedConfig(Fritz.getAppContext(), model, candidates);
+                    if (!config.equals(interpreterConfig)) {
+                        interpreterConfig = config;
+                        interpreter.reconfigure(config);
+                    }
+                } catch (RuntimeException e) {
+                    Log.e(TAG, "Failed to tune " + model, e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Get the hardware settings the interpreter runs with.
+     * <p>
+     * With {@link FritzVisionPredictorOptions#autoTune}, this changes to the tuned settings once
+     * tuning finishes.
+     *
+     * @return the settings, or null if the predictor wasn't created with {@link FritzVisionPredictorOptions}.
+     */
+    public InterpreterConfig getInterpreterConfig() {
+        return interpreterConfig;
     }
 
     public Size getInputSize() {
@@ -55,6 +146,13 @@ public abstract class FritzVisionPredictor<T> {
     }
 
     public void close() {
+        AsyncPredictionQueue<T> queue;
+        synchronized (this) {
+            queue = asyncQueue;
+        }
+        if (queue != null) {
+            queue.close();
+        }
         interpreter.close();
     }
 
@@ -66,4 +164,159 @@ public abstract class FritzVisionPredictor<T> {
     }
 
     public abstract T predict(FritzVisionImage visionImage);
+
+    /**
+     * Run a prediction on the predictor's inference thread.
+     * <p>
+     * Only one prediction runs at a time. Images submitted while the thread is busy are handled
+     * with the overflow policy from the predictor options (by default only the latest image is kept).
+     * Don't call {@link #predict(FritzVisionImage)} on the same predictor while async predictions are running.
+     *
+     * @param visionImage The image to run inference on.
+     * @param callback    Called once with the result, or told the image was dropped. See {@link PredictionCallback}.
+     * @return true if the image was accepted and the callback will be called, false if it was dropped
+     * right away and the caller still owns it.
+     */
+    public boolean predictAsync(FritzVisionImage visionImage, PredictionCallback<T> callback) {
+        return getAsyncQueue().submit(visionImage, callback);
+    }
+
+    /**
+     * Get the counters for images passed to {@link #predictAsync}.
+     *
+     * @return the current stats.
+     */
+    public AsyncPredictionStats getAsyncStats() {
+        AsyncPredictionQueue<T> queue;
+        synchronized (this) {
+            queue = asyncQueue;
+        }
+        if (queue == null) {
+            return new AsyncPredictionStats(0, 0, 0, 0, 0);
+        }
+        return queue.getStats();
+    }
+
+    private synchronized AsyncPredictionQueue<T> getAsyncQueue() {
+        if (asyncQueue == null) {
+            // GPU interpreters must run on the thread that created them.
+            if (usesGPU) {
+                throw new IllegalStateException("predictAsync isn't supported for GPU predictors.");
+            }
+            asyncQueue = new AsyncPredictionQueue<>(this, overflowPolicy, maxQueuedPredictions);
+        }
+        return asyncQueue;
+    }
+
+    /**
+     * Check if a new model version was swapped into the interpreter since the last call.
+     * <p>
+     * Call before each prediction and set up the tensor buffers again when it returns true.
+     *
+     * @return true if the interpreter changed.
+     */
+    protected boolean checkInterpreterSwapped() {
+        int version = interpreter.getInterpreterVersion();
+        if (version == interpreterVersion) {
+            return false;
+        }
+        interpreterVersion = version;
+        return true;
+    }
+
+    /**
+     * Record the time spent in a prediction stage with {@link PredictionMetrics}.
+     *
+     * @param stage      The stage that finished.
+     * @param startNanos When the stage started, from {@link System#nanoTime()}.
+     */
+    protected void recordStage(PredictionStage stage, long startNanos) {
+        PredictionMetrics.recordSince(onDeviceModel.getModelId(), stage, startNanos);
+    }
+
+    /**
+     * Adjust the input size to stay within a latency budget. Call once the input size is known.
+     *
+     * @param options The latency target and size bounds, or null to keep the model's input size.
+     */
+    protected void enableDynamicResolution(DynamicResolutionOptions options) {
+        if (options != null) {
+            resolutionController = new DynamicResolutionController(inputSize, options);
+        }
+    }
+
+    /**
+     * Get the controller picking the input size.
+     *
+     * @return the controller or null if dynamic resolution isn't enabled.
+     */
+    public DynamicResolutionController getResolutionController() {
+        return resolutionController;
+    }
+
+    /**
+     * Resize the image input to the size picked by the resolution controller.
+     *
+     * @param imageInputTensor The image input.
+     * @return true if the input was resized and the tensor buffers need to be set up again.
+     */
+    protected boolean applyInputResolution(ImageInputTensor imageInputTensor) {
+        if (resolutionController == null) {
+            return false;
+        }
+        Size size = resolutionController.getInputSize();
+        if (size.equals(inputSize)) {
+            return false;
+        }
+        int tensorIndex = imageInputTensor.getTensorIndex();
+        int[] shape = interpreter.getInputTensor(tensorIndex).shape().clone();
+        shape[DEFAULT_HEIGHT_IDX] = size.getHeight();
+        shape[DEFAULT_WIDTH_IDX] = size.getWidth();
+        interpreter.resizeInput(tensorIndex, shape);
+        interpreter.allocateTensors();
+        return true;
+    }
+
+    /**
+     * Feed an inference time to the resolution controller.
+     *
+     * @param startNanos When inference started, from {@link System#nanoTime()}.
+     */
+    protected void recordInference(long startNanos) {
+        if (resolutionController != null) {
+            resolutionController.recordInference(System.nanoTime() - startNanos);
+        }
+    }
+
+    /**
+     * Run predictions on a list of images.
+     * <p>
+     * Images are grouped into batches of up to maxBatchSize and each batch runs through the
+     * model in a single invocation when the predictor supports it.
+     *
+     * @param visionImages The images to run inference on.
+     * @return a result for each image, in the same order.
+     */
+    public List<T> predictBatch(List<FritzVisionImage> visionImages) {
+        List<T> results = new ArrayList<>(visionImages.size());
+        for (int start = 0; start < visionImages.size(); start += maxBatchSize) {
+            int end = Math.min(visionImages.size(), start + maxBatchSize);
+            results.addAll(runBatch(visionImages.subList(start, end)));
+        }
+        return results;
+    }
+
+    /**
+     * Run a single batch of images. By default each image is predicted individually.
+     *
+     * @param visionImages The images in the batch (at most maxBatchSize).
+     * @return a result for each image, in the same order.
+     */
+    protected List<T> runBatch(List<FritzVisionImage> visionImages) {
+        List<T> results = new ArrayList<>(visionImages.size());
+        for (FritzVisionImage visionImage : visionImages) {
+            results.add(predict(visionImage));
+        }
+        return results;
+    }
 }
@@ -1,8 +1,11 @@
 package ai.fritz.vision.base;
 
 import org.tensorflow.lite.Interpreter;
-import org.tensorflow.lite.gpu.GpuDelegate;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import ai.fritz.core.InterpreterConfig;
 import ai.fritz.core.TFLInterpreterOptionBuilder;
 
 /**
@@ -10,31 +13,84 @@ import ai.fritz.core.TFLInterpreterOptionBuilder;
  */
 public class FritzVisionPredictorOptions implements TFLInterpreterOptionBuilder {
 
+    public static final int DEFAULT_MAX_BATCH_SIZE = 8;
+    public static final int DEFAULT_MAX_QUEUED_PREDICTIONS = 4;
+
     public boolean useGPU;
     public boolean useNNAPI;
     public int numThreads;
 
+    /**
+     * The maximum number of images run through the model at once with predictBatch.
+     */
+    public int maxBatchSize;
+
+    /**
+     * How predictAsync handles images that arrive while a prediction is running.
+     */
+    public OverflowPolicy overflowPolicy;
+
+    /**
+     * The number of images predictAsync keeps waiting with {@link OverflowPolicy#BOUNDED_QUEUE}.
+     */
+    public int maxQueuedPredictions;
+
+    /**
+     * Benchmark thread counts and NNAPI the first time the model is loaded on a device and use the fastest.
+     * <p>
+     * The choice is saved per model version and device, so later predictors reuse it without benchmarking.
+     * Without the GPU, benchmarking runs in the background and the predictor switches to the tuned
+     * settings when it finishes. The options themselves aren't changed; see
+     * {@link FritzVisionPredictor#getInterpreterConfig()} for the settings in use.
+     */
+    public boolean autoTune;
+
+    /**
+     * Include the GPU when auto tuning. GPU predictors must run on the thread that created them
+     * and can't use predictAsync or be pooled. Benchmarks with the GPU run when the predictor is created.
+     */
+    public boolean autoTuneGPU;
+
     @Override
     public Interpreter.Options buildInterpreterOptions() {
-        Interpreter.Options interpreterOptions = new Interpreter.Options();
-
-        if (useGPU) {
-            GpuDelegate.Options delegateOptions = new GpuDelegate.Options();
-            delegateOptions.setPrecisionLossAllowed(true);
-            interpreterOptions.addDelegate(new GpuDelegate(delegateOptions));
-        } else {
-            // Never use this with the GPU option. GPU takes precedence.
-            interpreterOptions.setUseNNAPI(useNNAPI);
-        }
+        return new InterpreterConfig(numThreads, useNNAPI, useGPU).buildInterpreterOptions();
+    }
 
-        interpreterOptions.setNumThreads(numThreads);
+    /**
+     * Get the interpreter configs to benchmark with {@link #autoTune}.
+     *
+     * @return the candidates, starting with the current settings.
+     */
+    public List<InterpreterConfig> getAutoTuneCandidates() {
+        List<InterpreterConfig> candidates = new ArrayList<>();
+        candidates.add(new InterpreterConfig(numThreads, useNNAPI, useGPU));
 
-        return interpreterOptions;
+        int maxThreads = Runtime.getRuntime().availableProcessors();
+        for (int threads = 1; threads < maxThreads; threads *= 2) {
+            addCandidate(candidates, new InterpreterConfig(threads, false, false));
+        }
+        addCandidate(candidates, new InterpreterConfig(maxThreads, false, false));
+        addCandidate(candidates, new InterpreterConfig(numThreads, true, false));
+        if (autoTuneGPU) {
+            addCandidate(candidates, new InterpreterConfig(numThreads, false, true));
+        }
+        return candidates;
+    }
+
+    private static void addCandidate(List<InterpreterConfig> candidates, InterpreterConfig config) {
+        if (!candidates.contains(config)) {
+            candidates.add(config);
+        }
     }
 
     public FritzVisionPredictorOptions() {
         useGPU = false;
         useNNAPI = false;
         numThreads = Runtime.getRuntime().availableProcessors();
+        maxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+        overflowPolicy = OverflowPolicy.KEEP_LATEST;
+        maxQueuedPredictions = DEFAULT_MAX_QUEUED_PREDICTIONS;
+        autoTune = false;
+        autoTuneGPU = false;
     }
 }
@@ -0,0 +1,242 @@
+package ai.fritz.vision.base;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import ai.fritz.vision.FritzVisionImage;
+
+/**
+ * A pool of predictors for the same model so that several threads can run predictions at once.
+ * <p>
+ * A single predictor owns one interpreter and one set of input / output buffers, so concurrent
+ * callers of {@link FritzVisionPredictor#predict(FritzVisionImage)} must take turns. The pool keeps
+ * up to {@link FritzVisionPredictorPoolOptions#poolSize} predictors and leases one for the duration
+ * of each prediction. Predictors are created lazily, the first time they are needed.
+ * <p>
+ * GPU predictors are tied to the thread that created them and cannot be pooled.
+ *
+ * @param <P> the type of predictor in the pool.
+ */
+public class FritzVisionPredictorPool<P extends FritzVisionPredictor> {
+
+    /**
+     * Creates a new predictor for the pool.
+     *
+     * @param <P> the type of predictor.
+     */
+    public interface PredictorFactory<P extends FritzVisionPredictor> {
+        P create();
+    }
+
+    // How long a waiting caller sleeps before checking if the pool was closed.
+    private static final long WAIT_SLICE_MS = 100;
+
+    private final PredictorFactory<P> factory;
+    private final FritzVisionPredictorPoolOptions options;
+    private final BlockingQueue<P> idlePredictors;
+    private final List<P> allPredictors;
+    private int pendingCreations = 0;
+    private boolean isClosed = false;
+
+    public FritzVisionPredictorPool(PredictorFactory<P> factory, FritzVisionPredictorPoolOptions options) {
+        if (options.poolSize < 1) {
+            throw new IllegalArgumentException("The pool size must be at least 1.");
+        }
+        this.factory = factory;
+        this.options = options;
+        this.idlePredictors = new ArrayBlockingQueue<>(options.poolSize);
+        this.allPredictors = new ArrayList<>(options.poolSize);
+    }
+
+    /**
+     * Run a prediction on a leased predictor.
+     * <p>
+     * The result type matches the pooled predictor's predict method (e.g {@link ai.fritz.vision.imagelabeling.FritzVisionLabelResult}).
+     *
+     * @param visionImage The image to run inference on.
+     * @return the prediction result.
+     * @throws PredictorPoolExhaustedException if no predictor could be leased.
+     */
+    @SuppressWarnings("unchecked")
+    public <R> R predict(FritzVisionImage visionImage) {
+        P predictor = acquire();
+        try {
+            return (R) predictor.predict(visionImage);
+        } finally {
+            release(predictor);
+        }
+    }
+
+    /**
+     * Lease a predictor from the pool. Every call must be paired with {@link #release(FritzVisionPredictor)}.
+     *
+     * @return a predictor that no other caller is using.
+     * @throws PredictorPoolExhaustedException if no predictor could be leased.
+     * @throws IllegalStateException if the pool is closed, including while waiting.
+     */
+    public P acquire() {
+        P predictor = pollIdle();
+        if (predictor != null) {
+            return predictor;
+        }
+
+        predictor = createIfBelowPoolSize();
+        if (predictor != null) {
+            return predictor;
+        }
+
+        if (options.leasePolicy == LeasePolicy.FAIL_FAST) {
+            throw new PredictorPoolExhaustedException(options.poolSize);
+        }
+
+        predictor = waitForIdle();
+        if (predictor == null) {
+            throw new PredictorPoolExhaustedException(options.poolSize);
+        }
+        return predictor;
+    }
+
+    private synchronized P pollIdle() {
+        checkNotClosed();
+        return idlePredictors.poll();
+    }
+
+    /**
+     * Wait for a predictor to be released, in short slices so that closing the pool wakes waiters.
+     *
+     * @return the released predictor or null if the lease timed out.
+     */
+    private P waitForIdle() {
+        long deadline = options.leaseTimeoutMs > 0 ? System.currentTimeMillis() + options.leaseTimeoutMs : 0;
+        try {
+            while (true) {
+                long waitMs = WAIT_SLICE_MS;
+                if (deadline > 0) {
+                    long remainingMs = deadline - System.currentTimeMillis();
+                    if (remainingMs <= 0) {
+                        return null;
+                    }
+                    waitMs = Math.min(waitMs, remainingMs);
+                }
+                P predictor = idlePredictors.poll(waitMs, TimeUnit.MILLISECONDS);
+                synchronized (this) {
+                    if (isClosed) {
+                        // The predictor was released before close() drained the queue.
+                        if (predictor != null) {
+                            predictor.close();
+                        }
+                        checkNotClosed();
+                    }
+                }
+                if (predictor != null) {
+                    return predictor;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    /**
+     * Return a leased predictor to the pool.
+     *
+     * @param predictor the predictor from {@link #acquire()}.
+     */
+    public void release(P predictor) {
+        synchronized (this) {
+            if (!allPredictors.contains(predictor)) {
+                throw new IllegalArgumentException("The predictor does not belong to this pool.");
+            }
+            if (isClosed) {
+                predictor.close();
+                return;
+            }
+            // Offered under the lock so close() can't drain the queue in between and miss it.
+            idlePredictors.offer(predictor);
+        }
+    }
+
+    /**
+     * Get the maximum number of predictors in the pool.
+     *
+     * @return the pool size.
+     */
+    public int getPoolSize() {
+        return options.poolSize;
+    }
+
+    /**
+     * Get the number of predictors created so far.
+     *
+     * @return the number of predictors.
+     */
+    public synchronized int getCreatedCount() {
+        return allPredictors.size();
+    }
+
+    /**
+     * Get the number of predictors waiting to be leased.
+     *
+     * @return the number of idle predictors.
+     */
+    public int getIdleCount() {
+        return idlePredictors.size();
+    }
+
+    /**
+     * Close all predictors. Predictors currently leased are closed when they're released, and
+     * callers waiting for a predictor get an {@link IllegalStateException}.
+     */
+    public synchronized void close() {
+        if (isClosed) {
+            return;
+        }
+        isClosed = true;
+        List<P> idle = new ArrayList<>();
+        idlePredictors.drainTo(idle);
+        for (P predictor : idle) {
+            predictor.close();
+        }
+    }
+
+    private P createIfBelowPoolSize() {
+        // Reserve a slot while holding the lock but load the model outside of it so
+        // releases from other threads aren't blocked.
+        synchronized (this) {
+            checkNotClosed();
+            if (allPredictors.size() + pendingCreations >= options.poolSize) {
+                return null;
+            }
+            pendingCreations++;
+        }
+
+        P predictor = null;
+        try {
+            predictor = factory.create();
+        } finally {
+            synchronized (this) {
+                pendingCreations--;
+                if (predictor != null) {
+                    allPredictors.add(predictor);
+                    if (isClosed) {
+                        predictor.close();
+                    }
+                }
+            }
+        }
+        synchronized (this) {
+            checkNotClosed();
+        }
+        return predictor;
+    }
+
+    private void checkNotClosed() {
+        if (isClosed) {
+            throw new IllegalStateException("The predictor pool has been closed.");
+        }
+    }
+}
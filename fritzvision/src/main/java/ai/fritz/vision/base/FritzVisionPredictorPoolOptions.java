@@ -0,0 +1,30 @@
+package ai.fritz.vision.base;
+
+/**
+ * Options for sizing a {@link FritzVisionPredictorPool} and choosing how callers wait for a predictor.
+ */
+public class FritzVisionPredictorPoolOptions {
+
+    private static final int DEFAULT_POOL_SIZE = 2;
+
+    /**
+     * The maximum number of predictors (and interpreters) created for the model.
+     */
+    public int poolSize;
+
+    /**
+     * What to do when all predictors are leased.
+     */
+    public LeasePolicy leasePolicy;
+
+    /**
+     * How long to wait for a predictor with {@link LeasePolicy#WAIT}. 0 waits indefinitely.
+     */
+    public long leaseTimeoutMs;
+
+    public FritzVisionPredictorPoolOptions() {
+        poolSize = DEFAULT_POOL_SIZE;
+        leasePolicy = LeasePolicy.WAIT;
+        leaseTimeoutMs = 0;
+    }
+}
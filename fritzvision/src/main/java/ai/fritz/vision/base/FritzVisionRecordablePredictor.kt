@@ -5,8 +5,6 @@ import ai.fritz.core.FritzOnDeviceModel
 import ai.fritz.core.annotations.AnnotatableResult
 import ai.fritz.core.annotations.Base64EncodableImage
 import ai.fritz.core.annotations.DataAnnotation
-import ai.fritz.core.events.ModelEvent
-import ai.fritz.core.factories.ModelEventFactory
 import android.util.Log
 
 abstract class FritzVisionRecordablePredictor<T : AnnotatableResult>(onDeviceModel: FritzOnDeviceModel, options: FritzVisionPredictorOptions) : FritzVisionPredictor<T>(onDeviceModel, options) {
@@ -27,15 +25,18 @@ abstract class FritzVisionRecordablePredictor<T : AnnotatableResult>(onDeviceMod
     /**
      * Records an image with the predicted and modified annotations
      *
+     * Whether the image is recorded depends on the sampling ratio in the session settings. Sampled
+     * images are scaled down and encoded on a background thread, so this is safe to call from the
+     * camera thread.
+     *
      * @param image [Base64EncodableImage] - the image to record.
      * @param predictedAnnotations [List<SDKAnnotation>] - the list of predicted annotations from the model (default=[])
      * @param userModifiedAnnotations [List<SDKAnnotation>] - the list of modified/edited annotations (default=null)
      * @param onSuccess [Unit] - callback when the image is successfully recorded
-     * @param onError [Unit] - callback when the image failed to record
+     * @param onError [Unit] - callback when the image failed to record or was skipped
      */
     fun record(image: Base64EncodableImage, predictedAnnotations: List<DataAnnotation>  = emptyList(), userModifiedAnnotations: List<DataAnnotation>? = null, onSuccess: () -> Unit, onFail: () -> Unit) {
-        val event: ModelEvent = ModelEventFactory.createModelRecordEvent(onDeviceModel, image, predictedAnnotations, userModifiedAnnotations)
-        Fritz.sessionManager.recordAnnotation(event, onSuccess, onFail)
+        Fritz.sessionManager.annotationRecorder.record(onDeviceModel, image, predictedAnnotations, userModifiedAnnotations, onSuccess, onFail)
     }
 
     /**
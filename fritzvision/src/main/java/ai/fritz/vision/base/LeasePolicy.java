@@ -0,0 +1,18 @@
+package ai.fritz.vision.base;
+
+/**
+ * What a {@link FritzVisionPredictorPool} should do when every predictor is currently leased.
+ */
+public enum LeasePolicy {
+
+    /**
+     * Block the calling thread until a predictor is returned to the pool
+     * (or until the lease timeout expires).
+     */
+    WAIT,
+
+    /**
+     * Throw a {@link PredictorPoolExhaustedException} immediately.
+     */
+    FAIL_FAST
+}
@@ -0,0 +1,22 @@
+package ai.fritz.vision.base;
+
+/**
+ * What {@link FritzVisionPredictor#predictAsync} should do with new images while a prediction is running.
+ */
+public enum OverflowPolicy {
+
+    /**
+     * Drop new images until the running prediction finishes.
+     */
+    DROP_NEWEST,
+
+    /**
+     * Keep only the most recent image waiting. An older waiting image is dropped when a new one arrives.
+     */
+    KEEP_LATEST,
+
+    /**
+     * Queue images up to {@link FritzVisionPredictorOptions#maxQueuedPredictions}. New images are dropped when the queue is full.
+     */
+    BOUNDED_QUEUE
+}
@@ -0,0 +1,23 @@
+package ai.fritz.vision.base;
+
+import ai.fritz.vision.FritzVisionImage;
+
+/**
+ * A callback for predictions run with {@link FritzVisionPredictor#predictAsync}.
+ * <p>
+ * Each image accepted by {@link FritzVisionPredictor#predictAsync} gets exactly one call. The callback
+ * owns the image from then on and should {@link FritzVisionImage#release()} it when done, which
+ * closes a wrapped camera {@link android.media.Image}.
+ * <p>
+ * Results are delivered on the predictor's inference thread. An image dropped before it runs, because
+ * a newer one replaced it or the predictor was closed, gets {@link #onPredictionFailed} with a
+ * {@link java.util.concurrent.CancellationException} on the thread that dropped it.
+ *
+ * @param <T> the type of result from the predictor.
+ */
+public interface PredictionCallback<T> {
+
+    void onPredictionComplete(FritzVisionImage visionImage, T result);
+
+    void onPredictionFailed(FritzVisionImage visionImage, RuntimeException exception);
+}
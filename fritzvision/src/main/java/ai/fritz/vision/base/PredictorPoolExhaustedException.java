@@ -0,0 +1,11 @@
+package ai.fritz.vision.base;
+
+/**
+ * A runtime exception when no predictor could be leased from a {@link FritzVisionPredictorPool}.
+ */
+public class PredictorPoolExhaustedException extends RuntimeException {
+
+    public PredictorPoolExhaustedException(int poolSize) {
+        super("All " + poolSize + " predictors in the pool are in use.");
+    }
+}
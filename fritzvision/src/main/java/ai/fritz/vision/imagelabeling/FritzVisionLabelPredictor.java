@@ -8,6 +8,8 @@ import java.util.Comparator;
 import java.util.List;
 
 import ai.fritz.core.OutputTensor;
+import ai.fritz.core.TensorView;
+import ai.fritz.core.metrics.PredictionStage;
 import ai.fritz.vision.FritzVisionImage;
 import ai.fritz.vision.FritzVisionLabel;
 import ai.fritz.vision.ImageInputTensor;
@@ -18,7 +20,7 @@ import ai.fritz.vision.base.FritzVisionRecordablePredictor;
  * <p>
  * <a href="https://docs.fritz.ai/features/image-labeling/about.html">Learn more</a>
  */
-public class FritzVisionLabelPredictor extends FritzVisionRecordablePredictor {
+public class FritzVisionLabelPredictor extends FritzVisionRecordablePredictor<FritzVisionLabelResult> {
 
     private static final String TAG = FritzVisionLabelPredictor.class.getSimpleName();
 
@@ -37,6 +39,10 @@ public class FritzVisionLabelPredictor extends FritzVisionRecordablePredictor {
 
         this.labels = onDeviceModel.getLabels();
 
+        initializeBuffers();
+    }
+
+    private void initializeBuffers() {
         inputTensor.setupInputBuffer(interpreter);
         outputTensor.setupOutputBuffer(interpreter);
 
@@ -68,23 +74,75 @@ public class FritzVisionLabelPredictor extends FritzVisionRecordablePredictor {
      * @return {@link FritzVisionLabelResult}
      */
     public FritzVisionLabelResult predict(FritzVisionImage visionImage) {
+        if (checkInterpreterSwapped()) {
+            initializeBuffers();
+        }
+        resizeBatch(1);
+        long start = System.nanoTime();
         inputTensor.preprocess(visionImage);
+        recordStage(PredictionStage.PREPROCESS, start);
+
         outputTensor.rewind();
         interpreter.run(inputTensor.buffer, outputTensor.buffer);
-        return new FritzVisionLabelResult(getLabelResults());
+
+        start = System.nanoTime();
+        FritzVisionLabelResult result = new FritzVisionLabelResult(getLabelResults(0));
+        recordStage(PredictionStage.POSTPROCESS, start);
+        return result;
     }
 
+    @Override
+    protected List<FritzVisionLabelResult> runBatch(List<FritzVisionImage> visionImages) {
+        if (checkInterpreterSwapped()) {
+            initializeBuffers();
+        }
+        resizeBatch(visionImages.size());
+        long start = System.nanoTime();
+        inputTensor.preprocessBatch(visionImages, null);
+        recordStage(PredictionStage.PREPROCESS, start);
 
-    private List<FritzVisionLabel> getLabelResults() {
+        outputTensor.rewind();
+        interpreter.run(inputTensor.buffer, outputTensor.buffer);
+
+        start = System.nanoTime();
+        List<FritzVisionLabelResult> results = new ArrayList<>(visionImages.size());
+        for (int i = 0; i < visionImages.size(); i++) {
+            results.add(new FritzVisionLabelResult(getLabelResults(outputTensor.getItemOffset(i))));
+        }
+        recordStage(PredictionStage.POSTPROCESS, start);
+        return results;
+    }
+
+    private void resizeBatch(int batchSize) {
+        if (inputTensor.getBatchSize() == batchSize) {
+            return;
+        }
+        inputTensor.setupBatchInputBuffer(interpreter, batchSize);
+        outputTensor.setupBatchOutputBuffer(interpreter, batchSize);
+    }
+
+    private List<FritzVisionLabel> getLabelResults(int outputOffset) {
         // Copy the label list (note the label objects are references. not copies)
         List<FritzVisionLabel> labelsPastThreshold = new ArrayList<>();
-
-        // Calculate the confidence for each label
-        for (int i = 0; i < labels.size(); i++) {
-            String labelText = labels.get(i);
-            float confidenceScore = getNormalizedProbability(i);
-            if (confidenceScore >= options.confidenceThreshold) {
-                labelsPastThreshold.add(new FritzVisionLabel(labelText, confidenceScore));
+        TensorView view = outputTensor.getView();
+
+        if (view.isQuantized()) {
+            // Compare against the threshold in the quantized domain and only dequantize the labels we keep
+            int minRaw = view.quantizeThreshold(options.confidenceThreshold);
+            for (int i = 0; i < labels.size(); i++) {
+                int raw = view.getRaw(outputOffset + i);
+                if (raw >= minRaw) {
+                    labelsPastThreshold.add(new FritzVisionLabel(labels.get(i), view.dequantize(raw)));
+                }
+            }
+        } else {
+            // Calculate the confidence for each label
+            for (int i = 0; i < labels.size(); i++) {
+                String labelText = labels.get(i);
+                float confidenceScore = getNormalizedProbability(outputOffset + i);
+                if (confidenceScore >= options.confidenceThreshold) {
+                    labelsPastThreshold.add(new FritzVisionLabel(labelText, confidenceScore));
+                }
             }
         }
 
@@ -99,10 +157,7 @@ public class FritzVisionLabelPredictor extends FritzVisionRecordablePredictor {
     }
 
     protected float getNormalizedProbability(int labelIndex) {
-        if (outputTensor.is8BitQuantized()) {
-            return (outputTensor.getByte(labelIndex) & 0xff) / 255.0f;
-        }
-
+        // Quantized outputs are dequantized with the tensor's scale and zero point
         return outputTensor.getFloat(labelIndex);
     }
 }
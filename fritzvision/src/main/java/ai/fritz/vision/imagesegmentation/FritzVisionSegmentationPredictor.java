@@ -2,11 +2,16 @@ package ai.fritz.vision.imagesegmentation;
 
 import android.util.Size;
 
+import org.tensorflow.lite.DataType;
 import org.tensorflow.lite.Tensor;
 
+import java.util.ArrayList;
 import java.util.List;
 
+import ai.fritz.core.FloatRowIterator;
 import ai.fritz.core.OutputTensor;
+import ai.fritz.core.TensorView;
+import ai.fritz.core.metrics.PredictionStage;
 import ai.fritz.vision.FritzVisionImage;
 import ai.fritz.vision.ImageInputTensor;
 import ai.fritz.vision.base.FritzVisionRecordablePredictor;
@@ -14,7 +19,7 @@ import ai.fritz.vision.base.FritzVisionRecordablePredictor;
 /**
  * The predictor for image segmentation models.
  */
-public class FritzVisionSegmentationPredictor extends FritzVisionRecordablePredictor {
+public class FritzVisionSegmentationPredictor extends FritzVisionRecordablePredictor<FritzVisionSegmentationResult> {
 
     private static final String TAG = FritzVisionSegmentationPredictor.class.getSimpleName();
 
@@ -26,12 +31,16 @@ public class FritzVisionSegmentationPredictor extends FritzVisionRecordablePredi
     private ImageInputTensor inputTensor = new ImageInputTensor("Image Input", 0);
     private OutputTensor outputTensor = new OutputTensor("SegmentationOutput", 0);
 
+    // Reused for reading rows of quantized output
+    private byte[] rowBytes;
+
     public FritzVisionSegmentationPredictor(SegmentationOnDeviceModel segmentationOnDeviceModel, FritzVisionSegmentationPredictorOptions options) {
         super(segmentationOnDeviceModel, options);
 
         this.segmentClassifications = setTargetClassifications(segmentationOnDeviceModel.getMaskClasses(), options.targetClasses);
         this.options = options;
         initializeBuffers();
+        enableDynamicResolution(options.dynamicResolution);
     }
 
     private void initializeBuffers() {
@@ -75,34 +84,98 @@ public class FritzVisionSegmentationPredictor extends FritzVisionRecordablePredi
      * @return {@link FritzVisionSegmentationResult}
      */
     public FritzVisionSegmentationResult predict(FritzVisionImage visionImage) {
+        if (checkInterpreterSwapped()) {
+            initializeBuffers();
+        }
+        resizeBatch(1);
+        applyInputResolution(inputTensor);
         if (tensorSizeChanged()) {
             initializeBuffers();
         }
+        long start = System.nanoTime();
         inputTensor.preprocess(visionImage, DEFAULT_PREPROCESSING_PARAMS);
+        recordStage(PredictionStage.PREPROCESS, start);
+
+        start = System.nanoTime();
         interpreter.run(inputTensor.buffer, outputTensor.buffer);
-        FritzVisionSegmentationResult result = postprocess();
+        recordInference(start);
+
+        start = System.nanoTime();
+        FritzVisionSegmentationResult result = postprocess(0);
+        recordStage(PredictionStage.POSTPROCESS, start);
         return result;
     }
 
-    private FritzVisionSegmentationResult postprocess() {
+    @Override
+    protected List<FritzVisionSegmentationResult> runBatch(List<FritzVisionImage> visionImages) {
+        if (checkInterpreterSwapped() || tensorSizeChanged()) {
+            initializeBuffers();
+        }
+        resizeBatch(visionImages.size());
+        long start = System.nanoTime();
+        inputTensor.preprocessBatch(visionImages, DEFAULT_PREPROCESSING_PARAMS);
+        recordStage(PredictionStage.PREPROCESS, start);
+
+        interpreter.run(inputTensor.buffer, outputTensor.buffer);
+
+        start = System.nanoTime();
+        List<FritzVisionSegmentationResult> results = new ArrayList<>(visionImages.size());
+        for (int i = 0; i < visionImages.size(); i++) {
+            results.add(postprocess(outputTensor.getItemOffset(i)));
+        }
+        recordStage(PredictionStage.POSTPROCESS, start);
+        return results;
+    }
+
+    private void resizeBatch(int batchSize) {
+        if (inputTensor.getBatchSize() == batchSize) {
+            return;
+        }
+        inputTensor.setupBatchInputBuffer(interpreter, batchSize);
+        outputTensor.setupBatchOutputBuffer(interpreter, batchSize);
+    }
+
+    private FritzVisionSegmentationResult postprocess(int outputOffset) {
         int[][] classifications = new int[outputSize.getHeight()][outputSize.getWidth()];
         float[][] confidence = new float[outputSize.getHeight()][outputSize.getWidth()];
+
+        TensorView view = outputTensor.getView();
+        if (view.isQuantized()) {
+            argmaxQuantized(view, outputOffset, classifications, confidence);
+        } else {
+            argmaxFloat(view, outputOffset, classifications, confidence);
+        }
+
+        return new FritzVisionSegmentationResult(
+                options,
+                segmentClassifications,
+                inputSize,
+                outputSize,
+                0,
+                0,
+                classifications,
+                confidence);
+    }
+
+    private void argmaxFloat(TensorView view, int outputOffset, int[][] classifications, float[][] confidence) {
         int height = outputSize.getHeight();
         int width = outputSize.getWidth();
-        outputTensor.rewind();
+        int numClasses = segmentClassifications.length;
 
-        for (int row = 0; row < height; row++) {
-            int rowOffset = row * width * segmentClassifications.length;
+        // Read a full row of class probabilities at a time.
+        FloatRowIterator rows = view.floatRows(width * numClasses, outputOffset, height);
+        while (rows.hasNext()) {
+            float[] rowValues = rows.next();
+            int row = rows.getRowIndex();
 
             for (int col = 0; col < width; col++) {
                 int maxClassProbIndex = 0;
                 float maxClassProbValue = 0;
 
-                int colOffset = col * segmentClassifications.length;
-                int offset = rowOffset + colOffset;
+                int offset = col * numClasses;
 
-                for (int classIndex = 0; classIndex < segmentClassifications.length; classIndex++) {
-                    float classProb = outputTensor.getFloat(offset + classIndex);
+                for (int classIndex = 0; classIndex < numClasses; classIndex++) {
+                    float classProb = rowValues[offset + classIndex];
 
                     // Arg max
                     if (classProb > maxClassProbValue) {
@@ -115,15 +188,46 @@ public class FritzVisionSegmentationPredictor extends FritzVisionRecordablePredi
                 confidence[row][col] = maxClassProbValue;
             }
         }
+    }
 
-        return new FritzVisionSegmentationResult(
-                options,
-                segmentClassifications,
-                inputSize,
-                outputSize,
-                0,
-                0,
-                classifications,
-                confidence);
+    /**
+     * Arg max over the raw quantized values. Dequantizing is monotonic so the winning class is the
+     * same as with floats, and only the winning value is converted.
+     */
+    private void argmaxQuantized(TensorView view, int outputOffset, int[][] classifications, float[][] confidence) {
+        int height = outputSize.getHeight();
+        int width = outputSize.getWidth();
+        int numClasses = segmentClassifications.length;
+        int rowLength = width * numClasses;
+        boolean isUnsigned = view.getDataType() == DataType.UINT8;
+
+        if (rowBytes == null || rowBytes.length != rowLength) {
+            rowBytes = new byte[rowLength];
+        }
+
+        for (int row = 0; row < height; row++) {
+            view.readBytes(outputOffset + row * rowLength, rowBytes);
+
+            for (int col = 0; col < width; col++) {
+                int maxClassProbIndex = 0;
+                // The zero point is the quantized value of 0
+                int maxClassProbRaw = view.getZeroPoint();
+
+                int offset = col * numClasses;
+
+                for (int classIndex = 0; classIndex < numClasses; classIndex++) {
+                    int classProbRaw = isUnsigned ? rowBytes[offset + classIndex] & 0xFF : rowBytes[offset + classIndex];
+
+                    // Arg max
+                    if (classProbRaw > maxClassProbRaw) {
+                        maxClassProbIndex = classIndex;
+                        maxClassProbRaw = classProbRaw;
+                    }
+                }
+
+                classifications[row][col] = maxClassProbIndex;
+                confidence[row][col] = view.dequantize(maxClassProbRaw);
+            }
+        }
     }
 }
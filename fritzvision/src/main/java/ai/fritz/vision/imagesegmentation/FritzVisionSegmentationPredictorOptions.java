@@ -3,6 +3,7 @@ package ai.fritz.vision.imagesegmentation;
 import java.util.List;
 
 import ai.fritz.vision.FritzVisionImage;
+import ai.fritz.vision.base.DynamicResolutionOptions;
 import ai.fritz.vision.base.FritzVisionPredictorOptions;
 
 /**
@@ -15,11 +16,17 @@ public class FritzVisionSegmentationPredictorOptions extends FritzVisionPredicto
     public float clippingScoresAbove;
     public float confidenceThreshold;
 
+    /**
+     * Shrink or grow the input to stay within a latency budget (default: null, off).
+     */
+    public DynamicResolutionOptions dynamicResolution;
+
     public FritzVisionSegmentationPredictorOptions() {
         super();
         this.clippingScoresAbove = .7f;
         this.confidenceThreshold = .3f;
         this.targetClasses = null;
+        this.dynamicResolution = null;
     }
 }
 
@@ -7,14 +7,16 @@ import android.util.Size;
 import java.util.ArrayList;
 import java.util.List;
 
+import ai.fritz.core.annotations.AnnotatableResult;
 import ai.fritz.core.annotations.DataAnnotation;
 import ai.fritz.core.annotations.KeypointAnnotation;
+import ai.fritz.core.annotations.RunLengthMask;
 import ai.fritz.core.annotations.SegmentationAnnotation;
 
 /**
  * FritzVisionSegmentationResult holds the result from the {@link FritzVisionSegmentationPredictor#predict} method.
  */
-public class FritzVisionSegmentationResult {
+public class FritzVisionSegmentationResult implements AnnotatableResult {
     private static final int MASK_RGB = 0x00FFFFFF;
 
     private static final int DEFAULT_ALPHA_VALUE = 255;
@@ -238,11 +240,8 @@ public class FritzVisionSegmentationResult {
      * @return a DataAnnotation object with the segmentation mask for this class.
      */
     public DataAnnotation toAnnotation(MaskClass maskClass, float confidenceThreshold) {
-        int outputWidth = modelOutputSize.getWidth();
-        int outputHeight = modelOutputSize.getHeight();
-
         // Start with -1 so that any classes not in maskClasses for the model will result in
-        // arrays of 0s.
+        // an empty mask.
         int maskIndex = -1;
         for (int idx = 0; idx < maskClasses.length; idx++) {
             if (maskClasses[idx].label == maskClass.label) {
@@ -250,23 +249,20 @@ public class FritzVisionSegmentationResult {
             }
         }
 
-        int[][] mask = new int[outputHeight][outputWidth];
-        for (int row = 0; row < outputHeight; row++) {
-            for (int col = 0; col < outputWidth; col++) {
-                if (classifications[row][col] == maskIndex && confidence[row][col] >= confidenceThreshold) {
-                    mask[row][col] = 1;
-                }
-            }
+        if (maskIndex == -1) {
+            RunLengthMask emptyMask = RunLengthMask.fromMask(new int[modelOutputSize.getHeight()][modelOutputSize.getWidth()]);
+            return createAnnotation(maskClass, emptyMask);
         }
-        return new DataAnnotation(maskClass.label, new ArrayList<KeypointAnnotation>(), null, new SegmentationAnnotation(mask),  false);
+        RunLengthMask mask = RunLengthMask.fromClass(classifications, confidence, confidenceThreshold, maskIndex);
+        return createAnnotation(maskClass, mask);
     }
 
 
     /**
      * Create a list of annotations for predictions from the model.
      *
-     * This method loops over all classes predicted by the model and constructs an annotation
-     * if enough high confidence pixels are found for a given class.
+     * This method encodes the masks for all classes predicted by the model in one pass and constructs
+     * an annotation if enough high confidence pixels are found for a given class.
      *
      * @param confidenceThreshold - pixels with confidence above this value will be included
      *                            in the annotation
@@ -276,8 +272,7 @@ public class FritzVisionSegmentationResult {
      * @return a list of DataAnnotations with the segmentation mask for classes meeting thresholds.
      */
     public List<DataAnnotation> toAnnotations(float confidenceThreshold, float areaThreshold) {
-        int outputWidth = modelOutputSize.getWidth();
-        int outputHeight = modelOutputSize.getHeight();
+        RunLengthMask[] masks = RunLengthMask.fromClassifications(classifications, confidence, confidenceThreshold, maskClasses.length);
 
         List<DataAnnotation> annotations = new ArrayList<>();
         for (int i = 0; i < maskClasses.length; i++) {
@@ -287,23 +282,18 @@ public class FritzVisionSegmentationResult {
                 continue;
             }
 
-            DataAnnotation annotation = this.toAnnotation(maskClasses[i], confidenceThreshold);
-
-            int[][] mask = annotation.getSegmentation().getMask();
-            int total = 0;
-            for (int row = 0; row < outputHeight; row++) {
-                for (int col = 0; col < outputWidth; col++) {
-                    total += mask[row][col];
-                }
-            }
-            float area = (float) total / (float) outputHeight * outputWidth;
-            if (area > areaThreshold) {
-                annotations.add(annotation);
+            if (masks[i].getAreaFraction() > areaThreshold) {
+                annotations.add(createAnnotation(maskClasses[i], masks[i]));
             }
         }
         return annotations;
     }
 
+    private static DataAnnotation createAnnotation(MaskClass maskClass, RunLengthMask mask) {
+        return new DataAnnotation(maskClass.label, new ArrayList<KeypointAnnotation>(), null, new SegmentationAnnotation(mask), false);
+    }
+
+    @Override
     public List<DataAnnotation> toAnnotations() {
         return this.toAnnotations(0.5f, 0.1f);
     }
@@ -8,6 +8,7 @@ import java.util.List;
 import java.util.Map;
 
 import ai.fritz.core.OutputTensor;
+import ai.fritz.core.metrics.PredictionStage;
 import ai.fritz.vision.FritzVisionImage;
 import ai.fritz.vision.FritzVisionLabel;
 import ai.fritz.vision.FritzVisionObject;
@@ -19,7 +20,7 @@ import ai.fritz.vision.base.FritzVisionRecordablePredictor;
  * <p>
  * <a href="https://docs.fritz.ai/features/object-detection/about.html">Learn more</a>
  */
-public class FritzVisionObjectPredictor extends FritzVisionRecordablePredictor {
+public class FritzVisionObjectPredictor extends FritzVisionRecordablePredictor<FritzVisionObjectResult> {
 
     private static final String TAG = FritzVisionObjectPredictor.class.getSimpleName();
     private static final int NUM_DETECTIONS = 10;
@@ -48,6 +49,10 @@ public class FritzVisionObjectPredictor extends FritzVisionRecordablePredictor {
         this.isOutputNormalized = onDeviceModel.isOutputNormalized();
         this.labels = onDeviceModel.getLabels();
 
+        initializeBuffers();
+    }
+
+    private void initializeBuffers() {
         inputTensor.setupInputBuffer(interpreter);
         this.inputSize = inputTensor.getImageDimensions();
 
@@ -72,7 +77,23 @@ public class FritzVisionObjectPredictor extends FritzVisionRecordablePredictor {
      */
     @Override
     public FritzVisionObjectResult predict(FritzVisionImage visionImage) {
+        if (checkInterpreterSwapped()) {
+            initializeBuffers();
+        }
+        long start = System.nanoTime();
         inputTensor.preprocess(visionImage, DEFAULT_PREPROCESSING_PARAMS);
+        recordStage(PredictionStage.PREPROCESS, start);
+
+        runInference();
+
+        start = System.nanoTime();
+        List<FritzVisionObject> visionObjects = postprocess();
+        FritzVisionObjectResult result = new FritzVisionObjectResult(visionObjects, options.confidenceThreshold, visionImage.encodedSize());
+        recordStage(PredictionStage.POSTPROCESS, start);
+        return result;
+    }
+
+    private void runInference() {
         rewindOutputs();
 
         Object[] inputArray = {inputTensor.buffer};
@@ -81,9 +102,6 @@ public class FritzVisionObjectPredictor extends FritzVisionRecordablePredictor {
             outputMap.put(output.getTensorIndex(), output.buffer);
         }
         interpreter.runForMultipleInputsOutputs(inputArray, outputMap);
-
-        List<FritzVisionObject> visionObjects = postprocess();
-        return new FritzVisionObjectResult(visionObjects, options.confidenceThreshold, visionImage.encodedSize());
     }
 
     private void rewindOutputs() {
@@ -2,8 +2,7 @@ package ai.fritz.vision.poseestimation;
 
 import android.graphics.PointF;
 
-import java.nio.ByteBuffer;
-import java.nio.FloatBuffer;
+import ai.fritz.core.TensorView;
 
 /**
  * Keep track of the displacements (forward and backwards) from the Pose Estimation model output.
@@ -11,13 +10,13 @@ import java.nio.FloatBuffer;
  */
 public class Displacements {
 
-    private ByteBuffer rawDisplacements;
+    private TensorView rawDisplacements;
 
     private int numEdges;
     private int height;
     private int width;
 
-    public Displacements(ByteBuffer rawDisplacements, int height, int width, int numEdges) {
+    public Displacements(TensorView rawDisplacements, int height, int width, int numEdges) {
         this.rawDisplacements = rawDisplacements;
         this.numEdges = numEdges;
         this.height = height;
@@ -37,11 +36,11 @@ public class Displacements {
     }
 
     public float getDisplacementX(int edgeId, int x, int y) {
-        return rawDisplacements.getFloat(4 * (y * width * numEdges * 2 + x * numEdges * 2 + (edgeId + numEdges)));
+        return rawDisplacements.getFloat3D(y, x, edgeId + numEdges);
     }
 
     public float getDisplacementY(int edgeId, int x, int y) {
-        return rawDisplacements.getFloat(4 * (y * width * numEdges * 2 + x * numEdges * 2 + edgeId));
+        return rawDisplacements.getFloat3D(y, x, edgeId);
 
     }
 
@@ -8,6 +8,7 @@ import java.util.List;
 import java.util.Map;
 
 import ai.fritz.core.OutputTensor;
+import ai.fritz.core.metrics.PredictionStage;
 import ai.fritz.vision.FritzVisionImage;
 import ai.fritz.vision.ImageInputTensor;
 import ai.fritz.vision.base.FritzVisionRecordablePredictor;
@@ -46,6 +47,12 @@ public class FritzVisionPosePredictor extends FritzVisionRecordablePredictor {
         usesDisplacements = onDeviceModel.useDisplacements();
         outputStride = onDeviceModel.getOutputStride();
 
+        initializeBuffers();
+        enableDynamicResolution(options.dynamicResolution);
+        initializePoseSmoother();
+    }
+
+    private void initializeBuffers() {
         inputTensor.setupInputBuffer(interpreter);
         inputSize = inputTensor.getImageDimensions();
 
@@ -57,8 +64,6 @@ public class FritzVisionPosePredictor extends FritzVisionRecordablePredictor {
             outputDisplacementsFwd.setupOutputBuffer(interpreter);
             outputDisplacementsBwd.setupOutputBuffer(interpreter);
         }
-
-        initializePoseSmoother();
     }
 
     private void initializePoseSmoother() {
@@ -74,7 +79,14 @@ public class FritzVisionPosePredictor extends FritzVisionRecordablePredictor {
      * @return {@link FritzVisionPoseResult}
      */
     public FritzVisionPoseResult predict(FritzVisionImage visionImage) {
+        boolean isSwapped = checkInterpreterSwapped();
+        if (applyInputResolution(inputTensor) || isSwapped) {
+            initializeBuffers();
+        }
+        long start = System.nanoTime();
         inputTensor.preprocess(visionImage, DEFAULT_PREPROCESSING_PARAMS);
+        recordStage(PredictionStage.PREPROCESS, start);
+
         rewindOutputs();
 
         Object[] inputArray = {inputTensor.buffer};
@@ -86,15 +98,18 @@ public class FritzVisionPosePredictor extends FritzVisionRecordablePredictor {
             outputMap.put(outputDisplacementsFwd.getTensorIndex(), outputDisplacementsFwd.buffer);
             outputMap.put(outputDisplacementsBwd.getTensorIndex(), outputDisplacementsBwd.buffer);
         }
+        start = System.nanoTime();
         interpreter.runForMultipleInputsOutputs(inputArray, outputMap);
+        recordInference(start);
 
-        HeatmapScores heatmapScores = new HeatmapScores(outputHeatmaps.buffer, outputGridSize.getHeight(), outputGridSize.getWidth(), skeleton.getNumKeypoints());
-        Offsets offsets = new Offsets(outputOffsets.buffer, outputGridSize.getHeight(), outputGridSize.getWidth(), skeleton.getNumKeypoints());
+        start = System.nanoTime();
+        HeatmapScores heatmapScores = new HeatmapScores(outputHeatmaps.getView(), outputGridSize.getHeight(), outputGridSize.getWidth(), skeleton.getNumKeypoints());
+        Offsets offsets = new Offsets(outputOffsets.getView(), outputGridSize.getHeight(), outputGridSize.getWidth(), skeleton.getNumKeypoints());
 
         List<Pose> poses = new ArrayList<>();
         if (usesDisplacements) {
-            Displacements displacementFwd = new Displacements(outputDisplacementsFwd.buffer, outputGridSize.getHeight(), outputGridSize.getWidth(), skeleton.getNumEdges());
-            Displacements displacementBwd = new Displacements(outputDisplacementsBwd.buffer, outputGridSize.getHeight(), outputGridSize.getWidth(), skeleton.getNumEdges());
+            Displacements displacementFwd = new Displacements(outputDisplacementsFwd.getView(), outputGridSize.getHeight(), outputGridSize.getWidth(), skeleton.getNumEdges());
+            Displacements displacementBwd = new Displacements(outputDisplacementsBwd.getView(), outputGridSize.getHeight(), outputGridSize.getWidth(), skeleton.getNumEdges());
             PoseDecoderWithDisplacements poseDecoder = new PoseDecoderWithDisplacements(heatmapScores, offsets, displacementFwd, displacementBwd, inputSize, skeleton);
             int maxPoses = options.maxPosesToDetect;
             poses = poseDecoder.decodeMultiplePoses(outputStride, maxPoses, options.minPartThreshold, options.nmsRadius, LOCAL_MAX_RADIUS);
@@ -112,6 +127,7 @@ public class FritzVisionPosePredictor extends FritzVisionRecordablePredictor {
         }
 
         FritzVisionPoseResult poseResult = new FritzVisionPoseResult(poses, options.minPoseThreshold, inputSize, visionImage.encodedSize());
+        recordStage(PredictionStage.POSTPROCESS, start);
         return poseResult;
     }
 
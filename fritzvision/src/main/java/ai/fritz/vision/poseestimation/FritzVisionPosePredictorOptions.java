@@ -1,5 +1,6 @@
 package ai.fritz.vision.poseestimation;
 
+import ai.fritz.vision.base.DynamicResolutionOptions;
 import ai.fritz.vision.base.FritzVisionPredictorOptions;
 import ai.fritz.vision.filter.PoseSmoothingMethod;
 
@@ -14,6 +15,11 @@ public class FritzVisionPosePredictorOptions extends FritzVisionPredictorOptions
     public int nmsRadius;
     public PoseSmoothingMethod smoothingOptions;
 
+    /**
+     * Shrink or grow the input to stay within a latency budget (default: null, off).
+     */
+    public DynamicResolutionOptions dynamicResolution;
+
     public FritzVisionPosePredictorOptions() {
         super();
         maxPosesToDetect = 1;
@@ -21,6 +27,7 @@ public class FritzVisionPosePredictorOptions extends FritzVisionPredictorOptions
         minPoseThreshold = .2f;
         nmsRadius = 20;
         smoothingOptions = null;
+        dynamicResolution = null;
     }
 }
 
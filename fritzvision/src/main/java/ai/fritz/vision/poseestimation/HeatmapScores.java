@@ -1,7 +1,6 @@
 package ai.fritz.vision.poseestimation;
 
-import java.nio.ByteBuffer;
-import java.nio.FloatBuffer;
+import ai.fritz.core.TensorView;
 
 /**
  * Wraps around the keypoint scores from the pose estimation model output.
@@ -9,13 +8,17 @@ import java.nio.FloatBuffer;
  */
 public class HeatmapScores {
 
-    private ByteBuffer rawScores;
+    private TensorView rawScores;
 
     private int numKeypoints;
     private int height;
     private int width;
 
-    public HeatmapScores(ByteBuffer rawScores, int height, int width, int numKeypoints) {
+    // The last threshold converted to the quantized domain
+    private float quantizedThresholdFor = Float.NaN;
+    private int quantizedThreshold;
+
+    public HeatmapScores(TensorView rawScores, int height, int width, int numKeypoints) {
         this.rawScores = rawScores;
         this.numKeypoints = numKeypoints;
         this.height = height;
@@ -23,7 +26,44 @@ public class HeatmapScores {
     }
 
     public float getScore(int partId, int x, int y) {
-        return rawScores.getFloat(4 * (y * width * numKeypoints + x * numKeypoints + partId));
+        return rawScores.getFloat3D(y, x, partId);
+    }
+
+    /**
+     * Check if a score is at least the threshold. Quantized scores are compared without dequantizing.
+     *
+     * @param partId the keypoint id.
+     * @param x the heatmap column.
+     * @param y the heatmap row.
+     * @param threshold the minimum score.
+     * @return true if the score is greater than or equal to the threshold.
+     */
+    public boolean meetsThreshold(int partId, int x, int y, float threshold) {
+        if (!rawScores.isQuantized()) {
+            return getScore(partId, x, y) >= threshold;
+        }
+        if (threshold != quantizedThresholdFor) {
+            quantizedThreshold = rawScores.quantizeThreshold(threshold);
+            quantizedThresholdFor = threshold;
+        }
+        return rawScores.getRaw3D(y, x, partId) >= quantizedThreshold;
+    }
+
+    /**
+     * Check if the score at (x, y) is higher than the score at (otherX, otherY) for the same keypoint.
+     *
+     * @param partId the keypoint id.
+     * @param x the heatmap column.
+     * @param y the heatmap row.
+     * @param otherX the heatmap column to compare against.
+     * @param otherY the heatmap row to compare against.
+     * @return true if the score at (x, y) is strictly higher.
+     */
+    public boolean isHigher(int partId, int x, int y, int otherX, int otherY) {
+        if (!rawScores.isQuantized()) {
+            return getScore(partId, x, y) > getScore(partId, otherX, otherY);
+        }
+        return rawScores.getRaw3D(y, x, partId) > rawScores.getRaw3D(otherY, otherX, partId);
     }
 
     public int getNumKeypoints() {
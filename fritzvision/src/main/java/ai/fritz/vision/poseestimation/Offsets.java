@@ -2,8 +2,7 @@ package ai.fritz.vision.poseestimation;
 
 import android.graphics.PointF;
 
-import java.nio.ByteBuffer;
-import java.nio.FloatBuffer;
+import ai.fritz.core.TensorView;
 
 /**
  * This class wraps around the offsets specified in the pose estimation model output.
@@ -12,12 +11,12 @@ import java.nio.FloatBuffer;
  */
 public class Offsets {
 
-    private ByteBuffer rawOffsets;
+    private TensorView rawOffsets;
     private int numParts;
     private int height;
     private int width;
 
-    public Offsets(ByteBuffer rawOffsets, int height, int width, int numParts) {
+    public Offsets(TensorView rawOffsets, int height, int width, int numParts) {
         this.rawOffsets = rawOffsets;
         this.numParts = numParts;
         this.height = height;
@@ -37,11 +36,11 @@ public class Offsets {
     }
 
     public float getOffsetY(int partId, int x, int y) {
-        return rawOffsets.getFloat(4 * (y * width * numParts * 2 + x * numParts * 2 + partId));
+        return rawOffsets.getFloat3D(y, x, partId);
     }
 
     public float getOffsetX(int partId, int x, int y) {
-        return rawOffsets.getFloat(4 * (y * width * numParts * 2 + x * numParts * 2 + partId + numParts));
+        return rawOffsets.getFloat3D(y, x, partId + numParts);
     }
 
     public PointF getOffsetPoint(int partId, int x, int y, boolean xFirst) {
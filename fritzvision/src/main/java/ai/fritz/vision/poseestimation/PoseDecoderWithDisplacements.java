@@ -116,13 +116,12 @@ public class PoseDecoderWithDisplacements {
         for (int x = 0; x < heatmapScores.getWidth(); x++) {
             for (int y = 0; y < heatmapScores.getHeight(); y++) {
                 for (int keypointIndex = 0; keypointIndex < heatmapScores.getNumKeypoints(); keypointIndex++) {
-                    float scoreForKeypoint = heatmapScores.getScore(keypointIndex, x, y);
-
-                    if (scoreForKeypoint < threshold) {
+                    if (!heatmapScores.meetsThreshold(keypointIndex, x, y, threshold)) {
                         continue;
                     }
 
-                    if (scoreIsMaximumInLocalWindow(keypointIndex, x, y, scoreForKeypoint, localMaxRadius)) {
+                    if (scoreIsMaximumInLocalWindow(keypointIndex, x, y, localMaxRadius)) {
+                        float scoreForKeypoint = heatmapScores.getScore(keypointIndex, x, y);
                         scoreQueue.put(new PartScore(keypointIndex, x, y, scoreForKeypoint));
                     }
                 }
@@ -180,7 +179,7 @@ public class PoseDecoderWithDisplacements {
         return Math.max(min, Math.min(max, val));
     }
 
-    private boolean scoreIsMaximumInLocalWindow(int keypointIndex, int x, int y, float score, int localMaxRadius) {
+    private boolean scoreIsMaximumInLocalWindow(int keypointIndex, int x, int y, int localMaxRadius) {
         int yStart = Math.max(y - localMaxRadius, 0);
         int yEnd = Math.min(y + localMaxRadius, heatmapScores.getHeight());
         int xStart = Math.max(x - localMaxRadius, 0);
@@ -188,7 +187,7 @@ public class PoseDecoderWithDisplacements {
 
         for (int yIndex = yStart; yIndex < yEnd; yIndex++) {
             for (int xIndex = xStart; xIndex < xEnd; xIndex++) {
-                if (heatmapScores.getScore(keypointIndex, xIndex, yIndex) > score) {
+                if (heatmapScores.isHigher(keypointIndex, xIndex, yIndex, x, y)) {
                     return false;
                 }
             }
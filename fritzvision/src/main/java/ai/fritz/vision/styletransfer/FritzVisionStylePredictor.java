@@ -2,6 +2,8 @@ package ai.fritz.vision.styletransfer;
 
 import ai.fritz.core.FritzOnDeviceModel;
 import ai.fritz.core.OutputTensor;
+import ai.fritz.core.TensorView;
+import ai.fritz.core.metrics.PredictionStage;
 import ai.fritz.vision.FritzVisionImage;
 import ai.fritz.vision.ImageInputTensor;
 import ai.fritz.vision.base.FritzVisionPredictor;
@@ -16,10 +18,16 @@ public class FritzVisionStylePredictor extends FritzVisionPredictor {
     private ImageInputTensor imageInputTensor = new ImageInputTensor("Image Input", 0);
     private OutputTensor outputTensor = new OutputTensor("Stylized Image", 0);
     private FritzVisionStylePredictorOptions options;
+    private float[] rowValues;
 
     public FritzVisionStylePredictor(FritzOnDeviceModel fritzOnDeviceModel, FritzVisionStylePredictorOptions options) {
         super(fritzOnDeviceModel, options);
         this.options = options;
+        initializeBuffers();
+        enableDynamicResolution(options.dynamicResolution);
+    }
+
+    private void initializeBuffers() {
         imageInputTensor.setupInputBuffer(interpreter);
         inputSize = imageInputTensor.getImageDimensions();
         outputTensor.setupOutputBuffer(interpreter);
@@ -32,25 +40,44 @@ public class FritzVisionStylePredictor extends FritzVisionPredictor {
      * @return {@link FritzVisionStyleResult}
      */
     public FritzVisionStyleResult predict(FritzVisionImage visionImage) {
+        boolean isSwapped = checkInterpreterSwapped();
+        if (applyInputResolution(imageInputTensor) || isSwapped) {
+            initializeBuffers();
+        }
+        long start = System.nanoTime();
         imageInputTensor.preprocess(visionImage);
+        recordStage(PredictionStage.PREPROCESS, start);
+
+        start = System.nanoTime();
         interpreter.run(imageInputTensor.buffer, outputTensor.buffer);
+        recordInference(start);
 
+        start = System.nanoTime();
         int[] pixels = postprocess();
-
-        return new FritzVisionStyleResult(pixels, inputSize, visionImage.getSize(), options.resize);
+        FritzVisionStyleResult result = new FritzVisionStyleResult(pixels, inputSize, visionImage.getSize(), options.resize);
+        recordStage(PredictionStage.POSTPROCESS, start);
+        return result;
     }
 
     private int[] postprocess() {
         int width = inputSize.getWidth();
         int height = inputSize.getHeight();
         int[] output = new int[width * height];
-        outputTensor.buffer.rewind();
+        TensorView view = outputTensor.getView();
+        int[] shape = view.getShape();
+        int numChannels = shape[shape.length - 1];
+        int rowLength = shape[shape.length - 2] * numChannels;
+        if (rowValues == null || rowValues.length != rowLength) {
+            rowValues = new float[rowLength];
+        }
 
         for (int row = 0; row < height; row++) {
+            view.readFloats(row * rowLength, rowValues);
             for (int col = 0; col < width; col++) {
-                float rValue = outputTensor.getFloat3D(row, col, 0);
-                float gValue = outputTensor.getFloat3D(row, col, 1);
-                float bValue = outputTensor.getFloat3D(row, col, 2);
+                int colOffset = col * numChannels;
+                float rValue = rowValues[colOffset];
+                float gValue = rowValues[colOffset + 1];
+                float bValue = rowValues[colOffset + 2];
                 // Alpha (255 shift 24) + R (shift 16) + B (shift 8) + G
                 int pixel = (0xFF << 24) + (((int) rValue & 0xFF) << 16) + (((int) gValue & 0xFF) << 8) + ((int) bValue & 0xFF);
 
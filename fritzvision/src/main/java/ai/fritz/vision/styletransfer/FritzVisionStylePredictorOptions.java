@@ -1,6 +1,7 @@
 package ai.fritz.vision.styletransfer;
 
 import ai.fritz.vision.FritzVisionImage;
+import ai.fritz.vision.base.DynamicResolutionOptions;
 import ai.fritz.vision.base.FritzVisionPredictorOptions;
 
 /**
@@ -12,9 +13,15 @@ public class FritzVisionStylePredictorOptions extends FritzVisionPredictorOption
 
     public boolean resize;
 
+    /**
+     * Shrink or grow the input to stay within a latency budget (default: null, off).
+     */
+    public DynamicResolutionOptions dynamicResolution;
+
     public FritzVisionStylePredictorOptions() {
         super();
         this.resize = false;
+        this.dynamicResolution = null;
     }
 }
 
@@ -8,10 +8,10 @@ import android.opengl.EGLConfig;
 import android.opengl.EGLContext;
 import android.opengl.EGLDisplay;
 import android.opengl.EGLSurface;
-import android.os.Handler;
-import android.os.HandlerThread;
 import android.view.Surface;
 
+import ai.fritz.core.FritzExecutors;
+
 /**
  * Holds state associated with a Surface used for MediaCodec decoder output.
  * <p>
@@ -30,7 +30,6 @@ import android.view.Surface;
 class DecoderOutputSurface {
 
     private static final String TAG = DecoderOutputSurface.class.getSimpleName();
-    private static final String THREAD_NAME = "Decoder Output Surface Callback Thread";
     private static final int TIMEOUT_MS = 500;
     private static final int EGL_ES2_BIT = 4;
     private final Object frameSync = new Object();
@@ -40,7 +39,6 @@ class DecoderOutputSurface {
     private SurfaceTexture outputTexture;
     private Surface outputSurface;
     private SurfaceTextureRenderer textureRenderer;
-    private HandlerThread handlerThread;
     private boolean isFrameAvailable;
 
     /**
@@ -73,10 +71,8 @@ class DecoderOutputSurface {
         textureRenderer = new SurfaceTextureRenderer();
         textureRenderer.surfaceCreated();
 
-        // Listen for frames on a different thread to avoid waiting on the main thread.
-        handlerThread = new HandlerThread(THREAD_NAME);
-        handlerThread.start();
-        Handler handler = new Handler(handlerThread.getLooper());
+        // Listen for frames on the SDK's callback thread to avoid waiting on the main thread
+        // or the decoding thread.
         outputTexture = new SurfaceTexture(textureRenderer.getTextureId());
         outputTexture.setOnFrameAvailableListener(new SurfaceTexture.OnFrameAvailableListener() {
             @Override
@@ -89,7 +85,7 @@ class DecoderOutputSurface {
                     frameSync.notifyAll();
                 }
             }
-        }, handler);
+        }, FritzExecutors.callbackHandler());
         outputSurface = new Surface(outputTexture);
     }
 
@@ -149,7 +145,7 @@ class DecoderOutputSurface {
         EGL14.eglDestroySurface(eglDisplay, eglSurface);
         EGL14.eglDestroyContext(eglDisplay, eglContext);
 
-        handlerThread.quitSafely();
+        outputTexture.setOnFrameAvailableListener(null);
         outputSurface.release();
         eglDisplay = null;
         eglContext = null;
@@ -1,18 +1,13 @@
 package ai.fritz.vision.video;
 
-import android.os.Handler;
-import android.os.HandlerThread;
-
+import ai.fritz.core.FritzExecutors;
 import ai.fritz.vision.ByteImage;
 
 abstract class VideoDecodeMediator<T> {
 
-    private static final String THREAD_NAME = "Fritz Vision Video Processing Thread";
-
     protected int targetFrameCount;
     protected FritzVisionImageFilter[] filters;
     protected VideoProgressCallback<T> progressCallback;
-    protected HandlerThread handlerThread;
     protected TrackTypeMap<CodecDecoder> decoderMap = new TrackTypeMap<>();
 
     VideoDecodeMediator(int targetFrameCount, FritzVisionImageFilter[] filters) {
@@ -44,11 +39,8 @@ abstract class VideoDecodeMediator<T> {
      * @param startFrame Frame to start at.
      */
     void start(final int frameInterval, final int numFrames, final int startFrame) {
-        handlerThread = new HandlerThread(THREAD_NAME);
-        handlerThread.start();
-
-        // Start decoding video on a separate thread
-        new Handler(handlerThread.getLooper()).post(new Runnable() {
+        // Start decoding on the SDK's video thread. Codec callbacks are delivered to its looper.
+        FritzExecutors.videoHandler().post(new Runnable() {
             @Override
             public void run() {
                 for (CodecDecoder decoder : decoderMap.values()) {
@@ -65,7 +57,6 @@ abstract class VideoDecodeMediator<T> {
         for (CodecDecoder decoder : decoderMap.values()) {
             decoder.release();
         }
-        handlerThread.quitSafely();
     }
 
     /**
@@ -0,0 +1,72 @@
+#pragma version(1)
+#pragma rs java_package_name(ai.fritz.vision.rs)
+
+rs_allocation inImage;
+// Source point of output pixel (0, 0), and how far it moves for each output column and row
+float2 origin;
+float2 columnStep;
+float2 rowStep;
+// The part of the source to sample from
+float2 boundsMin;
+float2 boundsMax;
+int2 minIndex;
+int2 maxIndex;
+
+static float2 sourcePoint(uint32_t x, uint32_t y) {
+    return origin + columnStep * (float) x + rowStep * (float) y;
+}
+
+static int clampIndex(int index, int low, int high) {
+    return min(max(index, low), high);
+}
+
+static float4 read(int x, int y) {
+    return convert_float4(rsGetElementAt_uchar4(inImage, x, y));
+}
+
+static float4 cubic(float4 p0, float4 p1, float4 p2, float4 p3, float t) {
+    return p1 + 0.5f * t * (p2 - p0 + t * (2.f * p0 - 5.f * p1 + 4.f * p2 - p3
+            + t * (3.f * (p1 - p2) + p3 - p0)));
+}
+
+uchar4 __attribute__ ((kernel)) transform_nearest (uchar4 in, uint32_t x, uint32_t y) {
+    float2 point = clamp(sourcePoint(x, y), boundsMin, boundsMax);
+    int inX = clampIndex((int) floor(point.x + 0.5f), minIndex.x, maxIndex.x);
+    int inY = clampIndex((int) floor(point.y + 0.5f), minIndex.y, maxIndex.y);
+    return rsGetElementAt_uchar4(inImage, inX, inY);
+}
+
+uchar4 __attribute__ ((kernel)) transform_bilinear (uchar4 in, uint32_t x, uint32_t y) {
+    float2 point = clamp(sourcePoint(x, y), boundsMin, boundsMax);
+    float2 start = floor(point);
+    float2 f = point - start;
+    int x0 = clampIndex((int) start.x, minIndex.x, maxIndex.x);
+    int y0 = clampIndex((int) start.y, minIndex.y, maxIndex.y);
+    int x1 = clampIndex(x0 + 1, minIndex.x, maxIndex.x);
+    int y1 = clampIndex(y0 + 1, minIndex.y, maxIndex.y);
+
+    float4 top = mix(read(x0, y0), read(x1, y0), f.x);
+    float4 bottom = mix(read(x0, y1), read(x1, y1), f.x);
+    return convert_uchar4(clamp(mix(top, bottom, f.y) + 0.5f, 0.f, 255.f));
+}
+
+// Catmull-Rom, the same as ScriptIntrinsicResize
+uchar4 __attribute__ ((kernel)) transform_bicubic (uchar4 in, uint32_t x, uint32_t y) {
+    float2 point = sourcePoint(x, y);
+    float2 start = floor(point);
+    float2 f = point - start;
+    int startX = (int) start.x;
+    int startY = (int) start.y;
+
+    int xs[4];
+    float4 rows[4];
+    for (int i = 0; i < 4; i++) {
+        xs[i] = clampIndex(startX - 1 + i, minIndex.x, maxIndex.x);
+    }
+    for (int i = 0; i < 4; i++) {
+        int row = clampIndex(startY - 1 + i, minIndex.y, maxIndex.y);
+        rows[i] = cubic(read(xs[0], row), read(xs[1], row), read(xs[2], row), read(xs[3], row), f.x);
+    }
+    float4 value = cubic(rows[0], rows[1], rows[2], rows[3], f.y);
+    return convert_uchar4(clamp(value + 0.5f, 0.f, 255.f));
+}
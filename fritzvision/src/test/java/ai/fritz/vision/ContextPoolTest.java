@@ -0,0 +1,113 @@
+package ai.fritz.vision;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 21, packageName = "ai.fritz.sdkapp")
+public class ContextPoolTest {
+
+    private static class CountingPool extends ContextPool<Object> {
+        final AtomicInteger createCount = new AtomicInteger();
+        volatile boolean failNextCreate;
+
+        CountingPool(int maxSize) {
+            super(maxSize);
+        }
+
+        @Override
+        protected Object create() {
+            if (failNextCreate) {
+                failNextCreate = false;
+                throw new IllegalStateException("Couldn't create");
+            }
+            createCount.incrementAndGet();
+            return new Object();
+        }
+    }
+
+    @Test
+    public void testReusesReleasedObjects() {
+        CountingPool pool = new CountingPool(2);
+        Object first = pool.acquire();
+        pool.release(first);
+
+        assertSame(first, pool.acquire());
+        assertEquals(1, pool.createCount.get());
+        assertEquals(2, pool.getStats().getLeaseCount());
+    }
+
+    @Test
+    public void testCreatesUpToMaxWithoutWaiting() {
+        CountingPool pool = new CountingPool(2);
+        Object first = pool.acquire();
+        Object second = pool.acquire();
+
+        assertNotSame(first, second);
+        ProcessingContextStats stats = pool.getStats();
+        assertEquals(2, stats.getContextCount());
+        assertEquals(0, stats.getIdleCount());
+        assertEquals(0, stats.getContendedLeaseCount());
+    }
+
+    @Test
+    public void testWaitsForReleaseWhenFull() throws InterruptedException {
+        final CountingPool pool = new CountingPool(1);
+        Object leased = pool.acquire();
+        final AtomicReference<Object> waited = new AtomicReference<>();
+        final CountDownLatch acquired = new CountDownLatch(1);
+
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                waited.set(pool.acquire());
+                acquired.countDown();
+            }
+        });
+        thread.start();
+
+        assertFalse(acquired.await(100, TimeUnit.MILLISECONDS));
+        pool.release(leased);
+        assertTrue(acquired.await(5, TimeUnit.SECONDS));
+
+        assertSame(leased, waited.get());
+        ProcessingContextStats stats = pool.getStats();
+        assertEquals(1, stats.getContextCount());
+        assertEquals(2, stats.getLeaseCount());
+        assertEquals(1, stats.getContendedLeaseCount());
+        assertTrue(stats.getLeaseWaitNanos() > 0);
+
+        pool.resetStats();
+        assertEquals(0, pool.getStats().getLeaseCount());
+        assertEquals(0, pool.getStats().getLeaseWaitNanos());
+    }
+
+    @Test
+    public void testFailedCreateFreesItsSlot() {
+        CountingPool pool = new CountingPool(1);
+        pool.failNextCreate = true;
+        try {
+            pool.acquire();
+            fail("Expected creating to fail");
+        } catch (IllegalStateException e) {
+            // Expected
+        }
+
+        pool.acquire();
+        assertEquals(1, pool.getStats().getContextCount());
+    }
+}
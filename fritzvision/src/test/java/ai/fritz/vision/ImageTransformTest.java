@@ -0,0 +1,134 @@
+package ai.fritz.vision;
+
+import android.graphics.Rect;
+import android.util.Size;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 21, packageName = "ai.fritz.sdkapp")
+public class ImageTransformTest {
+
+    private static final int WIDTH = 8;
+    private static final int HEIGHT = 4;
+    private static final float DELTA = 1e-5f;
+
+    private final ImageTransform identity = ImageTransform.identity(WIDTH, HEIGHT);
+
+    @Test
+    public void testIdentity() {
+        assertTrue(identity.isIdentity());
+        assertTrue(identity.isPixelAligned());
+        assertFalse(identity.swapsAxes());
+        assertMaps(identity, 3, 2, 3, 2);
+    }
+
+    @Test
+    public void testRotationsMatchRotator() {
+        ImageTransform rotated90 = identity.rotate(90);
+        assertEquals(HEIGHT, rotated90.getWidth());
+        assertEquals(WIDTH, rotated90.getHeight());
+        assertTrue(rotated90.swapsAxes());
+        // rotate_90_clockwise reads (y, height - 1 - x)
+        assertMaps(rotated90, 1, 5, 5, HEIGHT - 1 - 1);
+
+        // rotate_180 reads (width - 1 - x, height - 1 - y)
+        assertMaps(identity.rotate(180), 1, 3, WIDTH - 1 - 1, HEIGHT - 1 - 3);
+
+        // rotate_270_clockwise reads (width - 1 - y, x)
+        assertMaps(identity.rotate(270), 1, 5, WIDTH - 1 - 5, 1);
+
+        assertTrue(identity.rotate(90).rotate(270).isIdentity());
+        assertTrue(identity.rotate(180).rotate(180).isIdentity());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsOtherRotations() {
+        identity.rotate(45);
+    }
+
+    @Test
+    public void testFlips() {
+        assertMaps(identity.flipHorizontal(), 1, 2, WIDTH - 1 - 1, 2);
+        assertMaps(identity.flipVertical(), 1, 2, 1, HEIGHT - 1 - 2);
+        assertTrue(identity.flipHorizontal().flipHorizontal().isIdentity());
+        assertTrue(identity.flipHorizontal().flipVertical().rotate(180).isIdentity());
+    }
+
+    @Test
+    public void testOrientAppliesRotationThenFlips() {
+        for (ImageOrientation orientation : ImageOrientation.values()) {
+            ImageTransform expected = identity;
+            if (orientation.rotation > 0) {
+                expected = expected.rotate(orientation.rotation);
+            }
+            if (orientation.flipVertical) {
+                expected = expected.flipVertical();
+            }
+            if (orientation.flipHorizontal) {
+                expected = expected.flipHorizontal();
+            }
+            ImageTransform actual = identity.orient(orientation);
+            assertEquals(expected.getWidth(), actual.getWidth());
+            assertEquals(expected.getHeight(), actual.getHeight());
+            assertArrayEquals(orientation.name(), expected.map(2, 3), actual.map(2, 3), DELTA);
+        }
+    }
+
+    @Test
+    public void testResizeLinesUpPixelCenters() {
+        ImageTransform half = identity.resize(new Size(WIDTH / 2, HEIGHT / 2));
+        // Each output pixel sits between two source pixels.
+        assertMaps(half, 0, 0, 0.5f, 0.5f);
+        assertMaps(half, 3, 1, 6.5f, 2.5f);
+        assertFalse(half.isPixelAligned());
+        assertTrue(half.isResize());
+
+        assertTrue(identity.resize(new Size(WIDTH, HEIGHT)).isIdentity());
+        assertFalse(identity.rotate(90).resize(new Size(2, 2)).isResize());
+    }
+
+    @Test
+    public void testResizeAfterRotation() {
+        ImageTransform transform = identity.rotate(90).resize(new Size(HEIGHT * 2, WIDTH * 2));
+        float[] point = transform.map(0, 0);
+        float[] corner = identity.rotate(90).map(0, 0);
+        // Upscaling by 2 moves the first sample a quarter pixel out past the corner.
+        assertEquals(corner[0] - 0.25f, point[0], DELTA);
+        assertEquals(corner[1] + 0.25f, point[1], DELTA);
+    }
+
+    @Test
+    public void testCropMovesOriginAndBounds() {
+        ImageTransform cropped = identity.rotate(90).crop(new Rect(1, 2, 3, 6));
+        assertEquals(2, cropped.getWidth());
+        assertEquals(4, cropped.getHeight());
+        assertTrue(cropped.isPixelAligned());
+        assertArrayEquals(identity.rotate(90).map(1, 2), cropped.map(0, 0), DELTA);
+
+        // Rotated output columns 1-2 and rows 2-5 come from source columns 2-5 and rows 1-2.
+        assertEquals(2, cropped.getBoundsLeft(), DELTA);
+        assertEquals(5, cropped.getBoundsRight(), DELTA);
+        assertEquals(1, cropped.getBoundsTop(), DELTA);
+        assertEquals(2, cropped.getBoundsBottom(), DELTA);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsCropOutsideImage() {
+        identity.crop(new Rect(0, 0, WIDTH + 1, HEIGHT));
+    }
+
+    private static void assertMaps(ImageTransform transform, int x, int y, float sourceX, float sourceY) {
+        float[] point = transform.map(x, y);
+        assertEquals(sourceX, point[0], DELTA);
+        assertEquals(sourceY, point[1], DELTA);
+    }
+}
@@ -0,0 +1,327 @@
+package ai.fritz.vision;
+
+import android.graphics.Rect;
+import android.util.Size;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 21, packageName = "ai.fritz.sdkapp")
+public class JavaProcessingBackendTest {
+
+    private static final int WIDTH = 10;
+    private static final int HEIGHT = 6;
+    private static final int MAX_CHANNEL_DIFFERENCE = 1;
+
+    private final JavaProcessingBackend backend = new JavaProcessingBackend(new ForkJoinPool(4));
+
+    @After
+    public void tearDown() {
+        ImageProcessingPipeline.setDefaultBackend(null);
+    }
+
+    @Test
+    public void testRGBARoundTrip() {
+        byte[] rgba = randomRGBA(WIDTH, HEIGHT, new Random(1));
+        assertArrayEquals(rgba, backend.fromRGBA(rgba, WIDTH, HEIGHT).toRGBA());
+    }
+
+    /**
+     * Orienting through the pipeline and through the fused camera path land on the same pixels.
+     */
+    @Test
+    public void testOrientMatchesFusedPath() {
+        YUVImage yuvImage = createYUVImage(new Random(2));
+
+        for (ImageOrientation orientation : ImageOrientation.values()) {
+            ImageProcessingPipeline pipeline = new ImageProcessingPipeline(yuvImage, backend);
+            pipeline.orient(orientation);
+            byte[] rgba = pipeline.buildByteImage().getCopyOfImageData();
+
+            ByteBuffer fused = ByteBuffer.allocateDirect(pipeline.getWidth() * pipeline.getHeight() * 3);
+            YUVConverter.convertToTensor(yuvImage, orientation, pipeline.getWidth(), pipeline.getHeight(), fused, true, null);
+
+            for (int i = 0; i < pipeline.getWidth() * pipeline.getHeight(); i++) {
+                for (int channel = 0; channel < 3; channel++) {
+                    assertEquals(orientation.name(), fused.get(i * 3 + channel), rgba[i * ByteImage.RGB_CHANNELS + channel]);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testRotateAndFlipRoundTrip() {
+        byte[] rgba = randomRGBA(WIDTH, HEIGHT, new Random(3));
+        ProcessingImage image = backend.fromRGBA(rgba, WIDTH, HEIGHT);
+
+        ProcessingImage rotated = backend.rotate(backend.rotate(image, 90), 270);
+        assertArrayEquals(rgba, rotated.toRGBA());
+        ProcessingImage upsideDown = backend.rotate(image, 180);
+        assertArrayEquals(upsideDown.toRGBA(), backend.flipVertical(backend.flipHorizontal(image)).toRGBA());
+
+        ProcessingImage sideways = backend.rotate(image, 90);
+        assertEquals(HEIGHT, sideways.getWidth());
+        assertEquals(WIDTH, sideways.getHeight());
+    }
+
+    @Test
+    public void testResizeToSameSizeKeepsPixels() {
+        byte[] rgba = randomRGBA(WIDTH, HEIGHT, new Random(4));
+        ProcessingImage image = backend.fromRGBA(rgba, WIDTH, HEIGHT);
+
+        for (ResizeMethod method : ResizeMethod.values()) {
+            assertArrayEquals(method.name(), rgba, backend.resize(image, new Size(WIDTH, HEIGHT), method).toRGBA());
+        }
+    }
+
+    @Test
+    public void testNearestUpscaleRepeatsPixels() {
+        byte[] rgba = randomRGBA(2, 1, new Random(5));
+        byte[] resized = backend.resize(backend.fromRGBA(rgba, 2, 1), new Size(4, 2), ResizeMethod.NEAREST).toRGBA();
+
+        for (int y = 0; y < 2; y++) {
+            for (int x = 0; x < 4; x++) {
+                for (int channel = 0; channel < ByteImage.RGB_CHANNELS; channel++) {
+                    assertEquals(rgba[(x / 2) * ByteImage.RGB_CHANNELS + channel],
+                            resized[(y * 4 + x) * ByteImage.RGB_CHANNELS + channel]);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testBilinearDownscaleAverages() {
+        // Two columns, 100 and 200, shrunk to one lands halfway.
+        byte[] rgba = new byte[]{100, 100, 100, (byte) 255, (byte) 200, (byte) 200, (byte) 200, (byte) 255};
+        byte[] resized = backend.resize(backend.fromRGBA(rgba, 2, 1), new Size(1, 1), ResizeMethod.BILINEAR).toRGBA();
+
+        assertEquals(150, resized[0] & 0xff);
+        assertEquals(255, resized[3] & 0xff);
+    }
+
+    @Test
+    public void testBicubicMatchesRenderScriptIntrinsic() {
+        byte[] rgba = randomRGBA(WIDTH, HEIGHT, new Random(6));
+        ProcessingImage image = backend.fromRGBA(rgba, WIDTH, HEIGHT);
+
+        Size[] sizes = new Size[]{new Size(4, 3), new Size(17, 9), new Size(7, 11)};
+        for (Size size : sizes) {
+            byte[] expected = resizeLikeRenderScript(rgba, WIDTH, HEIGHT, size.getWidth(), size.getHeight());
+            byte[] actual = backend.resize(image, size, ResizeMethod.BICUBIC).toRGBA();
+            assertClose(size.toString(), expected, actual);
+        }
+    }
+
+    @Test
+    public void testBandsMatchSingleThread() {
+        // Large enough to be split across the pool.
+        int width = 300;
+        int height = 200;
+        byte[] rgba = randomRGBA(width, height, new Random(7));
+        JavaProcessingBackend serial = new JavaProcessingBackend(new ForkJoinPool(1));
+
+        for (ResizeMethod method : ResizeMethod.values()) {
+            Size size = new Size(129, 257);
+            assertArrayEquals(
+                    serial.resize(serial.fromRGBA(rgba, width, height), size, method).toRGBA(),
+                    backend.resize(backend.fromRGBA(rgba, width, height), size, method).toRGBA());
+        }
+        assertArrayEquals(
+                serial.rotate(serial.fromRGBA(rgba, width, height), 270).toRGBA(),
+                backend.rotate(backend.fromRGBA(rgba, width, height), 270).toRGBA());
+    }
+
+    @Test
+    public void testPipelineWaitsUntilBuilt() {
+        ProcessingImage image = backend.fromRGBA(randomRGBA(WIDTH, HEIGHT, new Random(10)), WIDTH, HEIGHT);
+        ImageProcessingPipeline pipeline = new ImageProcessingPipeline(image, backend);
+        pipeline.rotate(90);
+        pipeline.flipHorizontal();
+
+        assertEquals(HEIGHT, pipeline.getWidth());
+        assertEquals(WIDTH, pipeline.getHeight());
+        assertFalse(pipeline.getTransform().isIdentity());
+
+        ProcessingImage built = pipeline.getImage();
+        assertEquals(HEIGHT, built.getWidth());
+        assertTrue(pipeline.getTransform().isIdentity());
+        assertTrue(pipeline.getImage() == built);
+    }
+
+    @Test
+    public void testFusedPipelineMatchesStepByStep() {
+        byte[] rgba = randomRGBA(WIDTH, HEIGHT, new Random(11));
+        ProcessingImage image = backend.fromRGBA(rgba, WIDTH, HEIGHT);
+        // Neither side scales to a nearest neighbour tie, where flipping first would round the other way.
+        Size size = new Size(7, 13);
+
+        for (ResizeMethod method : ResizeMethod.values()) {
+            for (ImageOrientation orientation : ImageOrientation.values()) {
+                ImageProcessingPipeline pipeline = new ImageProcessingPipeline(image, backend);
+                pipeline.orient(orientation);
+                pipeline.resize(size, method);
+
+                ProcessingImage expected = image;
+                if (orientation.rotation > 0) {
+                    expected = backend.rotate(expected, orientation.rotation);
+                }
+                if (orientation.flipVertical) {
+                    expected = backend.flipVertical(expected);
+                }
+                if (orientation.flipHorizontal) {
+                    expected = backend.flipHorizontal(expected);
+                }
+                expected = backend.resize(expected, size, method);
+
+                assertClose(method + " " + orientation, expected.toRGBA(), pipeline.buildByteImage().getCopyOfImageData());
+            }
+        }
+    }
+
+    @Test
+    public void testCropKeepsRegion() {
+        byte[] rgba = randomRGBA(WIDTH, HEIGHT, new Random(12));
+        ImageProcessingPipeline pipeline = new ImageProcessingPipeline(backend.fromRGBA(rgba, WIDTH, HEIGHT), backend);
+        pipeline.crop(new Rect(2, 1, 7, 4));
+
+        byte[] cropped = pipeline.buildByteImage().getCopyOfImageData();
+        assertEquals(5, pipeline.getWidth());
+        assertEquals(3, pipeline.getHeight());
+        for (int y = 0; y < 3; y++) {
+            for (int x = 0; x < 5; x++) {
+                for (int channel = 0; channel < ByteImage.RGB_CHANNELS; channel++) {
+                    assertEquals(rgba[((y + 1) * WIDTH + x + 2) * ByteImage.RGB_CHANNELS + channel],
+                            cropped[(y * 5 + x) * ByteImage.RGB_CHANNELS + channel]);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testCropThenResizeStaysInRegion() {
+        // Left half black, right half white: a crop of the right half never picks up black.
+        byte[] rgba = new byte[WIDTH * HEIGHT * ByteImage.RGB_CHANNELS];
+        for (int i = 0; i < WIDTH * HEIGHT; i++) {
+            byte value = (byte) (i % WIDTH < WIDTH / 2 ? 0 : 255);
+            rgba[i * ByteImage.RGB_CHANNELS] = value;
+            rgba[i * ByteImage.RGB_CHANNELS + 1] = value;
+            rgba[i * ByteImage.RGB_CHANNELS + 2] = value;
+            rgba[i * ByteImage.RGB_CHANNELS + 3] = (byte) 255;
+        }
+        for (ResizeMethod method : ResizeMethod.values()) {
+            ImageProcessingPipeline pipeline = new ImageProcessingPipeline(backend.fromRGBA(rgba, WIDTH, HEIGHT), backend);
+            pipeline.crop(new Rect(WIDTH / 2, 0, WIDTH, HEIGHT));
+            pipeline.resize(new Size(7, 3), method);
+
+            byte[] resized = pipeline.buildByteImage().getCopyOfImageData();
+            for (byte value : resized) {
+                assertEquals(method.name(), 255, value & 0xff);
+            }
+        }
+    }
+
+    @Test
+    public void testVisionImageUsesItsBackend() {
+        byte[] rgba = randomRGBA(WIDTH, HEIGHT, new Random(8));
+        FritzVisionImage visionImage = FritzVisionImage.fromByteImage(new ByteImage(rgba, WIDTH, HEIGHT), ImageOrientation.RIGHT);
+        visionImage.setProcessingBackend(backend);
+
+        ByteImage prepared = visionImage.prepareBytes(new Size(3, 5));
+
+        assertEquals(3, prepared.getWidth());
+        assertEquals(5, prepared.getHeight());
+        assertEquals(new Size(HEIGHT, WIDTH), visionImage.encodedSize());
+        assertTrue(visionImage.getProcessingBackend() == backend);
+    }
+
+    @Test
+    public void testDefaultBackend() {
+        ImageProcessingPipeline.setDefaultBackend(backend);
+        FritzVisionImage visionImage = FritzVisionImage.fromByteImage(
+                new ByteImage(randomRGBA(WIDTH, HEIGHT, new Random(9)), WIDTH, HEIGHT));
+
+        assertTrue(visionImage.getProcessingBackend() == backend);
+        assertEquals(WIDTH, visionImage.buildOrientedByteImage().getWidth());
+    }
+
+    /**
+     * Bicubic resizing written the way RenderScript's resize intrinsic does it, pixel by pixel.
+     */
+    private static byte[] resizeLikeRenderScript(byte[] rgba, int width, int height, int outWidth, int outHeight) {
+        byte[] output = new byte[outWidth * outHeight * ByteImage.RGB_CHANNELS];
+        float scaleX = (float) width / outWidth;
+        float scaleY = (float) height / outHeight;
+        for (int y = 0; y < outHeight; y++) {
+            float yf = (y + 0.5f) * scaleY - 0.5f;
+            int startY = (int) Math.floor(yf);
+            float fy = yf - startY;
+            for (int x = 0; x < outWidth; x++) {
+                float xf = (x + 0.5f) * scaleX - 0.5f;
+                int startX = (int) Math.floor(xf);
+                float fx = xf - startX;
+                for (int channel = 0; channel < ByteImage.RGB_CHANNELS; channel++) {
+                    float[] rows = new float[4];
+                    for (int i = 0; i < 4; i++) {
+                        int row = clamp(startY - 1 + i, height);
+                        float[] p = new float[4];
+                        for (int j = 0; j < 4; j++) {
+                            int column = clamp(startX - 1 + j, width);
+                            p[j] = rgba[(row * width + column) * ByteImage.RGB_CHANNELS + channel] & 0xff;
+                        }
+                        rows[i] = cubicInterpolate(p[0], p[1], p[2], p[3], fx);
+                    }
+                    float value = cubicInterpolate(rows[0], rows[1], rows[2], rows[3], fy);
+                    int channelValue = (int) Math.max(0, Math.min(255, value + 0.5f));
+                    output[(y * outWidth + x) * ByteImage.RGB_CHANNELS + channel] = (byte) channelValue;
+                }
+            }
+        }
+        return output;
+    }
+
+    private static float cubicInterpolate(float p0, float p1, float p2, float p3, float x) {
+        return p1 + 0.5f * x * (p2 - p0 + x * (2.f * p0 - 5.f * p1 + 4.f * p2 - p3
+                + x * (3.f * (p1 - p2) + p3 - p0)));
+    }
+
+    private static int clamp(int value, int size) {
+        return Math.max(0, Math.min(size - 1, value));
+    }
+
+    private static void assertClose(String message, byte[] expected, byte[] actual) {
+        assertEquals(message, expected.length, actual.length);
+        for (int i = 0; i < expected.length; i++) {
+            int difference = Math.abs((expected[i] & 0xff) - (actual[i] & 0xff));
+            assertTrue(message + " at " + i + ": " + difference, difference <= MAX_CHANNEL_DIFFERENCE);
+        }
+    }
+
+    private static byte[] randomRGBA(int width, int height, Random random) {
+        byte[] rgba = new byte[width * height * ByteImage.RGB_CHANNELS];
+        random.nextBytes(rgba);
+        return rgba;
+    }
+
+    private static YUVImage createYUVImage(Random random) {
+        byte[] y = new byte[WIDTH * HEIGHT];
+        byte[] u = new byte[WIDTH * HEIGHT / 4];
+        byte[] v = new byte[WIDTH * HEIGHT / 4];
+        random.nextBytes(y);
+        random.nextBytes(u);
+        random.nextBytes(v);
+        return new YUVImage(y, u, v, WIDTH, WIDTH / 2, 1, WIDTH, HEIGHT);
+    }
+}
@@ -0,0 +1,209 @@
+package ai.fritz.vision;
+
+import android.util.Size;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Random;
+
+import ai.fritz.vision.base.PreprocessParams;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 21, packageName = "ai.fritz.sdkapp")
+public class YUVConverterTest {
+
+    private static final int WIDTH = 6;
+    private static final int HEIGHT = 4;
+    private static final int Y_ROW_STRIDE = 8;
+    private static final int UV_ROW_STRIDE = 8;
+    private static final int UV_PIXEL_STRIDE = 2;
+
+    @Test
+    public void testFusedMatchesPipelineForEveryOrientation() {
+        YUVImage yuvImage = createImage(new Random(1));
+        int[] rgb = toRGB(YUVConverter.convertToRGBA(yuvImage));
+
+        for (ImageOrientation orientation : ImageOrientation.values()) {
+            int[] expected = orient(rgb, orientation);
+            boolean swapsSides = orientation.getRotation() == 90 || orientation.getRotation() == 270;
+            int targetWidth = swapsSides ? HEIGHT : WIDTH;
+            int targetHeight = swapsSides ? WIDTH : HEIGHT;
+
+            ByteBuffer output = allocate(targetWidth * targetHeight * 3);
+            YUVConverter.convertToTensor(yuvImage, orientation, targetWidth, targetHeight, output, true, null);
+
+            assertEquals(expected.length * 3, output.position());
+            for (int i = 0; i < expected.length; i++) {
+                int pixel = expected[i];
+                assertEquals(orientation.name(), (pixel >> 16) & 0xff, output.get(i * 3) & 0xff);
+                assertEquals(orientation.name(), (pixel >> 8) & 0xff, output.get(i * 3 + 1) & 0xff);
+                assertEquals(orientation.name(), pixel & 0xff, output.get(i * 3 + 2) & 0xff);
+            }
+        }
+    }
+
+    /**
+     * Writing a camera frame straight into an input still reports the oriented size.
+     */
+    @Test
+    public void testWriteInputSetsRotatedSize() {
+        FritzVisionImage visionImage = FritzVisionImage.fromYUVImage(createImage(new Random(4)), ImageOrientation.RIGHT);
+        ByteBuffer output = allocate(3 * 2 * 3);
+
+        assertTrue(visionImage.writeInput(output, new Size(3, 2), true, null));
+        assertEquals(HEIGHT, visionImage.getRotatedWidth());
+        assertEquals(WIDTH, visionImage.getRotatedHeight());
+    }
+
+    @Test
+    public void testWritesNormalizedFloats() {
+        YUVImage yuvImage = createImage(new Random(2));
+        int[] rgb = toRGB(YUVConverter.convertToRGBA(yuvImage));
+        PreprocessParams params = new PreprocessParams(128, 255f);
+
+        ByteBuffer output = allocate(WIDTH * HEIGHT * 3 * 4);
+        YUVConverter.convertToTensor(yuvImage, ImageOrientation.UP, WIDTH, HEIGHT, output, false, params);
+
+        assertEquals(WIDTH * HEIGHT * 3 * 4, output.position());
+        for (int i = 0; i < rgb.length; i++) {
+            assertEquals(params.normalize((rgb[i] >> 16) & 0xff), output.getFloat(i * 12), 1e-6f);
+            assertEquals(params.normalize((rgb[i] >> 8) & 0xff), output.getFloat(i * 12 + 4), 1e-6f);
+            assertEquals(params.normalize(rgb[i] & 0xff), output.getFloat(i * 12 + 8), 1e-6f);
+        }
+    }
+
+    /**
+     * Inputs are written at the buffer's position, e.g after other items in a batch.
+     */
+    @Test
+    public void testWritesAtBufferPosition() {
+        YUVImage yuvImage = createImage(new Random(3));
+        int itemBytes = 3 * 2 * 3 * 4;
+        ByteBuffer output = allocate(itemBytes * 2);
+
+        YUVConverter.convertToTensor(yuvImage, ImageOrientation.UP, 3, 2, output, false, null);
+        assertEquals(itemBytes, output.position());
+        YUVConverter.convertToTensor(yuvImage, ImageOrientation.UP, 3, 2, output, false, null);
+        assertEquals(itemBytes * 2, output.position());
+
+        for (int i = 0; i < itemBytes; i += 4) {
+            assertEquals(output.getFloat(i), output.getFloat(itemBytes + i), 0f);
+        }
+    }
+
+    @Test
+    public void testDownscaleAveragesLuma() {
+        // Columns alternate between two values, so halving the width lands between them.
+        byte[] y = new byte[WIDTH * HEIGHT];
+        for (int i = 0; i < y.length; i++) {
+            y[i] = (byte) (i % 2 == 0 ? 100 : 200);
+        }
+        byte[] uv = new byte[(WIDTH / 2) * (HEIGHT / 2)];
+        Arrays.fill(uv, (byte) 128);
+        YUVImage yuvImage = new YUVImage(y, uv, uv.clone(), WIDTH, WIDTH / 2, 1, WIDTH, HEIGHT);
+        byte[] mid = new byte[]{(byte) 150, (byte) 150, (byte) 150, (byte) 150};
+        int expected = toRGB(YUVConverter.convertToRGBA(
+                new YUVImage(mid, new byte[]{(byte) 128}, new byte[]{(byte) 128}, 2, 1, 1, 2, 2)))[0] >> 16;
+
+        ByteBuffer output = allocate(WIDTH / 2 * HEIGHT / 2 * 3);
+        YUVConverter.convertToTensor(yuvImage, ImageOrientation.UP, WIDTH / 2, HEIGHT / 2, output, true, null);
+
+        for (int i = 0; i < output.capacity(); i++) {
+            assertEquals(expected, output.get(i) & 0xff);
+        }
+    }
+
+    /**
+     * Orient pixels the way the RenderScript pipeline does: rotate, then flip vertically, then
+     * flip horizontally.
+     */
+    private static int[] orient(int[] pixels, ImageOrientation orientation) {
+        int width = WIDTH;
+        int height = HEIGHT;
+        int[] result = pixels;
+        int rotation = orientation.getRotation();
+        if (rotation > 0) {
+            int outWidth = rotation == 180 ? width : height;
+            int outHeight = rotation == 180 ? height : width;
+            int[] rotated = new int[pixels.length];
+            for (int y = 0; y < outHeight; y++) {
+                for (int x = 0; x < outWidth; x++) {
+                    int inX;
+                    int inY;
+                    if (rotation == 90) {
+                        inX = y;
+                        inY = height - 1 - x;
+                    } else if (rotation == 180) {
+                        inX = width - 1 - x;
+                        inY = height - 1 - y;
+                    } else {
+                        inX = width - 1 - y;
+                        inY = x;
+                    }
+                    rotated[y * outWidth + x] = result[inY * width + inX];
+                }
+            }
+            result = rotated;
+            width = outWidth;
+            height = outHeight;
+        }
+        if (orientation.getFlipVertical()) {
+            int[] flipped = new int[result.length];
+            for (int y = 0; y < height; y++) {
+                System.arraycopy(result, (height - 1 - y) * width, flipped, y * width, width);
+            }
+            result = flipped;
+        }
+        if (orientation.getFlipHorizontal()) {
+            int[] flipped = new int[result.length];
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    flipped[y * width + x] = result[y * width + width - 1 - x];
+                }
+            }
+            result = flipped;
+        }
+        return result;
+    }
+
+    private static int[] toRGB(byte[] rgba) {
+        int[] pixels = new int[rgba.length / ByteImage.RGB_CHANNELS];
+        for (int i = 0; i < pixels.length; i++) {
+            int offset = i * ByteImage.RGB_CHANNELS;
+            pixels[i] = ((rgba[offset] & 0xff) << 16) | ((rgba[offset + 1] & 0xff) << 8) | (rgba[offset + 2] & 0xff);
+        }
+        return pixels;
+    }
+
+    private static ByteBuffer allocate(int length) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(length);
+        buffer.order(ByteOrder.nativeOrder());
+        return buffer;
+    }
+
+    private static YUVImage createImage(Random random) {
+        byte[] y = new byte[Y_ROW_STRIDE * HEIGHT];
+        byte[] u = new byte[UV_ROW_STRIDE * HEIGHT / 2];
+        byte[] v = new byte[UV_ROW_STRIDE * HEIGHT / 2];
+        random.nextBytes(y);
+        random.nextBytes(u);
+        random.nextBytes(v);
+        return new YUVImage(toDirect(y), toDirect(u), toDirect(v), Y_ROW_STRIDE, UV_ROW_STRIDE, UV_PIXEL_STRIDE, WIDTH, HEIGHT);
+    }
+
+    private static ByteBuffer toDirect(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+        buffer.put(bytes);
+        buffer.rewind();
+        return buffer;
+    }
+}
@@ -0,0 +1,183 @@
+package ai.fritz.vision;
+
+import android.media.Image;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.nio.ByteBuffer;
+import java.nio.ReadOnlyBufferException;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 21, packageName = "ai.fritz.sdkapp")
+public class YUVImageTest {
+
+    private static final int WIDTH = 7;
+    private static final int HEIGHT = 5;
+    // Rows padded past the width, like camera frames.
+    private static final int Y_ROW_STRIDE = 8;
+    // Interleaved U and V, as in NV21 frames.
+    private static final int UV_PIXEL_STRIDE = 2;
+    private static final int UV_ROW_STRIDE = 8;
+
+    @Test
+    public void testWrapReadsFrameInPlace() {
+        Image image = createFrame(new Random(1));
+        YUVImage yuvImage = YUVImage.wrap(image);
+        ByteBuffer frameY = image.getPlanes()[0].getBuffer();
+
+        frameY.put(0, (byte) 42);
+        assertEquals(42, yuvImage.getYBuffer().get(0));
+        assertTrue(yuvImage.isWrapped());
+        assertTrue(yuvImage.getYBuffer().isDirect());
+    }
+
+    @Test(expected = ReadOnlyBufferException.class)
+    public void testWrappedPlanesAreReadOnly() {
+        YUVImage yuvImage = YUVImage.wrap(createFrame(new Random(1)));
+        yuvImage.getUBuffer().put(0, (byte) 1);
+    }
+
+    @Test
+    public void testBufferViewsHaveTheirOwnPosition() {
+        YUVImage yuvImage = YUVImage.wrap(createFrame(new Random(1)));
+        ByteBuffer first = yuvImage.getYBuffer();
+        first.position(10);
+
+        assertEquals(0, yuvImage.getYBuffer().position());
+    }
+
+    @Test
+    public void testCloseClosesWrappedFrame() {
+        Image image = createFrame(new Random(1));
+        YUVImage yuvImage = YUVImage.wrap(image);
+
+        yuvImage.close();
+        yuvImage.close();
+
+        verify(image, times(1)).close();
+        assertTrue(yuvImage.isClosed());
+        // The size is still known after closing.
+        assertEquals(WIDTH, yuvImage.getWidth());
+        try {
+            yuvImage.getYBuffer();
+            fail("Reading a closed image should throw");
+        } catch (IllegalStateException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void testCopyOutlivesFrame() {
+        Image image = createFrame(new Random(2));
+        YUVImage yuvImage = YUVImage.wrap(image);
+        byte[] expected = YUVConverter.convertToRGBA(yuvImage);
+
+        YUVImage copy = yuvImage.copy();
+        yuvImage.close();
+
+        assertFalse(copy.isWrapped());
+        assertArrayEquals(expected, YUVConverter.convertToRGBA(copy));
+    }
+
+    @Test
+    public void testImageConstructorCopies() {
+        Image image = createFrame(new Random(3));
+        YUVImage yuvImage = new YUVImage(image);
+        ByteBuffer frameY = image.getPlanes()[0].getBuffer();
+        byte original = frameY.get(0);
+
+        frameY.put(0, (byte) (original + 1));
+        assertEquals(original, yuvImage.getYBuffer().get(0));
+        assertFalse(yuvImage.isWrapped());
+
+        yuvImage.close();
+        verify(image, never()).close();
+    }
+
+    @Test
+    public void testDirectAndArrayPlanesConvertTheSame() {
+        Image image = createFrame(new Random(4));
+        YUVImage wrapped = YUVImage.wrap(image);
+        YUVImage arrays = new YUVImage(wrapped.getY(), wrapped.getU(), wrapped.getV(),
+                Y_ROW_STRIDE, UV_ROW_STRIDE, UV_PIXEL_STRIDE, WIDTH, HEIGHT);
+
+        assertArrayEquals(YUVConverter.convertToRGBA(arrays), YUVConverter.convertToRGBA(wrapped));
+    }
+
+    @Test
+    public void testConvertsKnownColors() {
+        // Black, white and mid gray in the Y plane with no chroma.
+        byte[] y = new byte[]{16, (byte) 255, (byte) 128, 16};
+        byte[] uv = new byte[]{(byte) 128, (byte) 128};
+        YUVImage yuvImage = new YUVImage(y, uv, uv.clone(), 4, 1, 1, 4, 1);
+
+        byte[] rgba = YUVConverter.convertToRGBA(yuvImage);
+
+        assertPixel(rgba, 0, 0, 0, 0);
+        assertPixel(rgba, 1, 255, 255, 255);
+        assertPixel(rgba, 2, 130, 130, 130);
+    }
+
+    private static void assertPixel(byte[] rgba, int index, int r, int g, int b) {
+        int offset = index * ByteImage.RGB_CHANNELS;
+        assertEquals(r, rgba[offset] & 0xff);
+        assertEquals(g, rgba[offset + 1] & 0xff);
+        assertEquals(b, rgba[offset + 2] & 0xff);
+        assertEquals(255, rgba[offset + 3] & 0xff);
+    }
+
+    /**
+     * A mock camera frame with direct plane buffers. As on devices, the last row of each plane
+     * stops at the last pixel instead of filling the row stride.
+     */
+    private static Image createFrame(Random random) {
+        int chromaWidth = (WIDTH + 1) / 2;
+        int chromaHeight = (HEIGHT + 1) / 2;
+        ByteBuffer y = randomDirectBuffer(Y_ROW_STRIDE * (HEIGHT - 1) + WIDTH, random);
+        ByteBuffer u = randomDirectBuffer(UV_ROW_STRIDE * (chromaHeight - 1) + (chromaWidth - 1) * UV_PIXEL_STRIDE + 1, random);
+        ByteBuffer v = randomDirectBuffer(u.capacity(), random);
+
+        Image image = mock(Image.class);
+        Image.Plane[] planes = new Image.Plane[]{
+                createPlane(y, Y_ROW_STRIDE, 1),
+                createPlane(u, UV_ROW_STRIDE, UV_PIXEL_STRIDE),
+                createPlane(v, UV_ROW_STRIDE, UV_PIXEL_STRIDE)
+        };
+        when(image.getPlanes()).thenReturn(planes);
+        when(image.getWidth()).thenReturn(WIDTH);
+        when(image.getHeight()).thenReturn(HEIGHT);
+        return image;
+    }
+
+    private static Image.Plane createPlane(ByteBuffer buffer, int rowStride, int pixelStride) {
+        Image.Plane plane = mock(Image.Plane.class);
+        when(plane.getBuffer()).thenReturn(buffer);
+        when(plane.getRowStride()).thenReturn(rowStride);
+        when(plane.getPixelStride()).thenReturn(pixelStride);
+        return plane;
+    }
+
+    private static ByteBuffer randomDirectBuffer(int length, Random random) {
+        byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(length);
+        buffer.put(bytes);
+        buffer.rewind();
+        return buffer;
+    }
+}
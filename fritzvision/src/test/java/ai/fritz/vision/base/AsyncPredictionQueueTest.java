@@ -0,0 +1,118 @@
+package ai.fritz.vision.base;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import ai.fritz.vision.FritzVisionImage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 21, packageName = "ai.fritz.sdkapp")
+public class AsyncPredictionQueueTest {
+
+    private static final int NUM_FRAMES = 10;
+    private static final int TIMEOUT_SECONDS = 5;
+
+    private final CountDownLatch predictionStarted = new CountDownLatch(1);
+    private final CountDownLatch finishPrediction = new CountDownLatch(1);
+    private final AtomicInteger completedCount = new AtomicInteger();
+    private final AtomicInteger cancelledCount = new AtomicInteger();
+    private final AtomicInteger failedCount = new AtomicInteger();
+    private final CountDownLatch allCallbacks = new CountDownLatch(NUM_FRAMES);
+
+    private FritzVisionPredictor<Object> predictor;
+
+    private final PredictionCallback<Object> callback = new PredictionCallback<Object>() {
+        @Override
+        public void onPredictionComplete(FritzVisionImage visionImage, Object result) {
+            completedCount.incrementAndGet();
+            allCallbacks.countDown();
+        }
+
+        @Override
+        public void onPredictionFailed(FritzVisionImage visionImage, RuntimeException exception) {
+            if (exception instanceof CancellationException) {
+                cancelledCount.incrementAndGet();
+            } else {
+                failedCount.incrementAndGet();
+            }
+            allCallbacks.countDown();
+        }
+    };
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        predictor = mock(FritzVisionPredictor.class);
+        // Hold the first prediction so later frames pile up behind it.
+        doAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                predictionStarted.countDown();
+                finishPrediction.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                return new Object();
+            }
+        }).when(predictor).predict(any(FritzVisionImage.class));
+    }
+
+    @Test
+    public void testKeepLatestCallsBackForEverySubmission() throws InterruptedException {
+        AsyncPredictionQueue<Object> queue = new AsyncPredictionQueue<>(predictor, OverflowPolicy.KEEP_LATEST, 1);
+        assertTrue(queue.submit(mock(FritzVisionImage.class), callback));
+        assertTrue(predictionStarted.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+        for (int i = 1; i < NUM_FRAMES; i++) {
+            assertTrue(queue.submit(mock(FritzVisionImage.class), callback));
+        }
+        finishPrediction.countDown();
+
+        assertTrue(allCallbacks.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        // The running frame and the latest one complete. The rest were replaced.
+        assertEquals(2, completedCount.get());
+        assertEquals(NUM_FRAMES - 2, cancelledCount.get());
+        assertEquals(0, failedCount.get());
+        assertEquals(NUM_FRAMES - 2, queue.getStats().getDroppedCount());
+    }
+
+    @Test
+    public void testCloseCallsBackForPendingFrames() throws InterruptedException {
+        final AsyncPredictionQueue<Object> queue = new AsyncPredictionQueue<>(predictor, OverflowPolicy.BOUNDED_QUEUE, NUM_FRAMES);
+        for (int i = 0; i < NUM_FRAMES; i++) {
+            assertTrue(queue.submit(mock(FritzVisionImage.class), callback));
+        }
+        assertTrue(predictionStarted.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+        Thread closer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                queue.close();
+            }
+        });
+        closer.start();
+        // The queued frames are dropped right away. The running one finishes.
+        while (cancelledCount.get() < NUM_FRAMES - 1 && closer.isAlive()) {
+            Thread.sleep(10);
+        }
+        finishPrediction.countDown();
+        closer.join(TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS));
+
+        assertTrue(allCallbacks.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(1, completedCount.get());
+        assertEquals(NUM_FRAMES - 1, cancelledCount.get());
+    }
+}
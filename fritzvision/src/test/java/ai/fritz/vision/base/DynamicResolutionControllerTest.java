@@ -0,0 +1,107 @@
+package ai.fritz.vision.base;
+
+import android.util.Size;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 21, packageName = "ai.fritz.sdkapp")
+public class DynamicResolutionControllerTest {
+
+    private static final long MS = 1000000L;
+
+    private DynamicResolutionOptions options;
+
+    @Before
+    public void setup() {
+        options = new DynamicResolutionOptions();
+        options.targetLatencyMs = 30;
+        options.sampleWindow = 4;
+    }
+
+    @Test
+    public void testStartsAtModelSize() {
+        DynamicResolutionController controller = new DynamicResolutionController(new Size(384, 384), options);
+        assertEquals(new Size(384, 384), controller.getInputSize());
+    }
+
+    @Test
+    public void testShrinksWhenOverBudget() {
+        DynamicResolutionController controller = new DynamicResolutionController(new Size(384, 384), options);
+
+        // Nothing changes until the window is full
+        for (int i = 0; i < options.sampleWindow - 1; i++) {
+            assertFalse(controller.recordInference(60 * MS));
+        }
+        assertTrue(controller.recordInference(60 * MS));
+
+        // Twice the budget means roughly half the pixels
+        Size size = controller.getInputSize();
+        assertTrue(size.getWidth() < 384);
+        assertEquals(0, size.getWidth() % options.sizeAlignment);
+        assertEquals(272, size.getWidth());
+    }
+
+    @Test
+    public void testHysteresisKeepsSize() {
+        DynamicResolutionController controller = new DynamicResolutionController(new Size(384, 384), options);
+        controller = shrinkToMin(controller);
+        Size minSize = controller.getInputSize();
+
+        // Close to the target in either direction doesn't change the size
+        for (int i = 0; i < options.sampleWindow * 3; i++) {
+            assertFalse(controller.recordInference(i % 2 == 0 ? 28 * MS : 33 * MS));
+        }
+        assertEquals(minSize, controller.getInputSize());
+    }
+
+    @Test
+    public void testGrowsWhenUnderBudget() {
+        DynamicResolutionController controller = shrinkToMin(new DynamicResolutionController(new Size(384, 384), options));
+        assertEquals(new Size(192, 192), controller.getInputSize());
+
+        boolean changed = false;
+        for (int i = 0; i < options.sampleWindow; i++) {
+            changed = controller.recordInference(10 * MS);
+        }
+        assertTrue(changed);
+        assertEquals(new Size(240, 240), controller.getInputSize());
+    }
+
+    @Test
+    public void testNeverExceedsBounds() {
+        DynamicResolutionController controller = new DynamicResolutionController(new Size(384, 384), options);
+        for (int i = 0; i < 100; i++) {
+            controller.recordInference(MS);
+        }
+        assertEquals(new Size(384, 384), controller.getInputSize());
+
+        for (int i = 0; i < 100; i++) {
+            controller.recordInference(1000 * MS);
+        }
+        assertEquals(new Size(192, 192), controller.getInputSize());
+    }
+
+    @Test
+    public void testKeepsStrideRemainder() {
+        options.minScale = .25f;
+        DynamicResolutionController controller = shrinkToMin(new DynamicResolutionController(new Size(257, 257), options));
+        assertEquals(1, controller.getInputSize().getWidth() % options.sizeAlignment);
+        assertEquals(new Size(65, 65), controller.getInputSize());
+    }
+
+    private DynamicResolutionController shrinkToMin(DynamicResolutionController controller) {
+        for (int i = 0; i < 100; i++) {
+            controller.recordInference(1000 * MS);
+        }
+        return controller;
+    }
+}
@@ -0,0 +1,87 @@
+package ai.fritz.vision.base;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 21, packageName = "ai.fritz.sdkapp")
+public class FritzVisionPredictorPoolTest {
+
+    private static FritzVisionPredictorPool<FritzVisionPredictor> createPool(int poolSize) {
+        FritzVisionPredictorPoolOptions options = new FritzVisionPredictorPoolOptions();
+        options.poolSize = poolSize;
+        return new FritzVisionPredictorPool<>(new FritzVisionPredictorPool.PredictorFactory<FritzVisionPredictor>() {
+            @Override
+            public FritzVisionPredictor create() {
+                return mock(FritzVisionPredictor.class);
+            }
+        }, options);
+    }
+
+    @Test
+    public void testCloseWakesWaitingCallers() throws InterruptedException {
+        final FritzVisionPredictorPool<FritzVisionPredictor> pool = createPool(1);
+        FritzVisionPredictor leased = pool.acquire();
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+        final CountDownLatch finished = new CountDownLatch(1);
+
+        Thread waiter = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    pool.acquire();
+                } catch (Throwable t) {
+                    error.set(t);
+                }
+                finished.countDown();
+            }
+        });
+        waiter.start();
+
+        pool.close();
+        assertTrue(finished.await(5, TimeUnit.SECONDS));
+        assertTrue(error.get() instanceof IllegalStateException);
+
+        // Leased predictors are closed once they come back.
+        verify(leased, never()).close();
+        pool.release(leased);
+        verify(leased).close();
+    }
+
+    @Test
+    public void testReleasedPredictorsAreClosedWithThePool() {
+        FritzVisionPredictorPool<FritzVisionPredictor> pool = createPool(2);
+        FritzVisionPredictor predictor = pool.acquire();
+        pool.release(predictor);
+        assertEquals(1, pool.getIdleCount());
+
+        pool.close();
+        verify(predictor).close();
+        assertEquals(0, pool.getIdleCount());
+    }
+
+    @Test
+    public void testAcquireAfterCloseThrows() {
+        FritzVisionPredictorPool<FritzVisionPredictor> pool = createPool(1);
+        pool.close();
+        try {
+            pool.acquire();
+            fail("Expected the closed pool to throw");
+        } catch (IllegalStateException e) {
+            // Expected
+        }
+    }
+}